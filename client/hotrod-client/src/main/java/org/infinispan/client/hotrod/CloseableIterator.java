@@ -0,0 +1,18 @@
+package org.infinispan.client.hotrod;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An iterator which holds resources on the servers until it is either exhausted or closed.
+ *
+ * @since 6.0
+ */
+public interface CloseableIterator<E> extends Iterator<E>, Closeable {
+
+   /**
+    * Releases the resources held by the iterator. Closing an iterator more than once has no effect.
+    */
+   @Override
+   void close();
+}
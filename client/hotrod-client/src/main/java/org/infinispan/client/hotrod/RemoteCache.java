@@ -6,6 +6,7 @@
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
+import org.infinispan.client.hotrod.event.RemoteCacheListener;
 import org.infinispan.commons.api.BasicCache;
 import org.infinispan.commons.util.concurrent.NotifyingFuture;
 
@@ -24,10 +25,10 @@
  * is returned instead. E.g. {@link java.util.Map#put(Object, Object)} returns the previous value associated to the
  * supplied key. In case of RemoteCache, this returns null.
  * <p/>
- * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. all
- * the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple individual puts. This means that the
- * these operations are not atomic and that they are costly, e.g. as the number of network round-trips is not one, but
- * the size of the added map. All these synthetic operations are documented as such.
+ * <b>Synthetic operations</b>: aggregate operations are being implemented based on other Hot Rod operations. E.g. with
+ * protocol versions older than 1.3 the {@link java.util.Map#putAll(java.util.Map)} is implemented through multiple
+ * individual puts. This means that the these operations are not atomic and that they are costly, e.g. as the number of
+ * network round-trips is not one, but the size of the added map. All these synthetic operations are documented as such.
  * <p/>
  * <b>changing default behavior through {@link org.infinispan.client.hotrod.Flag}s</b>: it is possible to change the
  * default cache behaviour by using flags on an per invocation basis. E.g.
@@ -189,9 +190,11 @@
    Set<Entry<K, V>> entrySet();
 
    /**
-    * Synthetic operation. The client iterates over the set of keys and calls put for each one of them. This results in
-    * operation not being atomic (if a failure happens after few puts it is not rolled back) and costly (for each key in
-    * the parameter map a remote call is performed).
+    * Synthetic operation. With protocol version 1.3 or later, the client groups the entries by the server owning their
+    * keys and sends each group in a single request, all the requests being sent in parallel. With older protocol
+    * versions, the client iterates over the set of keys and calls put for each one of them, so that a remote call is
+    * performed for each key in the parameter map. In both cases the operation is not atomic: if a failure happens after
+    * some of the entries have been written they are not rolled back.
     */
    @Override
    void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit unit);
@@ -271,6 +274,49 @@
     */
    Map<K, V> getBulk(int size);
 
+   /**
+    * Iterates over all the entries of the remote cache. The entries are fetched from one server after the other, in
+    * batches of the given size, so that neither the client nor the servers ever hold the whole cache in memory. Each
+    * server returns the entries it is the primary owner of, first those held in its memory and then those which are
+    * only in its cache stores. The iterator must be closed if it is not exhausted. Requires protocol version 1.3 or
+    * later.
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize);
+
+   /**
+    * Same as {@link #retrieveEntries(int)}, but only returns the entries which map to the given segments of the
+    * consistent hash of the servers, so that several clients can iterate over disjoint parts of the cache. An empty
+    * set of segments returns all the entries.
+    */
+   CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize);
+
+   /**
+    * Returns the entries of the given keys which exist in the remote cache. The keys are grouped by the server owning
+    * them, and each group is fetched in a single request, all the requests being sent in parallel. Requires protocol
+    * version 1.3 or later; with older versions each key is read with a separate get. The returned Map is unmodifiable.
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Registers a listener which is notified of all the entries created, modified and removed in the remote cache. The
+    * servers push the events over dedicated connections, so that no polling is needed. Removals caused by a clear are
+    * not reported. The listener is removed when the {@link RemoteCacheManager} stops.
+    */
+   void addRemoteListener(RemoteCacheListener<K> listener);
+
+   /**
+    * Same as {@link #addRemoteListener(RemoteCacheListener)}, but the listener is only notified of the events of the
+    * given keys. The keys are filtered by the servers, so the events of the other keys are not sent at all.
+    */
+   void addRemoteListener(RemoteCacheListener<K> listener, Set<? extends K> keys);
+
+   void removeRemoteListener(RemoteCacheListener<K> listener);
+
+   /**
+    * Returns the remote listeners registered on this cache.
+    */
+   Set<RemoteCacheListener<?>> getRemoteListeners();
+
 
    /**
     * Returns the HotRod protocol version supported by this RemoteCache implementation
@@ -12,10 +12,13 @@
 
 import org.infinispan.client.hotrod.configuration.Configuration;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
 import org.infinispan.client.hotrod.configuration.ServerConfiguration;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.impl.ConfigurationProperties;
 import org.infinispan.client.hotrod.impl.RemoteCacheImpl;
+import org.infinispan.client.hotrod.impl.event.ClientListenerNotifier;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.operations.PingOperation.PingResult;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
@@ -309,6 +312,8 @@ public Properties getProperties() {
       properties.setProperty(ConfigurationProperties.FORCE_RETURN_VALUES, Boolean.toString(configuration.forceReturnValues()));
       properties.setProperty(ConfigurationProperties.KEY_SIZE_ESTIMATE, Integer.toString(configuration.keySizeEstimate()));
       properties.setProperty(ConfigurationProperties.MARSHALLER, configuration.marshallerClass().getName());
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_MODE, configuration.nearCache().mode().name());
+      properties.setProperty(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, Integer.toString(configuration.nearCache().maxEntries()));
       properties.setProperty(ConfigurationProperties.PING_ON_STARTUP, Boolean.toString(configuration.pingOnStartup()));
       properties.setProperty(ConfigurationProperties.PROTOCOL_VERSION, configuration.protocolVersion());
       properties.setProperty(ConfigurationProperties.SO_TIMEOUT, Integer.toString(configuration.socketTimeout()));
@@ -580,6 +585,13 @@ public void start() {
    @Override
    public void stop() {
       if (isStarted()) {
+         synchronized (cacheName2RemoteCache) {
+            for (RemoteCacheHolder rcc : cacheName2RemoteCache.values()) {
+               if (rcc.nearCache != null)
+                  rcc.nearCache.stop();
+               rcc.listenerNotifier.stop();
+            }
+         }
          transportFactory.destroy();
          asyncExecutorService.shutdownNow();
       }
@@ -636,7 +648,19 @@ private void startRemoteCache(RemoteCacheHolder remoteCacheHolder) {
       RemoteCacheImpl<?, ?> remoteCache = remoteCacheHolder.remoteCache;
       OperationsFactory operationsFactory = new OperationsFactory(
             transportFactory, remoteCache.getName(), topologyId, remoteCacheHolder.forceReturnValue, codec);
-      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate());
+      if (remoteCacheHolder.nearCache != null) {
+         remoteCacheHolder.nearCache.stop();
+         remoteCacheHolder.nearCache = null;
+      }
+      if (configuration.nearCache().mode() == NearCacheMode.INVALIDATED) {
+         remoteCacheHolder.nearCache = new NearCache(operationsFactory, codec, transportFactory, configuration.nearCache().maxEntries());
+      }
+      if (remoteCacheHolder.listenerNotifier != null) {
+         remoteCacheHolder.listenerNotifier.stop();
+      }
+      remoteCacheHolder.listenerNotifier = new ClientListenerNotifier(remoteCache.getName(), operationsFactory, codec, transportFactory, marshaller);
+      remoteCache.init(marshaller, asyncExecutorService, operationsFactory, configuration.keySizeEstimate(), configuration.valueSizeEstimate(),
+            remoteCacheHolder.nearCache, remoteCacheHolder.listenerNotifier);
    }
 
    public Marshaller getMarshaller() {
@@ -647,6 +671,8 @@ public Marshaller getMarshaller() {
 class RemoteCacheHolder {
    final RemoteCacheImpl<?, ?> remoteCache;
    final boolean forceReturnValue;
+   NearCache nearCache;
+   ClientListenerNotifier listenerNotifier;
 
    RemoteCacheHolder(RemoteCacheImpl<?, ?> remoteCache, boolean forceReturnValue) {
       this.remoteCache = remoteCache;
@@ -102,14 +102,21 @@ public interface ConfigurationChildBuilder {
     */
    ConfigurationBuilder marshaller(Marshaller marshaller);
 
+   /**
+    * Configures the near cache, which keeps recently read entries on the client until the servers report that they
+    * have been modified
+    */
+   NearCacheConfigurationBuilder nearCache();
+
    /**
     * If true, a ping request is sent to a back end server in order to fetch cluster's topology.
     */
    ConfigurationBuilder pingOnStartup(boolean pingOnStartup);
 
    /**
-    * This property defines the protocol version that this client should use. Defaults to 1.1. Other
-    * valid values include 1.0.
+    * This property defines the protocol version that this client should use. Defaults to 1.2. Other
+    * valid values include 1.0, 1.1 and 1.3, which is required by the multi-key get all and put all operations and
+    * by the near cache.
     */
    ConfigurationBuilder protocolVersion(String protocolVersion);
 
@@ -130,12 +137,14 @@ public interface ConfigurationChildBuilder {
    ConfigurationBuilder tcpNoDelay(boolean tcpNoDelay);
 
    /**
-    * Controls which transport to use. Currently only the TcpTransport is supported.
+    * Controls which transport to use. Defaults to the pooled TcpTransportFactory. The MultiplexedTransportFactory
+    * pipelines all the concurrent operations over a single blocking connection per server.
     */
    ConfigurationBuilder transportFactory(String transportFactory);
 
    /**
-    * Controls which transport to use. Currently only the TcpTransport is supported.
+    * Controls which transport to use. Defaults to the pooled TcpTransportFactory. The MultiplexedTransportFactory
+    * pipelines all the concurrent operations over a single blocking connection per server.
     */
    ConfigurationBuilder transportFactory(Class<? extends TransportFactory> transportFactory);
 
@@ -0,0 +1,18 @@
+package org.infinispan.client.hotrod.configuration;
+
+/**
+ * Enumeration of the near cache modes.
+ *
+ * @since 6.0
+ */
+public enum NearCacheMode {
+   /**
+    * The client does not keep any entries locally
+    */
+   DISABLED,
+   /**
+    * The client keeps recently read entries locally, and the servers push an invalidation event whenever one of
+    * the keys is modified, removed or invalidated
+    */
+   INVALIDATED
+}
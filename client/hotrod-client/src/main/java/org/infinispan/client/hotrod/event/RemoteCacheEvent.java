@@ -0,0 +1,24 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * A change of an entry of a remote cache, as reported by the server which owns it.
+ *
+ * @since 6.0
+ */
+public interface RemoteCacheEvent<K> {
+
+   enum Type {
+      CACHE_ENTRY_CREATED,
+      CACHE_ENTRY_MODIFIED,
+      CACHE_ENTRY_REMOVED
+   }
+
+   Type getType();
+
+   K getKey();
+
+   /**
+    * Returns the name of the remote cache in which the entry changed.
+    */
+   String getCacheName();
+}
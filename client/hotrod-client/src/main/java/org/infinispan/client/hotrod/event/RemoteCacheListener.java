@@ -0,0 +1,16 @@
+package org.infinispan.client.hotrod.event;
+
+/**
+ * Listener notified of the entries created, modified and removed in a remote cache, by any client or by the servers
+ * themselves. Register it with {@link org.infinispan.client.hotrod.RemoteCache#addRemoteListener(RemoteCacheListener)}.
+ * <p/>
+ * Each server pushes the events of the keys it owns over a connection of its own, and the events of each server are
+ * delivered on a separate thread, so implementations must be thread safe. The events of a single key are delivered
+ * in order, except while the cluster topology changes.
+ *
+ * @since 6.0
+ */
+public interface RemoteCacheListener<K> {
+
+   void onEvent(RemoteCacheEvent<K> event);
+}
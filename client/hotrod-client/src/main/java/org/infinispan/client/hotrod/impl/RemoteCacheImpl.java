@@ -3,16 +3,21 @@
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import org.infinispan.client.hotrod.CloseableIterator;
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
@@ -20,9 +25,13 @@
 import org.infinispan.client.hotrod.ServerStatistics;
 import org.infinispan.client.hotrod.Version;
 import org.infinispan.client.hotrod.VersionedValue;
+import org.infinispan.client.hotrod.event.RemoteCacheListener;
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.event.ClientListenerNotifier;
+import org.infinispan.client.hotrod.impl.iteration.RemoteEntryIterator;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
 import org.infinispan.client.hotrod.impl.operations.BulkGetKeysOperation;
 import org.infinispan.client.hotrod.impl.operations.BulkGetOperation;
 import org.infinispan.client.hotrod.impl.operations.ClearOperation;
@@ -38,6 +47,7 @@
 import org.infinispan.client.hotrod.impl.operations.RemoveOperation;
 import org.infinispan.client.hotrod.impl.operations.ReplaceIfUnmodifiedOperation;
 import org.infinispan.client.hotrod.impl.operations.ReplaceOperation;
+import org.infinispan.client.hotrod.impl.operations.RetryOnFailureOperation;
 import org.infinispan.client.hotrod.impl.operations.StatsOperation;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
@@ -59,6 +69,8 @@
    private OperationsFactory operationsFactory;
    private int estimateKeySize;
    private int estimateValueSize;
+   private NearCache nearCache;
+   private ClientListenerNotifier listenerNotifier;
 
 
    public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
@@ -70,6 +82,13 @@ public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
    }
 
    public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+      init(marshaller, executorService, operationsFactory, estimateKeySize, estimateValueSize, null, null);
+   }
+
+   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize,
+                    NearCache nearCache, ClientListenerNotifier listenerNotifier) {
+      this.nearCache = nearCache;
+      this.listenerNotifier = listenerNotifier;
       this.marshaller = marshaller;
       this.executorService = executorService;
       this.operationsFactory = operationsFactory;
@@ -89,8 +108,10 @@ public RemoteCacheManager getRemoteCacheManager() {
    @Override
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
-      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(keyBytes, version);
       VersionedOperationResponse response = op.execute();
+      invalidateNearCache(keyBytes);
       return response.getCode().isUpdated();
    }
 
@@ -113,8 +134,10 @@ public Boolean call() throws Exception {
    @Override
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
-      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(keyBytes, obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
       VersionedOperationResponse response = op.execute();
+      invalidateNearCache(keyBytes);
       return response.getCode().isUpdated();
    }
 
@@ -153,9 +176,121 @@ public MetadataValue<V> getWithMetadata(K key) {
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (!isMultiKeySupported()) {
+         for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         }
+         return;
+      }
+      if (map.isEmpty())
+         return;
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
+      applyDefaultExpirationFlags(lifespan, maxIdleTime);
+      Map<byte[], byte[]> entries = new HashMap<byte[], byte[]>(map.size() * 2);
       for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
-         put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
       }
+      if (log.isTraceEnabled()) {
+         log.tracef("About to add %d entries, lifespanSecs:%d, maxIdleSecs:%d", entries.size(), lifespanSecs, maxIdleSecs);
+      }
+      executeInParallel(operationsFactory.newPutAllOperations(entries, lifespanSecs, maxIdleSecs));
+      for (byte[] keyBytes : entries.keySet())
+         invalidateNearCache(keyBytes);
+   }
+
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> toReturn = new HashMap<K, V>();
+      if (!isMultiKeySupported()) {
+         for (K key : keys) {
+            V value = get(key);
+            if (value != null)
+               toReturn.put(key, value);
+         }
+         return Collections.unmodifiableMap(toReturn);
+      }
+      if (keys.isEmpty())
+         return Collections.unmodifiableMap(toReturn);
+      List<byte[]> keyBytes = new ArrayList<byte[]>(keys.size());
+      for (K key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      for (Map<byte[], byte[]> result : executeInParallel(operationsFactory.newGetAllOperations(keyBytes))) {
+         for (Map.Entry<byte[], byte[]> entry : result.entrySet()) {
+            toReturn.put((K) bytes2obj(entry.getKey()), (V) bytes2obj(entry.getValue()));
+         }
+      }
+      return Collections.unmodifiableMap(toReturn);
+   }
+
+   @Override
+   public void addRemoteListener(RemoteCacheListener<K> listener) {
+      assertRemoteCacheManagerIsStarted();
+      listenerNotifier.addListener(listener, Collections.<byte[]>emptyList());
+   }
+
+   @Override
+   public void addRemoteListener(RemoteCacheListener<K> listener, Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      if (keys.isEmpty())
+         throw new IllegalArgumentException("At least one key is required, use addRemoteListener(listener) to be notified of all the keys");
+      List<byte[]> keyBytes = new ArrayList<byte[]>(keys.size());
+      for (K key : keys) {
+         keyBytes.add(obj2bytes(key, true));
+      }
+      listenerNotifier.addListener(listener, keyBytes);
+   }
+
+   @Override
+   public void removeRemoteListener(RemoteCacheListener<K> listener) {
+      listenerNotifier.removeListener(listener);
+   }
+
+   @Override
+   public Set<RemoteCacheListener<?>> getRemoteListeners() {
+      return listenerNotifier.getListeners();
+   }
+
+   /**
+    * Executes the operations, each of which targets a different server, in parallel. The calling thread executes the
+    * first operation itself, so that a single operation is executed without any hand-off.
+    */
+   private <T> List<T> executeInParallel(List<? extends RetryOnFailureOperation<T>> operations) {
+      List<Future<T>> futures = new ArrayList<Future<T>>(operations.size() - 1);
+      for (final RetryOnFailureOperation<T> op : operations.subList(1, operations.size())) {
+         futures.add(executorService.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+               return op.execute();
+            }
+         }));
+      }
+      List<T> results = new ArrayList<T>(operations.size());
+      results.add(operations.get(0).execute());
+      for (Future<T> future : futures) {
+         try {
+            results.add(future.get());
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HotRodClientException(e);
+         } catch (ExecutionException e) {
+            if (e.getCause() instanceof HotRodClientException)
+               throw (HotRodClientException) e.getCause();
+            throw new HotRodClientException(e.getCause());
+         }
+      }
+      return results;
+   }
+
+   private boolean isMultiKeySupported() {
+      // the get all, put all and iteration operations were added in version 1.3 of the protocol
+      String[] version = remoteCacheManager.getConfiguration().protocolVersion().split("\\.");
+      int major = Integer.parseInt(version[0]);
+      int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+      return major > 1 || (major == 1 && minor >= 3);
    }
 
    @Override
@@ -209,8 +344,10 @@ public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleT
       if (log.isTraceEnabled()) {
          log.tracef("About to add (K,V): (%s, %s) lifespanSecs:%d, maxIdleSecs:%d", key, value, lifespanSecs, maxIdleSecs);
       }
-      PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutOperation op = operationsFactory.newPutKeyValueOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] result = op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(result);
    }
 
@@ -222,8 +359,10 @@ public V putIfAbsent(K key, V value, long lifespan, TimeUnit lifespanUnit, long
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
@@ -234,8 +373,10 @@ public V replace(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxI
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       applyDefaultExpirationFlags(lifespan, maxIdleTime);
-      ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
+      byte[] keyBytes = obj2bytes(key, true);
+      ReplaceOperation op = operationsFactory.newReplaceOperation(keyBytes, obj2bytes(value, false), lifespanSecs, maxIdleSecs);
       byte[] bytes = op.execute();
+      invalidateNearCache(keyBytes);
       return (V) bytes2obj(bytes);
    }
 
@@ -331,8 +472,13 @@ public boolean containsKey(Object key) {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = gco.execute();
+      byte[] bytes;
+      if (nearCache == null) {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         bytes = gco.execute();
+      } else {
+         bytes = getThroughNearCache(keyBytes);
+      }
       V result = (V) bytes2obj(bytes);
       if (log.isTraceEnabled()) {
          log.tracef("For key(%s) returning %s", key, result);
@@ -360,12 +506,52 @@ public Map<K, V> getBulk(int size) {
       return Collections.unmodifiableMap(toReturn);
    }
 
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(int batchSize) {
+      return retrieveEntries(Collections.<Integer>emptySet(), batchSize);
+   }
+
+   @Override
+   public CloseableIterator<Map.Entry<K, V>> retrieveEntries(Set<Integer> segments, int batchSize) {
+      assertRemoteCacheManagerIsStarted();
+      if (!isMultiKeySupported()) {
+         throw new UnsupportedOperationException("Iterating over the entries requires protocol version "
+                                                       + ConfigurationProperties.PROTOCOL_VERSION_13 + " or later");
+      }
+      final RemoteEntryIterator entries = operationsFactory.newRemoteEntryIterator(segments, batchSize);
+      return new CloseableIterator<Map.Entry<K, V>>() {
+         @Override
+         public boolean hasNext() {
+            return entries.hasNext();
+         }
+
+         @Override
+         @SuppressWarnings("unchecked")
+         public Map.Entry<K, V> next() {
+            Map.Entry<byte[], byte[]> entry = entries.next();
+            return new AbstractMap.SimpleImmutableEntry<K, V>((K) bytes2obj(entry.getKey()), (V) bytes2obj(entry.getValue()));
+         }
+
+         @Override
+         public void remove() {
+            throw new UnsupportedOperationException();
+         }
+
+         @Override
+         public void close() {
+            entries.close();
+         }
+      };
+   }
+
    @Override
    @SuppressWarnings("unchecked")
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
-      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      RemoveOperation removeOperation = operationsFactory.newRemoveOperation(keyBytes);
       byte[] existingValue = removeOperation.execute();
+      invalidateNearCache(keyBytes);
       // TODO: It sucks that you need the prev value to see if it works...
       // We need to find a better API for RemoteCache...
       return (V) bytes2obj(existingValue);
@@ -376,6 +562,8 @@ public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
       op.execute();
+      if (nearCache != null)
+         nearCache.clear();
    }
 
    @Override
@@ -429,6 +617,33 @@ public V call() throws Exception {
       return result;
    }
 
+   private byte[] getThroughNearCache(byte[] keyBytes) {
+      byte[] bytes = nearCache.get(keyBytes);
+      if (bytes != null) {
+         // the flags were meant for the remote operation which is skipped
+         operationsFactory.clearFlags();
+         return bytes;
+      }
+      nearCache.syncServers();
+      long stamp = nearCache.stamp(keyBytes);
+      MetadataValue<byte[]> value = operationsFactory.newGetWithMetadataOperation(keyBytes).execute();
+      if (value == null)
+         return null;
+      // the servers do not send an event when an entry expires, so only immortal entries are kept
+      if (value.getLifespan() < 0 && value.getMaxIdle() < 0)
+         nearCache.put(keyBytes, value.getValue(), stamp);
+      return value.getValue();
+   }
+
+   /**
+    * The servers send an invalidation event for the modification as well, but it may arrive after the next read of
+    * this client.
+    */
+   private void invalidateNearCache(byte[] keyBytes) {
+      if (nearCache != null)
+         nearCache.invalidate(keyBytes);
+   }
+
    public PingOperation.PingResult ping() {
       return operationsFactory.newFaultTolerantPingOperation().execute();
    }
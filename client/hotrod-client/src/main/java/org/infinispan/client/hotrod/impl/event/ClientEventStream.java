@@ -0,0 +1,67 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import java.net.SocketAddress;
+
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Receives the events of a single remote listener registration from a single server.
+ *
+ * @since 6.0
+ */
+class ClientEventStream extends EventStream {
+
+   private static final Log log = LogFactory.getLog(ClientEventStream.class, Log.class);
+
+   private final ClientListenerNotifier notifier;
+   private final ClientListenerNotifier.Registration registration;
+
+   ClientEventStream(ClientListenerNotifier notifier, ClientListenerNotifier.Registration registration,
+                     SocketAddress server, Codec codec, TransportFactory transportFactory) {
+      super("HotRod-ClientListener", server, codec, transportFactory);
+      this.notifier = notifier;
+      this.registration = registration;
+   }
+
+   @Override
+   protected HeaderParams register(Transport transport) {
+      return notifier.getOperationsFactory().newAddClientListenerOperation(transport, registration.keys).execute()
+            .opCode(HotRodConstants.CLIENT_EVENT);
+   }
+
+   @Override
+   protected void readEvent(Transport transport) {
+      // [header][event type][key length][key]
+      short eventType = transport.readByte();
+      byte[] key = transport.readArray();
+      notifier.dispatch(registration, eventType, key);
+   }
+
+   @Override
+   protected void connected() {
+      notifier.streamConnected(registration, this);
+   }
+
+   @Override
+   protected void disconnected() {
+      notifier.streamDisconnected(registration, this);
+   }
+
+   @Override
+   protected void idle() {
+      // the stream threads also pick up the servers which joined the cluster in the meantime
+      notifier.syncServers();
+   }
+
+   @Override
+   protected void connectionLost(RuntimeException cause) {
+      log.clientEventStreamLost(getServer(), cause);
+      notifier.syncServers();
+   }
+}
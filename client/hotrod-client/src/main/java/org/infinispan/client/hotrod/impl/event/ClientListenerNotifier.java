@@ -0,0 +1,189 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.event.RemoteCacheEvent;
+import org.infinispan.client.hotrod.event.RemoteCacheListener;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.marshall.Marshaller;
+
+/**
+ * Manages the remote listeners of a remote cache. Every listener gets an {@link ClientEventStream} to each server of
+ * the cluster, as each server only reports the events of the keys it owns. The streams follow the topology changes
+ * seen by the transport factory.
+ *
+ * @since 6.0
+ */
+public class ClientListenerNotifier {
+
+   private static final Log log = LogFactory.getLog(ClientListenerNotifier.class, Log.class);
+
+   private final String cacheName;
+   private final OperationsFactory operationsFactory;
+   private final Codec codec;
+   private final TransportFactory transportFactory;
+   private final Marshaller marshaller;
+   private final Map<RemoteCacheListener<?>, Registration> registrations = new LinkedHashMap<RemoteCacheListener<?>, Registration>();
+   private volatile Collection<SocketAddress> knownServers;
+   private boolean stopped;
+
+   public ClientListenerNotifier(String cacheName, OperationsFactory operationsFactory, Codec codec,
+                                 TransportFactory transportFactory, Marshaller marshaller) {
+      this.cacheName = cacheName;
+      this.operationsFactory = operationsFactory;
+      this.codec = codec;
+      this.transportFactory = transportFactory;
+      this.marshaller = marshaller;
+   }
+
+   OperationsFactory getOperationsFactory() {
+      return operationsFactory;
+   }
+
+   /**
+    * Registers the listener on all the servers. An empty collection of keys means that the events of all keys are
+    * sent.
+    */
+   public synchronized void addListener(RemoteCacheListener<?> listener, Collection<byte[]> keys) {
+      if (stopped || registrations.containsKey(listener))
+         return;
+      Registration registration = new Registration(listener, keys);
+      registrations.put(listener, registration);
+      knownServers = transportFactory.getServers();
+      registration.sync(knownServers);
+   }
+
+   public synchronized void removeListener(RemoteCacheListener<?> listener) {
+      Registration registration = registrations.remove(listener);
+      if (registration != null)
+         registration.stop();
+   }
+
+   /**
+    * Returns whether the listener is registered on all the known servers, so that no event can be missed.
+    */
+   public synchronized boolean isConnected(RemoteCacheListener<?> listener) {
+      Registration registration = registrations.get(listener);
+      return registration != null && registration.isConnected();
+   }
+
+   synchronized void streamConnected(Registration registration, ClientEventStream stream) {
+      if (registration.streams.get(stream.getServer()) == stream)
+         registration.connected.add(stream);
+   }
+
+   synchronized void streamDisconnected(Registration registration, ClientEventStream stream) {
+      registration.connected.remove(stream);
+   }
+
+   public synchronized Set<RemoteCacheListener<?>> getListeners() {
+      return Collections.unmodifiableSet(new LinkedHashSet<RemoteCacheListener<?>>(registrations.keySet()));
+   }
+
+   /**
+    * Opens the streams to the servers which joined the cluster since the last call, and closes the streams of the
+    * servers which left it.
+    */
+   public void syncServers() {
+      Collection<SocketAddress> servers = transportFactory.getServers();
+      // the transport factory replaces the collection whenever the topology changes
+      if (servers != knownServers)
+         syncServers(servers);
+   }
+
+   private synchronized void syncServers(Collection<SocketAddress> servers) {
+      if (stopped)
+         return;
+      knownServers = servers;
+      for (Registration registration : registrations.values())
+         registration.sync(servers);
+   }
+
+   public synchronized void stop() {
+      stopped = true;
+      for (Registration registration : registrations.values())
+         registration.stop();
+      registrations.clear();
+   }
+
+   @SuppressWarnings("unchecked")
+   void dispatch(Registration registration, short eventType, byte[] keyBytes) {
+      RemoteCacheEvent.Type type;
+      switch (eventType) {
+         case HotRodConstants.CLIENT_EVENT_CREATED:
+            type = RemoteCacheEvent.Type.CACHE_ENTRY_CREATED;
+            break;
+         case HotRodConstants.CLIENT_EVENT_MODIFIED:
+            type = RemoteCacheEvent.Type.CACHE_ENTRY_MODIFIED;
+            break;
+         case HotRodConstants.CLIENT_EVENT_REMOVED:
+            type = RemoteCacheEvent.Type.CACHE_ENTRY_REMOVED;
+            break;
+         default:
+            throw new HotRodClientException("Unknown event type: " + eventType);
+      }
+      try {
+         Object key = marshaller.objectFromByteBuffer(keyBytes);
+         ((RemoteCacheListener<Object>) registration.listener).onEvent(new RemoteCacheEventImpl<Object>(type, key, cacheName));
+      } catch (Exception e) {
+         // a failing listener must not close the stream, or it would miss the following events
+         log.remoteListenerFailed(registration.listener, e);
+      }
+   }
+
+   class Registration {
+      final RemoteCacheListener<?> listener;
+      final Collection<byte[]> keys;
+      private final Map<SocketAddress, ClientEventStream> streams = new HashMap<SocketAddress, ClientEventStream>();
+      private final Set<ClientEventStream> connected = new HashSet<ClientEventStream>();
+
+      Registration(RemoteCacheListener<?> listener, Collection<byte[]> keys) {
+         this.listener = listener;
+         this.keys = keys;
+      }
+
+      void sync(Collection<SocketAddress> servers) {
+         for (Iterator<Map.Entry<SocketAddress, ClientEventStream>> it = streams.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<SocketAddress, ClientEventStream> entry = it.next();
+            if (!servers.contains(entry.getKey())) {
+               entry.getValue().stop();
+               connected.remove(entry.getValue());
+               it.remove();
+            }
+         }
+         for (SocketAddress server : servers) {
+            if (!streams.containsKey(server)) {
+               ClientEventStream stream = new ClientEventStream(ClientListenerNotifier.this, this, server, codec, transportFactory);
+               streams.put(server, stream);
+               stream.start();
+            }
+         }
+      }
+
+      boolean isConnected() {
+         return !streams.isEmpty() && connected.size() == streams.size();
+      }
+
+      void stop() {
+         for (ClientEventStream stream : streams.values())
+            stream.stop();
+         streams.clear();
+         connected.clear();
+      }
+   }
+}
@@ -0,0 +1,134 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransport;
+
+/**
+ * Receives the events pushed by a single server over a dedicated connection, on a daemon thread of its own. The
+ * connection is registered for events by {@link #register(Transport)}, and every event is then read by
+ * {@link #readEvent(Transport)}. The stream reconnects in the background whenever the connection is lost.
+ *
+ * @since 6.0
+ */
+public abstract class EventStream implements Runnable {
+
+   private static final long RECONNECT_DELAY = 1000;
+
+   private final SocketAddress server;
+   private final Codec codec;
+   private final TransportFactory transportFactory;
+   private final Thread thread;
+   private volatile TcpTransport transport;
+   private volatile boolean running = true;
+
+   protected EventStream(String name, SocketAddress server, Codec codec, TransportFactory transportFactory) {
+      this.server = server;
+      this.codec = codec;
+      this.transportFactory = transportFactory;
+      this.thread = new Thread(this, name + "-" + server);
+      this.thread.setDaemon(true);
+   }
+
+   public SocketAddress getServer() {
+      return server;
+   }
+
+   public void start() {
+      thread.start();
+   }
+
+   public void stop() {
+      running = false;
+      TcpTransport transport = this.transport;
+      if (transport != null)
+         transport.destroy();
+      thread.interrupt();
+   }
+
+   /**
+    * Registers the connection for events, and returns the header parameters the events are read with.
+    */
+   protected abstract HeaderParams register(Transport transport);
+
+   /**
+    * Reads the body of an event, which follows the header.
+    */
+   protected abstract void readEvent(Transport transport);
+
+   /**
+    * Invoked once the connection is registered, before the first event is read.
+    */
+   protected void connected() {
+   }
+
+   /**
+    * Invoked whenever the connection is closed, unless it never got connected.
+    */
+   protected void disconnected() {
+   }
+
+   /**
+    * Invoked when no event arrived within the socket timeout.
+    */
+   protected void idle() {
+   }
+
+   /**
+    * Invoked when the connection is lost while the stream is running, before reconnecting.
+    */
+   protected abstract void connectionLost(RuntimeException cause);
+
+   @Override
+   public void run() {
+      while (running) {
+         boolean connected = false;
+         try {
+            transport = new TcpTransport(server, transportFactory);
+            if (!running)
+               break;
+            HeaderParams params = register(transport);
+            connected = true;
+            connected();
+            while (running) {
+               try {
+                  codec.readHeader(transport, params);
+               } catch (TransportException e) {
+                  // the server writes each event in one go, so a timeout can only happen between events
+                  if (e.getCause() instanceof SocketTimeoutException) {
+                     idle();
+                     continue;
+                  }
+                  throw e;
+               }
+               readEvent(transport);
+            }
+         } catch (RuntimeException e) {
+            if (running)
+               connectionLost(e);
+         } finally {
+            if (connected)
+               disconnected();
+            TcpTransport transport = this.transport;
+            if (transport != null) {
+               transport.destroy();
+               this.transport = null;
+            }
+         }
+         if (running) {
+            try {
+               Thread.sleep(RECONNECT_DELAY);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               return;
+            }
+         }
+      }
+   }
+}
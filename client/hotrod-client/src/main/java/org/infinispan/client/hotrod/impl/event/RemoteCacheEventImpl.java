@@ -0,0 +1,43 @@
+package org.infinispan.client.hotrod.impl.event;
+
+import org.infinispan.client.hotrod.event.RemoteCacheEvent;
+
+/**
+ * @since 6.0
+ */
+public class RemoteCacheEventImpl<K> implements RemoteCacheEvent<K> {
+
+   private final Type type;
+   private final K key;
+   private final String cacheName;
+
+   public RemoteCacheEventImpl(Type type, K key, String cacheName) {
+      this.type = type;
+      this.key = key;
+      this.cacheName = cacheName;
+   }
+
+   @Override
+   public Type getType() {
+      return type;
+   }
+
+   @Override
+   public K getKey() {
+      return key;
+   }
+
+   @Override
+   public String getCacheName() {
+      return cacheName;
+   }
+
+   @Override
+   public String toString() {
+      return "RemoteCacheEventImpl{" +
+            "type=" + type +
+            ", key=" + key +
+            ", cacheName=" + cacheName +
+            '}';
+   }
+}
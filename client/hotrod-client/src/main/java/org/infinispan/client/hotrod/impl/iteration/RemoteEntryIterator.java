@@ -0,0 +1,150 @@
+package org.infinispan.client.hotrod.impl.iteration;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.CloseableIterator;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Iterates over the entries of a remote cache by visiting the servers one after the other. Each server only returns
+ * the entries it primarily owns, so every entry is returned once, and hands them over in batches, so that the
+ * iterator never holds more than one batch. Every request borrows a transport to the server being visited from the
+ * transport factory, like any other operation, and gives it back once answered. A server which fails in the middle of
+ * its iteration fails the whole iteration, as the entries it already returned can not be told apart from the others.
+ *
+ * @since 6.0
+ */
+public class RemoteEntryIterator implements CloseableIterator<Map.Entry<byte[], byte[]>> {
+
+   private static final Log log = LogFactory.getLog(RemoteEntryIterator.class, Log.class);
+
+   private final OperationsFactory operationsFactory;
+   private final TransportFactory transportFactory;
+   private final Set<Integer> segments;
+   private final int batchSize;
+   private Iterator<SocketAddress> servers;
+   private Iterator<Map.Entry<byte[], byte[]>> batch = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+   private SocketAddress server;
+   private String iterationId;
+   private boolean closed;
+
+   public RemoteEntryIterator(OperationsFactory operationsFactory, TransportFactory transportFactory,
+                              Set<Integer> segments, int batchSize) {
+      if (batchSize <= 0)
+         throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+      this.operationsFactory = operationsFactory;
+      this.transportFactory = transportFactory;
+      this.segments = segments;
+      this.batchSize = batchSize;
+   }
+
+   @Override
+   public boolean hasNext() {
+      while (!batch.hasNext()) {
+         if (closed)
+            return false;
+         if (iterationId == null && !startNextServer()) {
+            close();
+            return false;
+         }
+         Map<byte[], byte[]> entries = nextBatch();
+         if (entries.isEmpty()) {
+            endIteration();
+         } else {
+            batch = entries.entrySet().iterator();
+         }
+      }
+      return true;
+   }
+
+   @Override
+   public Map.Entry<byte[], byte[]> next() {
+      if (!hasNext())
+         throw new NoSuchElementException();
+      return batch.next();
+   }
+
+   @Override
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void close() {
+      if (closed)
+         return;
+      closed = true;
+      batch = Collections.<Map.Entry<byte[], byte[]>>emptyList().iterator();
+      if (iterationId != null) {
+         String id = iterationId;
+         try {
+            endIteration();
+         } catch (RuntimeException e) {
+            // the server drops the iteration anyway once the connection which started it is closed
+            log.tracef(e, "Could not end iteration %s", id);
+         }
+      }
+   }
+
+   private boolean startNextServer() {
+      if (servers == null) {
+         // make sure the servers of the current topology are known before they are visited
+         operationsFactory.newFaultTolerantPingOperation().execute();
+         servers = new ArrayList<SocketAddress>(transportFactory.getServers()).iterator();
+      }
+      if (!servers.hasNext())
+         return false;
+      server = servers.next();
+      if (log.isTraceEnabled())
+         log.tracef("Iterating over the entries of server %s", server);
+      Transport transport = transportFactory.getTransport(server);
+      try {
+         iterationId = operationsFactory.newIterationStartOperation(transport, segments, batchSize).execute();
+      } catch (TransportException e) {
+         transportFactory.invalidateTransport(server, transport);
+         throw e;
+      } finally {
+         transportFactory.releaseTransport(transport);
+      }
+      return true;
+   }
+
+   private Map<byte[], byte[]> nextBatch() {
+      Transport transport = transportFactory.getTransport(server);
+      try {
+         return operationsFactory.newIterationNextOperation(transport, iterationId).execute();
+      } catch (TransportException e) {
+         transportFactory.invalidateTransport(server, transport);
+         throw e;
+      } finally {
+         transportFactory.releaseTransport(transport);
+      }
+   }
+
+   private void endIteration() {
+      try {
+         Transport transport = transportFactory.getTransport(server);
+         try {
+            operationsFactory.newIterationEndOperation(transport, iterationId).execute();
+         } catch (TransportException e) {
+            transportFactory.invalidateTransport(server, transport);
+            throw e;
+         } finally {
+            transportFactory.releaseTransport(transport);
+         }
+      } finally {
+         iterationId = null;
+      }
+   }
+}
@@ -0,0 +1,60 @@
+package org.infinispan.client.hotrod.impl.nearcache;
+
+import java.net.SocketAddress;
+
+import org.infinispan.client.hotrod.impl.event.EventStream;
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Receives the key invalidation events of a single server, and applies them to the {@link NearCache}.
+ *
+ * @since 6.0
+ */
+class KeyInvalidationStream extends EventStream {
+
+   private static final Log log = LogFactory.getLog(KeyInvalidationStream.class, Log.class);
+
+   private final NearCache nearCache;
+   private final OperationsFactory operationsFactory;
+
+   KeyInvalidationStream(NearCache nearCache, SocketAddress server, OperationsFactory operationsFactory, Codec codec,
+                         TransportFactory transportFactory) {
+      super("HotRod-KeyInvalidation", server, codec, transportFactory);
+      this.nearCache = nearCache;
+      this.operationsFactory = operationsFactory;
+   }
+
+   @Override
+   protected HeaderParams register(Transport transport) {
+      return operationsFactory.newAddInvalidationListenerOperation(transport).execute()
+            .opCode(HotRodConstants.KEY_INVALIDATION_EVENT);
+   }
+
+   @Override
+   protected void readEvent(Transport transport) {
+      // [header][key length][key]
+      nearCache.invalidate(transport.readArray());
+   }
+
+   @Override
+   protected void connected() {
+      nearCache.streamConnected(this);
+   }
+
+   @Override
+   protected void disconnected() {
+      nearCache.streamDisconnected(this);
+   }
+
+   @Override
+   protected void connectionLost(RuntimeException cause) {
+      log.nearCacheInvalidationStreamLost(getServer(), cause);
+   }
+}
@@ -0,0 +1,239 @@
+package org.infinispan.client.hotrod.impl.nearcache;
+
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Keeps the most recently read entries of a remote cache on the client. The entries are kept in marshalled form, in
+ * segments of least recently used entries, and are invalidated by the {@link KeyInvalidationStream}s the near cache
+ * opens to every server of the cluster.
+ * <p/>
+ * The near cache is only used while the streams to all the known servers are connected, as an event could be missed
+ * otherwise, and it is cleared whenever one of them connects or disconnects. A value read from the servers is only
+ * stored if no invalidation reached its segment while it was being read, so that an invalidation can not be overtaken
+ * by the value it invalidates.
+ *
+ * @since 6.0
+ */
+public class NearCache {
+
+   private static final Log log = LogFactory.getLog(NearCache.class, Log.class);
+
+   private static final int MAX_SEGMENTS = 16;
+
+   private final Segment[] segments;
+   private final OperationsFactory operationsFactory;
+   private final Codec codec;
+   private final TransportFactory transportFactory;
+   private final Map<SocketAddress, KeyInvalidationStream> streams = new HashMap<SocketAddress, KeyInvalidationStream>();
+   private final Set<KeyInvalidationStream> connected = new HashSet<KeyInvalidationStream>();
+   private volatile Collection<SocketAddress> knownServers;
+   private volatile boolean active;
+   private boolean stopped;
+
+   public NearCache(OperationsFactory operationsFactory, Codec codec, TransportFactory transportFactory, int maxEntries) {
+      this.operationsFactory = operationsFactory;
+      this.codec = codec;
+      this.transportFactory = transportFactory;
+      int segmentCount = Math.min(MAX_SEGMENTS, maxEntries);
+      this.segments = new Segment[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+         // the remainder is spread over the first segments, so that the total is exactly maxEntries
+         segments[i] = new Segment(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+      }
+   }
+
+   /**
+    * Returns the marshalled value of the key, or null if the near cache does not hold it.
+    */
+   public byte[] get(byte[] key) {
+      if (!active)
+         return null;
+      return segmentFor(key).get(new Key(key));
+   }
+
+   /**
+    * Returns the invalidation stamp of the key, which must be taken before reading the value from the servers and
+    * passed to {@link #put(byte[], byte[], long)} afterwards.
+    */
+   public long stamp(byte[] key) {
+      return segmentFor(key).stamp();
+   }
+
+   /**
+    * Stores a value read from the servers, unless the key might have been invalidated since the stamp was taken.
+    */
+   public void put(byte[] key, byte[] value, long stamp) {
+      if (active)
+         segmentFor(key).put(new Key(key), value, stamp);
+   }
+
+   public void invalidate(byte[] key) {
+      segmentFor(key).invalidate(new Key(key));
+   }
+
+   public void clear() {
+      for (Segment segment : segments)
+         segment.clear();
+   }
+
+   public int size() {
+      int size = 0;
+      for (Segment segment : segments)
+         size += segment.size();
+      return size;
+   }
+
+   public boolean isActive() {
+      return active;
+   }
+
+   /**
+    * Opens an invalidation stream to each server that joined the cluster since the last call, and closes the streams
+    * of the servers that left it.
+    */
+   public void syncServers() {
+      Collection<SocketAddress> servers = transportFactory.getServers();
+      // the transport factory replaces the collection whenever the topology changes
+      if (servers != knownServers)
+         syncServers(servers);
+   }
+
+   private synchronized void syncServers(Collection<SocketAddress> servers) {
+      if (stopped)
+         return;
+      knownServers = servers;
+      for (Iterator<Map.Entry<SocketAddress, KeyInvalidationStream>> it = streams.entrySet().iterator(); it.hasNext(); ) {
+         Map.Entry<SocketAddress, KeyInvalidationStream> entry = it.next();
+         if (!servers.contains(entry.getKey())) {
+            entry.getValue().stop();
+            connected.remove(entry.getValue());
+            it.remove();
+         }
+      }
+      for (SocketAddress server : servers) {
+         if (!streams.containsKey(server)) {
+            KeyInvalidationStream stream = new KeyInvalidationStream(this, server, operationsFactory, codec, transportFactory);
+            streams.put(server, stream);
+            stream.start();
+         }
+      }
+      updateActive();
+   }
+
+   synchronized void streamConnected(KeyInvalidationStream stream) {
+      if (streams.get(stream.getServer()) == stream) {
+         connected.add(stream);
+         updateActive();
+      }
+   }
+
+   synchronized void streamDisconnected(KeyInvalidationStream stream) {
+      if (connected.remove(stream))
+         updateActive();
+   }
+
+   private void updateActive() {
+      boolean nowActive = !stopped && !streams.isEmpty() && connected.size() == streams.size();
+      if (nowActive != active) {
+         if (log.isDebugEnabled())
+            log.debugf("Near cache %s, %d of %d invalidation streams connected", nowActive ? "activated" : "deactivated",
+                       connected.size(), streams.size());
+         active = false;
+         // the entries and the values in flight can not be trusted across a change of the connected streams
+         clear();
+         active = nowActive;
+      }
+   }
+
+   public synchronized void stop() {
+      stopped = true;
+      for (KeyInvalidationStream stream : streams.values())
+         stream.stop();
+      streams.clear();
+      connected.clear();
+      updateActive();
+   }
+
+   private Segment segmentFor(byte[] key) {
+      int h = Arrays.hashCode(key);
+      // spread the hash, as the low bits of Arrays.hashCode are weak for short keys
+      h ^= (h >>> 20) ^ (h >>> 12);
+      h ^= (h >>> 7) ^ (h >>> 4);
+      return segments[(h & Integer.MAX_VALUE) % segments.length];
+   }
+
+   private static final class Segment {
+      private final LinkedHashMap<Key, byte[]> entries;
+      private long stamp;
+
+      Segment(final int capacity) {
+         this.entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+               return size() > capacity;
+            }
+         };
+      }
+
+      synchronized byte[] get(Key key) {
+         return entries.get(key);
+      }
+
+      synchronized long stamp() {
+         return stamp;
+      }
+
+      synchronized void put(Key key, byte[] value, long stamp) {
+         if (this.stamp == stamp)
+            entries.put(key, value);
+      }
+
+      synchronized void invalidate(Key key) {
+         stamp++;
+         entries.remove(key);
+      }
+
+      synchronized void clear() {
+         stamp++;
+         entries.clear();
+      }
+
+      synchronized int size() {
+         return entries.size();
+      }
+   }
+
+   private static final class Key {
+      private final byte[] bytes;
+      private final int hashCode;
+
+      Key(byte[] bytes) {
+         this.bytes = bytes;
+         this.hashCode = Arrays.hashCode(bytes);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return this == o || o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+      }
+
+      @Override
+      public int hashCode() {
+         return hashCode;
+      }
+   }
+}
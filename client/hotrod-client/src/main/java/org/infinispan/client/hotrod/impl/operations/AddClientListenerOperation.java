@@ -0,0 +1,54 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Registers a client listener on the cache of the server at the other end of the transport. From then on, the server
+ * pushes an event over the same connection, with the message id of the registration request, whenever an entry it
+ * owns is created, modified or removed. If keys are given, the server only sends the events of those keys. The
+ * connection can not be used for any other operation afterwards, and the listener is removed when the connection is
+ * closed.
+ *
+ * @since 6.0
+ */
+@Immutable
+public class AddClientListenerOperation extends HotRodOperation {
+
+   private final Transport transport;
+   private final Collection<byte[]> keys;
+
+   public AddClientListenerOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName,
+                                     Collection<byte[]> keys) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+      this.keys = keys;
+   }
+
+   /**
+    * Returns the header parameters of the registration request, which carry the message id of the events.
+    */
+   @Override
+   public HeaderParams execute() {
+      // [header][key count][key length][key]...
+      HeaderParams params = writeHeader(transport, ADD_CLIENT_LISTENER_REQUEST);
+      transport.writeVInt(keys.size());
+      for (byte[] key : keys) {
+         transport.writeArray(key);
+      }
+      transport.flush();
+
+      short status = readHeaderAndValidate(transport, params);
+      if (status != NO_ERROR_STATUS) {
+         throw new InvalidResponseException("Unexpected response status: " + Integer.toHexString(status));
+      }
+      return params;
+   }
+}
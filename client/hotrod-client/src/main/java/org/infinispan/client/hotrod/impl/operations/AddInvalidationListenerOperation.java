@@ -0,0 +1,44 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Registers a key invalidation listener on the cache of the server at the other end of the transport. From then on,
+ * the server pushes a key invalidation event over the same connection, with the message id of the registration
+ * request, whenever an entry of the cache is modified, removed or invalidated on that server. The connection can not
+ * be used for any other operation afterwards, and the listener is removed when the connection is closed.
+ *
+ * @since 6.0
+ */
+@Immutable
+public class AddInvalidationListenerOperation extends HotRodOperation {
+
+   private final Transport transport;
+
+   public AddInvalidationListenerOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+   }
+
+   /**
+    * Returns the header parameters of the registration request, which carry the message id of the events.
+    */
+   @Override
+   public HeaderParams execute() {
+      HeaderParams params = writeHeader(transport, ADD_INVALIDATION_LISTENER_REQUEST);
+      transport.flush();
+
+      short status = readHeaderAndValidate(transport, params);
+      if (status != NO_ERROR_STATUS) {
+         throw new InvalidResponseException("Unexpected response status: " + Integer.toHexString(status));
+      }
+      return params;
+   }
+}
@@ -0,0 +1,42 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Closes an iteration opened over the same transport, releasing its resources on the server.
+ *
+ * @since 6.0
+ */
+@Immutable
+public class IterationEndOperation extends HotRodOperation {
+
+   private final Transport transport;
+   private final String iterationId;
+
+   public IterationEndOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName,
+                                String iterationId) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+      this.iterationId = iterationId;
+   }
+
+   /**
+    * Returns false if the server did not know the iteration any more.
+    */
+   @Override
+   public Boolean execute() {
+      // [header][iteration id]
+      HeaderParams params = writeHeader(transport, ITERATION_END_REQUEST);
+      transport.writeString(iterationId);
+      transport.flush();
+
+      short status = readHeaderAndValidate(transport, params);
+      return status == NO_ERROR_STATUS;
+   }
+}
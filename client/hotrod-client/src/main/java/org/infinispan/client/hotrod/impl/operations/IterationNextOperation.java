@@ -0,0 +1,53 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Reads the next batch of an iteration opened over the same transport. An empty batch means that the iteration is
+ * finished.
+ *
+ * @since 6.0
+ */
+@Immutable
+public class IterationNextOperation extends HotRodOperation {
+
+   private final Transport transport;
+   private final String iterationId;
+
+   public IterationNextOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName,
+                                 String iterationId) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+      this.iterationId = iterationId;
+   }
+
+   @Override
+   public Map<byte[], byte[]> execute() {
+      // [header][iteration id]
+      HeaderParams params = writeHeader(transport, ITERATION_NEXT_REQUEST);
+      transport.writeString(iterationId);
+      transport.flush();
+
+      // [header][entry count][key length][key][value length][value]...
+      short status = readHeaderAndValidate(transport, params);
+      if (status != NO_ERROR_STATUS) {
+         throw new InvalidResponseException("Iteration " + iterationId + " is not open, status: "
+                                                  + Integer.toHexString(status));
+      }
+      int count = transport.readVInt();
+      Map<byte[], byte[]> result = new LinkedHashMap<byte[], byte[]>(count * 2);
+      for (int i = 0; i < count; i++) {
+         result.put(transport.readArray(), transport.readArray());
+      }
+      return result;
+   }
+}
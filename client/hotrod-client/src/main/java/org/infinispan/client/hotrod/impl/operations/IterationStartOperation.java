@@ -0,0 +1,56 @@
+package org.infinispan.client.hotrod.impl.operations;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.Immutable;
+
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * Opens an iteration over the entries of the cache which are primarily owned by the server at the other end of the
+ * transport, optionally restricted to some segments of its consistent hash. The batches of the iteration must be
+ * requested over the same transport.
+ *
+ * @since 6.0
+ */
+@Immutable
+public class IterationStartOperation extends HotRodOperation {
+
+   private final Transport transport;
+   private final Set<Integer> segments;
+   private final int batchSize;
+
+   public IterationStartOperation(Codec codec, AtomicInteger topologyId, Transport transport, byte[] cacheName,
+                                  Set<Integer> segments, int batchSize) {
+      super(codec, null, cacheName, topologyId);
+      this.transport = transport;
+      this.segments = segments;
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * Returns the id of the iteration.
+    */
+   @Override
+   public String execute() {
+      // [header][segment count][segment]...[batch size]
+      HeaderParams params = writeHeader(transport, ITERATION_START_REQUEST);
+      transport.writeVInt(segments.size());
+      for (int segment : segments) {
+         transport.writeVInt(segment);
+      }
+      transport.writeVInt(batchSize);
+      transport.flush();
+
+      // [header][iteration id]
+      short status = readHeaderAndValidate(transport, params);
+      if (status != NO_ERROR_STATUS) {
+         throw new InvalidResponseException("Unexpected response status: " + Integer.toHexString(status));
+      }
+      return transport.readString();
+   }
+}
@@ -4,14 +4,20 @@
 
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.client.hotrod.impl.iteration.RemoteEntryIterator;
 import org.infinispan.client.hotrod.impl.protocol.Codec;
 import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
 import org.infinispan.client.hotrod.impl.query.RemoteQuery;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
+import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -125,6 +131,54 @@ public BulkGetKeysOperation newBulkGetKeysOperation(int scope) {
     		codec, transportFactory, cacheNameBytes, topologyId, flags(), scope);
    }
 
+   /**
+    * Creates one get all operation per server owning some of the keys, so that the values can be fetched from all the
+    * servers in parallel.
+    */
+   public List<GetAllOperation> newGetAllOperations(Collection<byte[]> keys) {
+      Flag[] flags = flags();
+      Map<SocketAddress, Collection<byte[]>> keysByServer = new HashMap<SocketAddress, Collection<byte[]>>();
+      for (byte[] key : keys) {
+         SocketAddress server = transportFactory.getServer(key);
+         Collection<byte[]> serverKeys = keysByServer.get(server);
+         if (serverKeys == null) {
+            serverKeys = new ArrayList<byte[]>();
+            keysByServer.put(server, serverKeys);
+         }
+         serverKeys.add(key);
+      }
+      List<GetAllOperation> operations = new ArrayList<GetAllOperation>(keysByServer.size());
+      for (Collection<byte[]> serverKeys : keysByServer.values()) {
+         operations.add(new GetAllOperation(
+               codec, transportFactory, serverKeys, cacheNameBytes, topologyId, flags));
+      }
+      return operations;
+   }
+
+   /**
+    * Creates one put all operation per server owning some of the keys, so that the entries can be written to all the
+    * servers in parallel.
+    */
+   public List<PutAllOperation> newPutAllOperations(Map<byte[], byte[]> entries, int lifespanSecs, int maxIdleSecs) {
+      Flag[] flags = flags();
+      Map<SocketAddress, Map<byte[], byte[]>> entriesByServer = new HashMap<SocketAddress, Map<byte[], byte[]>>();
+      for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+         SocketAddress server = transportFactory.getServer(entry.getKey());
+         Map<byte[], byte[]> serverEntries = entriesByServer.get(server);
+         if (serverEntries == null) {
+            serverEntries = new HashMap<byte[], byte[]>();
+            entriesByServer.put(server, serverEntries);
+         }
+         serverEntries.put(entry.getKey(), entry.getValue());
+      }
+      List<PutAllOperation> operations = new ArrayList<PutAllOperation>(entriesByServer.size());
+      for (Map<byte[], byte[]> serverEntries : entriesByServer.values()) {
+         operations.add(new PutAllOperation(
+               codec, transportFactory, serverEntries, cacheNameBytes, topologyId, flags, lifespanSecs, maxIdleSecs));
+      }
+      return operations;
+   }
+
    /**
     * Construct a ping request directed to a particular node.
     *
@@ -135,6 +189,45 @@ public PingOperation newPingOperation(Transport transport) {
       return new PingOperation(codec, topologyId, transport, cacheNameBytes);
    }
 
+   /**
+    * Construct a request which turns the given connection into a stream of key invalidation events of this cache.
+    */
+   public AddInvalidationListenerOperation newAddInvalidationListenerOperation(Transport transport) {
+      return new AddInvalidationListenerOperation(codec, topologyId, transport, cacheNameBytes);
+   }
+
+   /**
+    * Construct a request which turns the given connection into a stream of the events of this cache, optionally
+    * restricted to the given keys.
+    */
+   public AddClientListenerOperation newAddClientListenerOperation(Transport transport, Collection<byte[]> keys) {
+      return new AddClientListenerOperation(codec, topologyId, transport, cacheNameBytes, keys);
+   }
+
+   /**
+    * Construct a request which opens an iteration over the entries primarily owned by the server at the other end of
+    * the given connection. The rest of the iteration must use the same connection.
+    */
+   public IterationStartOperation newIterationStartOperation(Transport transport, Set<Integer> segments, int batchSize) {
+      return new IterationStartOperation(codec, topologyId, transport, cacheNameBytes, segments, batchSize);
+   }
+
+   public IterationNextOperation newIterationNextOperation(Transport transport, String iterationId) {
+      return new IterationNextOperation(codec, topologyId, transport, cacheNameBytes, iterationId);
+   }
+
+   public IterationEndOperation newIterationEndOperation(Transport transport, String iterationId) {
+      return new IterationEndOperation(codec, topologyId, transport, cacheNameBytes, iterationId);
+   }
+
+   /**
+    * Construct an iterator over the entries of the cache in all the servers, optionally restricted to the given
+    * segments of their consistent hash, which fetches the entries in batches of the given size.
+    */
+   public RemoteEntryIterator newRemoteEntryIterator(Set<Integer> segments, int batchSize) {
+      return new RemoteEntryIterator(this, transportFactory, segments, batchSize);
+   }
+
    /**
     * Construct a fault tolerant ping request. This operation should be capable
     * to deal with nodes being down, so it will find the first node successful
@@ -172,6 +265,13 @@ public void setFlags(Flag[] flags) {
       this.flagsMap.set(list);
    }
 
+   /**
+    * Discards the flags set for the next operation, when that operation is answered without contacting the servers.
+    */
+   public void clearFlags() {
+      this.flagsMap.remove();
+   }
+
    public void addFlags(Flag... flags) {
       List<Flag> list = this.flagsMap.get();
       if (list == null) {
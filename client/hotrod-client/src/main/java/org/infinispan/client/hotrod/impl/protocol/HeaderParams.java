@@ -91,6 +91,24 @@ private short toOpRespCode(short opCode) {
             return HotRodConstants.BULK_GET_KEYS_RESPONSE;
          case HotRodConstants.QUERY_REQUEST:
             return HotRodConstants.QUERY_RESPONSE;
+         case HotRodConstants.GET_ALL_REQUEST:
+            return HotRodConstants.GET_ALL_RESPONSE;
+         case HotRodConstants.PUT_ALL_REQUEST:
+            return HotRodConstants.PUT_ALL_RESPONSE;
+         case HotRodConstants.ADD_INVALIDATION_LISTENER_REQUEST:
+            return HotRodConstants.ADD_INVALIDATION_LISTENER_RESPONSE;
+         case HotRodConstants.ADD_CLIENT_LISTENER_REQUEST:
+            return HotRodConstants.ADD_CLIENT_LISTENER_RESPONSE;
+         case HotRodConstants.ITERATION_START_REQUEST:
+            return HotRodConstants.ITERATION_START_RESPONSE;
+         case HotRodConstants.ITERATION_NEXT_REQUEST:
+            return HotRodConstants.ITERATION_NEXT_RESPONSE;
+         case HotRodConstants.ITERATION_END_REQUEST:
+            return HotRodConstants.ITERATION_END_RESPONSE;
+         case HotRodConstants.KEY_INVALIDATION_EVENT:
+         case HotRodConstants.CLIENT_EVENT:
+            // events are pushed by the server under the message id of the registration request
+            return opCode;
          default:
             throw new IllegalStateException("Unknown operation code: " + opCode);
       }
@@ -16,6 +16,7 @@ public interface HotRodConstants {
    static final byte VERSION_10 = 10;
    static final byte VERSION_11 = 11;
    static final byte VERSION_12 = 12;
+   static final byte VERSION_13 = 13;
 
    //requests
    static final byte PUT_REQUEST = 0x01;
@@ -34,6 +35,13 @@ public interface HotRodConstants {
    static final byte GET_WITH_METADATA = 0x1B;
    static final byte BULK_GET_KEYS_REQUEST = 0x1D;
    static final byte QUERY_REQUEST = 0x1F;
+   static final byte GET_ALL_REQUEST = 0x21;
+   static final byte PUT_ALL_REQUEST = 0x23;
+   static final byte ADD_INVALIDATION_LISTENER_REQUEST = 0x25;
+   static final byte ADD_CLIENT_LISTENER_REQUEST = 0x27;
+   static final byte ITERATION_START_REQUEST = 0x29;
+   static final byte ITERATION_NEXT_REQUEST = 0x2B;
+   static final byte ITERATION_END_REQUEST = 0x2D;
 
 
    //responses
@@ -53,7 +61,21 @@ public interface HotRodConstants {
    static final byte GET_WITH_METADATA_RESPONSE = 0x1C;
    static final byte BULK_GET_KEYS_RESPONSE = 0x1E;
    static final byte QUERY_RESPONSE = 0x20;
+   static final byte GET_ALL_RESPONSE = 0x22;
+   static final byte PUT_ALL_RESPONSE = 0x24;
+   static final byte ADD_INVALIDATION_LISTENER_RESPONSE = 0x26;
+   static final byte ADD_CLIENT_LISTENER_RESPONSE = 0x28;
+   static final byte ITERATION_START_RESPONSE = 0x2A;
+   static final byte ITERATION_NEXT_RESPONSE = 0x2C;
+   static final byte ITERATION_END_RESPONSE = 0x2E;
    static final byte ERROR_RESPONSE = 0x50;
+   static final byte KEY_INVALIDATION_EVENT = 0x60;
+   static final byte CLIENT_EVENT = 0x61;
+
+   //client event types
+   static final byte CLIENT_EVENT_CREATED = 0x01;
+   static final byte CLIENT_EVENT_MODIFIED = 0x02;
+   static final byte CLIENT_EVENT_REMOVED = 0x03;
 
    //response status
    static final byte NO_ERROR_STATUS = 0x00;
@@ -36,6 +36,22 @@ public interface TransportFactory {
 
    Transport getTransport(byte[] key);
 
+   /**
+    * Returns a transport to the given server, for the operations which must reach a specific server.
+    */
+   Transport getTransport(SocketAddress server);
+
+   /**
+    * Returns the server which owns the given key according to the consistent hash, or null if the client has not
+    * received any hash information from the servers.
+    */
+   SocketAddress getServer(byte[] key);
+
+   /**
+    * Returns the servers the client currently knows about.
+    */
+   Collection<SocketAddress> getServers();
+
    boolean isTcpNoDelay();
 
    int getTransportCount();
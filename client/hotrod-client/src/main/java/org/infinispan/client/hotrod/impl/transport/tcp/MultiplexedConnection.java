@@ -0,0 +1,529 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedInt;
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedLong;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.net.ssl.SSLContext;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.util.Util;
+
+/**
+ * A connection to a Hot Rod server which is shared by all the concurrent operations sent to that server. Requests are
+ * written as soon as they are flushed, without waiting for the responses of the earlier requests, and the responses
+ * are matched to their requests with the message id of the response header.
+ * <p/>
+ * There is no dedicated reader thread: the threads waiting for a response take turns at reading from the socket. The
+ * current reader peeks at the message id of the next response and hands the stream over to the thread which sent
+ * that request, which then reads the rest of the response and gives up its turn with {@link #releaseTurn(long)}.
+ * <p/>
+ * This is pipelining over a blocking socket rather than a non-blocking transport: every operation still blocks its
+ * calling thread until its response has been read, and the asynchronous operations of the remote cache still run on
+ * the async executor. What it saves is the connection per operation in flight.
+ * <p/>
+ * A request which has waited for longer than the socket timeout while the other responses kept arriving fails on its
+ * own and is abandoned: if its response arrives later, the reader which comes across it reads it off the stream and
+ * drops it, without closing the connection. An error reported with message id 0 cannot be routed to the request which
+ * caused it, so it is logged and skipped the same way, and that request fails once it times out. Any other I/O
+ * failure, timeout or unexpected response leaves the stream in an unknown state, so the connection is closed and all
+ * the operations waiting on it fail with a {@link TransportException}, which makes them retry on a new connection.
+ *
+ * @since 6.0
+ */
+@ThreadSafe
+public class MultiplexedConnection {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   // message ids are always positive, see Codec10
+   private static final long NO_OWNER = -1;
+   // the message id of the errors the server reports before it could read the header of a request
+   private static final long UNKNOWN_MESSAGE_ID = 0;
+   // magic byte followed by a variable length long
+   private static final int MAX_PEEKED_BYTES = 11;
+
+   private final SocketAddress serverAddress;
+   private final Socket socket;
+   private final SocketChannel socketChannel;
+   private final PushbackInputStream socketInputStream;
+   private final BufferedOutputStream socketOutputStream;
+   private final int soTimeout;
+   private final Object writeLock = new Object();
+   // requests which have been sent, but whose responses have not been reached yet, with the first part of the request
+   private final ConcurrentMap<Long, byte[]> pending = new ConcurrentHashMap<Long, byte[]>();
+   // requests which have been given up on, but whose responses may still arrive
+   private final ConcurrentMap<Long, AbandonedRequest> abandoned = new ConcurrentHashMap<Long, AbandonedRequest>();
+
+   // guarded by this
+   private long owner = NO_OWNER;
+   private boolean reading;
+   private volatile boolean closed;
+
+   public MultiplexedConnection(SocketAddress serverAddress, TransportFactory transportFactory) {
+      this.serverAddress = serverAddress;
+      this.soTimeout = transportFactory.getSoTimeout();
+      try {
+         if (transportFactory.getSSLContext() != null) {
+            SSLContext sslContext = transportFactory.getSSLContext();
+            socketChannel = null; // We don't use a SocketChannel in the SSL case
+            socket = sslContext.getSocketFactory().createSocket();
+         } else {
+            socketChannel = SocketChannel.open();
+            socket = socketChannel.socket();
+         }
+         socket.connect(serverAddress, transportFactory.getConnectTimeout());
+         socket.setTcpNoDelay(transportFactory.isTcpNoDelay());
+         socket.setSoTimeout(transportFactory.getSoTimeout());
+         socketInputStream = new PushbackInputStream(
+               new BufferedInputStream(socket.getInputStream(), socket.getReceiveBufferSize()), MAX_PEEKED_BYTES);
+         socketOutputStream = new BufferedOutputStream(socket.getOutputStream(), socket.getSendBufferSize());
+      } catch (Exception e) {
+         String message = String.format("Could not connect to server: %s", serverAddress);
+         log.tracef(e, "Could not connect to server: %s", serverAddress);
+         throw new TransportException(message, e, serverAddress);
+      }
+   }
+
+   /**
+    * Writes a complete request. The response is read once {@link #awaitTurn(long)} returns for the same message id.
+    */
+   public void send(long messageId, byte[] request) {
+      if (closed) {
+         throw new TransportException("Connection is closed", serverAddress);
+      }
+      // register the request before writing it, as its response could be read right away by another thread, and keep
+      // its header in case its response has to be skipped
+      pending.putIfAbsent(messageId, request);
+      synchronized (writeLock) {
+         try {
+            socketOutputStream.write(request);
+            socketOutputStream.flush();
+         } catch (IOException e) {
+            close();
+            throw new TransportException("Problems writing data to stream", e, serverAddress);
+         }
+      }
+      if (trace) {
+         log.tracef("Sent request %d (%d bytes) to %s", messageId, request.length, serverAddress);
+      }
+   }
+
+   /**
+    * Blocks until the response for the given message id is next on the stream, reading the headers of the
+    * responses for other requests and handing the stream to their threads meanwhile. A server which stops responding
+    * makes the socket read of the current reader time out, which closes the connection. A request whose response
+    * does not arrive within the socket timeout while the others keep being answered fails on its own, and is
+    * abandoned.
+    */
+   public void awaitTurn(long messageId) {
+      long deadline = soTimeout > 0 ? System.currentTimeMillis() + soTimeout : Long.MAX_VALUE;
+      while (true) {
+         synchronized (this) {
+            while (true) {
+               if (closed) {
+                  throw new TransportException(String.format(
+                        "Connection closed while waiting for the response to message %d", messageId), serverAddress);
+               }
+               if (owner == messageId) {
+                  return;
+               }
+               if (owner == NO_OWNER && !reading) {
+                  reading = true;
+                  break;
+               }
+               long remaining = deadline - System.currentTimeMillis();
+               if (remaining <= 0) {
+                  abandon(messageId);
+                  throw new TransportException(String.format(
+                        "Timed out waiting for the response to message %d", messageId), serverAddress);
+               }
+               try {
+                  wait(deadline == Long.MAX_VALUE ? 0 : remaining);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  throw new TransportException(e, serverAddress);
+               }
+            }
+         }
+
+         long next;
+         try {
+            next = peekMessageId();
+            if (next == UNKNOWN_MESSAGE_ID) {
+               skipUnmatchedError();
+            }
+         } catch (IOException e) {
+            close();
+            throw new TransportException(e, serverAddress);
+         }
+
+         AbandonedRequest abandonedRequest = null;
+         synchronized (this) {
+            if (next != UNKNOWN_MESSAGE_ID) {
+               if (pending.remove(next) != null) {
+                  if (trace) {
+                     log.tracef("Handing the stream of %s over to the response for message %d", serverAddress, next);
+                  }
+                  owner = next;
+               } else {
+                  // requests are abandoned while holding this lock, so the response is either pending or abandoned
+                  abandonedRequest = abandoned.remove(next);
+                  if (abandonedRequest == null) {
+                     close();
+                     throw new TransportException(String.format(
+                           "Received a response for unknown message %d", next), serverAddress);
+                  }
+               }
+            }
+            if (abandonedRequest == null) {
+               reading = false;
+               notifyAll();
+               continue;
+            }
+         }
+
+         // still the reader, so nobody else touches the stream while the response is skipped
+         try {
+            skipAbandonedResponse(next, abandonedRequest);
+         } catch (IOException e) {
+            close();
+            throw new TransportException(e, serverAddress);
+         }
+         synchronized (this) {
+            reading = false;
+            notifyAll();
+         }
+      }
+   }
+
+   /**
+    * Gives up on the response of the given message id, which is then skipped if it ever arrives. Its response may
+    * also have been an error reported with message id 0, in which case it never arrives and the request is only
+    * forgotten once the connection is closed. A response which has already been handed over, but is not going to be
+    * read, leaves the stream in the middle of a response, so the connection is closed.
+    */
+   public synchronized void abandon(long messageId) {
+      if (owner == messageId) {
+         close();
+         return;
+      }
+      byte[] request = pending.remove(messageId);
+      if (request != null) {
+         abandoned.put(messageId, new AbandonedRequest(request));
+         if (trace) {
+            log.tracef("Abandoned the response for message %d from %s", messageId, serverAddress);
+         }
+      }
+   }
+
+   /**
+    * Reads the magic byte and the message id of the next response, and pushes them back on the stream so that the
+    * codec can read the whole header.
+    */
+   private long peekMessageId() throws IOException {
+      ByteArrayOutputStream peeked = new ByteArrayOutputStream(MAX_PEEKED_BYTES);
+      int magic = readPeekedByte(peeked);
+      if (magic != HotRodConstants.RESPONSE_MAGIC) {
+         throw new IOException(String.format("Invalid magic number. Expected %#x and received %#x",
+                                             HotRodConstants.RESPONSE_MAGIC, magic));
+      }
+      int b;
+      do {
+         b = readPeekedByte(peeked);
+      } while ((b & 0x80) != 0);
+      byte[] header = peeked.toByteArray();
+      socketInputStream.unread(header);
+      return readUnsignedLong(header, 1);
+   }
+
+   /**
+    * Reads an error response with message id 0 off the stream. The server sends it without any topology information,
+    * so it is made of the header followed by the error message.
+    */
+   private void skipUnmatchedError() throws IOException {
+      DataInputStream input = new DataInputStream(socketInputStream);
+      input.readUnsignedByte(); // magic
+      readUnsignedLong(input);
+      input.readUnsignedByte(); // op code
+      input.readUnsignedByte(); // status
+      if (input.readUnsignedByte() != 0) {
+         throw new IOException("Unexpected topology change in an error response with message id 0");
+      }
+      byte[] message = new byte[readUnsignedInt(input)];
+      input.readFully(message);
+      log.unmatchedServerError(serverAddress, new String(message, HotRodConstants.HOTROD_STRING_CHARSET));
+   }
+
+   /**
+    * Reads the response of an abandoned request off the stream. The length of the body depends on the operation and
+    * on its status, and the response to a write carries the previous value when the request forced it to be returned.
+    * A new topology in the header is skipped as well, and is sent again with the next response.
+    */
+   private void skipAbandonedResponse(long messageId, AbandonedRequest request) throws IOException {
+      DataInputStream input = new DataInputStream(socketInputStream);
+      input.readUnsignedByte(); // magic
+      readUnsignedLong(input);
+      int opCode = input.readUnsignedByte();
+      int status = input.readUnsignedByte();
+      if (input.readUnsignedByte() == 1) {
+         skipTopology(input, request.version);
+      }
+      switch (opCode) {
+         case HotRodConstants.ERROR_RESPONSE:
+         case HotRodConstants.ITERATION_START_RESPONSE:
+         case HotRodConstants.QUERY_RESPONSE:
+            skipArray(input);
+            break;
+         case HotRodConstants.PUT_RESPONSE:
+         case HotRodConstants.PUT_IF_ABSENT_RESPONSE:
+         case HotRodConstants.REPLACE_RESPONSE:
+         case HotRodConstants.REPLACE_IF_UNMODIFIED_RESPONSE:
+         case HotRodConstants.REMOVE_RESPONSE:
+         case HotRodConstants.REMOVE_IF_UNMODIFIED_RESPONSE:
+         case HotRodConstants.CONTAINS_KEY_RESPONSE:
+            if (request.forceReturnValue) skipArray(input);
+            break;
+         case HotRodConstants.GET_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) skipArray(input);
+            break;
+         case HotRodConstants.GET_WITH_VERSION_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) {
+               input.readLong(); // version
+               skipArray(input);
+            }
+            break;
+         case HotRodConstants.GET_WITH_METADATA_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) {
+               int flags = input.readUnsignedByte();
+               if ((flags & HotRodConstants.INFINITE_LIFESPAN) != HotRodConstants.INFINITE_LIFESPAN) {
+                  input.readLong(); // created
+                  readUnsignedInt(input);
+               }
+               if ((flags & HotRodConstants.INFINITE_MAXIDLE) != HotRodConstants.INFINITE_MAXIDLE) {
+                  input.readLong(); // last used
+                  readUnsignedInt(input);
+               }
+               input.readLong(); // version
+               skipArray(input);
+            }
+            break;
+         case HotRodConstants.STATS_RESPONSE:
+            for (int i = readUnsignedInt(input); i > 0; i--) {
+               skipArray(input); // name
+               skipArray(input); // value
+            }
+            break;
+         case HotRodConstants.BULK_GET_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) {
+               while (input.readUnsignedByte() == 1) {
+                  skipArray(input);
+                  skipArray(input);
+               }
+            }
+            break;
+         case HotRodConstants.BULK_GET_KEYS_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) {
+               while (input.readUnsignedByte() == 1) {
+                  skipArray(input);
+               }
+            }
+            break;
+         case HotRodConstants.GET_ALL_RESPONSE:
+            skipEntries(input);
+            break;
+         case HotRodConstants.ITERATION_NEXT_RESPONSE:
+            if (status == HotRodConstants.NO_ERROR_STATUS) skipEntries(input);
+            else if (request.forceReturnValue) skipArray(input);
+            break;
+         case HotRodConstants.ITERATION_END_RESPONSE:
+            if (status != HotRodConstants.NO_ERROR_STATUS && request.forceReturnValue) skipArray(input);
+            break;
+         case HotRodConstants.CLEAR_RESPONSE:
+         case HotRodConstants.PING_RESPONSE:
+         case HotRodConstants.PUT_ALL_RESPONSE:
+            break;
+         default:
+            throw new IOException(String.format("Cannot skip the response for message %d with operation code %#x",
+                                                messageId, opCode));
+      }
+      if (trace) {
+         log.tracef("Skipped the response for abandoned message %d from %s", messageId, serverAddress);
+      }
+   }
+
+   private void skipTopology(DataInputStream input, int version) throws IOException {
+      readUnsignedInt(input); // topology id
+      input.readUnsignedShort(); // number of key owners
+      input.readUnsignedByte(); // hash function version
+      readUnsignedInt(input); // hash space
+      int clusterSize = readUnsignedInt(input);
+      if (version >= HotRodConstants.VERSION_11) {
+         readUnsignedInt(input); // number of virtual nodes
+      }
+      for (int i = 0; i < clusterSize; i++) {
+         skipArray(input); // host
+         input.readUnsignedShort(); // port
+         input.readInt(); // hash code
+      }
+   }
+
+   private void skipEntries(DataInputStream input) throws IOException {
+      for (int i = readUnsignedInt(input); i > 0; i--) {
+         skipArray(input); // key
+         skipArray(input); // value
+      }
+   }
+
+   private void skipArray(DataInputStream input) throws IOException {
+      int length = readUnsignedInt(input);
+      if (input.skipBytes(length) != length) {
+         throw new IOException("End of stream reached!");
+      }
+   }
+
+   private int readPeekedByte(ByteArrayOutputStream peeked) throws IOException {
+      int b = socketInputStream.read();
+      if (b == -1) {
+         throw new IOException("End of stream reached!");
+      }
+      if (peeked.size() == MAX_PEEKED_BYTES) {
+         throw new IOException("Invalid response header");
+      }
+      peeked.write(b);
+      return b;
+   }
+
+   /**
+    * Called once the response for the given message id has been read completely.
+    */
+   public synchronized void releaseTurn(long messageId) {
+      if (owner == messageId) {
+         owner = NO_OWNER;
+         notifyAll();
+      }
+   }
+
+   /**
+    * The stream to read the response from, only to be used between {@link #awaitTurn(long)} and
+    * {@link #releaseTurn(long)}.
+    */
+   public InputStream getInputStream() {
+      return socketInputStream;
+   }
+
+   public boolean isOpen() {
+      return !closed && !socket.isClosed();
+   }
+
+   public void close() {
+      synchronized (this) {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         pending.clear();
+         abandoned.clear();
+         notifyAll();
+      }
+      try {
+         socketInputStream.close();
+         socketOutputStream.close();
+         if (socketChannel != null) socketChannel.close();
+         socket.close();
+         if (trace) {
+            log.tracef("Successfully closed socket: %s", socket);
+         }
+      } catch (IOException e) {
+         log.errorClosingConnection(this, e);
+         // Just in case an exception is thrown, make sure they're fully closed
+         Util.close(socketInputStream, socketOutputStream, socketChannel);
+         Util.close(socket);
+      }
+   }
+
+   /**
+    * Reads what is left on the stream for debugging purposes, closing the connection.
+    */
+   public byte[] dumpStream() {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      try {
+         socket.setSoTimeout(5000);
+         // Read 32kb at most
+         for (int i = 0; i < 32768; i++) {
+            int b = socketInputStream.read();
+            if (b < 0) {
+               break;
+            }
+            os.write(b);
+         }
+      } catch (IOException e) {
+         // Ignore
+      } finally {
+         close();
+      }
+      return os.toByteArray();
+   }
+
+   public SocketAddress getServerAddress() {
+      return serverAddress;
+   }
+
+   public SocketAddress getRemoteSocketAddress() {
+      return socket.getRemoteSocketAddress();
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{" +
+            "socket=" + socket +
+            ", serverAddress=" + serverAddress +
+            ", pending=" + pending.size() +
+            ", abandoned=" + abandoned.size() +
+            "}";
+   }
+
+   /**
+    * What it takes to skip the response of an abandoned request, read from the header of the request.
+    */
+   private static final class AbandonedRequest {
+      final int version;
+      final boolean forceReturnValue;
+
+      AbandonedRequest(byte[] request) {
+         ByteArrayInputStream header = new ByteArrayInputStream(request);
+         try {
+            header.read(); // magic
+            readUnsignedLong(header);
+            version = header.read();
+            header.read(); // op code
+            header.skip(readUnsignedInt(header)); // cache name
+            forceReturnValue = (readUnsignedInt(header) & Flag.FORCE_RETURN_VALUE.getFlagInt()) != 0;
+         } catch (IOException e) {
+            // cannot happen when reading from an array
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,226 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedInt;
+import static org.infinispan.commons.io.UnsignedNumeric.readUnsignedLong;
+import static org.infinispan.commons.io.UnsignedNumeric.writeUnsignedInt;
+import static org.infinispan.commons.io.UnsignedNumeric.writeUnsignedLong;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketAddress;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Transport for a single operation over a {@link MultiplexedConnection}. The request is buffered until it is flushed,
+ * so that it reaches the shared connection in one piece, and the response is read once the connection hands the
+ * stream over to this request's message id.
+ *
+ * @since 6.0
+ */
+@NotThreadSafe
+public class MultiplexedTransport extends AbstractTransport {
+
+   private static final Log log = LogFactory.getLog(MultiplexedTransport.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final long NO_MESSAGE_ID = -1;
+
+   private final MultiplexedConnection connection;
+   private final ByteArrayOutputStream request = new ByteArrayOutputStream();
+   private long messageId = NO_MESSAGE_ID;
+   private boolean sent;
+   private boolean reading;
+   private boolean invalid;
+
+   public MultiplexedTransport(MultiplexedConnection connection, TransportFactory transportFactory) {
+      super(transportFactory);
+      this.connection = connection;
+   }
+
+   @Override
+   public void writeVInt(int vInt) {
+      try {
+         writeUnsignedInt(request, vInt);
+      } catch (IOException e) {
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      try {
+         writeUnsignedLong(request, l);
+      } catch (IOException e) {
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      request.write(toAppend, 0, toAppend.length);
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      request.write(toWrite);
+   }
+
+   @Override
+   public void flush() {
+      if (request.size() == 0) {
+         return;
+      }
+      byte[] bytes = request.toByteArray();
+      request.reset();
+      if (messageId == NO_MESSAGE_ID) {
+         if (bytes[0] != (byte) HotRodConstants.REQUEST_MAGIC) {
+            throw new IllegalStateException("A request must start with a header");
+         }
+         messageId = readUnsignedLong(bytes, 1);
+      }
+      try {
+         connection.send(messageId, bytes);
+      } catch (TransportException e) {
+         invalid = true;
+         throw e;
+      }
+      sent = true;
+   }
+
+   private InputStream input() {
+      if (!reading) {
+         if (!sent) {
+            throw new IllegalStateException("No request has been sent");
+         }
+         try {
+            connection.awaitTurn(messageId);
+         } catch (TransportException e) {
+            invalid = true;
+            throw e;
+         }
+         reading = true;
+      }
+      return connection.getInputStream();
+   }
+
+   @Override
+   public long readVLong() {
+      try {
+         return readUnsignedLong(input());
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   public int readVInt() {
+      try {
+         return readUnsignedInt(input());
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+   }
+
+   @Override
+   public short readByte() {
+      int resultInt;
+      try {
+         resultInt = input().read();
+      } catch (IOException e) {
+         invalid = true;
+         throw new TransportException(e, getServerAddress());
+      }
+      if (resultInt == -1) {
+         invalid = true;
+         throw new TransportException("End of stream reached!", getServerAddress());
+      }
+      return (short) resultInt;
+   }
+
+   @Override
+   public byte[] readByteArray(final int size) {
+      byte[] result = new byte[size];
+      int offset = 0;
+      while (offset < size) {
+         int read;
+         try {
+            read = input().read(result, offset, size - offset);
+         } catch (IOException e) {
+            invalid = true;
+            throw new TransportException(e, getServerAddress());
+         }
+         if (read == -1) {
+            invalid = true;
+            throw new TransportException("End of stream reached!", getServerAddress());
+         }
+         offset += read;
+      }
+      if (trace) {
+         log.tracef("Successfully read array with size: %d", size);
+      }
+      return result;
+   }
+
+   /**
+    * Ends the operation: the stream is handed to the next response, unless the response of this request was not
+    * read cleanly, in which case the shared connection can no longer be used. A response which is still due is
+    * abandoned, so that it is skipped once it arrives.
+    */
+   @Override
+   public void release() {
+      if (reading) {
+         reading = false;
+         if (invalid) {
+            connection.close();
+         } else {
+            connection.releaseTurn(messageId);
+         }
+      } else if (sent) {
+         connection.abandon(messageId);
+      }
+      sent = false;
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      invalid = true;
+      return connection.dumpStream();
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return connection.getRemoteSocketAddress();
+   }
+
+   @Override
+   public void invalidate() {
+      invalid = true;
+   }
+
+   public SocketAddress getServerAddress() {
+      return connection.getServerAddress();
+   }
+
+   public MultiplexedConnection getConnection() {
+      return connection;
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedTransport{" +
+            "connection=" + connection +
+            ", messageId=" + messageId +
+            "}";
+   }
+}
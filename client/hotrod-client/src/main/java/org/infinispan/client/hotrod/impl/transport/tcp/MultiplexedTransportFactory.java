@@ -0,0 +1,330 @@
+package org.infinispan.client.hotrod.impl.transport.tcp;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.configuration.Configuration;
+import org.infinispan.client.hotrod.configuration.ServerConfiguration;
+import org.infinispan.client.hotrod.configuration.SslConfiguration;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHash;
+import org.infinispan.client.hotrod.impl.consistenthash.ConsistentHashFactory;
+import org.infinispan.client.hotrod.impl.operations.PingOperation;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.commons.util.SslContextFactory;
+import org.infinispan.commons.util.Util;
+
+/**
+ * Transport factory which opens a single {@link MultiplexedConnection} per server instead of a pool of connections,
+ * and pipelines the requests of all the operations sent to the same server over it. Every operation gets its own
+ * lightweight {@link MultiplexedTransport}, so the number of operations in flight is no longer bounded by the size of
+ * a connection pool. The sockets are still blocking: each operation blocks its thread until its response has been
+ * read, so this reduces the number of connections of a client, not the number of threads it needs.
+ * <p/>
+ * The connection pool settings of the configuration are ignored. To use it, configure
+ * {@link org.infinispan.client.hotrod.configuration.ConfigurationBuilder#transportFactory(Class)} with this class.
+ *
+ * @since 6.0
+ */
+@ThreadSafe
+public class MultiplexedTransportFactory implements TransportFactory {
+
+   private static final Log log = LogFactory.getLog(MultiplexedTransportFactory.class, Log.class);
+
+   /**
+    * Same number of retries as {@link TcpTransportFactory} with an unbounded pool: all the operations failing
+    * because of a broken connection retry at once, and each one gets a new connection.
+    */
+   private static final int RETRIES_PER_SERVER = 10;
+
+   private final Object lock = new Object();
+   private final ConcurrentMap<SocketAddress, MultiplexedConnection> connections =
+         new ConcurrentHashMap<SocketAddress, MultiplexedConnection>();
+   private RequestBalancingStrategy balancer;
+   private Collection<SocketAddress> servers;
+   private ConsistentHash consistentHash;
+   private final ConsistentHashFactory hashFactory = new ConsistentHashFactory();
+
+   // the primitive fields are often accessed separately from the rest so it makes sense not to require synchronization for them
+   private volatile boolean tcpNoDelay;
+   private volatile int soTimeout;
+   private volatile int connectTimeout;
+   private volatile int transportCount;
+   private volatile SSLContext sslContext;
+
+   @Override
+   public void start(Codec codec, Configuration configuration, AtomicInteger topologyId) {
+      synchronized (lock) {
+         hashFactory.init(configuration);
+         servers = new ArrayList<SocketAddress>();
+         for (ServerConfiguration server : configuration.servers()) {
+            servers.add(new InetSocketAddress(server.host(), server.port()));
+         }
+         servers = Collections.unmodifiableCollection(servers);
+         balancer = Util.getInstance(configuration.balancingStrategy());
+         tcpNoDelay = configuration.tcpNoDelay();
+         soTimeout = configuration.socketTimeout();
+         connectTimeout = configuration.connectionTimeout();
+
+         if (configuration.ssl().enabled()) {
+            SslConfiguration ssl = configuration.ssl();
+            if (ssl.sslContext() != null) {
+               sslContext = ssl.sslContext();
+            } else {
+               sslContext = SslContextFactory.getContext(ssl.keyStoreFileName(), ssl.keyStorePassword(), ssl.trustStoreFileName(), ssl.trustStorePassword());
+            }
+         }
+
+         if (log.isDebugEnabled()) {
+            log.debugf("Statically configured servers: %s", servers);
+            log.debugf("Load balancer class: %s", balancer.getClass().getName());
+            log.debugf("Tcp no delay = %b; client socket timeout = %d ms; connect timeout = %d ms",
+                       tcpNoDelay, soTimeout, connectTimeout);
+         }
+         balancer.setServers(servers);
+         updateTransportCount();
+      }
+
+      if (configuration.pingOnStartup())
+         pingServers(codec, topologyId);
+   }
+
+   private void pingServers(Codec codec, AtomicInteger topologyId) {
+      for (SocketAddress addr : getServers()) {
+         Transport transport = null;
+         try {
+            // The first successful ping retrieves the cluster topology
+            transport = getTransport(addr);
+            if (new PingOperation(codec, topologyId, transport).execute() == PingOperation.PingResult.SUCCESS)
+               return;
+         } catch (Exception e) {
+            // Ignore exceptions from nodes that might not be up any more
+            if (log.isTraceEnabled())
+               log.tracef(e, "Ignoring exception pinging configured server %s to establish a connection", addr);
+            if (transport != null)
+               transport.invalidate();
+         } finally {
+            if (transport != null)
+               releaseTransport(transport);
+         }
+      }
+   }
+
+   @Override
+   public void destroy() {
+      synchronized (lock) {
+         for (MultiplexedConnection connection : connections.values()) {
+            connection.close();
+         }
+         connections.clear();
+      }
+   }
+
+   @Override
+   public void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, int numKeyOwners, short hashFunctionVersion, int hashSpace) {
+      synchronized (lock) {
+         ConsistentHash hash = hashFactory.newConsistentHash(hashFunctionVersion);
+         if (hash == null) {
+            log.noHasHFunctionConfigured(hashFunctionVersion);
+         } else {
+            hash.init(servers2Hash, numKeyOwners, hashSpace);
+         }
+         consistentHash = hash;
+      }
+   }
+
+   @Override
+   public Transport getTransport() {
+      SocketAddress server;
+      synchronized (lock) {
+         server = balancer.nextServer();
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public Transport getTransport(byte[] key) {
+      SocketAddress server;
+      synchronized (lock) {
+         if (consistentHash != null) {
+            server = consistentHash.getServer(key);
+            if (log.isTraceEnabled()) {
+               log.tracef("Using consistent hash for determining the server: " + server);
+            }
+         } else {
+            server = balancer.nextServer();
+            if (log.isTraceEnabled()) {
+               log.tracef("Using the balancer for determining the server: %s", server);
+            }
+         }
+      }
+      return getTransport(server);
+   }
+
+   @Override
+   public Transport getTransport(SocketAddress server) {
+      return new MultiplexedTransport(getConnection(server), this);
+   }
+
+   private MultiplexedConnection getConnection(SocketAddress server) {
+      while (true) {
+         MultiplexedConnection connection = connections.get(server);
+         if (connection != null && connection.isOpen()) {
+            return connection;
+         }
+         // Connect without holding any lock, an unreachable server must not block the requests to the other ones
+         MultiplexedConnection newConnection = new MultiplexedConnection(server, this);
+         boolean installed = connection == null
+               ? connections.putIfAbsent(server, newConnection) == null
+               : connections.replace(server, connection, newConnection);
+         if (installed) {
+            if (log.isTraceEnabled()) {
+               log.tracef("Created connection: %s", newConnection);
+            }
+            return newConnection;
+         }
+         // Another thread connected to the same server first
+         newConnection.close();
+      }
+   }
+
+   @Override
+   public SocketAddress getServer(byte[] key) {
+      synchronized (lock) {
+         return consistentHash != null ? consistentHash.getServer(key) : null;
+      }
+   }
+
+   @Override
+   public void releaseTransport(Transport transport) {
+      transport.release();
+   }
+
+   @Override
+   public void invalidateTransport(SocketAddress serverAddress, Transport transport) {
+      if (transport != null) {
+         transport.invalidate();
+      } else if (serverAddress != null) {
+         MultiplexedConnection connection = connections.remove(serverAddress);
+         if (connection != null) {
+            connection.close();
+         }
+      }
+   }
+
+   @Override
+   public void updateServers(Collection<SocketAddress> newServers) {
+      synchronized (lock) {
+         Set<SocketAddress> addedServers = new HashSet<SocketAddress>(newServers);
+         addedServers.removeAll(servers);
+         Set<SocketAddress> failedServers = new HashSet<SocketAddress>(servers);
+         failedServers.removeAll(newServers);
+         if (log.isTraceEnabled()) {
+            log.tracef("Current list: %s", servers);
+            log.tracef("New list: %s", newServers);
+            log.tracef("Added servers: %s", addedServers);
+            log.tracef("Removed servers: %s", failedServers);
+         }
+         if (failedServers.isEmpty() && newServers.isEmpty()) {
+            log.debug("Same list of servers, not changing the connections");
+            return;
+         }
+
+         // New servers are connected to lazily, on their first request
+         for (SocketAddress server : addedServers) {
+            log.newServerAdded(server);
+         }
+
+         balancer.setServers(newServers);
+
+         for (SocketAddress server : failedServers) {
+            log.removingServer(server);
+            MultiplexedConnection connection = connections.remove(server);
+            if (connection != null) {
+               connection.close();
+            }
+         }
+
+         servers = Collections.unmodifiableList(new ArrayList<SocketAddress>(newServers));
+         updateTransportCount();
+      }
+   }
+
+   @Override
+   public Collection<SocketAddress> getServers() {
+      synchronized (lock) {
+         return servers;
+      }
+   }
+
+   /**
+    * Note that the returned <code>ConsistentHash</code> may not be thread-safe.
+    */
+   public ConsistentHash getConsistentHash() {
+      synchronized (lock) {
+         return consistentHash;
+      }
+   }
+
+   @Override
+   public ConsistentHashFactory getConsistentHashFactory() {
+      return hashFactory;
+   }
+
+   /**
+    * Returns the connections currently open, one per server at most.
+    */
+   public Collection<MultiplexedConnection> getConnections() {
+      return Collections.unmodifiableCollection(connections.values());
+   }
+
+   @Override
+   public boolean isTcpNoDelay() {
+      return tcpNoDelay;
+   }
+
+   @Override
+   public int getTransportCount() {
+      if (Thread.currentThread().isInterrupted()) {
+         return -1;
+      }
+      return transportCount;
+   }
+
+   @Override
+   public int getSoTimeout() {
+      return soTimeout;
+   }
+
+   @Override
+   public int getConnectTimeout() {
+      return connectTimeout;
+   }
+
+   @Override
+   public SSLContext getSSLContext() {
+      return sslContext;
+   }
+
+   private void updateTransportCount() {
+      synchronized (lock) {
+         transportCount = RETRIES_PER_SERVER * Math.max(servers.size(), 1);
+      }
+   }
+}
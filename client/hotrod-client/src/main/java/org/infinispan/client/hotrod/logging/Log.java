@@ -1,6 +1,7 @@
 package org.infinispan.client.hotrod.logging;
 
 import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedConnection;
 import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransport;
 import org.infinispan.commons.CacheConfigurationException;
 import org.jboss.logging.BasicLogger;
@@ -125,4 +126,30 @@ public interface Log extends BasicLogger {
 
    @Message(value = "Cannot configure custom KeyStore and/or TrustStore when specifying a SSLContext", id = 4027)
    CacheConfigurationException xorSSLContext();
+
+   @Message(value = "The near cache max entries must be greater than zero, but is %d", id = 4028)
+   CacheConfigurationException invalidNearCacheMaxEntries(int maxEntries);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Lost the invalidation event stream from server %s, the near cache is disabled until it reconnects", id = 4029)
+   void nearCacheInvalidationStreamLost(SocketAddress server, @Cause Throwable t);
+
+   @Message(value = "The near cache requires protocol version 1.3 or later, but version %s is configured", id = 4030)
+   CacheConfigurationException nearCacheRequiresProtocolVersion13(String protocolVersion);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Lost the event stream of a remote listener from server %s, its events are missed until it reconnects", id = 4031)
+   void clientEventStreamLost(SocketAddress server, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Remote listener %s failed to handle an event", id = 4032)
+   void remoteListenerFailed(Object listener, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Issues closing multiplexed connection %s: %s", id = 4033)
+   void errorClosingConnection(MultiplexedConnection connection, IOException e);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Server %s reported an error which cannot be matched to any request: %s", id = 4034)
+   void unmatchedServerError(SocketAddress serverAddress, String message);
 }
@@ -0,0 +1,85 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.test.HotRodClientTestingUtil;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the multi-key get all and put all operations against a distributed cluster, with both the native protocol
+ * 1.3 operations and the per-key fallback of older protocol versions.
+ *
+ * @since 6.0
+ */
+@Test(testName = "client.hotrod.GetAllPutAllDistTest", groups = "functional")
+public class GetAllPutAllDistTest extends MultiHotRodServersTest {
+
+   private static final int NUM_SERVERS = 3;
+
+   private RemoteCacheManager legacyClient;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createHotRodServers(NUM_SERVERS, hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false)));
+      org.infinispan.client.hotrod.configuration.ConfigurationBuilder clientBuilder =
+            createHotRodClientConfigurationBuilder(server(0).getPort());
+      clientBuilder.protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_12);
+      legacyClient = new RemoteCacheManager(clientBuilder.build());
+   }
+
+   @Override
+   protected org.infinispan.client.hotrod.configuration.ConfigurationBuilder createHotRodClientConfigurationBuilder(int serverPort) {
+      return super.createHotRodClientConfigurationBuilder(serverPort)
+            .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      HotRodClientTestingUtil.killRemoteCacheManager(legacyClient);
+   }
+
+   public void testPutAllGetAll() {
+      doPutAllGetAll(client(0).<Integer, String>getCache(), "a");
+   }
+
+   public void testPutAllGetAllWithOlderProtocol() {
+      doPutAllGetAll(legacyClient.<Integer, String>getCache(), "b");
+   }
+
+   private void doPutAllGetAll(RemoteCache<Integer, String> remoteCache, String prefix) {
+      Map<Integer, String> data = new HashMap<Integer, String>();
+      for (int i = 0; i < 100; i++) {
+         data.put(i, prefix + i);
+      }
+      remoteCache.putAll(data);
+
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         assertTrue(cache(i).size() < 100);
+      }
+      for (int i = 0; i < 100; i++) {
+         assertEquals(prefix + i, remoteCache.get(i));
+      }
+
+      Set<Integer> keys = new HashSet<Integer>();
+      for (int i = 50; i < 150; i++) {
+         keys.add(i);
+      }
+      Map<Integer, String> result = remoteCache.getAll(keys);
+      assertEquals(50, result.size());
+      for (int i = 50; i < 100; i++) {
+         assertEquals(prefix + i, result.get(i));
+      }
+   }
+}
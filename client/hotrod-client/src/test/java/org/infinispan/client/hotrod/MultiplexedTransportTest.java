@@ -0,0 +1,198 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedConnection;
+import org.infinispan.client.hotrod.impl.transport.tcp.MultiplexedTransportFactory;
+import org.infinispan.commands.write.PutKeyValueCommand;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killRemoteCacheManager;
+import static org.infinispan.client.hotrod.test.HotRodClientTestingUtil.killServers;
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that the operations of many threads share a single connection with the multiplexed transport.
+ *
+ * @since 6.0
+ */
+@Test(testName = "client.hotrod.MultiplexedTransportTest", groups = "functional")
+public class MultiplexedTransportTest extends SingleCacheManagerTest {
+
+   private static final int NUM_THREADS = 20;
+   private static final int NUM_KEYS = 100;
+
+   private RemoteCache<String, String> remoteCache;
+   private RemoteCacheManager remoteCacheManager;
+   private MultiplexedTransportFactory transportFactory;
+   private HotRodServer hotrodServer;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      return TestCacheManagerFactory.createCacheManager(hotRodCacheConfiguration());
+   }
+
+   @Override
+   protected void setup() throws Exception {
+      super.setup();
+      hotrodServer = TestHelper.startHotRodServer(cacheManager);
+      org.infinispan.client.hotrod.configuration.ConfigurationBuilder clientBuilder =
+            new org.infinispan.client.hotrod.configuration.ConfigurationBuilder();
+      clientBuilder.addServer().host("localhost").port(hotrodServer.getPort())
+            .transportFactory(MultiplexedTransportFactory.class);
+      remoteCacheManager = new RemoteCacheManager(clientBuilder.build());
+      remoteCache = remoteCacheManager.getCache();
+      transportFactory = (MultiplexedTransportFactory) TestingUtil.extractField(remoteCacheManager, "transportFactory");
+   }
+
+   @AfterClass
+   public void destroy() {
+      killRemoteCacheManager(remoteCacheManager);
+      killServers(hotrodServer);
+      super.teardown();
+   }
+
+   public void testConcurrentOperationsShareConnection() throws Exception {
+      ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int i = 0; i < NUM_THREADS; i++) {
+            final String prefix = "t" + i + "-";
+            // values of different sizes, so that responses of different lengths are interleaved
+            final String value = new String(new char[i * 100]).replace('\0', 'v');
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  for (int k = 0; k < NUM_KEYS; k++) {
+                     remoteCache.put(prefix + k, value + k);
+                  }
+                  for (int k = 0; k < NUM_KEYS; k++) {
+                     assertEquals(value + k, remoteCache.get(prefix + k));
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+
+      assertEquals(NUM_THREADS * NUM_KEYS, remoteCache.size());
+      assertEquals(1, transportFactory.getConnections().size());
+   }
+
+   public void testReconnectsAfterConnectionFailure() {
+      remoteCache.put("k1", "v1");
+      MultiplexedConnection connection = transportFactory.getConnections().iterator().next();
+      connection.close();
+
+      assertEquals("v1", remoteCache.get("k1"));
+      remoteCache.put("k2", "v2");
+      assertEquals("v2", remoteCache.get("k2"));
+      assertEquals(1, transportFactory.getConnections().size());
+   }
+
+   public void testUnmatchedErrorKeepsConnection() {
+      remoteCache.put("k1", "v1");
+      MultiplexedConnection connection = transportFactory.getConnections().iterator().next();
+      // not a request, so the server reports an invalid magic error with message id 0
+      connection.send(Long.MAX_VALUE, new byte[]{0x01});
+
+      assertEquals("v1", remoteCache.get("k1"));
+      assertTrue(connection.isOpen());
+      assertSame(connection, transportFactory.getConnections().iterator().next());
+   }
+
+   public void testLateResponseKeepsConnection() throws Exception {
+      remoteCache.put("k1", "v1");
+      final CountDownLatch release = new CountDownLatch(1);
+      final CountDownLatch released = new CountDownLatch(1);
+      final AtomicBoolean held = new AtomicBoolean();
+      // the server writes the entries of a put all asynchronously, so holding one back does not hold the connection
+      cache.getAdvancedCache().addInterceptor(new CommandInterceptor() {
+         @Override
+         public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand command) throws Throwable {
+            // only the first put is held, so that the put all retried after the timeout goes through
+            if (held.compareAndSet(false, true)) {
+               release.await(30, TimeUnit.SECONDS);
+               try {
+                  return invokeNextInterceptor(ctx, command);
+               } finally {
+                  released.countDown();
+               }
+            }
+            return invokeNextInterceptor(ctx, command);
+         }
+      }, 0);
+
+      org.infinispan.client.hotrod.configuration.ConfigurationBuilder clientBuilder =
+            new org.infinispan.client.hotrod.configuration.ConfigurationBuilder();
+      clientBuilder.addServer().host("localhost").port(hotrodServer.getPort())
+            .transportFactory(MultiplexedTransportFactory.class)
+            .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13)
+            .socketTimeout(1000);
+      RemoteCacheManager timingOutCacheManager = new RemoteCacheManager(clientBuilder.build());
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         final RemoteCache<String, String> timingOutCache = timingOutCacheManager.getCache();
+         assertEquals("v1", timingOutCache.get("k1"));
+         MultiplexedTransportFactory timingOutFactory = (MultiplexedTransportFactory)
+               TestingUtil.extractField(timingOutCacheManager, "transportFactory");
+         MultiplexedConnection connection = timingOutFactory.getConnections().iterator().next();
+
+         Future<Void> putAll = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               timingOutCache.putAll(Collections.singletonMap("slow", "v"));
+               return null;
+            }
+         });
+         // the other requests keep completing while the put all waits for longer than the socket timeout
+         while (!putAll.isDone()) {
+            assertEquals("v1", timingOutCache.get("k1"));
+            Thread.sleep(50);
+         }
+         putAll.get();
+         assertEquals("v", timingOutCache.get("slow"));
+
+         // the response to the put all which timed out arrives now, and is skipped
+         release.countDown();
+         assertTrue(released.await(10, TimeUnit.SECONDS));
+         for (int i = 0; i < 10; i++) {
+            assertEquals("v1", timingOutCache.get("k1"));
+            Thread.sleep(50);
+         }
+         assertTrue(connection.isOpen());
+         assertSame(connection, timingOutFactory.getConnections().iterator().next());
+      } finally {
+         release.countDown();
+         executor.shutdownNow();
+         killRemoteCacheManager(timingOutCacheManager);
+         cache.getAdvancedCache().removeInterceptor(0);
+      }
+   }
+}
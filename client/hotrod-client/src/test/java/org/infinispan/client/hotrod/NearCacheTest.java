@@ -0,0 +1,126 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.configuration.NearCacheMode;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.nearcache.NearCache;
+import org.infinispan.client.hotrod.test.HotRodClientTestingUtil;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that the near cache of a client is invalidated by the events of the servers when another client modifies
+ * the entries it holds.
+ *
+ * @since 6.0
+ */
+@Test(testName = "client.hotrod.NearCacheTest", groups = "functional")
+public class NearCacheTest extends MultiHotRodServersTest {
+
+   private static final int MAX_ENTRIES = 10;
+
+   private RemoteCacheManager nearClient;
+   private RemoteCache<String, String> nearRemoteCache;
+   private NearCache nearCache;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createHotRodServers(2, hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false)));
+      org.infinispan.client.hotrod.configuration.ConfigurationBuilder clientBuilder =
+            createHotRodClientConfigurationBuilder(server(1).getPort());
+      clientBuilder.nearCache().mode(NearCacheMode.INVALIDATED).maxEntries(MAX_ENTRIES);
+      nearClient = new RemoteCacheManager(clientBuilder.build());
+      nearRemoteCache = nearClient.getCache();
+      nearCache = (NearCache) TestingUtil.extractField(nearRemoteCache, "nearCache");
+   }
+
+   @Override
+   protected org.infinispan.client.hotrod.configuration.ConfigurationBuilder createHotRodClientConfigurationBuilder(int serverPort) {
+      return super.createHotRodClientConfigurationBuilder(serverPort)
+            .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void release() {
+      HotRodClientTestingUtil.killRemoteCacheManager(nearClient);
+   }
+
+   @BeforeMethod
+   public void waitForStreams() {
+      nearRemoteCache.clear();
+      // the first read opens the invalidation streams to the servers
+      nearRemoteCache.get("k");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            nearCache.syncServers();
+            return nearCache.isActive();
+         }
+      });
+   }
+
+   public void testModificationByOtherClientInvalidates() {
+      RemoteCache<String, String> otherRemoteCache = client(0).getCache();
+      otherRemoteCache.put("k", "v1");
+      // the events of the put may still invalidate the first value read
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return "v1".equals(nearRemoteCache.get("k")) && nearCache.size() == 1;
+         }
+      });
+      assertEquals("v1", nearRemoteCache.get("k"));
+
+      otherRemoteCache.put("k", "v2");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return nearCache.size() == 0;
+         }
+      });
+      assertEquals("v2", nearRemoteCache.get("k"));
+
+      otherRemoteCache.remove("k");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return nearCache.size() == 0;
+         }
+      });
+      assertEquals(null, nearRemoteCache.get("k"));
+   }
+
+   public void testOwnModificationIsVisible() {
+      nearRemoteCache.put("k", "v1");
+      assertEquals("v1", nearRemoteCache.get("k"));
+      nearRemoteCache.put("k", "v2");
+      assertEquals("v2", nearRemoteCache.get("k"));
+      nearRemoteCache.remove("k");
+      assertEquals(null, nearRemoteCache.get("k"));
+   }
+
+   public void testMortalEntriesAreNotCached() {
+      nearRemoteCache.put("k", "v1", 1, TimeUnit.HOURS);
+      assertEquals("v1", nearRemoteCache.get("k"));
+      assertEquals(0, nearCache.size());
+   }
+
+   public void testSizeIsBounded() {
+      RemoteCache<String, String> otherRemoteCache = client(0).getCache();
+      for (int i = 0; i < 5 * MAX_ENTRIES; i++)
+         otherRemoteCache.put("k" + i, "v" + i);
+      for (int i = 0; i < 5 * MAX_ENTRIES; i++)
+         assertEquals("v" + i, nearRemoteCache.get("k" + i));
+      assertTrue(nearCache.size() > 0);
+      assertTrue(nearCache.size() <= MAX_ENTRIES);
+   }
+}
@@ -0,0 +1,129 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.persistence.dummy.DummyInMemoryStoreConfigurationBuilder;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the paged iteration over the entries of a distributed cache, which must return every entry exactly once,
+ * whether it is in memory or only in a cache store, and release the iterations on the servers once closed.
+ *
+ * @since 6.0
+ */
+@Test(testName = "client.hotrod.RemoteIterationTest", groups = "functional")
+public class RemoteIterationTest extends MultiHotRodServersTest {
+
+   private static final int NUM_SERVERS = 3;
+   private static final int NUM_ENTRIES = 100;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false));
+      builder.persistence().addStore(DummyInMemoryStoreConfigurationBuilder.class);
+      createHotRodServers(NUM_SERVERS, builder);
+   }
+
+   @Override
+   protected org.infinispan.client.hotrod.configuration.ConfigurationBuilder createHotRodClientConfigurationBuilder(int serverPort) {
+      return super.createHotRodClientConfigurationBuilder(serverPort)
+            .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13);
+   }
+
+   public void testIterateOverAllEntries() {
+      RemoteCache<Integer, String> remoteCache = populate();
+      Map<Integer, String> entries = iterate(remoteCache.retrieveEntries(7));
+      assertEquals(NUM_ENTRIES, entries.size());
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+         assertEquals("v" + i, entries.get(i));
+      }
+      assertNoActiveIterations();
+   }
+
+   public void testIterateOverStoredEntries() throws Exception {
+      RemoteCache<Integer, String> remoteCache = populate();
+      // leave half of the entries in the stores only
+      for (int i = 0; i < NUM_ENTRIES; i += 2) {
+         for (int j = 0; j < NUM_SERVERS; j++) {
+            cache(j).getAdvancedCache().getDataContainer().remove(client(0).getMarshaller().objectToByteBuffer(i));
+         }
+      }
+      Map<Integer, String> entries = iterate(remoteCache.retrieveEntries(7));
+      assertEquals(NUM_ENTRIES, entries.size());
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+         assertEquals("v" + i, entries.get(i));
+      }
+      assertNoActiveIterations();
+   }
+
+   public void testIterateOverSegments() {
+      RemoteCache<Integer, String> remoteCache = populate();
+      int numSegments = cache(0).getCacheConfiguration().clustering().hash().numSegments();
+      Set<Integer> firstHalf = new HashSet<Integer>();
+      Set<Integer> secondHalf = new HashSet<Integer>();
+      for (int i = 0; i < numSegments; i++) {
+         (i < numSegments / 2 ? firstHalf : secondHalf).add(i);
+      }
+
+      Map<Integer, String> first = iterate(remoteCache.retrieveEntries(firstHalf, 10));
+      Map<Integer, String> second = iterate(remoteCache.retrieveEntries(secondHalf, 10));
+      assertFalse(first.isEmpty());
+      assertFalse(second.isEmpty());
+      assertEquals(NUM_ENTRIES, first.size() + second.size());
+      for (Integer key : first.keySet()) {
+         assertFalse(second.containsKey(key));
+      }
+      assertNoActiveIterations();
+   }
+
+   public void testCloseBeforeExhausted() {
+      RemoteCache<Integer, String> remoteCache = populate();
+      CloseableIterator<Map.Entry<Integer, String>> entries = remoteCache.retrieveEntries(5);
+      for (int i = 0; i < 10; i++) {
+         entries.next();
+      }
+      entries.close();
+      assertFalse(entries.hasNext());
+      assertNoActiveIterations();
+   }
+
+   private RemoteCache<Integer, String> populate() {
+      RemoteCache<Integer, String> remoteCache = client(0).getCache();
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+         remoteCache.put(i, "v" + i);
+      }
+      return remoteCache;
+   }
+
+   private Map<Integer, String> iterate(CloseableIterator<Map.Entry<Integer, String>> entries) {
+      Map<Integer, String> result = new HashMap<Integer, String>();
+      try {
+         while (entries.hasNext()) {
+            Map.Entry<Integer, String> entry = entries.next();
+            // every entry is returned by its primary owner only
+            assertTrue(result.put(entry.getKey(), entry.getValue()) == null);
+         }
+      } finally {
+         entries.close();
+      }
+      return result;
+   }
+
+   private void assertNoActiveIterations() {
+      for (int i = 0; i < NUM_SERVERS; i++) {
+         assertEquals(0, server(i).getIterationManager().activeIterations());
+      }
+   }
+}
@@ -0,0 +1,110 @@
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.event.RemoteCacheEvent;
+import org.infinispan.client.hotrod.event.RemoteCacheListener;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.event.ClientListenerNotifier;
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the remote listeners, which are notified once of every event of a clustered cache, and the filtering of
+ * their events by key on the servers.
+ *
+ * @since 6.0
+ */
+@Test(testName = "client.hotrod.RemoteListenerTest", groups = "functional")
+public class RemoteListenerTest extends MultiHotRodServersTest {
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      createHotRodServers(2, hotRodCacheConfiguration(getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, false)));
+   }
+
+   @Override
+   protected org.infinispan.client.hotrod.configuration.ConfigurationBuilder createHotRodClientConfigurationBuilder(int serverPort) {
+      return super.createHotRodClientConfigurationBuilder(serverPort)
+            .protocolVersion(ConfigurationProperties.PROTOCOL_VERSION_13);
+   }
+
+   public void testEventsOfAllKeys() throws Exception {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      QueueingListener listener = new QueueingListener();
+      addAndConnect(remoteCache, listener);
+
+      remoteCache.put("k1", "v1");
+      assertEvent(listener, RemoteCacheEvent.Type.CACHE_ENTRY_CREATED, "k1");
+      client(1).<String, String>getCache().put("k1", "v2");
+      assertEvent(listener, RemoteCacheEvent.Type.CACHE_ENTRY_MODIFIED, "k1");
+      remoteCache.remove("k1");
+      assertEvent(listener, RemoteCacheEvent.Type.CACHE_ENTRY_REMOVED, "k1");
+      // each event is only sent by the primary owner of the key
+      assertNull(listener.events.poll(500, TimeUnit.MILLISECONDS));
+
+      remoteCache.removeRemoteListener(listener);
+      assertTrue(remoteCache.getRemoteListeners().isEmpty());
+      remoteCache.put("k2", "v1");
+      assertNull(listener.events.poll(500, TimeUnit.MILLISECONDS));
+   }
+
+   public void testEventsFilteredByKey() throws Exception {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      QueueingListener listener = new QueueingListener();
+      remoteCache.addRemoteListener(listener, Collections.singleton("a"));
+      waitForConnection(remoteCache, listener);
+
+      for (int i = 0; i < 10; i++)
+         remoteCache.put("b" + i, "v");
+      remoteCache.put("a", "v");
+      assertEvent(listener, RemoteCacheEvent.Type.CACHE_ENTRY_CREATED, "a");
+      assertNull(listener.events.poll(500, TimeUnit.MILLISECONDS));
+      remoteCache.removeRemoteListener(listener);
+   }
+
+   private void addAndConnect(RemoteCache<String, String> remoteCache, QueueingListener listener) {
+      remoteCache.addRemoteListener(listener);
+      waitForConnection(remoteCache, listener);
+   }
+
+   private void waitForConnection(RemoteCache<String, String> remoteCache, final QueueingListener listener) {
+      final ClientListenerNotifier notifier = (ClientListenerNotifier) TestingUtil.extractField(remoteCache, "listenerNotifier");
+      // the first operation retrieves the cluster topology
+      remoteCache.get("topology");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            notifier.syncServers();
+            return notifier.isConnected(listener);
+         }
+      });
+   }
+
+   private void assertEvent(QueueingListener listener, RemoteCacheEvent.Type type, String key) throws InterruptedException {
+      RemoteCacheEvent<String> event = listener.events.poll(10, TimeUnit.SECONDS);
+      assertNotNull(event);
+      assertEquals(type, event.getType());
+      assertEquals(key, event.getKey());
+   }
+
+   private static class QueueingListener implements RemoteCacheListener<String> {
+      final BlockingQueue<RemoteCacheEvent<String>> events = new LinkedBlockingQueue<RemoteCacheEvent<String>>();
+
+      @Override
+      public void onEvent(RemoteCacheEvent<String> event) {
+         events.add(event);
+      }
+   }
+}
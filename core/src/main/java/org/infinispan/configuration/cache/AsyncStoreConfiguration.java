@@ -12,14 +12,16 @@ public class AsyncStoreConfiguration {
    private final boolean enabled;
    private long flushLockTimeout;
    private final int modificationQueueSize;
+   private final int modificationQueueLowWatermark;
    private long shutdownTimeout;
    private final int threadPoolSize;
 
-   AsyncStoreConfiguration(boolean enabled, long flushLockTimeout, int modificationQueueSize, long shutdownTimeout,
-                           int threadPoolSize) {
+   AsyncStoreConfiguration(boolean enabled, long flushLockTimeout, int modificationQueueSize,
+                           int modificationQueueLowWatermark, long shutdownTimeout, int threadPoolSize) {
       this.enabled = enabled;
       this.flushLockTimeout = flushLockTimeout;
       this.modificationQueueSize = modificationQueueSize;
+      this.modificationQueueLowWatermark = modificationQueueLowWatermark;
       this.shutdownTimeout = shutdownTimeout;
       this.threadPoolSize = threadPoolSize;
    }
@@ -60,6 +62,14 @@ public int modificationQueueSize() {
       return modificationQueueSize;
    }
 
+   /**
+    * Once the modification queue is full, writers stay blocked until the number of modifications waiting to be
+    * applied drops to this value. If negative, writers are unblocked as soon as the queue has room again.
+    */
+   public int modificationQueueLowWatermark() {
+      return modificationQueueLowWatermark;
+   }
+
    /**
     * Timeout to stop the cache store. When the store is stopped it's possible that some
     * modifications still need to be applied; you likely want to set a very large timeout to make
@@ -87,6 +97,7 @@ public String toString() {
             "enabled=" + enabled +
             ", flushLockTimeout=" + flushLockTimeout +
             ", modificationQueueSize=" + modificationQueueSize +
+            ", modificationQueueLowWatermark=" + modificationQueueLowWatermark +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
             '}';
@@ -2,6 +2,7 @@
 
 import java.util.concurrent.TimeUnit;
 
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.commons.configuration.Builder;
 
 /**
@@ -16,6 +17,7 @@
    private boolean enabled = false;
    private long flushLockTimeout = 1;
    private int modificationQueueSize = 1024;
+   private int modificationQueueLowWatermark = -1;
    private long shutdownTimeout = TimeUnit.SECONDS.toMillis(25);
    private int threadPoolSize = 1;
 
@@ -69,6 +71,17 @@ public AsyncStoreConfigurationBuilder<S> modificationQueueSize(int i) {
       return this;
    }
 
+   /**
+    * Once the modification queue is full, writers stay blocked until the number of modifications
+    * waiting to be applied drops to this value, so that the underlying store can write larger
+    * batches instead of accepting one more modification at a time. If negative, the default,
+    * writers are unblocked as soon as the queue has room again.
+    */
+   public AsyncStoreConfigurationBuilder<S> modificationQueueLowWatermark(int i) {
+      this.modificationQueueLowWatermark = i;
+      return this;
+   }
+
    /**
     * Timeout to stop the cache store. When the store is stopped it's possible that some
     * modifications still need to be applied; you likely want to set a very large timeout to make
@@ -99,11 +112,14 @@ public AsyncStoreConfigurationBuilder<S> threadPoolSize(int i) {
    @Override
    public
    void validate() {
+      if (modificationQueueSize > 0 && modificationQueueLowWatermark >= modificationQueueSize)
+         throw new CacheConfigurationException("The modification queue low watermark must be lower than the modification queue size");
    }
 
    @Override
    public AsyncStoreConfiguration create() {
-      return new AsyncStoreConfiguration(enabled, flushLockTimeout, modificationQueueSize, shutdownTimeout, threadPoolSize);
+      return new AsyncStoreConfiguration(enabled, flushLockTimeout, modificationQueueSize, modificationQueueLowWatermark,
+                                         shutdownTimeout, threadPoolSize);
    }
 
    @Override
@@ -111,6 +127,7 @@ public AsyncStoreConfigurationBuilder<S> read(AsyncStoreConfiguration template)
       this.enabled = template.enabled();
       this.flushLockTimeout = template.flushLockTimeout();
       this.modificationQueueSize = template.modificationQueueSize();
+      this.modificationQueueLowWatermark = template.modificationQueueLowWatermark();
       this.shutdownTimeout = template.shutdownTimeout();
       this.threadPoolSize = template.threadPoolSize();
 
@@ -123,6 +140,7 @@ public String toString() {
             "enabled=" + enabled +
             ", flushLockTimeout=" + flushLockTimeout +
             ", modificationQueueSize=" + modificationQueueSize +
+            ", modificationQueueLowWatermark=" + modificationQueueLowWatermark +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
             '}';
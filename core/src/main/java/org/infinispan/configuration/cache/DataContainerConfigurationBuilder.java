@@ -2,6 +2,7 @@
 
 import java.util.Properties;
 
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.commons.configuration.Builder;
 import org.infinispan.commons.equivalence.AnyEquivalence;
 import org.infinispan.commons.equivalence.Equivalence;
@@ -20,6 +21,8 @@ public class DataContainerConfigurationBuilder extends AbstractConfigurationChil
    private DataContainer dataContainer;
    private Equivalence keyEquivalence = AnyEquivalence.getInstance();
    private Equivalence valueEquivalence = AnyEquivalence.getInstance();
+   private boolean offHeap = false;
+   private boolean segmented = false;
    // TODO: What are properties used for? Is it just legacy?
    private Properties properties = new Properties();
 
@@ -90,15 +93,49 @@ public <V> DataContainerConfigurationBuilder valueEquivalence(Equivalence<V> val
       return this;
    }
 
+   /**
+    * Store entries in native memory, outside of the Java heap. Keys, values and metadata are kept in their marshalled
+    * form and only materialised on the heap when read, which keeps large caches out of the old generation at the
+    * expense of marshalling on every access. Off-heap storage cannot be combined with eviction.
+    *
+    * @param offHeap whether entries are stored off-heap
+    * @return this configuration builder
+    */
+   public DataContainerConfigurationBuilder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+   }
+
+   boolean offHeap() {
+      return offHeap;
+   }
+
+   /**
+    * Partition the entries of an unbounded distributed cache by consistent hash segment, so that state transfer only
+    * visits the entries of the segments it moves instead of scanning the whole container. Ignored by caches which
+    * are not distributed, which use eviction or which enable grouping.
+    *
+    * @param segmented whether entries are partitioned by segment
+    * @return this configuration builder
+    */
+   public DataContainerConfigurationBuilder segmented(boolean segmented) {
+      this.segmented = segmented;
+      return this;
+   }
+
    @Override
    public void validate() {
+      if (offHeap && dataContainer != null)
+         throw new CacheConfigurationException("Off-heap storage cannot be enabled together with a custom data container");
+      if (segmented && (offHeap || dataContainer != null))
+         throw new CacheConfigurationException("A segmented data container cannot be combined with off-heap storage or a custom data container");
    }
 
    @Override
    public DataContainerConfiguration create() {
       return new DataContainerConfiguration(dataContainer,
             TypedProperties.toTypedProperties(properties), keyEquivalence,
-            valueEquivalence);
+            valueEquivalence, offHeap, segmented);
    }
 
    @Override
@@ -107,6 +144,8 @@ public DataContainerConfigurationBuilder read(DataContainerConfiguration templat
       this.properties = template.properties();
       this.keyEquivalence = template.keyEquivalence();
       this.valueEquivalence = template.valueEquivalence();
+      this.offHeap = template.offHeap();
+      this.segmented = template.segmented();
 
       return this;
    }
@@ -118,6 +157,8 @@ public String toString() {
             ", properties=" + properties +
             ", keyEquivalence=" + keyEquivalence +
             ", valueEquivalence=" + valueEquivalence +
+            ", offHeap=" + offHeap +
+            ", segmented=" + segmented +
             '}';
    }
 
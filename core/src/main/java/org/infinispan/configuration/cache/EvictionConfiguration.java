@@ -2,6 +2,7 @@
 
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.EvictionType;
 
 /**
  * Controls the eviction settings for the cache.
@@ -11,15 +12,20 @@ public class EvictionConfiguration {
    private final int maxEntries;
    private final EvictionStrategy strategy;
    private final EvictionThreadPolicy threadPolicy;
+   private final EvictionType type;
+   private final long maxMemory;
    
-   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy) {
+   EvictionConfiguration(int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy threadPolicy,
+                         EvictionType type, long maxMemory) {
       this.maxEntries = maxEntries;
       this.strategy = strategy;
       this.threadPolicy = threadPolicy;
+      this.type = type;
+      this.maxMemory = maxMemory;
    }
    
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS' and 'NONE' (to disable
+    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
     * eviction).
     */
    public EvictionStrategy strategy() {
@@ -42,12 +48,31 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   /**
+    * Whether the cache is bounded by number of entries ({@link EvictionType#COUNT}) or by the estimated
+    * memory retained by its entries ({@link EvictionType#MEMORY}).
+    */
+   public EvictionType type() {
+      return type;
+   }
+
+   /**
+    * Maximum estimated amount of memory, in bytes, retained by the entries of a cache instance when
+    * eviction type is {@link EvictionType#MEMORY}. The size of each entry is estimated when it is
+    * written and accounts for the key, the value, the metadata and the container's own overhead.
+    */
+   public long maxMemory() {
+      return maxMemory;
+   }
+
    @Override
    public String toString() {
       return "EvictionConfiguration{" +
             "maxEntries=" + maxEntries +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
+            ", type=" + type +
+            ", maxMemory=" + maxMemory +
             '}';
    }
 
@@ -61,6 +86,8 @@ public boolean equals(Object o) {
       if (maxEntries != that.maxEntries) return false;
       if (strategy != that.strategy) return false;
       if (threadPolicy != that.threadPolicy) return false;
+      if (type != that.type) return false;
+      if (maxMemory != that.maxMemory) return false;
 
       return true;
    }
@@ -70,6 +97,8 @@ public int hashCode() {
       int result = maxEntries;
       result = 31 * result + (strategy != null ? strategy.hashCode() : 0);
       result = 31 * result + (threadPolicy != null ? threadPolicy.hashCode() : 0);
+      result = 31 * result + (type != null ? type.hashCode() : 0);
+      result = 31 * result + (int) (maxMemory ^ (maxMemory >>> 32));
       return result;
    }
 
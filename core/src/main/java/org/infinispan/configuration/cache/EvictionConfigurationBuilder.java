@@ -4,6 +4,7 @@
 import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.EvictionType;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -17,6 +18,8 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
    private int maxEntries = -1;
    private EvictionStrategy strategy = EvictionStrategy.NONE;
    private EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
+   private EvictionType type = EvictionType.COUNT;
+   private long maxMemory = -1;
 
    EvictionConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -24,7 +27,7 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
 
 
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS' and 'NONE' (to disable
+    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
     * eviction).
     *
     * @param evictionStrategy
@@ -60,23 +63,58 @@ public EvictionConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * Whether the cache is bounded by number of entries, see {@link #maxEntries(int)}, or by the
+    * estimated memory retained by its entries, see {@link #maxMemory(long)}. Defaults to
+    * {@link EvictionType#COUNT}.
+    *
+    * @param type
+    */
+   public EvictionConfigurationBuilder type(EvictionType type) {
+      this.type = type;
+      return this;
+   }
+
+   /**
+    * Maximum estimated amount of memory, in bytes, retained by the entries of a cache instance
+    * when the eviction type is {@link EvictionType#MEMORY}. Only the LRU strategy can be used to
+    * bound a cache by memory.
+    *
+    * @param maxMemory
+    */
+   public EvictionConfigurationBuilder maxMemory(long maxMemory) {
+      this.maxMemory = maxMemory;
+      return this;
+   }
+
    @Override
    public void validate() {
       if (!strategy.isEnabled() && getBuilder().persistence().passivation())
          log.passivationWithoutEviction();
       if(strategy == EvictionStrategy.FIFO)
          log.warn("FIFO strategy is deprecated, LRU will be used instead");
-      if (strategy.isEnabled() && maxEntries <= 0)
+      if (type == EvictionType.MEMORY) {
+         if (maxMemory <= 0)
+            throw new CacheConfigurationException("Eviction maxMemory value must be greater than zero if eviction type is MEMORY");
+         if (!strategy.isEnabled()) {
+            strategy = EvictionStrategy.LRU;
+            log.debugf("Eviction type MEMORY configured without eviction strategy. Eviction strategy overriden to %s", strategy);
+         }
+         if (strategy == EvictionStrategy.LIRS || strategy == EvictionStrategy.TINY_LFU)
+            throw new CacheConfigurationException("Eviction strategy " + strategy + " cannot be used when eviction type is MEMORY");
+      } else if (strategy.isEnabled() && maxEntries <= 0)
          throw new CacheConfigurationException("Eviction maxEntries value cannot be less than or equal to zero if eviction is enabled");
       if (maxEntries > 0 && !strategy.isEnabled()) {
          strategy = EvictionStrategy.LIRS;
          log.debugf("Max entries configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxEntries, strategy);
       }
+      if (strategy.isEnabled() && getBuilder().dataContainer().offHeap())
+         throw new CacheConfigurationException("Eviction cannot be used with off-heap storage");
    }
 
    @Override
    public EvictionConfiguration create() {
-      return new EvictionConfiguration(maxEntries, strategy, threadPolicy);
+      return new EvictionConfiguration(maxEntries, strategy, threadPolicy, type, maxMemory);
    }
 
    @Override
@@ -84,6 +122,8 @@ public EvictionConfigurationBuilder read(EvictionConfiguration template) {
       this.maxEntries = template.maxEntries();
       this.strategy = template.strategy();
       this.threadPolicy = template.threadPolicy();
+      this.type = template.type();
+      this.maxMemory = template.maxMemory();
 
       return this;
    }
@@ -94,6 +134,8 @@ public String toString() {
             "maxEntries=" + maxEntries +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
+            ", type=" + type +
+            ", maxMemory=" + maxMemory +
             '}';
    }
 
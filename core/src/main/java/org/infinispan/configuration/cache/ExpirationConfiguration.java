@@ -9,12 +9,17 @@ public class ExpirationConfiguration {
    private final long maxIdle;
    private final boolean reaperEnabled;
    private final long wakeUpInterval;
+   private final long touchGranularity;
+   private final int purgeParallelism;
 
-   ExpirationConfiguration(long lifespan, long maxIdle, boolean reaperEnabled, long wakeUpInterval) {
+   ExpirationConfiguration(long lifespan, long maxIdle, boolean reaperEnabled, long wakeUpInterval,
+         long touchGranularity, int purgeParallelism) {
       this.lifespan = lifespan;
       this.maxIdle = maxIdle;
       this.reaperEnabled = reaperEnabled;
       this.wakeUpInterval = wakeUpInterval;
+      this.touchGranularity = touchGranularity;
+      this.purgeParallelism = purgeParallelism;
    }
 
    /**
@@ -55,6 +60,26 @@ public long wakeUpInterval() {
       return wakeUpInterval;
    }
 
+   /**
+    * Granularity (in milliseconds) with which reads record the last access time of entries with a
+    * maximum idle time. The last access time is only updated when it is older than the granularity,
+    * so idle entries may expire up to this long before their maximum idle time has elapsed. 0
+    * records every access.
+    */
+   public long touchGranularity() {
+      return touchGranularity;
+   }
+
+   /**
+    * Maximum number of threads used by each run of the reaper to purge expired entries from the
+    * segments of the data container and from the cache stores concurrently. The threads are taken
+    * from the global persistence executor, which is shared by all caches. 1 purges them one after
+    * the other on the reaper thread.
+    */
+   public int purgeParallelism() {
+      return purgeParallelism;
+   }
+
    @Override
    public String toString() {
       return "ExpirationConfiguration{" +
@@ -62,6 +87,8 @@ public String toString() {
             ", maxIdle=" + maxIdle +
             ", reaperEnabled=" + reaperEnabled +
             ", wakeUpInterval=" + wakeUpInterval +
+            ", touchGranularity=" + touchGranularity +
+            ", purgeParallelism=" + purgeParallelism +
             '}';
    }
 
@@ -76,6 +103,8 @@ public boolean equals(Object o) {
       if (maxIdle != that.maxIdle) return false;
       if (reaperEnabled != that.reaperEnabled) return false;
       if (wakeUpInterval != that.wakeUpInterval) return false;
+      if (touchGranularity != that.touchGranularity) return false;
+      if (purgeParallelism != that.purgeParallelism) return false;
 
       return true;
    }
@@ -86,6 +115,8 @@ public int hashCode() {
       result = 31 * result + (int) (maxIdle ^ (maxIdle >>> 32));
       result = 31 * result + (reaperEnabled ? 1 : 0);
       result = 31 * result + (int) (wakeUpInterval ^ (wakeUpInterval >>> 32));
+      result = 31 * result + (int) (touchGranularity ^ (touchGranularity >>> 32));
+      result = 31 * result + purgeParallelism;
       return result;
    }
 
@@ -2,6 +2,7 @@
 
 import java.util.concurrent.TimeUnit;
 
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.commons.configuration.Builder;
 
 /**
@@ -13,6 +14,8 @@ public class ExpirationConfigurationBuilder extends AbstractConfigurationChildBu
    private long maxIdle = -1L;
    private boolean reaperEnabled = true;
    private long wakeUpInterval = TimeUnit.MINUTES.toMillis(1);
+   private long touchGranularity = 0;
+   private int purgeParallelism = 1;
 
    ExpirationConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -109,13 +112,49 @@ public ExpirationConfigurationBuilder wakeUpInterval(long l, TimeUnit unit) {
       return wakeUpInterval(unit.toMillis(l));
    }
 
+   /**
+    * Granularity (in milliseconds) with which reads record the last access time of entries with a
+    * maximum idle time. The last access time is only updated when it is older than the granularity,
+    * which avoids writing to hot entries on every read, at the expense of expiring idle entries up
+    * to this long before their maximum idle time has elapsed. 0 records every access.
+    */
+   public ExpirationConfigurationBuilder touchGranularity(long l) {
+      this.touchGranularity = l;
+      return this;
+   }
+
+   /**
+    * Granularity with which reads record the last access time of entries with a maximum idle time.
+    *
+    * @see #touchGranularity(long)
+    */
+   public ExpirationConfigurationBuilder touchGranularity(long l, TimeUnit unit) {
+      return touchGranularity(unit.toMillis(l));
+   }
+
+   /**
+    * Maximum number of threads used by each run of the reaper to purge expired entries from the
+    * segments of the data container and from the cache stores concurrently. The threads are taken
+    * from the global persistence executor, which is shared by all caches. 1 purges them one after
+    * the other on the reaper thread.
+    */
+   public ExpirationConfigurationBuilder purgeParallelism(int parallelism) {
+      this.purgeParallelism = parallelism;
+      return this;
+   }
+
    @Override
    public void validate() {
+      if (touchGranularity < 0)
+         throw new CacheConfigurationException("Touch granularity cannot be negative");
+      if (purgeParallelism < 1)
+         throw new CacheConfigurationException("Purge parallelism must be at least 1");
    }
 
    @Override
    public ExpirationConfiguration create() {
-      return new ExpirationConfiguration(lifespan, maxIdle, reaperEnabled, wakeUpInterval);
+      return new ExpirationConfiguration(lifespan, maxIdle, reaperEnabled, wakeUpInterval, touchGranularity,
+            purgeParallelism);
    }
 
    @Override
@@ -124,6 +163,8 @@ public ExpirationConfigurationBuilder read(ExpirationConfiguration template) {
       this.maxIdle = template.maxIdle();
       this.reaperEnabled = template.reaperEnabled();
       this.wakeUpInterval = template.wakeUpInterval();
+      this.touchGranularity = template.touchGranularity();
+      this.purgeParallelism = template.purgeParallelism();
 
       return this;
    }
@@ -135,6 +176,8 @@ public String toString() {
             ", maxIdle=" + maxIdle +
             ", reaperEnabled=" + reaperEnabled +
             ", wakeUpInterval=" + wakeUpInterval +
+            ", touchGranularity=" + touchGranularity +
+            ", purgeParallelism=" + purgeParallelism +
             '}';
    }
 
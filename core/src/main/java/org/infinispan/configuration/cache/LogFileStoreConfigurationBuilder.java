@@ -0,0 +1,107 @@
+package org.infinispan.configuration.cache;
+
+import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.commons.configuration.Builder;
+
+/**
+ * Log-structured file cache store configuration builder.
+ *
+ * @since 6.0
+ */
+public class LogFileStoreConfigurationBuilder
+      extends AbstractStoreConfigurationBuilder<LogFileStoreConfiguration, LogFileStoreConfigurationBuilder> {
+
+   private String location = "Infinispan-LogFileStore";
+
+   private long maxFileSize = 16 * 1024 * 1024;
+
+   private double compactionThreshold = 0.5;
+
+   private boolean syncWrites = false;
+
+   public LogFileStoreConfigurationBuilder(PersistenceConfigurationBuilder builder) {
+      super(builder);
+   }
+
+   @Override
+   public LogFileStoreConfigurationBuilder self() {
+      return this;
+   }
+
+   /**
+    * Sets a location on disk where the store can write. Each cache keeps its log files in a sub-directory named
+    * after it.
+    */
+   public LogFileStoreConfigurationBuilder location(String location) {
+      this.location = location;
+      return this;
+   }
+
+   /**
+    * Records are appended to the newest log file until it reaches this size, in bytes, after which a new log file is
+    * started. Only log files which are no longer appended to are compacted, so smaller files allow the space taken by
+    * overwritten and deleted entries to be reclaimed sooner, at the cost of more files. Defaults to 16 MB.
+    */
+   public LogFileStoreConfigurationBuilder maxFileSize(long maxFileSize) {
+      this.maxFileSize = maxFileSize;
+      return this;
+   }
+
+   /**
+    * Once the fraction of a log file taken by overwritten, deleted or expired records exceeds this threshold, the
+    * live records of the file are copied to the newest log file and the file is deleted. Must be greater than 0 and
+    * at most 1. Defaults to 0.5.
+    */
+   public LogFileStoreConfigurationBuilder compactionThreshold(double compactionThreshold) {
+      this.compactionThreshold = compactionThreshold;
+      return this;
+   }
+
+   /**
+    * If true, each write is forced to the disk before it returns. Otherwise the operating system decides when
+    * appended records reach the disk, and the records written shortly before a crash may be lost; the store still
+    * recovers to a consistent state, discarding any partially written record. Defaults to false.
+    */
+   public LogFileStoreConfigurationBuilder syncWrites(boolean syncWrites) {
+      this.syncWrites = syncWrites;
+      return this;
+   }
+
+   @Override
+   public void validate() {
+      super.validate();
+      if (maxFileSize <= 0)
+         throw new CacheConfigurationException("Maximum log file size must be positive");
+      if (compactionThreshold <= 0 || compactionThreshold > 1)
+         throw new CacheConfigurationException("Compaction threshold must be greater than 0 and at most 1");
+   }
+
+   @Override
+   public LogFileStoreConfiguration create() {
+      return new LogFileStoreConfiguration(purgeOnStartup, fetchPersistentState, ignoreModifications,
+                                           async.create(), singletonStore.create(), preload,
+                                           shared, properties, location, maxFileSize, compactionThreshold, syncWrites);
+   }
+
+   @Override
+   public Builder<?> read(LogFileStoreConfiguration template) {
+      // LogFileStore-specific configuration
+      location = template.location();
+      maxFileSize = template.maxFileSize();
+      compactionThreshold = template.compactionThreshold();
+      syncWrites = template.syncWrites();
+
+      // AbstractStore-specific configuration
+      fetchPersistentState = template.fetchPersistentState();
+      ignoreModifications = template.ignoreModifications();
+      properties = template.properties();
+      purgeOnStartup = template.purgeOnStartup();
+      async.read(template.async());
+      singletonStore.read(template.singletonStore());
+      preload = template.preload();
+      shared = template.shared();
+
+      return this;
+   }
+
+}
@@ -9,10 +9,22 @@
 public class PersistenceConfiguration {
 
    private final boolean passivation;
+   private final int passivationQueueSize;
+   private final int passivationBatchSize;
+   private final boolean parallelPreload;
+   private final int bloomFilterExpectedEntries;
+   private final double bloomFilterFalsePositiveRate;
    private final List<StoreConfiguration> stores;
 
-   PersistenceConfiguration(boolean passivation, List<StoreConfiguration> stores) {
+   PersistenceConfiguration(boolean passivation, int passivationQueueSize, int passivationBatchSize,
+         boolean parallelPreload, int bloomFilterExpectedEntries, double bloomFilterFalsePositiveRate,
+         List<StoreConfiguration> stores) {
       this.passivation = passivation;
+      this.passivationQueueSize = passivationQueueSize;
+      this.passivationBatchSize = passivationBatchSize;
+      this.parallelPreload = parallelPreload;
+      this.bloomFilterExpectedEntries = bloomFilterExpectedEntries;
+      this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
       this.stores = stores;
    }
 
@@ -29,6 +41,52 @@ public boolean passivation() {
       return passivation;
    }
 
+   /**
+    * Number of evicted entries which can be waiting to be passivated. When greater than 0, entries
+    * chosen for eviction are written to the cache stores in batches by a dedicated thread rather
+    * than by the thread which triggered the eviction, and are still read from memory until they
+    * have been written. When the queue is full, entries are passivated synchronously. 0, the
+    * default, always passivates synchronously.
+    */
+   public int passivationQueueSize() {
+      return passivationQueueSize;
+   }
+
+   /**
+    * Maximum number of evicted entries written to the cache stores together by the asynchronous
+    * passivation thread.
+    */
+   public int passivationBatchSize() {
+      return passivationBatchSize;
+   }
+
+   /**
+    * If true, the entries of the store configured for preloading are loaded by several threads of the persistence
+    * executor. Unless the cache is distributed, indexed, transactional, versioned, stores its entries as binary, runs
+    * in compatibility mode or has listeners, the entries are inserted directly into the data container rather than
+    * written to the cache one by one through the interceptor chain, which makes preloading much faster.
+    * Defaults to false.
+    */
+   public boolean parallelPreload() {
+      return parallelPreload;
+   }
+
+   /**
+    * Number of keys the Bloom filter kept in front of the cache loaders is sized for. When greater than 0, the keys
+    * written to the stores are recorded in the filter, and loads of keys the filter has never seen are answered
+    * without reading from any store. 0, the default, disables the filter.
+    */
+   public int bloomFilterExpectedEntries() {
+      return bloomFilterExpectedEntries;
+   }
+
+   /**
+    * The rate of false positives the Bloom filter is sized for, when it holds the expected number of keys.
+    */
+   public double bloomFilterFalsePositiveRate() {
+      return bloomFilterFalsePositiveRate;
+   }
+
    public List<StoreConfiguration> stores() {
       return stores;
    }
@@ -74,6 +132,11 @@ public String toString() {
       return "PersistenceConfiguration{" +
             "persistence=" + stores +
             ", passivation=" + passivation +
+            ", passivationQueueSize=" + passivationQueueSize +
+            ", passivationBatchSize=" + passivationBatchSize +
+            ", parallelPreload=" + parallelPreload +
+            ", bloomFilterExpectedEntries=" + bloomFilterExpectedEntries +
+            ", bloomFilterFalsePositiveRate=" + bloomFilterFalsePositiveRate +
             '}';
    }
 
@@ -85,6 +148,11 @@ public boolean equals(Object o) {
       PersistenceConfiguration that = (PersistenceConfiguration) o;
 
       if (passivation != that.passivation) return false;
+      if (passivationQueueSize != that.passivationQueueSize) return false;
+      if (passivationBatchSize != that.passivationBatchSize) return false;
+      if (parallelPreload != that.parallelPreload) return false;
+      if (bloomFilterExpectedEntries != that.bloomFilterExpectedEntries) return false;
+      if (Double.compare(that.bloomFilterFalsePositiveRate, bloomFilterFalsePositiveRate) != 0) return false;
       if (stores != null ? !stores.equals(that.stores) : that.stores != null)
          return false;
 
@@ -93,7 +161,13 @@ public boolean equals(Object o) {
 
    @Override
    public int hashCode() {
+      long temp = Double.doubleToLongBits(bloomFilterFalsePositiveRate);
       int result = (passivation ? 1 : 0);
+      result = 31 * result + passivationQueueSize;
+      result = 31 * result + passivationBatchSize;
+      result = 31 * result + (parallelPreload ? 1 : 0);
+      result = 31 * result + bloomFilterExpectedEntries;
+      result = 31 * result + (int) (temp ^ (temp >>> 32));
       result = 31 * result + (stores != null ? stores.hashCode() : 0);
       return result;
    }
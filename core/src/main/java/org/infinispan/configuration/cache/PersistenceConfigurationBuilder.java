@@ -16,6 +16,11 @@
 public class PersistenceConfigurationBuilder extends AbstractConfigurationChildBuilder implements Builder<PersistenceConfiguration> {
 
    private boolean passivation = false;
+   private int passivationQueueSize = 0;
+   private int passivationBatchSize = 100;
+   private boolean parallelPreload = false;
+   private int bloomFilterExpectedEntries = 0;
+   private double bloomFilterFalsePositiveRate = 0.01;
    private List<StoreConfigurationBuilder<?,?>> stores = new ArrayList<StoreConfigurationBuilder<?,?>>(2);
 
    protected PersistenceConfigurationBuilder(ConfigurationBuilder builder) {
@@ -40,6 +45,61 @@ boolean passivation() {
       return passivation;
    }
 
+   /**
+    * Number of evicted entries which can be waiting to be passivated. When greater than 0, entries
+    * chosen for eviction are written to the cache stores in batches by a dedicated thread rather
+    * than by the thread which triggered the eviction, and are still read from memory until they
+    * have been written. When the queue is full, entries are passivated synchronously. 0, the
+    * default, always passivates synchronously.
+    */
+   public PersistenceConfigurationBuilder passivationQueueSize(int queueSize) {
+      this.passivationQueueSize = queueSize;
+      return this;
+   }
+
+   /**
+    * Maximum number of evicted entries written to the cache stores together by the asynchronous
+    * passivation thread.
+    */
+   public PersistenceConfigurationBuilder passivationBatchSize(int batchSize) {
+      this.passivationBatchSize = batchSize;
+      return this;
+   }
+
+   /**
+    * If true, the entries of the store configured for preloading are loaded by several threads of the persistence
+    * executor. Unless the cache is distributed, indexed, transactional, versioned, stores its entries as binary, runs
+    * in compatibility mode or has listeners, the entries are inserted directly into the data container rather than
+    * written to the cache one by one through the interceptor chain, which makes preloading much faster.
+    * Defaults to false.
+    */
+   public PersistenceConfigurationBuilder parallelPreload(boolean parallelPreload) {
+      this.parallelPreload = parallelPreload;
+      return this;
+   }
+
+   /**
+    * Number of keys the Bloom filter kept in front of the cache loaders is sized for. When greater than 0, the keys
+    * written to the stores are recorded in the filter, and loads of keys the filter has never seen are answered
+    * without reading from any store, which saves a store read for every miss when passivation is enabled. Keys removed
+    * from the stores stay in the filter until it is rebuilt, which happens when the stores are cleared or through JMX.
+    * The filter is only used if none of the stores is shared and all of the loaders can iterate over their keys. 0, the
+    * default, disables the filter.
+    */
+   public PersistenceConfigurationBuilder bloomFilterExpectedEntries(int expectedEntries) {
+      this.bloomFilterExpectedEntries = expectedEntries;
+      return this;
+   }
+
+   /**
+    * The rate of false positives the Bloom filter is sized for, when it holds the expected number of keys. A lower rate
+    * takes more memory. Defaults to 0.01.
+    */
+   public PersistenceConfigurationBuilder bloomFilterFalsePositiveRate(double falsePositiveRate) {
+      this.bloomFilterFalsePositiveRate = falsePositiveRate;
+      return this;
+   }
+
    /**
     * Adds a cache loader which uses the specified builder class to build its configuration
     */
@@ -83,6 +143,15 @@ public SingleFileStoreConfigurationBuilder addSingleFileStore() {
       return builder;
    }
 
+   /**
+    * Adds a log-structured file cache store
+    */
+   public LogFileStoreConfigurationBuilder addLogFileStore() {
+      LogFileStoreConfigurationBuilder builder = new LogFileStoreConfigurationBuilder(this);
+      this.stores.add(builder);
+      return builder;
+   }
+
    /**
     * Removes any configured stores from this builder.
     */
@@ -106,6 +175,14 @@ public void validate() {
       }
       if (numFetchPersistentState > 1)
          throw new CacheConfigurationException("Maximum one store can be set to 'fetchPersistentState'!");
+      if (passivationQueueSize < 0)
+         throw new CacheConfigurationException("The passivation queue size cannot be negative");
+      if (passivationBatchSize < 1)
+         throw new CacheConfigurationException("The passivation batch size must be at least 1");
+      if (bloomFilterExpectedEntries < 0)
+         throw new CacheConfigurationException("The Bloom filter expected entries cannot be negative");
+      if (bloomFilterFalsePositiveRate <= 0 || bloomFilterFalsePositiveRate >= 1)
+         throw new CacheConfigurationException("The Bloom filter false positive rate must be greater than 0 and less than 1");
    }
 
    @Override
@@ -113,7 +190,8 @@ public PersistenceConfiguration create() {
       List<StoreConfiguration> stores = new ArrayList<StoreConfiguration>(this.stores.size());
       for (StoreConfigurationBuilder<?, ?> loader : this.stores)
          stores.add(loader.create());
-      return new PersistenceConfiguration(passivation, stores);
+      return new PersistenceConfiguration(passivation, passivationQueueSize, passivationBatchSize, parallelPreload,
+                                          bloomFilterExpectedEntries, bloomFilterFalsePositiveRate, stores);
    }
 
    @SuppressWarnings("unchecked")
@@ -126,6 +204,11 @@ public PersistenceConfigurationBuilder read(PersistenceConfiguration template) {
          builder.read(c);
       }
       this.passivation = template.passivation();
+      this.passivationQueueSize = template.passivationQueueSize();
+      this.passivationBatchSize = template.passivationBatchSize();
+      this.parallelPreload = template.parallelPreload();
+      this.bloomFilterExpectedEntries = template.bloomFilterExpectedEntries();
+      this.bloomFilterFalsePositiveRate = template.bloomFilterFalsePositiveRate();
       return this;
    }
 
@@ -138,6 +221,11 @@ public String toString() {
       return "PersistenceConfigurationBuilder{" +
             "stores=" + stores +
             ", passivation=" + passivation +
+            ", passivationQueueSize=" + passivationQueueSize +
+            ", passivationBatchSize=" + passivationBatchSize +
+            ", parallelPreload=" + parallelPreload +
+            ", bloomFilterExpectedEntries=" + bloomFilterExpectedEntries +
+            ", bloomFilterFalsePositiveRate=" + bloomFilterFalsePositiveRate +
             '}';
    }
 
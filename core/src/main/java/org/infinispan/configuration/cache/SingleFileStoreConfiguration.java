@@ -20,13 +20,20 @@ public class SingleFileStoreConfiguration extends AbstractStoreConfiguration {
 
    private final int maxEntries;
 
+   private final long indexSnapshotInterval;
+
+   private final boolean mappedReads;
+
    public SingleFileStoreConfiguration(boolean purgeOnStartup, boolean fetchPersistentState,
                                        boolean ignoreModifications, AsyncStoreConfiguration async,
                                        SingletonStoreConfiguration singletonStore, boolean preload, boolean shared,
-                                       Properties properties, String location, int maxEntries) {
+                                       Properties properties, String location, int maxEntries,
+                                       long indexSnapshotInterval, boolean mappedReads) {
       super(purgeOnStartup, fetchPersistentState, ignoreModifications, async, singletonStore, preload, shared, properties);
       this.location = location;
       this.maxEntries = maxEntries;
+      this.indexSnapshotInterval = indexSnapshotInterval;
+      this.mappedReads = mappedReads;
    }
 
    public String location() {
@@ -37,6 +44,21 @@ public int maxEntries() {
       return maxEntries;
    }
 
+   /**
+    * The interval, in milliseconds, between snapshots of the index of the store, or a non-positive value if a
+    * snapshot is only taken when the store is stopped.
+    */
+   public long indexSnapshotInterval() {
+      return indexSnapshotInterval;
+   }
+
+   /**
+    * Whether entries are read from a memory-mapped region of the data file rather than with a read call each.
+    */
+   public boolean mappedReads() {
+      return mappedReads;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -46,6 +68,8 @@ public boolean equals(Object o) {
       SingleFileStoreConfiguration that = (SingleFileStoreConfiguration) o;
 
       if (maxEntries != that.maxEntries) return false;
+      if (indexSnapshotInterval != that.indexSnapshotInterval) return false;
+      if (mappedReads != that.mappedReads) return false;
       if (location != null ? !location.equals(that.location) : that.location != null)
          return false;
 
@@ -57,6 +81,8 @@ public int hashCode() {
       int result = super.hashCode();
       result = 31 * result + (location != null ? location.hashCode() : 0);
       result = 31 * result + maxEntries;
+      result = 31 * result + (int) (indexSnapshotInterval ^ (indexSnapshotInterval >>> 32));
+      result = 31 * result + (mappedReads ? 1 : 0);
       return result;
    }
 
@@ -65,6 +91,8 @@ public String toString() {
       return "SingleFileStoreConfiguration{" +
             "location='" + location + '\'' +
             ", maxEntries=" + maxEntries +
+            ", indexSnapshotInterval=" + indexSnapshotInterval +
+            ", mappedReads=" + mappedReads +
             '}';
    }
 
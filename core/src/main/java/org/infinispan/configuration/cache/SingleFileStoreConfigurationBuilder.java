@@ -15,6 +15,10 @@
 
    private int maxEntries = -1;
 
+   private long indexSnapshotInterval = -1;
+
+   private boolean mappedReads = false;
+
    public SingleFileStoreConfigurationBuilder(PersistenceConfigurationBuilder builder) {
       super(builder);
    }
@@ -53,11 +57,36 @@ public SingleFileStoreConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * When the store is stopped, the index of keys and file positions is saved to a file next to the data file, so
+    * that the next start can load it in bulk instead of reading every entry of the data file. The saved index is
+    * discarded as soon as the store is modified. If this interval is positive, the index is also saved every so many
+    * milliseconds when the store has been modified since the last time, so that a restart after a crash does not
+    * need to read the data file either, provided the store has not been modified in the meantime. Defaults to -1,
+    * which only saves the index when the store is stopped.
+    */
+   public SingleFileStoreConfigurationBuilder indexSnapshotInterval(long indexSnapshotInterval) {
+      this.indexSnapshotInterval = indexSnapshotInterval;
+      return this;
+   }
+
+   /**
+    * If true, entries are read from a memory-mapped region of the data file instead of with a read call each, which
+    * saves a system call and a copy per load when the data file is in the page cache of the operating system. The
+    * region covers the first gigabyte of the file at most, and is only mapped again once the file has doubled in size;
+    * the entries beyond it are read with a read call. Defaults to false.
+    */
+   public SingleFileStoreConfigurationBuilder mappedReads(boolean mappedReads) {
+      this.mappedReads = mappedReads;
+      return this;
+   }
+
    @Override
    public SingleFileStoreConfiguration create() {
       return new SingleFileStoreConfiguration(purgeOnStartup, fetchPersistentState,ignoreModifications,
                                                     async.create(), singletonStore.create(), preload,
-                                                    shared, properties, location, maxEntries);
+                                                    shared, properties, location, maxEntries, indexSnapshotInterval,
+                                                    mappedReads);
    }
 
    @Override
@@ -65,6 +94,8 @@ public Builder<?> read(SingleFileStoreConfiguration template) {
       // SingleFileStore-specific configuration
       location = template.location();
       maxEntries = template.maxEntries();
+      indexSnapshotInterval = template.indexSnapshotInterval();
+      mappedReads = template.mappedReads();
 
       // AbstractStore-specific configuration
       fetchPersistentState = template.fetchPersistentState();
@@ -18,12 +18,15 @@ public enum Attribute {
     ASYNC_MARSHALLING("asyncMarshalling"),
     AUTO_COMMIT("autoCommit"),
     BEFORE("before"),
+    BLOOM_FILTER_EXPECTED_ENTRIES("bloomFilterExpectedEntries"),
+    BLOOM_FILTER_FALSE_POSITIVE_RATE("bloomFilterFalsePositiveRate"),
     CACHE_MANAGER_NAME("cacheManagerName"),
     CACHE_STOP_TIMEOUT("cacheStopTimeout"),
     CAPACITY_FACTOR("capacityFactor"),
     CHUNK_SIZE("chunkSize"),
     CLASS("class"),
     CLUSTER_NAME("clusterName"),
+    COMPACTION_THRESHOLD("compactionThreshold"),
     CONCURRENCY_LEVEL("concurrencyLevel"),
     DISTRIBUTED_SYNC_TIMEOUT("distributedSyncTimeout"),
     EAGER_LOCK_SINGLE_NODE("eagerLockSingleNode"),
@@ -44,6 +47,7 @@ public enum Attribute {
     INDEX("index"),
     INDEX_LOCAL_ONLY("indexLocalOnly"),
     INITIAL_RETRY_WAIT_TIME("initialRetryWaitTime"),
+    INDEX_SNAPSHOT_INTERVAL("indexSnapshotInterval"),
     INVALIDATION_THRESHOLD("invalidationThreshold"),
     ISOLATION_LEVEL("isolationLevel"),
     JMX_DOMAIN("jmxDomain"),
@@ -54,24 +58,33 @@ public enum Attribute {
     LOCKING_MODE("lockingMode"),
     LOG_FLUSH_TIMEOUT("logFlushTimeout"),
     MACHINE_ID("machineId"),
+    MAPPED_READS("mappedReads"),
     MARSHALLER_CLASS("marshallerClass"),
     MAX_ENTRIES("maxEntries"),
+    MAX_FILE_SIZE("maxFileSize"),
     MAX_IDLE("maxIdle"),
+    MAX_MEMORY("maxMemory"),
     MAX_NON_PROGRESSING_LOG_WRITES("maxProgressingLogWrites"),
     MBEAN_SERVER_LOOKUP("mBeanServerLookup"),
     MODE("mode"),
     NODE_NAME("nodeName"),
+    MODIFICATION_QUEUE_LOW_WATERMARK("modificationQueueLowWatermark"),
     MODIFICATION_QUEUE_SIZE("modificationQueueSize"),
     NAME("name"),
+    OFF_HEAP("offHeap"),
     NUM_OWNERS("numOwners"),
     NUM_SEGMENTS("numSegments"),
     NUM_RETRIES("numRetries"),
     NUM_VIRTUAL_NODES("numVirtualNodes"),
     ON_REHASH("onRehash"),
+    PARALLEL_PRELOAD("parallelPreload"),
     PASSIVATION("passivation"),
+    PASSIVATION_BATCH_SIZE("passivationBatchSize"),
+    PASSIVATION_QUEUE_SIZE("passivationQueueSize"),
     POSITION("position"),
     PRELOAD("preload"),
     PURGE_ON_STARTUP("purgeOnStartup"),
+    PURGE_PARALLELISM("purgeParallelism"),
     PUSH_STATE_TIMEOUT("pushStateTimeout"),
     PUSH_STATE_WHEN_COORDINATOR("pushStateWhenCoordinator"),
     RACK_ID("rackId"),
@@ -86,6 +99,7 @@ public enum Attribute {
     REPL_QUEUE_MAX_ELEMENTS("replQueueMaxElements"),
     REPL_TIMEOUT("replTimeout"),
     RETRY_WAIT_TIME_INCREASE_FACTOR("retryWaitTimeIncreaseFactor"),
+    SEGMENTED("segmented"),
     SHARED("shared"),
     SHUTDOWN_TIMEOUT("shutdownTimeout"),
     SITE_ID("siteId"),
@@ -95,15 +109,18 @@ public enum Attribute {
     DEFENSIVE("defensive"),
     STRATEGY("strategy"),
     STREAM_BUFFER_SIZE("streamBufferSize"),
+    SYNC_WRITES("syncWrites"),
     SYNC_COMMIT_PHASE("syncCommitPhase"),
     SYNC_ROLLBACK_PHASE("syncRollbackPhase"),
     STRICT_PEER_TO_PEER("strictPeerToPeer"),
     THREAD_POLICY("threadPolicy"),
     THREAD_POOL_SIZE("threadPoolSize"),
     TIMEOUT("timeout"),
+    TOUCH_GRANULARITY("touchGranularity"),
     TRANSACTION_MANAGER_LOOKUP_CLASS("transactionManagerLookupClass"),
     TRANSACTION_MODE("transactionMode"),
     TRANSPORT_CLASS("transportClass"),
+    TYPE("type"),
     UNRELIABLE_RETURN_VALUES("unreliableReturnValues"),
     USE_EAGER_LOCKING("useEagerLocking"),
     USE_LOCK_STRIPING("useLockStriping"),
@@ -41,6 +41,7 @@ public enum Element {
     INVOCATION_BATCHING("invocationBatching"),
     JMX_STATISTICS("jmxStatistics"),
     L1("l1"),
+    LOG_FILE_STORE("logFile"),
     LAZY_DESERIALIZATION("lazyDeserialization"),
     PERSISTENCE("persistence"),
     LOCKING("locking"),
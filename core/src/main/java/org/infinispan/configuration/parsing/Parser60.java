@@ -18,6 +18,7 @@
 import org.infinispan.distribution.group.Grouper;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.EvictionType;
 import org.infinispan.executors.ScheduledExecutorFactory;
 import org.infinispan.interceptors.base.CommandInterceptor;
 import org.infinispan.jmx.MBeanServerLookup;
@@ -537,6 +538,21 @@ private void parsePersistence(final XMLExtendedStreamReader reader, final Config
             case PASSIVATION:
                builder.persistence().passivation(Boolean.parseBoolean(value));
                break;
+            case PASSIVATION_QUEUE_SIZE:
+               builder.persistence().passivationQueueSize(Integer.parseInt(value));
+               break;
+            case PASSIVATION_BATCH_SIZE:
+               builder.persistence().passivationBatchSize(Integer.parseInt(value));
+               break;
+            case PARALLEL_PRELOAD:
+               builder.persistence().parallelPreload(Boolean.parseBoolean(value));
+               break;
+            case BLOOM_FILTER_EXPECTED_ENTRIES:
+               builder.persistence().bloomFilterExpectedEntries(Integer.parseInt(value));
+               break;
+            case BLOOM_FILTER_FALSE_POSITIVE_RATE:
+               builder.persistence().bloomFilterFalsePositiveRate(Double.parseDouble(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -551,6 +567,9 @@ private void parsePersistence(final XMLExtendedStreamReader reader, final Config
             case SINGLE_FILE_STORE:
                parseSingleFileStore(reader, holder);
                break;
+            case LOG_FILE_STORE:
+               parseLogFileStore(reader, holder);
+               break;
             case STORE:
                parseStore(reader, holder);
                break;
@@ -575,6 +594,41 @@ private void parseSingleFileStore(XMLExtendedStreamReader reader, ConfigurationB
             case MAX_ENTRIES:
                storeBuilder.maxEntries(Integer.parseInt(value));
                break;
+            case INDEX_SNAPSHOT_INTERVAL:
+               storeBuilder.indexSnapshotInterval(Long.parseLong(value));
+               break;
+            case MAPPED_READS:
+               storeBuilder.mappedReads(Boolean.parseBoolean(value));
+               break;
+            default:
+               parseCommonStoreAttributes(reader, storeBuilder, attrName, value, i);
+               break;
+         }
+      }
+      parseStoreChildren(reader, storeBuilder);
+   }
+
+   private void parseLogFileStore(XMLExtendedStreamReader reader, ConfigurationBuilderHolder holder) throws XMLStreamException {
+      ConfigurationBuilder builder = holder.getCurrentConfigurationBuilder();
+      LogFileStoreConfigurationBuilder storeBuilder = builder.persistence().addLogFileStore();
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+         ParseUtils.requireNoNamespaceAttribute(reader, i);
+         String value = replaceProperties(reader.getAttributeValue(i));
+         String attrName = reader.getAttributeLocalName(i);
+         Attribute attribute = Attribute.forName(attrName);
+         switch (attribute) {
+            case LOCATION:
+               storeBuilder.location(value);
+               break;
+            case MAX_FILE_SIZE:
+               storeBuilder.maxFileSize(Long.parseLong(value));
+               break;
+            case COMPACTION_THRESHOLD:
+               storeBuilder.compactionThreshold(Double.parseDouble(value));
+               break;
+            case SYNC_WRITES:
+               storeBuilder.syncWrites(Boolean.parseBoolean(value));
+               break;
             default:
                parseCommonStoreAttributes(reader, storeBuilder, attrName, value, i);
                break;
@@ -774,6 +828,9 @@ public static void parseAsyncStore(final XMLExtendedStreamReader reader, final S
             case MODIFICATION_QUEUE_SIZE:
                storeBuilder.async().modificationQueueSize(Integer.parseInt(value));
                break;
+            case MODIFICATION_QUEUE_LOW_WATERMARK:
+               storeBuilder.async().modificationQueueLowWatermark(Integer.parseInt(value));
+               break;
             case SHUTDOWN_TIMEOUT:
                storeBuilder.async().shutdownTimeout(Long.parseLong(value));
                break;
@@ -897,6 +954,12 @@ private void parseExpiration(final XMLExtendedStreamReader reader, final Configu
             case WAKE_UP_INTERVAL:
                builder.expiration().wakeUpInterval(Long.parseLong(value));
                break;
+            case TOUCH_GRANULARITY:
+               builder.expiration().touchGranularity(Long.parseLong(value));
+               break;
+            case PURGE_PARALLELISM:
+               builder.expiration().purgeParallelism(Integer.parseInt(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -922,6 +985,12 @@ private void parseEviction(final XMLExtendedStreamReader reader, final Configura
             case THREAD_POLICY:
                builder.eviction().threadPolicy(EvictionThreadPolicy.valueOf(value));
                break;
+            case TYPE:
+               builder.eviction().type(EvictionType.valueOf(value));
+               break;
+            case MAX_MEMORY:
+               builder.eviction().maxMemory(Long.parseLong(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -973,6 +1042,12 @@ private void parseDataContainer(final XMLExtendedStreamReader reader, final Conf
             case VALUE_EQUIVALENCE:
                builder.dataContainer().valueEquivalence(Util.<Equivalence>getInstance(value, holder.getClassLoader()));
                break;
+            case OFF_HEAP:
+               builder.dataContainer().offHeap(Boolean.parseBoolean(value));
+               break;
+            case SEGMENTED:
+               builder.dataContainer().segmented(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
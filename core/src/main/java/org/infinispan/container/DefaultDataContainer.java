@@ -3,8 +3,11 @@
 import net.jcip.annotations.ThreadSafe;
 
 import org.infinispan.metadata.Metadata;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.ByteArrayEquivalence;
 import org.infinispan.commons.equivalence.Equivalence;
 import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.eviction.ActivationManager;
 import org.infinispan.eviction.EvictionManager;
@@ -16,6 +19,8 @@
 import org.infinispan.util.CoreImmutables;
 import org.infinispan.util.TimeService;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.ByteArrayKeyConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
 
@@ -40,28 +45,41 @@
  * @since 4.0
  */
 @ThreadSafe
-public class DefaultDataContainer implements DataContainer {
+public class DefaultDataContainer implements PurgeCountingDataContainer {
 
    final protected ConcurrentMap<Object, InternalCacheEntry> entries;
    protected InternalEntryFactory entryFactory;
    final protected DefaultEvictionListener evictionListener;
+   final protected ExpirationWheel expirationWheel;
    private EvictionManager evictionManager;
    private PassivationManager passivator;
    private ActivationManager activator;
    private PersistenceManager pm;
    private TimeService timeService;
+   private long touchGranularity;
 
    public DefaultDataContainer(int concurrencyLevel) {
       // If no comparing implementations passed, could fallback on JDK CHM
       entries = CollectionFactory.makeConcurrentMap(128, concurrencyLevel);
       evictionListener = null;
+      expirationWheel = new ExpirationWheel(concurrencyLevel, AnyEquivalence.getInstance());
    }
 
    public DefaultDataContainer(int concurrencyLevel,
          Equivalence keyEq, Equivalence valueEq) {
       // If at least one comparing implementation give, use ComparingCHMv8
-      entries = CollectionFactory.makeConcurrentMap(128, concurrencyLevel, keyEq, valueEq);
+      entries = makeEntriesMap(128, concurrencyLevel, keyEq, valueEq);
       evictionListener = null;
+      expirationWheel = new ExpirationWheel(concurrencyLevel, keyEq);
+   }
+
+   protected DefaultDataContainer(ConcurrentMap<Object, InternalCacheEntry> entries, int concurrencyLevel,
+         Equivalence keyEquivalence) {
+      this.entries = entries;
+      evictionListener = null;
+      // subclasses providing their own map may index the expiration times by overriding expirationWheelFor(), but the
+      // inherited clear() and purgeExpiredEntries() still need a wheel to work on
+      expirationWheel = new ExpirationWheel(concurrencyLevel, keyEquivalence);
    }
 
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
@@ -87,6 +105,9 @@ protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
          case LIRS:
             eviction = Eviction.LIRS;
             break;
+         case TINY_LFU:
+            eviction = Eviction.TINY_LFU;
+            break;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
@@ -94,6 +115,49 @@ protected DefaultDataContainer(int concurrencyLevel, int maxEntries,
       entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(
             maxEntries, concurrencyLevel, eviction, evictionListener,
             keyEquivalence, valueEquivalence);
+      expirationWheel = new ExpirationWheel(concurrencyLevel, keyEquivalence);
+   }
+
+   protected DefaultDataContainer(int concurrencyLevel, long maxMemory,
+         EvictionStrategy strategy, EvictionThreadPolicy policy,
+         EntrySizeCalculator<Object, InternalCacheEntry> sizeCalculator,
+         Equivalence keyEquivalence, Equivalence valueEquivalence) {
+      switch (policy) {
+         case PIGGYBACK:
+         case DEFAULT:
+            evictionListener = new DefaultEvictionListener();
+            break;
+         default:
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
+      }
+
+      switch (strategy) {
+         case FIFO:
+         case UNORDERED:
+         case LRU:
+            break;
+         default:
+            throw new IllegalArgumentException("Eviction strategy " + strategy + " cannot bound a container by memory");
+      }
+
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(
+            maxMemory, concurrencyLevel, Eviction.LRU, evictionListener, sizeCalculator,
+            keyEquivalence, valueEquivalence);
+      expirationWheel = new ExpirationWheel(concurrencyLevel, keyEquivalence);
+   }
+
+   /**
+    * Creates the map of an unbounded container. Byte array keys compared by content, as in server mode, are kept in
+    * an open addressing map which does not allocate a node per entry.
+    */
+   @SuppressWarnings("unchecked")
+   static ConcurrentMap<Object, InternalCacheEntry> makeEntriesMap(int initialCapacity, int concurrencyLevel,
+         Equivalence keyEquivalence, Equivalence valueEquivalence) {
+      if (keyEquivalence instanceof ByteArrayEquivalence) {
+         return new ByteArrayKeyConcurrentHashMap<Object, InternalCacheEntry>(
+               initialCapacity, concurrencyLevel, valueEquivalence);
+      }
+      return CollectionFactory.makeConcurrentMap(initialCapacity, concurrencyLevel, keyEquivalence, valueEquivalence);
    }
 
    @Inject
@@ -107,6 +171,11 @@ public void initialize(EvictionManager evictionManager, PassivationManager passi
       this.timeService = timeService;
    }
 
+   @Inject
+   public void injectConfiguration(Configuration configuration) {
+      this.touchGranularity = configuration.expiration().touchGranularity();
+   }
+
    public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries,
             EvictionStrategy strategy, EvictionThreadPolicy policy,
             Equivalence keyEquivalence, Equivalence valueEquivalence) {
@@ -114,6 +183,13 @@ public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEn
             policy, keyEquivalence, valueEquivalence);
    }
 
+   public static DataContainer memoryBoundedDataContainer(int concurrencyLevel, long maxMemory,
+            EvictionStrategy strategy, EvictionThreadPolicy policy,
+            Equivalence keyEquivalence, Equivalence valueEquivalence) {
+      return new DefaultDataContainer(concurrencyLevel, maxMemory, strategy, policy,
+            new InternalCacheEntrySizeCalculator(), keyEquivalence, valueEquivalence);
+   }
+
    public static DataContainer unBoundedDataContainer(int concurrencyLevel,
          Equivalence keyEquivalence, Equivalence valueEquivalence) {
       return new DefaultDataContainer(concurrencyLevel, keyEquivalence, valueEquivalence);
@@ -135,8 +211,11 @@ public InternalCacheEntry get(Object k) {
          long currentTimeMillis = timeService.wallClockTime();
          if (e.isExpired(currentTimeMillis)) {
             entries.remove(k);
+            unschedule(k);
             e = null;
-         } else {
+         } else if (currentTimeMillis - e.getLastUsed() > touchGranularity) {
+            // hot entries only record their access time once per granularity period instead of on every read,
+            // so that concurrent readers do not keep invalidating each other's cached copy of the entry
             e.touch(currentTimeMillis);
          }
       }
@@ -159,6 +238,9 @@ public void put(Object k, Object v, Metadata metadata) {
          e = entryFactory.create(k, v, metadata);
       }
       entries.put(k, e);
+      if (e.canExpire()) {
+         expirationWheelFor(k).schedule(k, e.getExpiryTime());
+      }
    }
 
    @Override
@@ -166,6 +248,7 @@ public boolean containsKey(Object k) {
       InternalCacheEntry ice = peek(k);
       if (ice != null && ice.canExpire() && ice.isExpired(timeService.wallClockTime())) {
          entries.remove(k);
+         unschedule(k);
          ice = null;
       }
       return ice != null;
@@ -174,6 +257,9 @@ public boolean containsKey(Object k) {
    @Override
    public InternalCacheEntry remove(Object k) {
       InternalCacheEntry e = entries.remove(k);
+      if (e != null) {
+         unschedule(k);
+      }
       return e == null || (e.canExpire() && e.isExpired(timeService.wallClockTime())) ? null : e;
    }
 
@@ -185,6 +271,7 @@ public int size() {
    @Override
    public void clear() {
       entries.clear();
+      expirationWheel.clear();
    }
 
    @Override
@@ -204,24 +291,79 @@ public Set<InternalCacheEntry> entrySet() {
 
    @Override
    public void purgeExpired() {
-      long currentTimeMillis = timeService.wallClockTime();
-      for (Iterator<InternalCacheEntry> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
-         InternalCacheEntry e = purgeCandidates.next();
-         if (e.isExpired(currentTimeMillis)) {
-            purgeCandidates.remove();
-         }
+      purgeExpiredEntries();
+   }
+
+   @Override
+   public int purgeExpiredEntries() {
+      return purgeExpired(expirationWheel);
+   }
+
+   /**
+    * @return the expiration index in which the deadline of the given key is scheduled
+    */
+   ExpirationWheel expirationWheelFor(Object key) {
+      return expirationWheel;
+   }
+
+   /**
+    * Forgets the deadline of a key which has just been removed from the container. A concurrent put may have written
+    * the key again and scheduled its deadline in the meantime, so the entry now in the container, if any, is
+    * scheduled again.
+    */
+   void unschedule(Object key) {
+      ExpirationWheel wheel = expirationWheelFor(key);
+      wheel.unschedule(key);
+      InternalCacheEntry current = entries.get(key);
+      if (current != null && current.canExpire()) {
+         wheel.schedule(key, current.getExpiryTime());
       }
    }
 
+   /**
+    * Removes the expired entries whose deadline is scheduled in the given expiration index.
+    *
+    * @return the number of entries removed
+    */
+   int purgeExpired(ExpirationWheel wheel) {
+      // only visits the entries whose expiration time has been reached
+      PurgeHandler handler = new PurgeHandler();
+      wheel.expire(timeService.wallClockTime(), handler);
+      return handler.purged;
+   }
+
    @Override
    public Iterator<InternalCacheEntry> iterator() {
       return new EntryIterator(entries.values().iterator());
    }
 
+   private final class PurgeHandler implements ExpirationWheel.ExpirationHandler {
+      int purged;
+
+      @Override
+      public long deadlineReached(Object key, long now) {
+         InternalCacheEntry e = entries.get(key);
+         if (e == null || !e.canExpire()) {
+            return -1;
+         }
+         if (e.isExpired(now)) {
+            if (entries.remove(key, e)) {
+               purged++;
+            }
+            return -1;
+         }
+         // touched or updated since it was scheduled
+         return e.getExpiryTime();
+      }
+   }
+
    private final class DefaultEvictionListener implements EvictionListener<Object, InternalCacheEntry> {
 
       @Override
       public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         for (Object key : evicted.keySet()) {
+            unschedule(key);
+         }
          evictionManager.onEntryEviction(evicted);
       }
 
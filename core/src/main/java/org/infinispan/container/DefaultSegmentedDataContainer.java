@@ -0,0 +1,237 @@
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.distribution.ch.DefaultConsistentHash;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An unbounded {@link SegmentedDataContainer} which keeps a separate map for each segment of the
+ * {@link DefaultConsistentHash} of a distributed cache.
+ * <p/>
+ * Keys are mapped to segments exactly like {@link DefaultConsistentHash#getSegment(Object)} does, using the hash
+ * function and number of segments of the cache configuration, so that state transfer can push or invalidate a
+ * segment without scanning the whole container.
+ *
+ * @since 6.0
+ */
+@ThreadSafe
+public class DefaultSegmentedDataContainer extends DefaultDataContainer implements SegmentedDataContainer {
+
+   private final SegmentedMap segmentedEntries;
+   private final ExpirationWheel[] expirationWheels;
+
+   public DefaultSegmentedDataContainer(int concurrencyLevel, Hash hashFunction, int numSegments,
+         Equivalence keyEquivalence, Equivalence valueEquivalence) {
+      super(new SegmentedMap(concurrencyLevel, hashFunction, numSegments, keyEquivalence, valueEquivalence),
+            concurrencyLevel, keyEquivalence);
+      segmentedEntries = (SegmentedMap) entries;
+      // one expiration index per segment, so that segments can be purged independently
+      expirationWheels = new ExpirationWheel[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+         expirationWheels[i] = new ExpirationWheel(concurrencyLevel, keyEquivalence);
+      }
+   }
+
+   @Override
+   public boolean isPartitionedBy(ConsistentHash ch) {
+      return ch instanceof DefaultConsistentHash && ch.getNumSegments() == segmentedEntries.segments.length
+            && segmentedEntries.hashFunction.equals(ch.getHashFunction());
+   }
+
+   @Override
+   public int getNumSegments() {
+      return segmentedEntries.segments.length;
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator(int segment) {
+      return new EntryIterator(segmentedEntries.segments[segment].values().iterator());
+   }
+
+   @Override
+   public int size(int segment) {
+      return segmentedEntries.segments[segment].size();
+   }
+
+   @Override
+   public int purgeExpired(int segment) {
+      return purgeExpired(expirationWheels[segment]);
+   }
+
+   @Override
+   public int purgeExpiredEntries() {
+      int purged = 0;
+      for (ExpirationWheel wheel : expirationWheels) {
+         purged += purgeExpired(wheel);
+      }
+      return purged;
+   }
+
+   @Override
+   public void clear() {
+      entries.clear();
+      for (ExpirationWheel wheel : expirationWheels) {
+         wheel.clear();
+      }
+   }
+
+   @Override
+   ExpirationWheel expirationWheelFor(Object key) {
+      return expirationWheels[segmentedEntries.segmentOf(key)];
+   }
+
+   /**
+    * A concurrent map made of one map per segment, all operations being delegated to the map of the key's segment.
+    */
+   private static final class SegmentedMap extends AbstractMap<Object, InternalCacheEntry>
+         implements ConcurrentMap<Object, InternalCacheEntry> {
+
+      final Hash hashFunction;
+      final ConcurrentMap<Object, InternalCacheEntry>[] segments;
+      private final int segmentSize;
+
+      @SuppressWarnings("unchecked")
+      SegmentedMap(int concurrencyLevel, Hash hashFunction, int numSegments,
+            Equivalence keyEquivalence, Equivalence valueEquivalence) {
+         if (numSegments < 1)
+            throw new IllegalArgumentException("The number of segments must be strictly positive");
+         this.hashFunction = hashFunction;
+         this.segmentSize = (int) Math.ceil((float) Integer.MAX_VALUE / numSegments);
+         segments = new ConcurrentMap[numSegments];
+         for (int i = 0; i < numSegments; i++) {
+            segments[i] = makeEntriesMap(16, concurrencyLevel, keyEquivalence, valueEquivalence);
+         }
+      }
+
+      int segmentOf(Object key) {
+         // same as DefaultConsistentHash.getSegment()
+         return (hashFunction.hash(key) & Integer.MAX_VALUE) / segmentSize;
+      }
+
+      private ConcurrentMap<Object, InternalCacheEntry> segmentFor(Object key) {
+         return segments[segmentOf(key)];
+      }
+
+      @Override
+      public InternalCacheEntry get(Object key) {
+         return segmentFor(key).get(key);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+         return segmentFor(key).containsKey(key);
+      }
+
+      @Override
+      public InternalCacheEntry put(Object key, InternalCacheEntry value) {
+         return segmentFor(key).put(key, value);
+      }
+
+      @Override
+      public InternalCacheEntry remove(Object key) {
+         return segmentFor(key).remove(key);
+      }
+
+      @Override
+      public InternalCacheEntry putIfAbsent(Object key, InternalCacheEntry value) {
+         return segmentFor(key).putIfAbsent(key, value);
+      }
+
+      @Override
+      public boolean remove(Object key, Object value) {
+         return segmentFor(key).remove(key, value);
+      }
+
+      @Override
+      public boolean replace(Object key, InternalCacheEntry oldValue, InternalCacheEntry newValue) {
+         return segmentFor(key).replace(key, oldValue, newValue);
+      }
+
+      @Override
+      public InternalCacheEntry replace(Object key, InternalCacheEntry value) {
+         return segmentFor(key).replace(key, value);
+      }
+
+      @Override
+      public int size() {
+         long size = 0;
+         for (ConcurrentMap<Object, InternalCacheEntry> segment : segments) {
+            size += segment.size();
+         }
+         return (int) Math.min(size, Integer.MAX_VALUE);
+      }
+
+      @Override
+      public boolean isEmpty() {
+         for (ConcurrentMap<Object, InternalCacheEntry> segment : segments) {
+            if (!segment.isEmpty()) return false;
+         }
+         return true;
+      }
+
+      @Override
+      public void clear() {
+         for (ConcurrentMap<Object, InternalCacheEntry> segment : segments) {
+            segment.clear();
+         }
+      }
+
+      @Override
+      public Set<Entry<Object, InternalCacheEntry>> entrySet() {
+         return new AbstractSet<Entry<Object, InternalCacheEntry>>() {
+            @Override
+            public Iterator<Entry<Object, InternalCacheEntry>> iterator() {
+               return new SegmentsIterator();
+            }
+
+            @Override
+            public int size() {
+               return SegmentedMap.this.size();
+            }
+         };
+      }
+
+      /**
+       * Iterates over the entries of each segment in turn.
+       */
+      private final class SegmentsIterator implements Iterator<Entry<Object, InternalCacheEntry>> {
+         private int nextSegment;
+         private Iterator<Entry<Object, InternalCacheEntry>> current;
+         private Iterator<Entry<Object, InternalCacheEntry>> last;
+
+         @Override
+         public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+               if (nextSegment == segments.length) return false;
+               current = segments[nextSegment++].entrySet().iterator();
+            }
+            return true;
+         }
+
+         @Override
+         public Entry<Object, InternalCacheEntry> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            last = current;
+            return current.next();
+         }
+
+         @Override
+         public void remove() {
+            if (last == null) throw new IllegalStateException();
+            last.remove();
+            last = null;
+         }
+      }
+   }
+}
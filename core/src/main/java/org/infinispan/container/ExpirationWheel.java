@@ -0,0 +1,268 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.util.CollectionFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An index of the expiration times of the mortal entries of a data container, so that purging expired entries costs
+ * time proportional to the number of entries which are due rather than to the size of the container.
+ * <p/>
+ * The index is a hierarchical timing wheel: five levels of 64 slots, the first one with a resolution of 64
+ * milliseconds and each subsequent one 64 times coarser, so that the wheel spans roughly two years. Deadlines are
+ * filed in the slot of the finest level that covers them and are moved down a level each time the wheel completes a
+ * revolution of the level below, until they are reached.
+ * <p/>
+ * Scheduling is lock free: new and postponed deadlines are queued and filed in the wheel by the next call to
+ * {@link #expire(long, ExpirationHandler)}. Only the earliest deadline scheduled for each key is kept; when it is
+ * reached the container is asked whether the entry has actually expired, and returns its current expiration time
+ * otherwise. This way entries whose idle time is extended on each access never need to be rescheduled on the read
+ * path.
+ *
+ * @since 6.0
+ */
+final class ExpirationWheel {
+
+   private static final int TICK_SHIFT = 6;
+   private static final int SLOT_BITS = 6;
+   private static final int SLOTS = 1 << SLOT_BITS;
+   private static final int SLOT_MASK = SLOTS - 1;
+   private static final int LEVELS = 5;
+   private static final long MAX_TICKS = 1L << (SLOT_BITS * LEVELS);
+   private static final long MAX_CATCH_UP_TICKS = 1L << (SLOT_BITS * 3);
+
+   /**
+    * Decides what to do with an entry whose deadline has been reached.
+    */
+   interface ExpirationHandler {
+
+      /**
+       * Invoked for a key whose earliest scheduled deadline has been reached. Implementations remove the entry if it
+       * has expired.
+       *
+       * @return the time at which the entry expires if it is still present and mortal, or -1 to forget about it
+       */
+      long deadlineReached(Object key, long now);
+   }
+
+   private static final class Deadline {
+      final Object key;
+      final long time;
+      Deadline next;
+
+      Deadline(Object key, long time) {
+         this.key = key;
+         this.time = time;
+      }
+   }
+
+   private final ConcurrentMap<Object, Long> scheduled;
+   private final ConcurrentLinkedQueue<Deadline> pending = new ConcurrentLinkedQueue<Deadline>();
+   private final ReentrantLock lock = new ReentrantLock();
+   private final Deadline[][] wheel = new Deadline[LEVELS][SLOTS];
+   private long currentTick = -1;
+   private int size;
+
+   ExpirationWheel(int concurrencyLevel, Equivalence keyEquivalence) {
+      scheduled = CollectionFactory.makeConcurrentMap(128, concurrencyLevel,
+            keyEquivalence, AnyEquivalence.<Long>getInstance());
+   }
+
+   /**
+    * Registers the time at which the entry mapped to a key expires. Nothing is scheduled if an earlier deadline is
+    * already known for the key.
+    */
+   void schedule(Object key, long expiryTime) {
+      for (;;) {
+         Long previous = scheduled.putIfAbsent(key, expiryTime);
+         if (previous == null) {
+            break;
+         }
+         if (previous <= expiryTime) {
+            return;
+         }
+         if (scheduled.replace(key, previous, expiryTime)) {
+            break;
+         }
+      }
+      pending.add(new Deadline(key, expiryTime));
+   }
+
+   /**
+    * Forgets about the deadline of a key which has been removed from the container.
+    */
+   void unschedule(Object key) {
+      scheduled.remove(key);
+   }
+
+   /**
+    * @return the number of keys with a scheduled deadline
+    */
+   int size() {
+      return scheduled.size();
+   }
+
+   void clear() {
+      lock.lock();
+      try {
+         scheduled.clear();
+         pending.clear();
+         for (Deadline[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+               level[i] = null;
+            }
+         }
+         size = 0;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Advances the wheel up to the given time, passing the keys whose deadline has been reached to the handler. If
+    * another thread is already advancing the wheel, this method returns immediately.
+    */
+   void expire(long now, ExpirationHandler handler) {
+      if (!lock.tryLock()) {
+         return;
+      }
+      try {
+         long targetTick = now >>> TICK_SHIFT;
+         if (currentTick < 0) {
+            currentTick = targetTick;
+         }
+         if (targetTick - currentTick > MAX_CATCH_UP_TICKS || size == 0) {
+            // the clock jumped or there is nothing to wait for: file everything again from the target tick
+            Deadline all = drainWheel();
+            currentTick = targetTick;
+            file(all);
+         }
+         Deadline d;
+         while ((d = pending.poll()) != null) {
+            file(d);
+         }
+         // the current tick is processed again on each run, as deadlines may still be filed in it
+         for (;;) {
+            int index = (int) (currentTick & SLOT_MASK);
+            Deadline due = wheel[0][index];
+            wheel[0][index] = null;
+            while (due != null) {
+               Deadline next = due.next;
+               due.next = null;
+               size--;
+               if (due.time > now) {
+                  // the slot is only partially due
+                  pending.add(due);
+               } else {
+                  fire(due, now, handler);
+               }
+               due = next;
+            }
+            if (currentTick >= targetTick) {
+               break;
+            }
+            currentTick++;
+            if ((currentTick & SLOT_MASK) == 0) {
+               cascade();
+            }
+         }
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   private void fire(Deadline deadline, long now, ExpirationHandler handler) {
+      Long current = scheduled.get(deadline.key);
+      if (current == null || current != deadline.time) {
+         // superseded by an earlier deadline or the key has been removed
+         return;
+      }
+      long expiryTime = handler.deadlineReached(deadline.key, now);
+      if (expiryTime < 0) {
+         scheduled.remove(deadline.key, current);
+         return;
+      }
+      if (expiryTime <= now) {
+         // the handler did not remove it, try again on the next run
+         expiryTime = now + 1;
+      }
+      if (scheduled.replace(deadline.key, current, expiryTime)) {
+         pending.add(new Deadline(deadline.key, expiryTime));
+      }
+   }
+
+   /**
+    * Moves the deadlines of the slots the wheel has just reached on the coarser levels down to the finer ones.
+    */
+   private void cascade() {
+      for (int level = 1; level < LEVELS; level++) {
+         int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+         Deadline d = wheel[level][index];
+         wheel[level][index] = null;
+         size -= count(d);
+         file(d);
+         if (index != 0) {
+            break;
+         }
+      }
+   }
+
+   private void file(Deadline list) {
+      while (list != null) {
+         Deadline next = list.next;
+         add(list);
+         list = next;
+      }
+   }
+
+   private void add(Deadline d) {
+      long tick = d.time >>> TICK_SHIFT;
+      long delta = tick - currentTick;
+      if (delta < 0) {
+         tick = currentTick;
+         delta = 0;
+      } else if (delta >= MAX_TICKS) {
+         // too far ahead, it will be re-filed when the top level slot is reached
+         tick = currentTick + MAX_TICKS - 1;
+         delta = MAX_TICKS - 1;
+      }
+      int level = 0;
+      while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+         level++;
+      }
+      int index = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+      d.next = wheel[level][index];
+      wheel[level][index] = d;
+      size++;
+   }
+
+   private Deadline drainWheel() {
+      Deadline all = null;
+      for (Deadline[] level : wheel) {
+         for (int i = 0; i < SLOTS; i++) {
+            Deadline d = level[i];
+            level[i] = null;
+            while (d != null) {
+               Deadline next = d.next;
+               d.next = all;
+               all = d;
+               d = next;
+            }
+         }
+      }
+      size = 0;
+      return all;
+   }
+
+   private static int count(Deadline d) {
+      int count = 0;
+      for (; d != null; d = d.next) {
+         count++;
+      }
+      return count;
+   }
+}
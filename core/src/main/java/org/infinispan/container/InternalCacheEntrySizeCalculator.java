@@ -0,0 +1,106 @@
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataImmortalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataMortalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataTransientCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheEntry;
+import org.infinispan.container.entries.versioned.Versioned;
+import org.infinispan.marshall.core.MarshalledValue;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
+
+/**
+ * Estimates the heap retained by an {@link InternalCacheEntry} stored in a memory bounded data container: the key,
+ * the value, the metadata, the entry itself and the container's per-entry bookkeeping.
+ * <p/>
+ * Sizes are estimated assuming a 64-bit JVM with compressed object pointers. Byte arrays, strings, boxed primitives
+ * and {@link MarshalledValue}s are sized accurately; other objects are given a fixed estimate, which subclasses can
+ * refine by overriding {@link #objectSize(Object)}.
+ *
+ * @since 6.0
+ */
+public class InternalCacheEntrySizeCalculator implements EntrySizeCalculator<Object, InternalCacheEntry> {
+
+   static final int OBJECT_HEADER = 12;
+   static final int ARRAY_HEADER = 16;
+   static final int REFERENCE = 4;
+
+   /**
+    * Map node, LRU node and the boxed size kept by the eviction policy.
+    */
+   static final int CONTAINER_ENTRY_OVERHEAD = 32 + 40 + 16 + REFERENCE;
+
+   /**
+    * Estimate used for objects whose layout is not known.
+    */
+   static final int DEFAULT_OBJECT_SIZE = 64;
+
+   @Override
+   public long calculateSize(Object key, InternalCacheEntry ice) {
+      long size = CONTAINER_ENTRY_OVERHEAD + objectSize(key) + entrySize(ice);
+      if (ice != null)
+         size += objectSize(ice.getValue());
+      return size;
+   }
+
+   protected long entrySize(InternalCacheEntry ice) {
+      if (ice == null)
+         return 0;
+      // key and value references
+      long fields = 2 * REFERENCE;
+      if (ice.getLifespan() > -1)
+         fields += 16; // created and lifespan
+      if (ice.getMaxIdle() > -1)
+         fields += 16; // lastUsed and maxIdle
+      if (isMetadataEntry(ice))
+         return align(OBJECT_HEADER + fields + REFERENCE) + metadataSize(ice.getMetadata());
+      if (ice instanceof Versioned)
+         // version and cached metadata references plus a small version object, the rest of the metadata is kept
+         // in the entry
+         return align(OBJECT_HEADER + fields + 2 * REFERENCE) + (((Versioned) ice).getVersion() != null ? 24 : 0);
+      return align(OBJECT_HEADER + fields);
+   }
+
+   protected long metadataSize(Metadata metadata) {
+      if (metadata == null)
+         return 0;
+      if (metadata instanceof EmbeddedMetadata) {
+         // lifespan, maxIdle and version reference, plus a small version object if present
+         return align(OBJECT_HEADER + 16 + REFERENCE) + (metadata.version() != null ? 24 : 0);
+      }
+      return DEFAULT_OBJECT_SIZE;
+   }
+
+   protected long objectSize(Object o) {
+      if (o == null)
+         return 0;
+      if (o instanceof byte[])
+         return align(ARRAY_HEADER + ((byte[]) o).length);
+      if (o instanceof String)
+         return align(OBJECT_HEADER + REFERENCE + 4) + align(ARRAY_HEADER + 2L * ((String) o).length());
+      if (o instanceof Integer || o instanceof Short || o instanceof Byte || o instanceof Character
+            || o instanceof Boolean || o instanceof Float)
+         return 16;
+      if (o instanceof Long || o instanceof Double)
+         return 24;
+      if (o instanceof MarshalledValue) {
+         MarshalledValue mv = (MarshalledValue) o;
+         long size = align(OBJECT_HEADER + 2 * REFERENCE + 8);
+         if (mv.getRaw() != null)
+            size += align(ARRAY_HEADER + mv.getRaw().size()) + align(OBJECT_HEADER + REFERENCE + 4);
+         return size;
+      }
+      return DEFAULT_OBJECT_SIZE;
+   }
+
+   private static boolean isMetadataEntry(InternalCacheEntry ice) {
+      return ice instanceof MetadataImmortalCacheEntry || ice instanceof MetadataMortalCacheEntry
+            || ice instanceof MetadataTransientCacheEntry || ice instanceof MetadataTransientMortalCacheEntry;
+   }
+
+   static long align(long size) {
+      return (size + 7) & ~7L;
+   }
+}
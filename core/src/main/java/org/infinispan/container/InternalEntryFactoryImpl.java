@@ -21,6 +21,11 @@
 import org.infinispan.container.entries.metadata.MetadataTransientCacheValue;
 import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheEntry;
 import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheValue;
+import org.infinispan.container.entries.versioned.Versioned;
+import org.infinispan.container.entries.versioned.VersionedImmortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedMortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientMortalCacheEntry;
 import org.infinispan.container.versioning.EntryVersion;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.util.TimeService;
@@ -49,6 +54,8 @@ public InternalCacheEntry create(Object key, Object value, Metadata metadata) {
          if (lifespan > -1 && maxIdle < 0) return new MortalCacheEntry(key, value, lifespan, timeService.wallClockTime());
          if (lifespan < 0 && maxIdle > -1) return new TransientCacheEntry(key, value, maxIdle, timeService.wallClockTime());
          return new TransientMortalCacheEntry(key, value, maxIdle, lifespan, timeService.wallClockTime());
+      } else if (isCompactMetadata(metadata)) {
+         return createVersioned(key, value, metadata.version(), lifespan, maxIdle, timeService.wallClockTime());
       } else {
          if (lifespan < 0 && maxIdle < 0) return new MetadataImmortalCacheEntry(key, value, metadata);
          if (lifespan > -1 && maxIdle < 0) return new MetadataMortalCacheEntry(key, value, metadata, timeService.wallClockTime());
@@ -78,12 +85,7 @@ public InternalCacheEntry create(Object key, Object value, EntryVersion version,
          return new TransientMortalCacheEntry(key, value, maxIdle, lifespan, lastUsed, created);
       } else {
          // If no metadata passed, assumed embedded metadata
-         Metadata metadata = new EmbeddedMetadata.Builder()
-               .lifespan(lifespan).maxIdle(maxIdle).version(version).build();
-         if (lifespan < 0 && maxIdle < 0) return new MetadataImmortalCacheEntry(key, value, metadata);
-         if (lifespan > -1 && maxIdle < 0) return new MetadataMortalCacheEntry(key, value, metadata, created);
-         if (lifespan < 0 && maxIdle > -1) return new MetadataTransientCacheEntry(key, value, metadata, lastUsed);
-         return new MetadataTransientMortalCacheEntry(key, value, metadata, lastUsed, created);
+         return createVersioned(key, value, version, created, lifespan, lastUsed, maxIdle);
       }
    }
 
@@ -94,6 +96,8 @@ public InternalCacheEntry create(Object key, Object value, Metadata metadata, lo
          if (lifespan > -1 && maxIdle < 0) return new MortalCacheEntry(key, value, lifespan, created);
          if (lifespan < 0 && maxIdle > -1) return new TransientCacheEntry(key, value, maxIdle, lastUsed);
          return new TransientMortalCacheEntry(key, value, maxIdle, lifespan, lastUsed, created);
+      } else if (isCompactMetadata(metadata)) {
+         return createVersioned(key, value, metadata.version(), created, metadata.lifespan(), lastUsed, metadata.maxIdle());
       } else {
          // Metadata to store, take lifespan and maxIdle settings from it
          long metaLifespan = metadata.lifespan();
@@ -131,6 +135,9 @@ public InternalCacheEntry create(Object key, Object value, Metadata metadata, lo
          if (lifespan > -1 && maxIdle < 0) return new MortalCacheEntry(key, value, lifespan, timeService.wallClockTime());
          if (lifespan < 0 && maxIdle > -1) return new TransientCacheEntry(key, value, maxIdle, timeService.wallClockTime());
          return new TransientMortalCacheEntry(key, value, maxIdle, lifespan, timeService.wallClockTime());
+      } else if (isCompactMetadata(metadata)) {
+         return createVersioned(key, value, metadata.version(), metadata.lifespan(), metadata.maxIdle(),
+               timeService.wallClockTime());
       } else {
          // Metadata to store, take lifespan and maxIdle settings from it
          long metaLifespan = metadata.lifespan();
@@ -223,7 +230,14 @@ private InternalCacheEntry updateMetadataUnawareEntry(InternalCacheEntry ice, lo
    private InternalCacheEntry updateMetadataAwareEntry(InternalCacheEntry ice, Metadata metadata) {
       long lifespan = metadata.lifespan();
       long maxIdle = metadata.maxIdle();
-      if (ice instanceof MetadataImmortalCacheEntry) {
+      if (ice instanceof Versioned) {
+         if (isCompactMetadata(metadata) && (lifespan < 0) == (ice.getLifespan() < 0)
+               && (maxIdle < 0) == (ice.getMaxIdle() < 0)) {
+            ice.setMetadata(metadata);
+            return ice;
+         }
+         return create(ice.getKey(), ice.getValue(), metadata);
+      } else if (ice instanceof MetadataImmortalCacheEntry) {
          if (lifespan < 0) {
             if (maxIdle < 0) {
                ice.setMetadata(metadata);
@@ -290,6 +304,32 @@ private InternalCacheEntry updateMetadataAwareEntry(InternalCacheEntry ice, Meta
       return ice;
    }
 
+   private InternalCacheEntry createVersioned(Object key, Object value, EntryVersion version,
+                                              long lifespan, long maxIdle, long now) {
+      return createVersioned(key, value, version, now, lifespan, now, maxIdle);
+   }
+
+   private InternalCacheEntry createVersioned(Object key, Object value, EntryVersion version,
+                                              long created, long lifespan, long lastUsed, long maxIdle) {
+      if (lifespan < 0 && maxIdle < 0) return new VersionedImmortalCacheEntry(key, value, version);
+      if (lifespan > -1 && maxIdle < 0) return new VersionedMortalCacheEntry(key, value, version, lifespan, created);
+      if (lifespan < 0 && maxIdle > -1) return new VersionedTransientCacheEntry(key, value, version, maxIdle, lastUsed);
+      return new VersionedTransientMortalCacheEntry(key, value, version, maxIdle, lifespan, lastUsed, created);
+   }
+
+   /**
+    * Indicates whether the metadata to store can be flattened into the entry.
+    *
+    * Embedded metadata only carries lifespan, maxIdle and version, so
+    * instead of keeping a separate metadata object around, versioned
+    * entries hold these fields themselves and rebuild the metadata on
+    * demand. Other metadata implementations may carry more information
+    * and are stored as they are.
+    */
+   private boolean isCompactMetadata(Metadata metadata) {
+      return metadata instanceof EmbeddedMetadata && metadata.version() != null;
+   }
+
    /**
     * Indicates whether the entire metadata object needs to be stored or not.
     *
@@ -0,0 +1,27 @@
+package org.infinispan.container;
+
+import org.infinispan.factories.annotations.Stop;
+
+/**
+ * A {@link DataContainer} which reports how many expired entries a purge removed, so that the purged entries can be
+ * counted by the {@link org.infinispan.eviction.EvictionManager} statistics.
+ *
+ * @since 6.0
+ */
+public interface PurgeCountingDataContainer extends DataContainer {
+
+   /**
+    * Purges the entries that have passed their expiry time, like {@link #purgeExpired()}.
+    *
+    * @return the number of entries purged
+    */
+   int purgeExpiredEntries();
+
+   /**
+    * Redeclared so that the containers implementing this interface are still cleared when the cache stops: the
+    * lifecycle annotations of {@link DataContainer} are not looked up through a sub-interface.
+    */
+   @Override
+   @Stop(priority = 999)
+   void clear();
+}
@@ -0,0 +1,53 @@
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.ch.ConsistentHash;
+
+import java.util.Iterator;
+
+/**
+ * A {@link DataContainer} which partitions its entries by consistent hash segment, so that the entries of a segment
+ * can be iterated or counted in time proportional to the size of the segment rather than to the size of the
+ * container.
+ * <p/>
+ * Segments are only meaningful for a consistent hash which maps keys to segments the same way the container does,
+ * which callers must check with {@link #isPartitionedBy(ConsistentHash)} before relying on the segment methods.
+ *
+ * @since 6.0
+ */
+public interface SegmentedDataContainer extends PurgeCountingDataContainer {
+
+   /**
+    * @param ch a consistent hash
+    * @return true if the container files each key under the segment the given consistent hash maps it to
+    */
+   boolean isPartitionedBy(ConsistentHash ch);
+
+   /**
+    * Iterates over the entries of a segment, including the expired ones which have not been purged yet.
+    *
+    * @param segment the segment id
+    * @return an iterator over the entries of the segment
+    */
+   Iterator<InternalCacheEntry> iterator(int segment);
+
+   /**
+    * @param segment the segment id
+    * @return the number of entries in the segment
+    */
+   int size(int segment);
+
+   /**
+    * Purges the entries of a segment that have passed their expiry time. Different segments can be purged
+    * concurrently.
+    *
+    * @param segment the segment id
+    * @return the number of entries purged
+    */
+   int purgeExpired(int segment);
+
+   /**
+    * @return the number of segments
+    */
+   int getNumSegments();
+}
@@ -0,0 +1,113 @@
+package org.infinispan.container.entries.versioned;
+
+import org.infinispan.commons.marshall.AbstractExternalizer;
+import org.infinispan.commons.util.Util;
+import org.infinispan.container.entries.ImmortalCacheEntry;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.metadata.MetadataAware;
+import org.infinispan.container.entries.metadata.MetadataImmortalCacheValue;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.marshall.core.Ids;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Set;
+
+import static org.infinispan.commons.util.Util.toStr;
+
+/**
+ * A form of {@link ImmortalCacheEntry} that is {@link Versioned}. It stands for a
+ * {@link org.infinispan.container.entries.metadata.MetadataImmortalCacheEntry} holding an {@link EmbeddedMetadata},
+ * keeping the version in the entry itself rather than in a separate metadata object.
+ *
+ * @since 6.0
+ */
+public class VersionedImmortalCacheEntry extends ImmortalCacheEntry implements MetadataAware, Versioned {
+
+   protected EntryVersion version;
+   // built lazily from the version and dropped whenever it changes
+   private transient Metadata metadata;
+
+   public VersionedImmortalCacheEntry(Object key, Object value, EntryVersion version) {
+      super(key, value);
+      this.version = version;
+   }
+
+   @Override
+   public EntryVersion getVersion() {
+      return version;
+   }
+
+   @Override
+   public void setVersion(EntryVersion version) {
+      this.version = version;
+      this.metadata = null;
+   }
+
+   @Override
+   public Metadata getMetadata() {
+      Metadata m = metadata;
+      if (m == null) {
+         metadata = m = new EmbeddedMetadata.Builder().version(version).build();
+      }
+      return m;
+   }
+
+   @Override
+   public void setMetadata(Metadata metadata) {
+      if (!(metadata instanceof EmbeddedMetadata) || metadata.lifespan() > -1 || metadata.maxIdle() > -1)
+         throw new IllegalStateException(
+               "Only immortal embedded metadata can be set on versioned immortal entries. They need to be recreated via the entry factory.");
+      this.version = metadata.version();
+      this.metadata = null;
+   }
+
+   @Override
+   public InternalCacheValue toInternalCacheValue() {
+      return new MetadataImmortalCacheValue(value, getMetadata());
+   }
+
+   @Override
+   public VersionedImmortalCacheEntry clone() {
+      return (VersionedImmortalCacheEntry) super.clone();
+   }
+
+   @Override
+   public String toString() {
+      return "VersionedImmortalCacheEntry{" +
+            "key=" + toStr(key) +
+            ", value=" + toStr(value) +
+            ", version=" + version +
+            "}";
+   }
+
+   public static class Externalizer extends AbstractExternalizer<VersionedImmortalCacheEntry> {
+      @Override
+      public void writeObject(ObjectOutput output, VersionedImmortalCacheEntry ice) throws IOException {
+         output.writeObject(ice.key);
+         output.writeObject(ice.value);
+         output.writeObject(ice.version);
+      }
+
+      @Override
+      public VersionedImmortalCacheEntry readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+         Object k = input.readObject();
+         Object v = input.readObject();
+         EntryVersion version = (EntryVersion) input.readObject();
+         return new VersionedImmortalCacheEntry(k, v, version);
+      }
+
+      @Override
+      public Integer getId() {
+         return Ids.VERSIONED_IMMORTAL_ENTRY;
+      }
+
+      @Override
+      public Set<Class<? extends VersionedImmortalCacheEntry>> getTypeClasses() {
+         return Util.<Class<? extends VersionedImmortalCacheEntry>>asSet(VersionedImmortalCacheEntry.class);
+      }
+   }
+}
@@ -0,0 +1,198 @@
+package org.infinispan.container.entries.versioned;
+
+import org.infinispan.commons.io.UnsignedNumeric;
+import org.infinispan.commons.marshall.AbstractExternalizer;
+import org.infinispan.commons.util.Util;
+import org.infinispan.container.entries.AbstractInternalCacheEntry;
+import org.infinispan.container.entries.ExpiryHelper;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.metadata.MetadataAware;
+import org.infinispan.container.entries.metadata.MetadataTransientCacheValue;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.marshall.core.Ids;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Set;
+
+import static org.infinispan.commons.util.Util.toStr;
+
+/**
+ * A form of {@link org.infinispan.container.entries.TransientCacheEntry} that is {@link Versioned}. It stands for a
+ * {@link org.infinispan.container.entries.metadata.MetadataTransientCacheEntry} holding an {@link EmbeddedMetadata},
+ * keeping the max idle time and the version in the entry itself rather than in a separate metadata object.
+ *
+ * @since 6.0
+ */
+public class VersionedTransientCacheEntry extends AbstractInternalCacheEntry implements MetadataAware, Versioned {
+
+   protected Object value;
+   protected EntryVersion version;
+   protected long maxIdle;
+   protected long lastUsed;
+   // built lazily from the fields above and dropped whenever they change
+   private transient Metadata metadata;
+
+   public VersionedTransientCacheEntry(Object key, Object value, EntryVersion version, long maxIdle, long lastUsed) {
+      super(key);
+      this.value = value;
+      this.version = version;
+      this.maxIdle = maxIdle;
+      this.lastUsed = lastUsed;
+   }
+
+   @Override
+   public Object getValue() {
+      return value;
+   }
+
+   @Override
+   public Object setValue(Object value) {
+      return this.value = value;
+   }
+
+   @Override
+   public EntryVersion getVersion() {
+      return version;
+   }
+
+   @Override
+   public void setVersion(EntryVersion version) {
+      this.version = version;
+      this.metadata = null;
+   }
+
+   @Override
+   public final void touch() {
+      touch(System.currentTimeMillis());
+   }
+
+   @Override
+   public final void touch(long currentTimeMillis) {
+      lastUsed = currentTimeMillis;
+   }
+
+   @Override
+   public final void reincarnate() {
+      // no-op
+   }
+
+   @Override
+   public void reincarnate(long now) {
+      // no-op
+   }
+
+   @Override
+   public final boolean canExpire() {
+      return true;
+   }
+
+   @Override
+   public boolean isExpired(long now) {
+      return ExpiryHelper.isExpiredTransient(maxIdle, lastUsed, now);
+   }
+
+   @Override
+   public boolean isExpired() {
+      return isExpired(System.currentTimeMillis());
+   }
+
+   @Override
+   public long getCreated() {
+      return -1;
+   }
+
+   @Override
+   public final long getLastUsed() {
+      return lastUsed;
+   }
+
+   @Override
+   public long getLifespan() {
+      return -1;
+   }
+
+   @Override
+   public final long getMaxIdle() {
+      return maxIdle;
+   }
+
+   @Override
+   public long getExpiryTime() {
+      return maxIdle > -1 ? lastUsed + maxIdle : -1;
+   }
+
+   @Override
+   public Metadata getMetadata() {
+      Metadata m = metadata;
+      if (m == null) {
+         metadata = m = new EmbeddedMetadata.Builder().maxIdle(maxIdle).version(version).build();
+      }
+      return m;
+   }
+
+   @Override
+   public void setMetadata(Metadata metadata) {
+      if (!(metadata instanceof EmbeddedMetadata) || metadata.lifespan() > -1 || metadata.maxIdle() < 0)
+         throw new IllegalStateException(
+               "Only transient embedded metadata can be set on versioned transient entries. They need to be recreated via the entry factory.");
+      this.maxIdle = metadata.maxIdle();
+      this.version = metadata.version();
+      this.metadata = null;
+   }
+
+   @Override
+   public InternalCacheValue toInternalCacheValue() {
+      return new MetadataTransientCacheValue(value, getMetadata(), lastUsed);
+   }
+
+   @Override
+   public VersionedTransientCacheEntry clone() {
+      return (VersionedTransientCacheEntry) super.clone();
+   }
+
+   @Override
+   public String toString() {
+      return "VersionedTransientCacheEntry{" +
+            "key=" + toStr(key) +
+            ", value=" + toStr(value) +
+            ", version=" + version +
+            ", maxIdle=" + maxIdle +
+            ", lastUsed=" + lastUsed +
+            "}";
+   }
+
+   public static class Externalizer extends AbstractExternalizer<VersionedTransientCacheEntry> {
+      @Override
+      public void writeObject(ObjectOutput output, VersionedTransientCacheEntry ice) throws IOException {
+         output.writeObject(ice.key);
+         output.writeObject(ice.value);
+         output.writeObject(ice.version);
+         UnsignedNumeric.writeUnsignedLong(output, ice.lastUsed);
+         output.writeLong(ice.maxIdle); // could be negative so should not use unsigned longs
+      }
+
+      @Override
+      public VersionedTransientCacheEntry readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+         Object k = input.readObject();
+         Object v = input.readObject();
+         EntryVersion version = (EntryVersion) input.readObject();
+         long lastUsed = UnsignedNumeric.readUnsignedLong(input);
+         long maxIdle = input.readLong();
+         return new VersionedTransientCacheEntry(k, v, version, maxIdle, lastUsed);
+      }
+
+      @Override
+      public Integer getId() {
+         return Ids.VERSIONED_TRANSIENT_ENTRY;
+      }
+
+      @Override
+      public Set<Class<? extends VersionedTransientCacheEntry>> getTypeClasses() {
+         return Util.<Class<? extends VersionedTransientCacheEntry>>asSet(VersionedTransientCacheEntry.class);
+      }
+   }
+}
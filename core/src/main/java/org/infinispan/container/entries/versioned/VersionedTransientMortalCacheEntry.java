@@ -0,0 +1,217 @@
+package org.infinispan.container.entries.versioned;
+
+import org.infinispan.commons.io.UnsignedNumeric;
+import org.infinispan.commons.marshall.AbstractExternalizer;
+import org.infinispan.commons.util.Util;
+import org.infinispan.container.entries.AbstractInternalCacheEntry;
+import org.infinispan.container.entries.ExpiryHelper;
+import org.infinispan.container.entries.InternalCacheValue;
+import org.infinispan.container.entries.metadata.MetadataAware;
+import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheValue;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.marshall.core.Ids;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Set;
+
+import static java.lang.Math.min;
+import static org.infinispan.commons.util.Util.toStr;
+
+/**
+ * A form of {@link org.infinispan.container.entries.TransientMortalCacheEntry} that is {@link Versioned}. It stands
+ * for a {@link org.infinispan.container.entries.metadata.MetadataTransientMortalCacheEntry} holding an
+ * {@link EmbeddedMetadata}, keeping the lifespan, the max idle time and the version in the entry itself rather than
+ * in a separate metadata object.
+ *
+ * @since 6.0
+ */
+public class VersionedTransientMortalCacheEntry extends AbstractInternalCacheEntry implements MetadataAware, Versioned {
+
+   protected Object value;
+   protected EntryVersion version;
+   protected long maxIdle;
+   protected long lastUsed;
+   protected long lifespan;
+   protected long created;
+   // built lazily from the fields above and dropped whenever they change
+   private transient Metadata metadata;
+
+   public VersionedTransientMortalCacheEntry(Object key, Object value, EntryVersion version, long maxIdle,
+                                             long lifespan, long lastUsed, long created) {
+      super(key);
+      this.value = value;
+      this.version = version;
+      this.maxIdle = maxIdle;
+      this.lifespan = lifespan;
+      this.lastUsed = lastUsed;
+      this.created = created;
+   }
+
+   @Override
+   public Object getValue() {
+      return value;
+   }
+
+   @Override
+   public Object setValue(Object value) {
+      return this.value = value;
+   }
+
+   @Override
+   public EntryVersion getVersion() {
+      return version;
+   }
+
+   @Override
+   public void setVersion(EntryVersion version) {
+      this.version = version;
+      this.metadata = null;
+   }
+
+   @Override
+   public long getLifespan() {
+      return lifespan;
+   }
+
+   @Override
+   public final boolean canExpire() {
+      return true;
+   }
+
+   @Override
+   public long getCreated() {
+      return created;
+   }
+
+   @Override
+   public boolean isExpired(long now) {
+      return ExpiryHelper.isExpiredTransientMortal(maxIdle, lastUsed, lifespan, created, now);
+   }
+
+   @Override
+   public boolean isExpired() {
+      return isExpired(System.currentTimeMillis());
+   }
+
+   @Override
+   public final long getExpiryTime() {
+      long lset = lifespan > -1 ? created + lifespan : -1;
+      long muet = maxIdle > -1 ? lastUsed + maxIdle : -1;
+      if (lset == -1) return muet;
+      if (muet == -1) return lset;
+      return min(lset, muet);
+   }
+
+   @Override
+   public long getLastUsed() {
+      return lastUsed;
+   }
+
+   @Override
+   public final void touch() {
+      touch(System.currentTimeMillis());
+   }
+
+   @Override
+   public final void touch(long currentTimeMillis) {
+      this.lastUsed = currentTimeMillis;
+   }
+
+   @Override
+   public final void reincarnate() {
+      reincarnate(System.currentTimeMillis());
+   }
+
+   @Override
+   public void reincarnate(long now) {
+      this.created = now;
+   }
+
+   @Override
+   public long getMaxIdle() {
+      return maxIdle;
+   }
+
+   @Override
+   public Metadata getMetadata() {
+      Metadata m = metadata;
+      if (m == null) {
+         metadata = m = new EmbeddedMetadata.Builder()
+               .lifespan(lifespan).maxIdle(maxIdle).version(version).build();
+      }
+      return m;
+   }
+
+   @Override
+   public void setMetadata(Metadata metadata) {
+      if (!(metadata instanceof EmbeddedMetadata) || metadata.lifespan() < 0 || metadata.maxIdle() < 0)
+         throw new IllegalStateException(
+               "Only transient mortal embedded metadata can be set on versioned transient mortal entries. They need to be recreated via the entry factory.");
+      this.lifespan = metadata.lifespan();
+      this.maxIdle = metadata.maxIdle();
+      this.version = metadata.version();
+      this.metadata = null;
+   }
+
+   @Override
+   public InternalCacheValue toInternalCacheValue() {
+      return new MetadataTransientMortalCacheValue(value, getMetadata(), created, lastUsed);
+   }
+
+   @Override
+   public VersionedTransientMortalCacheEntry clone() {
+      return (VersionedTransientMortalCacheEntry) super.clone();
+   }
+
+   @Override
+   public String toString() {
+      return "VersionedTransientMortalCacheEntry{" +
+            "key=" + toStr(key) +
+            ", value=" + toStr(value) +
+            ", version=" + version +
+            ", lifespan=" + lifespan +
+            ", created=" + created +
+            ", maxIdle=" + maxIdle +
+            ", lastUsed=" + lastUsed +
+            "}";
+   }
+
+   public static class Externalizer extends AbstractExternalizer<VersionedTransientMortalCacheEntry> {
+      @Override
+      public void writeObject(ObjectOutput output, VersionedTransientMortalCacheEntry ice) throws IOException {
+         output.writeObject(ice.key);
+         output.writeObject(ice.value);
+         output.writeObject(ice.version);
+         UnsignedNumeric.writeUnsignedLong(output, ice.created);
+         output.writeLong(ice.lifespan); // could be negative so should not use unsigned longs
+         UnsignedNumeric.writeUnsignedLong(output, ice.lastUsed);
+         output.writeLong(ice.maxIdle); // could be negative so should not use unsigned longs
+      }
+
+      @Override
+      public VersionedTransientMortalCacheEntry readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+         Object k = input.readObject();
+         Object v = input.readObject();
+         EntryVersion version = (EntryVersion) input.readObject();
+         long created = UnsignedNumeric.readUnsignedLong(input);
+         long lifespan = input.readLong();
+         long lastUsed = UnsignedNumeric.readUnsignedLong(input);
+         long maxIdle = input.readLong();
+         return new VersionedTransientMortalCacheEntry(k, v, version, maxIdle, lifespan, lastUsed, created);
+      }
+
+      @Override
+      public Integer getId() {
+         return Ids.VERSIONED_TRANSIENT_MORTAL_ENTRY;
+      }
+
+      @Override
+      public Set<Class<? extends VersionedTransientMortalCacheEntry>> getTypeClasses() {
+         return Util.<Class<? extends VersionedTransientMortalCacheEntry>>asSet(VersionedTransientMortalCacheEntry.class);
+      }
+   }
+}
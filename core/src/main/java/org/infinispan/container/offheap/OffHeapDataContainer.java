@@ -0,0 +1,712 @@
+package org.infinispan.container.offheap;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.commons.CacheException;
+import org.infinispan.commons.io.ByteBuffer;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.PurgeCountingDataContainer;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.ExpiryHelper;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Stop;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.util.CoreImmutables;
+import org.infinispan.util.TimeService;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A {@link DataContainer} which keeps marshalled keys, values and metadata in native memory, outside of the Java heap,
+ * so that large caches do not contribute to old generation garbage collection pauses.
+ * <p/>
+ * Entries are partitioned into segments, each guarded by a read/write lock and owning a native bucket table whose
+ * slots point to chains of native records. A record has the following layout:
+ * <pre>
+ *    0: next record address (long)
+ *    8: key hash (int)
+ *   12: key length (int)
+ *   16: value length (int)
+ *   20: metadata length (int), 0 when only lifespan and max idle need to be kept
+ *   24: created (long)
+ *   32: last used (long)
+ *   40: lifespan (long)
+ *   48: max idle (long)
+ *   56: key bytes, value bytes, metadata bytes
+ * </pre>
+ * Only a thin on-heap {@link InternalCacheEntry} view is materialised, through the {@link InternalEntryFactory}, when
+ * an entry is read. Such a view is a copy: modifications to it are not reflected in the container and must be written
+ * back with {@link #put(Object, Object, Metadata)}.
+ * <p/>
+ * Keys are compared by their marshalled form, so the cache marshaller must produce the same bytes for equal keys.
+ *
+ * @since 6.0
+ */
+@ThreadSafe
+public class OffHeapDataContainer implements PurgeCountingDataContainer {
+
+   private static final int NEXT_OFFSET = 0;
+   private static final int HASH_OFFSET = 8;
+   private static final int KEY_LENGTH_OFFSET = 12;
+   private static final int VALUE_LENGTH_OFFSET = 16;
+   private static final int METADATA_LENGTH_OFFSET = 20;
+   private static final int CREATED_OFFSET = 24;
+   private static final int LAST_USED_OFFSET = 32;
+   private static final int LIFESPAN_OFFSET = 40;
+   private static final int MAX_IDLE_OFFSET = 48;
+   private static final int HEADER_SIZE = 56;
+
+   private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+   private final OffHeapMemory memory = new OffHeapMemory();
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final int segmentMask;
+
+   private StreamingMarshaller marshaller;
+   private InternalEntryFactory entryFactory;
+   private TimeService timeService;
+   private long touchGranularity;
+
+   public OffHeapDataContainer(int concurrencyLevel) {
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      segments = new Segment[ssize];
+      for (int i = 0; i < ssize; i++)
+         segments[i] = new Segment();
+   }
+
+   @Inject
+   public void initialize(@ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller,
+                          InternalEntryFactory entryFactory, TimeService timeService) {
+      this.marshaller = marshaller;
+      this.entryFactory = entryFactory;
+      this.timeService = timeService;
+   }
+
+   @Inject
+   public void injectConfiguration(Configuration configuration) {
+      this.touchGranularity = configuration.expiration().touchGranularity();
+   }
+
+   @Override
+   public InternalCacheEntry get(Object k) {
+      return lookup(k, true);
+   }
+
+   @Override
+   public InternalCacheEntry peek(Object k) {
+      return lookup(k, false);
+   }
+
+   private InternalCacheEntry lookup(Object k, boolean touch) {
+      ByteBuffer key = marshall(k);
+      int hash = hash(key);
+      Segment s = segmentFor(hash);
+      Record record = null;
+      boolean expired = false;
+      s.readLock().lock();
+      try {
+         long address = s.find(hash, key);
+         if (address == 0)
+            return null;
+         if (touch && canExpire(address)) {
+            long now = timeService.wallClockTime();
+            if (isExpired(address, now)) {
+               expired = true;
+            } else if (OffHeapMemory.getLong(address + MAX_IDLE_OFFSET) > -1) {
+               // Only the read lock is held, so the access time is swapped atomically, and only once per granularity
+               // period so that reads of hot entries do not keep dirtying native memory
+               long lastUsed = OffHeapMemory.getLong(address + LAST_USED_OFFSET);
+               if (now - lastUsed > touchGranularity)
+                  OffHeapMemory.compareAndSwapLong(address + LAST_USED_OFFSET, lastUsed, now);
+            }
+         }
+         if (!expired)
+            record = Record.read(address);
+      } finally {
+         s.readLock().unlock();
+      }
+      if (expired) {
+         removeIfExpired(k);
+         return null;
+      }
+      return materialise(k, record);
+   }
+
+   @Override
+   public void put(Object k, Object v, Metadata metadata) {
+      ByteBuffer key = marshall(k);
+      ByteBuffer value = marshall(v);
+      ByteBuffer meta = isStoreMetadata(metadata) ? marshall(metadata) : null;
+      int hash = hash(key);
+      long now = timeService.wallClockTime();
+
+      int metaLength = meta == null ? 0 : meta.getLength();
+      long size = recordSize(key.getLength(), value.getLength(), metaLength);
+      long address = memory.allocate(size);
+      OffHeapMemory.putLong(address + NEXT_OFFSET, 0);
+      OffHeapMemory.putInt(address + HASH_OFFSET, hash);
+      OffHeapMemory.putInt(address + KEY_LENGTH_OFFSET, key.getLength());
+      OffHeapMemory.putInt(address + VALUE_LENGTH_OFFSET, value.getLength());
+      OffHeapMemory.putInt(address + METADATA_LENGTH_OFFSET, metaLength);
+      OffHeapMemory.putLong(address + CREATED_OFFSET, now);
+      OffHeapMemory.putLong(address + LAST_USED_OFFSET, now);
+      OffHeapMemory.putLong(address + LIFESPAN_OFFSET, metadata != null ? metadata.lifespan() : -1);
+      OffHeapMemory.putLong(address + MAX_IDLE_OFFSET, metadata != null ? metadata.maxIdle() : -1);
+      long offset = address + HEADER_SIZE;
+      OffHeapMemory.putBytes(offset, key.getBuf(), key.getOffset(), key.getLength());
+      offset += key.getLength();
+      OffHeapMemory.putBytes(offset, value.getBuf(), value.getOffset(), value.getLength());
+      if (meta != null)
+         OffHeapMemory.putBytes(offset + value.getLength(), meta.getBuf(), meta.getOffset(), metaLength);
+
+      Segment s = segmentFor(hash);
+      s.writeLock().lock();
+      try {
+         s.put(hash, key, address);
+      } finally {
+         s.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      ByteBuffer key = marshall(k);
+      int hash = hash(key);
+      Segment s = segmentFor(hash);
+      boolean expired;
+      s.readLock().lock();
+      try {
+         long address = s.find(hash, key);
+         if (address == 0)
+            return false;
+         expired = canExpire(address) && isExpired(address, timeService.wallClockTime());
+      } finally {
+         s.readLock().unlock();
+      }
+      if (expired)
+         removeIfExpired(k);
+      return !expired;
+   }
+
+   @Override
+   public InternalCacheEntry remove(Object k) {
+      ByteBuffer key = marshall(k);
+      int hash = hash(key);
+      Segment s = segmentFor(hash);
+      Record record;
+      s.writeLock().lock();
+      try {
+         long address = s.remove(hash, key, false, 0);
+         if (address == 0)
+            return null;
+         record = Record.read(address);
+         memory.free(address, recordSize(address));
+      } finally {
+         s.writeLock().unlock();
+      }
+      if (record.canExpire() && record.isExpired(timeService.wallClockTime()))
+         return null;
+      return materialise(k, record);
+   }
+
+   private void removeIfExpired(Object k) {
+      ByteBuffer key = marshall(k);
+      int hash = hash(key);
+      Segment s = segmentFor(hash);
+      s.writeLock().lock();
+      try {
+         long address = s.remove(hash, key, true, timeService.wallClockTime());
+         if (address != 0)
+            memory.free(address, recordSize(address));
+      } finally {
+         s.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public int size() {
+      int size = 0;
+      for (Segment s : segments)
+         size += s.count;
+      return size;
+   }
+
+   /**
+    * Frees the native records and bucket tables of every segment. It is also called when the cache stops, as the
+    * garbage collector never reclaims the native memory of a stopped container.
+    */
+   @Override
+   @Stop(priority = 999)
+   public void clear() {
+      for (Segment s : segments) {
+         s.writeLock().lock();
+         try {
+            s.clear();
+         } finally {
+            s.writeLock().unlock();
+         }
+      }
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      return Collections.unmodifiableSet(new KeySet());
+   }
+
+   @Override
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      purgeExpiredEntries();
+   }
+
+   @Override
+   public int purgeExpiredEntries() {
+      long now = timeService.wallClockTime();
+      int purged = 0;
+      for (Segment s : segments) {
+         s.writeLock().lock();
+         try {
+            purged += s.purgeExpired(now);
+         } finally {
+            s.writeLock().unlock();
+         }
+      }
+      return purged;
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator() {
+      return new SegmentIterator<InternalCacheEntry>() {
+         @Override
+         InternalCacheEntry convert(Record record) {
+            return materialise(unmarshall(record.payload, 0, record.keyLength), record);
+         }
+      };
+   }
+
+   /**
+    * @return the number of bytes of native memory currently held by this container
+    */
+   public long getAllocatedMemory() {
+      return memory.allocatedBytes();
+   }
+
+   private InternalCacheEntry materialise(Object key, Record record) {
+      Object value = unmarshall(record.payload, record.keyLength, record.valueLength);
+      Metadata metadata = null;
+      if (record.metadataLength > 0)
+         metadata = (Metadata) unmarshall(record.payload, record.keyLength + record.valueLength, record.metadataLength);
+      return entryFactory.create(key, value, metadata, record.created, record.lifespan, record.lastUsed, record.maxIdle);
+   }
+
+   private ByteBuffer marshall(Object o) {
+      try {
+         return marshaller.objectToBuffer(o);
+      } catch (IOException e) {
+         throw new CacheException("Unable to marshall " + o, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException(e);
+      }
+   }
+
+   private Object unmarshall(byte[] buf, int offset, int length) {
+      try {
+         return marshaller.objectFromByteBuffer(buf, offset, length);
+      } catch (IOException e) {
+         throw new CacheException("Unable to unmarshall off-heap entry", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheException("Unable to unmarshall off-heap entry", e);
+      }
+   }
+
+   /**
+    * Same rule as the entry factory: plain {@link EmbeddedMetadata} without a version is fully described by the
+    * lifespan and max idle kept in the record header.
+    */
+   private static boolean isStoreMetadata(Metadata metadata) {
+      return metadata != null && (metadata.version() != null || !(metadata instanceof EmbeddedMetadata));
+   }
+
+   private Segment segmentFor(int hash) {
+      return segments[(hash >>> segmentShift) & segmentMask];
+   }
+
+   private static int hash(ByteBuffer key) {
+      byte[] buf = key.getBuf();
+      int h = 1;
+      for (int i = key.getOffset(), end = key.getOffset() + key.getLength(); i < end; i++)
+         h = 31 * h + buf[i];
+      // Spread bits so that both the segment (high bits) and the bucket (low bits) selection are well distributed
+      h += (h << 15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h << 3);
+      h ^= (h >>> 6);
+      h += (h << 2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   private static long recordSize(int keyLength, int valueLength, int metadataLength) {
+      return (long) HEADER_SIZE + keyLength + valueLength + metadataLength;
+   }
+
+   private static long recordSize(long address) {
+      return recordSize(OffHeapMemory.getInt(address + KEY_LENGTH_OFFSET),
+                        OffHeapMemory.getInt(address + VALUE_LENGTH_OFFSET),
+                        OffHeapMemory.getInt(address + METADATA_LENGTH_OFFSET));
+   }
+
+   private static boolean canExpire(long address) {
+      return OffHeapMemory.getLong(address + LIFESPAN_OFFSET) > -1 || OffHeapMemory.getLong(address + MAX_IDLE_OFFSET) > -1;
+   }
+
+   private static boolean isExpired(long address, long now) {
+      return ExpiryHelper.isExpiredTransientMortal(OffHeapMemory.getLong(address + MAX_IDLE_OFFSET),
+                                                   OffHeapMemory.getLong(address + LAST_USED_OFFSET),
+                                                   OffHeapMemory.getLong(address + LIFESPAN_OFFSET),
+                                                   OffHeapMemory.getLong(address + CREATED_OFFSET), now);
+   }
+
+   private static boolean keyEquals(long address, int hash, ByteBuffer key) {
+      return OffHeapMemory.getInt(address + HASH_OFFSET) == hash
+            && OffHeapMemory.getInt(address + KEY_LENGTH_OFFSET) == key.getLength()
+            && OffHeapMemory.equalBytes(address + HEADER_SIZE, key.getBuf(), key.getOffset(), key.getLength());
+   }
+
+   /**
+    * On-heap copy of a native record, taken while holding the segment lock.
+    */
+   private static final class Record {
+      final long created;
+      final long lastUsed;
+      final long lifespan;
+      final long maxIdle;
+      final int keyLength;
+      final int valueLength;
+      final int metadataLength;
+      final byte[] payload;
+
+      private Record(long address) {
+         created = OffHeapMemory.getLong(address + CREATED_OFFSET);
+         lastUsed = OffHeapMemory.getLong(address + LAST_USED_OFFSET);
+         lifespan = OffHeapMemory.getLong(address + LIFESPAN_OFFSET);
+         maxIdle = OffHeapMemory.getLong(address + MAX_IDLE_OFFSET);
+         keyLength = OffHeapMemory.getInt(address + KEY_LENGTH_OFFSET);
+         valueLength = OffHeapMemory.getInt(address + VALUE_LENGTH_OFFSET);
+         metadataLength = OffHeapMemory.getInt(address + METADATA_LENGTH_OFFSET);
+         payload = new byte[keyLength + valueLength + metadataLength];
+         OffHeapMemory.getBytes(address + HEADER_SIZE, payload, 0, payload.length);
+      }
+
+      static Record read(long address) {
+         return new Record(address);
+      }
+
+      boolean canExpire() {
+         return lifespan > -1 || maxIdle > -1;
+      }
+
+      boolean isExpired(long now) {
+         return ExpiryHelper.isExpiredTransientMortal(maxIdle, lastUsed, lifespan, created, now);
+      }
+   }
+
+   /**
+    * A segment owns a native table of bucket heads. Readers hold the read lock, structural changes the write lock.
+    */
+   private final class Segment extends ReentrantReadWriteLock {
+      private long table;
+      private int capacity;
+      volatile int count;
+
+      long find(int hash, ByteBuffer key) {
+         if (table == 0)
+            return 0;
+         long address = OffHeapMemory.getLong(bucket(hash));
+         while (address != 0) {
+            if (keyEquals(address, hash, key))
+               return address;
+            address = OffHeapMemory.getLong(address + NEXT_OFFSET);
+         }
+         return 0;
+      }
+
+      void put(int hash, ByteBuffer key, long newAddress) {
+         if (table == 0) {
+            capacity = INITIAL_SEGMENT_CAPACITY;
+            table = memory.allocateZeroed((long) capacity * 8);
+         }
+         long prevSlot = bucket(hash);
+         long address = OffHeapMemory.getLong(prevSlot);
+         while (address != 0) {
+            long next = OffHeapMemory.getLong(address + NEXT_OFFSET);
+            if (keyEquals(address, hash, key)) {
+               OffHeapMemory.putLong(newAddress + NEXT_OFFSET, next);
+               OffHeapMemory.putLong(prevSlot, newAddress);
+               memory.free(address, recordSize(address));
+               return;
+            }
+            prevSlot = address + NEXT_OFFSET;
+            address = next;
+         }
+         long head = bucket(hash);
+         OffHeapMemory.putLong(newAddress + NEXT_OFFSET, OffHeapMemory.getLong(head));
+         OffHeapMemory.putLong(head, newAddress);
+         int c = count + 1;
+         count = c;
+         if (c > capacity - (capacity >>> 2))
+            rehash();
+      }
+
+      /**
+       * Unlinks the record matching the key and returns its address, without freeing it. When {@code onlyIfExpired}
+       * is set the record is only unlinked if it has expired at {@code now}.
+       */
+      long remove(int hash, ByteBuffer key, boolean onlyIfExpired, long now) {
+         if (table == 0)
+            return 0;
+         long prevSlot = bucket(hash);
+         long address = OffHeapMemory.getLong(prevSlot);
+         while (address != 0) {
+            long next = OffHeapMemory.getLong(address + NEXT_OFFSET);
+            if (keyEquals(address, hash, key)) {
+               if (onlyIfExpired && !(canExpire(address) && isExpired(address, now)))
+                  return 0;
+               OffHeapMemory.putLong(prevSlot, next);
+               count = count - 1;
+               return address;
+            }
+            prevSlot = address + NEXT_OFFSET;
+            address = next;
+         }
+         return 0;
+      }
+
+      int purgeExpired(long now) {
+         if (table == 0)
+            return 0;
+         int removed = 0;
+         for (int i = 0; i < capacity; i++) {
+            long prevSlot = table + (long) i * 8;
+            long address = OffHeapMemory.getLong(prevSlot);
+            while (address != 0) {
+               long next = OffHeapMemory.getLong(address + NEXT_OFFSET);
+               if (canExpire(address) && isExpired(address, now)) {
+                  OffHeapMemory.putLong(prevSlot, next);
+                  memory.free(address, recordSize(address));
+                  removed++;
+               } else {
+                  prevSlot = address + NEXT_OFFSET;
+               }
+               address = next;
+            }
+         }
+         count = count - removed;
+         return removed;
+      }
+
+      void clear() {
+         if (table == 0)
+            return;
+         for (int i = 0; i < capacity; i++) {
+            long address = OffHeapMemory.getLong(table + (long) i * 8);
+            while (address != 0) {
+               long next = OffHeapMemory.getLong(address + NEXT_OFFSET);
+               memory.free(address, recordSize(address));
+               address = next;
+            }
+         }
+         // The table is released too, so that a stopped container does not hold any native memory
+         memory.free(table, (long) capacity * 8);
+         table = 0;
+         capacity = 0;
+         count = 0;
+      }
+
+      List<Record> snapshot() {
+         readLock().lock();
+         try {
+            if (table == 0)
+               return Collections.emptyList();
+            List<Record> records = new ArrayList<Record>(count);
+            for (int i = 0; i < capacity; i++) {
+               long address = OffHeapMemory.getLong(table + (long) i * 8);
+               while (address != 0) {
+                  records.add(Record.read(address));
+                  address = OffHeapMemory.getLong(address + NEXT_OFFSET);
+               }
+            }
+            return records;
+         } finally {
+            readLock().unlock();
+         }
+      }
+
+      private long bucket(int hash) {
+         return table + (long) (hash & (capacity - 1)) * 8;
+      }
+
+      private void rehash() {
+         int newCapacity = capacity << 1;
+         long newTable = memory.allocateZeroed((long) newCapacity * 8);
+         for (int i = 0; i < capacity; i++) {
+            long address = OffHeapMemory.getLong(table + (long) i * 8);
+            while (address != 0) {
+               long next = OffHeapMemory.getLong(address + NEXT_OFFSET);
+               long slot = newTable + (long) (OffHeapMemory.getInt(address + HASH_OFFSET) & (newCapacity - 1)) * 8;
+               OffHeapMemory.putLong(address + NEXT_OFFSET, OffHeapMemory.getLong(slot));
+               OffHeapMemory.putLong(slot, address);
+               address = next;
+            }
+         }
+         memory.free(table, (long) capacity * 8);
+         table = newTable;
+         capacity = newCapacity;
+      }
+   }
+
+   /**
+    * Iterates over the container one segment at a time, copying each segment's records on-heap under its read lock so
+    * that no native memory is accessed once the lock has been released.
+    */
+   private abstract class SegmentIterator<T> implements Iterator<T> {
+      private int nextSegment;
+      private Iterator<Record> current = Collections.<Record>emptyList().iterator();
+
+      abstract T convert(Record record);
+
+      @Override
+      public boolean hasNext() {
+         while (!current.hasNext()) {
+            if (nextSegment >= segments.length)
+               return false;
+            current = segments[nextSegment++].snapshot().iterator();
+         }
+         return true;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext())
+            throw new NoSuchElementException();
+         return convert(current.next());
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private class KeySet extends AbstractSet<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         return new SegmentIterator<Object>() {
+            @Override
+            Object convert(Record record) {
+               return unmarshall(record.payload, 0, record.keyLength);
+            }
+         };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return peek(o) != null;
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         return new SegmentIterator<Object>() {
+            @Override
+            Object convert(Record record) {
+               return unmarshall(record.payload, record.keyLength, record.valueLength);
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry))
+            return false;
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         return ice != null && ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         final Iterator<InternalCacheEntry> it = OffHeapDataContainer.this.iterator();
+         return new Iterator<InternalCacheEntry>() {
+            @Override
+            public boolean hasNext() {
+               return it.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry next() {
+               return CoreImmutables.immutableInternalCacheEntry(it.next());
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         };
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
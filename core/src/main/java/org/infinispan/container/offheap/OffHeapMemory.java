@@ -0,0 +1,114 @@
+package org.infinispan.container.offheap;
+
+import java.lang.reflect.Field;
+import java.security.AccessController;
+import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sun.misc.Unsafe;
+
+/**
+ * Thin wrapper around {@link Unsafe} used to allocate, free and access native memory blocks. All addresses handed
+ * out by this class are absolute addresses which must be released through {@link #free(long, long)} exactly once.
+ * <p/>
+ * The amount of memory currently allocated is tracked so that containers can report their native footprint.
+ *
+ * @since 6.0
+ */
+final class OffHeapMemory {
+
+   private static final Unsafe UNSAFE = getUnsafe();
+   private static final long BYTE_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
+   private final AtomicLong allocated = new AtomicLong();
+
+   long allocate(long size) {
+      long address = UNSAFE.allocateMemory(size);
+      allocated.addAndGet(size);
+      return address;
+   }
+
+   long allocateZeroed(long size) {
+      long address = allocate(size);
+      UNSAFE.setMemory(address, size, (byte) 0);
+      return address;
+   }
+
+   void free(long address, long size) {
+      UNSAFE.freeMemory(address);
+      allocated.addAndGet(-size);
+   }
+
+   long allocatedBytes() {
+      return allocated.get();
+   }
+
+   static long getLong(long address) {
+      return UNSAFE.getLong(address);
+   }
+
+   static void putLong(long address, long value) {
+      UNSAFE.putLong(address, value);
+   }
+
+   /**
+    * Atomically replaces the long at the given 8 byte aligned address, if it still holds the expected value.
+    */
+   static boolean compareAndSwapLong(long address, long expected, long value) {
+      return UNSAFE.compareAndSwapLong(null, address, expected, value);
+   }
+
+   static int getInt(long address) {
+      return UNSAFE.getInt(address);
+   }
+
+   static void putInt(long address, int value) {
+      UNSAFE.putInt(address, value);
+   }
+
+   static void putBytes(long address, byte[] src, int offset, int length) {
+      UNSAFE.copyMemory(src, BYTE_ARRAY_BASE_OFFSET + offset, null, address, length);
+   }
+
+   static void getBytes(long address, byte[] dst, int offset, int length) {
+      UNSAFE.copyMemory(null, address, dst, BYTE_ARRAY_BASE_OFFSET + offset, length);
+   }
+
+   /**
+    * Compares a native memory region with a region of a byte array.
+    */
+   static boolean equalBytes(long address, byte[] src, int offset, int length) {
+      int i = 0;
+      for (; i + 8 <= length; i += 8) {
+         if (UNSAFE.getLong(address + i) != UNSAFE.getLong(src, BYTE_ARRAY_BASE_OFFSET + offset + i))
+            return false;
+      }
+      for (; i < length; i++) {
+         if (UNSAFE.getByte(address + i) != src[offset + i])
+            return false;
+      }
+      return true;
+   }
+
+   private static Unsafe getUnsafe() {
+      try {
+         return Unsafe.getUnsafe();
+      } catch (SecurityException tryReflectionInstead) {}
+      try {
+         return AccessController.doPrivileged(new PrivilegedExceptionAction<Unsafe>() {
+            @Override
+            public Unsafe run() throws Exception {
+               for (Field f : Unsafe.class.getDeclaredFields()) {
+                  f.setAccessible(true);
+                  Object x = f.get(null);
+                  if (Unsafe.class.isInstance(x))
+                     return Unsafe.class.cast(x);
+               }
+               throw new NoSuchFieldError("the Unsafe");
+            }
+         });
+      } catch (Exception e) {
+         throw new IllegalStateException("Native memory access is not available on this JVM", e);
+      }
+   }
+}
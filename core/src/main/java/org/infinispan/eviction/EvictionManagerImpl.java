@@ -5,6 +5,8 @@
 import org.infinispan.commons.util.Util;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.PurgeCountingDataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.impl.ImmutableContext;
@@ -13,18 +15,41 @@
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.DisplayType;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.jmx.annotations.MeasurementType;
+import org.infinispan.jmx.annotations.Units;
 import org.infinispan.persistence.manager.PersistenceManager;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Schedules the periodic purge of expired entries from the data container and the cache stores.
+ * <p/>
+ * When the configured {@link org.infinispan.configuration.cache.ExpirationConfiguration#purgeParallelism() purge
+ * parallelism} is greater than 1, each run purges the cache stores and each segment of a
+ * {@link SegmentedDataContainer} as separate tasks, which at most that many threads of the global persistence executor
+ * pick up, rather than one after the other on the reaper thread.
+ */
 @ThreadSafe
+@MBean(objectName = "Expiration", description = "Component that periodically purges expired entries from memory and cache stores.")
 public class EvictionManagerImpl implements EvictionManager {
    private static final Log log = LogFactory.getLog(EvictionManagerImpl.class);
    private static final boolean trace = log.isTraceEnabled();
@@ -32,6 +57,7 @@ public class EvictionManagerImpl implements EvictionManager {
 
    // components to be injected
    private ScheduledExecutorService executor;
+   private ExecutorService purgeExecutor;
    private Configuration configuration;
    private PersistenceManager persistenceManager;
    private DataContainer dataContainer;
@@ -39,19 +65,31 @@ public class EvictionManagerImpl implements EvictionManager {
    private TimeService timeService;
    private boolean enabled;
    private String cacheName;
+   private int purgeParallelism;
+
+   private final AtomicLong purges = new AtomicLong(0);
+   private final AtomicLong purgeTime = new AtomicLong(0);
+   private final AtomicLong entriesPurged = new AtomicLong(0);
+   private volatile long lastPurgeTime;
+
+   @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", displayName = "Statistics enabled", writable = true)
+   private boolean statisticsEnabled = false;
 
    @Inject
    public void initialize(@ComponentName(KnownComponentNames.EVICTION_SCHEDULED_EXECUTOR)
          ScheduledExecutorService executor, Cache cache, Configuration cfg, DataContainer dataContainer,
-         PersistenceManager persistenceManager, CacheNotifier cacheNotifier, TimeService timeService) {
+         PersistenceManager persistenceManager, CacheNotifier cacheNotifier, TimeService timeService,
+         @ComponentName(KnownComponentNames.PERSISTENCE_EXECUTOR) ExecutorService purgeExecutor) {
       initialize(executor, cache.getName(), cfg, dataContainer,
-                 persistenceManager, cacheNotifier, timeService);
+                 persistenceManager, cacheNotifier, timeService, purgeExecutor);
    }
 
    void initialize(ScheduledExecutorService executor,
             String cacheName, Configuration cfg, DataContainer dataContainer,
-            PersistenceManager persistenceManager, CacheNotifier cacheNotifier, TimeService timeService) {
+            PersistenceManager persistenceManager, CacheNotifier cacheNotifier, TimeService timeService,
+            ExecutorService purgeExecutor) {
       this.executor = executor;
+      this.purgeExecutor = purgeExecutor;
       this.configuration = cfg;
       this.cacheName = cacheName;
       this.dataContainer = dataContainer;
@@ -66,12 +104,14 @@ void initialize(ScheduledExecutorService executor,
    public void start() {
       // first check if eviction is enabled!
       enabled = configuration.expiration().reaperEnabled();
+      statisticsEnabled = configuration.jmxStatistics().enabled();
       if (enabled) {
          // Set up the eviction timer task
          long expWakeUpInt = configuration.expiration().wakeUpInterval();
          if (expWakeUpInt <= 0) {
             log.notStartingEvictionThread();
          } else {
+            purgeParallelism = purgeExecutor != null ? configuration.expiration().purgeParallelism() : 1;
             evictionTask = executor.scheduleWithFixedDelay(new ScheduledTask(),
                   expWakeUpInt, expWakeUpInt, TimeUnit.MILLISECONDS);
          }
@@ -80,6 +120,31 @@ public void start() {
 
    @Override
    public void processEviction() {
+      long start = timeService.time();
+      long purged;
+      if (purgeParallelism > 1) {
+         purged = purgeInParallel();
+      } else {
+         purged = purgeDataContainer();
+         if (!Thread.currentThread().isInterrupted()) {
+            persistenceManager.purgeExpired();
+         }
+      }
+
+      if (statisticsEnabled) {
+         long duration = timeService.timeDuration(start, TimeUnit.MILLISECONDS);
+         purges.incrementAndGet();
+         purgeTime.addAndGet(duration);
+         entriesPurged.addAndGet(purged);
+         lastPurgeTime = duration;
+      }
+   }
+
+   /**
+    * @return the number of entries purged, if the data container reports it
+    */
+   private int purgeDataContainer() {
+      int purged = 0;
       long start = 0;
       if (!Thread.currentThread().isInterrupted()) {
          try {
@@ -87,7 +152,11 @@ public void processEviction() {
                log.trace("Purging data container of expired entries");
                start = timeService.time();
             }
-            dataContainer.purgeExpired();
+            if (dataContainer instanceof PurgeCountingDataContainer) {
+               purged = ((PurgeCountingDataContainer) dataContainer).purgeExpiredEntries();
+            } else {
+               dataContainer.purgeExpired();
+            }
             if (trace) {
                log.tracef("Purging data container completed in %s",
                           Util.prettyPrintTime(timeService.timeDuration(start, TimeUnit.MILLISECONDS)));
@@ -96,10 +165,94 @@ public void processEviction() {
             log.exceptionPurgingDataContainer(e);
          }
       }
+      return purged;
+   }
 
-      if (!Thread.currentThread().isInterrupted()) {
-         persistenceManager.purgeExpired();
+   /**
+    * Purges the cache stores and each segment of the data container concurrently, waiting for all of them to
+    * complete. The purge tasks are shared by at most {@link #purgeParallelism} workers running on the persistence
+    * executor, so that a purge never occupies more of the shared executor than configured, however many segments the
+    * container has.
+    *
+    * @return the number of entries purged, if the data container reports it
+    */
+   private int purgeInParallel() {
+      if (Thread.currentThread().isInterrupted()) {
+         return 0;
+      }
+      final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+      tasks.add(new Callable<Integer>() {
+         @Override
+         public Integer call() {
+            persistenceManager.purgeExpired();
+            return 0;
+         }
+      });
+      if (dataContainer instanceof SegmentedDataContainer) {
+         final SegmentedDataContainer segmentedContainer = (SegmentedDataContainer) dataContainer;
+         for (int i = 0; i < segmentedContainer.getNumSegments(); i++) {
+            final int segment = i;
+            tasks.add(new Callable<Integer>() {
+               @Override
+               public Integer call() {
+                  return segmentedContainer.purgeExpired(segment);
+               }
+            });
+         }
+      } else {
+         tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+               return purgeDataContainer();
+            }
+         });
+      }
+
+      long start = 0;
+      if (trace) {
+         log.tracef("Purging data container and cache stores of expired entries in %d tasks", tasks.size());
+         start = timeService.time();
+      }
+      final AtomicInteger nextTask = new AtomicInteger();
+      List<Callable<Integer>> workers = new ArrayList<Callable<Integer>>(purgeParallelism);
+      for (int i = 0; i < Math.min(purgeParallelism, tasks.size()); i++) {
+         workers.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+               int purged = 0;
+               int task;
+               while ((task = nextTask.getAndIncrement()) < tasks.size() && !Thread.currentThread().isInterrupted()) {
+                  try {
+                     purged += tasks.get(task).call();
+                  } catch (Exception e) {
+                     log.exceptionPurgingDataContainer(e);
+                  }
+               }
+               return purged;
+            }
+         });
       }
+      int purged = 0;
+      try {
+         for (Future<Integer> result : purgeExecutor.invokeAll(workers)) {
+            try {
+               purged += result.get();
+            } catch (ExecutionException e) {
+               log.exceptionPurgingDataContainer(e);
+            } catch (RuntimeException e) {
+               // cancelled
+               log.exceptionPurgingDataContainer(e);
+            }
+         }
+      } catch (InterruptedException e) {
+         // stop() cancelled the reaper, invokeAll() cancels the workers
+         Thread.currentThread().interrupt();
+      }
+      if (trace) {
+         log.tracef("Purging data container and cache stores completed in %s",
+                    Util.prettyPrintTime(timeService.timeDuration(start, TimeUnit.MILLISECONDS)));
+      }
+      return purged;
    }
 
    @Override
@@ -114,6 +267,57 @@ public void stop() {
       }
    }
 
+   @ManagedAttribute(
+         description = "Number of runs of the purge of expired entries",
+         displayName = "Number of purges",
+         measurementType = MeasurementType.TRENDSUP
+   )
+   public long getPurges() {
+      return purges.get();
+   }
+
+   @ManagedAttribute(
+         description = "Number of expired entries purged from the data container, if it reports them",
+         displayName = "Number of expired entries purged",
+         measurementType = MeasurementType.TRENDSUP
+   )
+   public long getEntriesPurged() {
+      return entriesPurged.get();
+   }
+
+   @ManagedAttribute(
+         description = "Average number of milliseconds taken by a purge of expired entries",
+         displayName = "Average purge time",
+         units = Units.MILLISECONDS,
+         displayType = DisplayType.SUMMARY
+   )
+   public long getAveragePurgeTime() {
+      long count = purges.get();
+      if (count == 0)
+         return 0;
+      return purgeTime.get() / count;
+   }
+
+   @ManagedAttribute(
+         description = "Number of milliseconds taken by the last purge of expired entries",
+         displayName = "Last purge time",
+         units = Units.MILLISECONDS
+   )
+   public long getLastPurgeTime() {
+      return lastPurgeTime;
+   }
+
+   @ManagedOperation(
+         description = "Resets statistics gathered by this component",
+         displayName = "Reset statistics"
+   )
+   public void resetStatistics() {
+      purges.set(0);
+      purgeTime.set(0);
+      entriesPurged.set(0);
+      lastPurgeTime = 0;
+   }
+
    class ScheduledTask implements Runnable {
       @Override
       public void run() {
@@ -16,7 +16,12 @@ public enum EvictionStrategy {
    @Deprecated
    FIFO, 
    LRU, 
-   LIRS;
+   LIRS,
+   /**
+    * Window TinyLFU: entries are admitted into the main region only if they are accessed more often than the entries
+    * they would replace, which makes eviction resistant to scans.
+    */
+   TINY_LFU;
 
    public boolean isEnabled() {
       return this != NONE;
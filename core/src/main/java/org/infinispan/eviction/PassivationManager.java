@@ -4,6 +4,7 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.factories.scopes.Scope;
 import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.persistence.CacheLoaderException;
 
 /**
@@ -20,6 +21,23 @@ public interface PassivationManager {
 
    void passivate(InternalCacheEntry entry);
 
+   /**
+    * @return the passivated entry of a key which is still waiting to be written to the cache stores, or null
+    */
+   MarshalledEntry getPendingPassivation(Object key);
+
+   /**
+    * Discards the pending passivation of a key, waiting for it to complete if it is being written. Invoked before the
+    * key is deleted from the cache stores, so that the deleted value is not written again afterwards.
+    */
+   void cancelPendingPassivation(Object key);
+
+   /**
+    * Discards all pending passivations, waiting for those which are being written. Invoked before the cache stores
+    * are cleared.
+    */
+   void cancelPendingPassivations();
+
    void passivateAll() throws CacheLoaderException;
 
    long getPassivationCount();
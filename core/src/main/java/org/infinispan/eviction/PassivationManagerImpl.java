@@ -1,12 +1,16 @@
 package org.infinispan.eviction;
 
+import org.infinispan.Cache;
 import org.infinispan.commons.CacheException;
-import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.util.CollectionFactory;
 import org.infinispan.commons.util.Util;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.impl.ImmutableContext;
+import org.infinispan.factories.KnownComponentNames;
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
@@ -15,20 +19,42 @@
 import org.infinispan.marshall.core.MarshalledEntryFactory;
 import org.infinispan.persistence.CacheLoaderException;
 import org.infinispan.persistence.manager.PersistenceManager;
-import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 import static org.infinispan.persistence.PersistenceUtil.internalMetadata;
 
+/**
+ * Writes the entries chosen for eviction to the cache stores.
+ * <p/>
+ * When a {@link org.infinispan.configuration.cache.PersistenceConfiguration#passivationQueueSize() passivation queue
+ * size} is configured, evicted entries are queued and written in batches by a task of the persistence executor, so
+ * that the thread which triggered the eviction does not wait for the cache stores. Until it has been written, a queued
+ * entry is kept in a pending passivation buffer from which the {@link PersistenceManager} loads it. Deleting a key from
+ * the cache stores cancels its pending passivation, waiting for its write to complete if it is in progress, so that a
+ * stale value is never written after the key has been activated or removed.
+ */
 public class PassivationManagerImpl implements PassivationManager {
 
+   private static final int LOCK_STRIPES = 64;
+   private static final long POLL_INTERVAL_MILLIS = 100;
+
    PersistenceManager persistenceManager;
    CacheNotifier notifier;
    Configuration cfg;
@@ -41,16 +67,31 @@ public class PassivationManagerImpl implements PassivationManager {
    private TimeService timeService;
    private static final boolean trace = log.isTraceEnabled();
    private MarshalledEntryFactory marshalledEntryFactory;
+   private String cacheName;
+
+   // guarded by queueLock: entries are only queued while it is not null
+   private BlockingQueue<MarshalledEntry> passivationQueue;
+   // offers hold the read lock, closing the queue takes the write lock
+   private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+   private final AtomicBoolean drainScheduled = new AtomicBoolean();
+   private ConcurrentMap<Object, MarshalledEntry> pendingPassivations;
+   private Equivalence<Object> keyEquivalence;
+   private ReentrantLock[] passivationLocks;
+   private ExecutorService persistenceExecutor;
+   private int batchSize;
 
    @Inject
    public void inject(PersistenceManager persistenceManager, CacheNotifier notifier, Configuration cfg, DataContainer container,
-                      TimeService timeService, MarshalledEntryFactory marshalledEntryFactory) {
+                      TimeService timeService, MarshalledEntryFactory marshalledEntryFactory, Cache cache,
+                      @ComponentName(KnownComponentNames.PERSISTENCE_EXECUTOR) ExecutorService persistenceExecutor) {
       this.persistenceManager = persistenceManager;
       this.notifier = notifier;
       this.cfg = cfg;
       this.container = container;
       this.timeService = timeService;
       this.marshalledEntryFactory = marshalledEntryFactory;
+      this.cacheName = cache.getName();
+      this.persistenceExecutor = persistenceExecutor;
    }
 
    @Start(priority = 12)
@@ -58,6 +99,28 @@ public void start() {
       enabled = cfg.persistence().passivation() && cfg.persistence().usingStores();
       if (enabled) {
          statsEnabled = cfg.jmxStatistics().enabled();
+         int queueSize = cfg.persistence().passivationQueueSize();
+         if (queueSize > 0) {
+            startAsyncPassivation(queueSize);
+         }
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private void startAsyncPassivation(int queueSize) {
+      batchSize = cfg.persistence().passivationBatchSize();
+      keyEquivalence = cfg.dataContainer().keyEquivalence();
+      pendingPassivations = CollectionFactory.makeConcurrentMap(queueSize, cfg.locking().concurrencyLevel(),
+            keyEquivalence, AnyEquivalence.<MarshalledEntry>getInstance());
+      passivationLocks = new ReentrantLock[LOCK_STRIPES];
+      for (int i = 0; i < LOCK_STRIPES; i++) {
+         passivationLocks[i] = new ReentrantLock();
+      }
+      queueLock.writeLock().lock();
+      try {
+         passivationQueue = new ArrayBlockingQueue<MarshalledEntry>(queueSize);
+      } finally {
+         queueLock.writeLock().unlock();
       }
    }
 
@@ -74,23 +137,167 @@ public void passivate(InternalCacheEntry entry) {
          notifier.notifyCacheEntryPassivated(key, entry.getValue(), true,
                ImmutableContext.INSTANCE, null);
          if (trace) log.tracef("Passivating entry %s", key);
-         try {
-            MarshalledEntry marshalledEntry = marshalledEntryFactory.newMarshalledEntry(entry.getKey(), entry.getValue(),
-                                                                                        internalMetadata(entry));
-            persistenceManager.writeToAllStores(marshalledEntry, false);
-            if (statsEnabled) passivations.getAndIncrement();
-         } catch (CacheException e) {
-            log.unableToPassivateEntry(key, e);
+         MarshalledEntry marshalledEntry = marshalledEntryFactory.newMarshalledEntry(entry.getKey(), entry.getValue(),
+                                                                                     internalMetadata(entry));
+         if (pendingPassivations != null) {
+            if (enqueue(key, marshalledEntry)) {
+               // written and notified by the drain task
+               return;
+            }
+            // the queue is full or closed, write it on this thread
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+               // an older value of the key which is still queued must not overwrite this one
+               pendingPassivations.remove(key);
+               write(marshalledEntry);
+            } finally {
+               lock.unlock();
+            }
+         } else {
+            write(marshalledEntry);
          }
          notifier.notifyCacheEntryPassivated(key, null, false,
                ImmutableContext.INSTANCE, null);
       }
    }
 
+   /**
+    * Queues an entry for passivation, unless the queue is full or has been closed by {@link #stopAsyncPassivation()}.
+    * The queue cannot be closed and drained while an entry is being queued, so no queued entry is ever left behind.
+    */
+   private boolean enqueue(Object key, MarshalledEntry marshalledEntry) {
+      BlockingQueue<MarshalledEntry> queue;
+      queueLock.readLock().lock();
+      try {
+         queue = passivationQueue;
+         if (queue == null)
+            return false;
+         pendingPassivations.put(key, marshalledEntry);
+         if (!queue.offer(marshalledEntry)) {
+            pendingPassivations.remove(key, marshalledEntry);
+            return false;
+         }
+      } finally {
+         queueLock.readLock().unlock();
+      }
+      if (drainScheduled.compareAndSet(false, true)) {
+         persistenceExecutor.execute(new DrainTask(queue));
+      }
+      return true;
+   }
+
+   private boolean write(MarshalledEntry marshalledEntry) {
+      try {
+         persistenceManager.writeToAllStores(marshalledEntry, false);
+         if (statsEnabled) passivations.getAndIncrement();
+         return true;
+      } catch (CacheException e) {
+         log.unableToPassivateEntry(marshalledEntry.getKey(), e);
+         return false;
+      }
+   }
+
+   /**
+    * Writes the entries of a batch which are still pending to the cache stores with a single
+    * {@link PersistenceManager#writeBatchToAllStores(Iterable, boolean)}. The locks of all the keys of the batch are
+    * held while it is written, taken in stripe order like {@link #cancelPendingPassivations()} does.
+    */
+   private void writeBatch(List<MarshalledEntry> batch) {
+      if (trace) log.tracef("Writing a batch of %d passivated entries", batch.size());
+      BitSet stripes = new BitSet(LOCK_STRIPES);
+      for (MarshalledEntry marshalledEntry : batch) {
+         stripes.set(stripeFor(marshalledEntry.getKey()));
+      }
+      List<MarshalledEntry> written = new ArrayList<MarshalledEntry>(batch.size());
+      for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+         passivationLocks[i].lock();
+      }
+      try {
+         // skip the entries which have been cancelled or passivated again since they were queued
+         List<MarshalledEntry> pending = new ArrayList<MarshalledEntry>(batch.size());
+         for (MarshalledEntry marshalledEntry : batch) {
+            if (pendingPassivations.get(marshalledEntry.getKey()) == marshalledEntry)
+               pending.add(marshalledEntry);
+         }
+         if (!pending.isEmpty()) {
+            try {
+               persistenceManager.writeBatchToAllStores(pending, false);
+               if (statsEnabled) passivations.addAndGet(pending.size());
+               written.addAll(pending);
+            } catch (CacheException e) {
+               // write them one by one, so that a single failing entry does not fail the others
+               for (MarshalledEntry marshalledEntry : pending) {
+                  if (write(marshalledEntry))
+                     written.add(marshalledEntry);
+               }
+            }
+            for (MarshalledEntry marshalledEntry : pending) {
+               pendingPassivations.remove(marshalledEntry.getKey(), marshalledEntry);
+            }
+         }
+      } finally {
+         for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+            passivationLocks[i].unlock();
+         }
+      }
+      for (MarshalledEntry marshalledEntry : written) {
+         notifier.notifyCacheEntryPassivated(marshalledEntry.getKey(), null, false,
+               ImmutableContext.INSTANCE, null);
+      }
+   }
+
+   private ReentrantLock lockFor(Object key) {
+      return passivationLocks[stripeFor(key)];
+   }
+
+   private int stripeFor(Object key) {
+      int h = keyEquivalence.hashCode(key);
+      h ^= (h >>> 16);
+      return h & (LOCK_STRIPES - 1);
+   }
+
+   @Override
+   public MarshalledEntry getPendingPassivation(Object key) {
+      return pendingPassivations == null ? null : pendingPassivations.get(key);
+   }
+
+   @Override
+   public void cancelPendingPassivation(Object key) {
+      // an entry stays pending until its write has completed, so there is nothing to wait for when none is pending
+      if (pendingPassivations != null && !pendingPassivations.isEmpty()) {
+         ReentrantLock lock = lockFor(key);
+         lock.lock();
+         try {
+            pendingPassivations.remove(key);
+         } finally {
+            lock.unlock();
+         }
+      }
+   }
+
+   @Override
+   public void cancelPendingPassivations() {
+      if (pendingPassivations != null && !pendingPassivations.isEmpty()) {
+         int locked = 0;
+         try {
+            for (; locked < LOCK_STRIPES; locked++) {
+               passivationLocks[locked].lock();
+            }
+            pendingPassivations.clear();
+         } finally {
+            while (locked > 0) {
+               passivationLocks[--locked].unlock();
+            }
+         }
+      }
+   }
+
    @Override
    @Stop(priority = 9)
    public void passivateAll() throws CacheLoaderException {
       if (enabled) {
+         stopAsyncPassivation();
          long start = timeService.time();
          log.passivatingAllEntries();
          for (InternalCacheEntry e : container) {
@@ -103,6 +310,43 @@ public void passivateAll() throws CacheLoaderException {
       }
    }
 
+   /**
+    * Closes the passivation queue and writes the entries which are still queued. Once the queue is closed, no entry
+    * can be queued any more and entries are passivated synchronously, so draining it afterwards writes every entry
+    * that was ever queued. A drain task still writing a batch is waited for, without being interrupted, as that
+    * could interrupt a write in progress.
+    */
+   private void stopAsyncPassivation() {
+      BlockingQueue<MarshalledEntry> queue;
+      queueLock.writeLock().lock();
+      try {
+         queue = passivationQueue;
+         passivationQueue = null;
+      } finally {
+         queueLock.writeLock().unlock();
+      }
+      if (queue == null)
+         return;
+      drain(queue);
+      while (drainScheduled.get() && !persistenceExecutor.isShutdown()) {
+         if (trace) log.tracef("Waiting for the passivation of a batch to complete");
+         try {
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+         }
+      }
+   }
+
+   private void drain(BlockingQueue<MarshalledEntry> queue) {
+      List<MarshalledEntry> batch = new ArrayList<MarshalledEntry>(batchSize);
+      while (queue.drainTo(batch, batchSize) > 0) {
+         writeBatch(batch);
+         batch.clear();
+      }
+   }
+
    @Override
    public long getPassivationCount() {
       return passivations.get();
@@ -112,4 +356,33 @@ public long getPassivationCount() {
    public void resetPassivationCount() {
       passivations.set(0L);
    }
+
+   /**
+    * Writes the queued entries in batches until the queue is empty. At most one drain task is scheduled at a time, so
+    * a cache never occupies more than one thread of the shared persistence executor.
+    */
+   private final class DrainTask implements Runnable {
+      private final BlockingQueue<MarshalledEntry> queue;
+
+      DrainTask(BlockingQueue<MarshalledEntry> queue) {
+         this.queue = queue;
+      }
+
+      @Override
+      public void run() {
+         LogFactory.pushNDC(cacheName, trace);
+         try {
+            do {
+               try {
+                  drain(queue);
+               } finally {
+                  drainScheduled.set(false);
+               }
+               // an entry queued after the last drain may have seen the task still scheduled
+            } while (!queue.isEmpty() && drainScheduled.compareAndSet(false, true));
+         } finally {
+            LogFactory.popNDC(trace);
+         }
+      }
+   }
 }
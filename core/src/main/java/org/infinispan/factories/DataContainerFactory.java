@@ -4,9 +4,13 @@
 import org.infinispan.commons.equivalence.Equivalence;
 import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.container.DataContainer;
+import org.infinispan.configuration.cache.HashConfiguration;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.DefaultSegmentedDataContainer;
+import org.infinispan.container.offheap.OffHeapDataContainer;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.eviction.EvictionType;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
 
 /**
@@ -25,6 +29,8 @@ public class DataContainerFactory extends AbstractNamedCacheComponentFactory imp
    public <T> T construct(Class<T> componentType) {
       if (configuration.dataContainer().dataContainer() != null) {
          return (T) configuration.dataContainer().dataContainer();
+      } else if (configuration.dataContainer().offHeap()) {
+         return (T) new OffHeapDataContainer(configuration.locking().concurrencyLevel());
       } else {
          EvictionStrategy st = configuration.eviction().strategy();
          int level = configuration.locking().concurrencyLevel();
@@ -33,17 +39,21 @@ public <T> T construct(Class<T> componentType) {
 
          switch (st) {
             case NONE:
-               return (T) DefaultDataContainer.unBoundedDataContainer(
-                     level, keyEquivalence, valueEquivalence);
+               return (T) unBoundedDataContainer(level, keyEquivalence, valueEquivalence);
             case UNORDERED:
             case LRU:
             case FIFO:
             case LIRS:
+            case TINY_LFU:
+               if (configuration.eviction().type() == EvictionType.MEMORY) {
+                  return (T) DefaultDataContainer.memoryBoundedDataContainer(
+                        level, configuration.eviction().maxMemory(), st, configuration.eviction().threadPolicy(),
+                        keyEquivalence, valueEquivalence);
+               }
                int maxEntries = configuration.eviction().maxEntries();
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
-                   return (T) DefaultDataContainer.unBoundedDataContainer(
-                         level, keyEquivalence, valueEquivalence);
+                   return (T) unBoundedDataContainer(level, keyEquivalence, valueEquivalence);
                }
 
                EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
@@ -56,4 +66,19 @@ public <T> T construct(Class<T> componentType) {
          }
       }
    }
+
+   /**
+    * Distributed caches can opt in to partitioning unbounded containers by segment, so that state transfer does not
+    * need to scan the whole container to find the entries of a segment. Keys are not partitioned when grouping is
+    * enabled, as the segment of a key then depends on its group.
+    */
+   private DataContainer unBoundedDataContainer(int level, Equivalence keyEquivalence, Equivalence valueEquivalence) {
+      HashConfiguration hash = configuration.clustering().hash();
+      if (configuration.dataContainer().segmented() && configuration.clustering().cacheMode().isDistributed()
+            && !hash.groups().enabled()) {
+         return new DefaultSegmentedDataContainer(level, hash.hash(), hash.numSegments(),
+               keyEquivalence, valueEquivalence);
+      }
+      return DefaultDataContainer.unBoundedDataContainer(level, keyEquivalence, valueEquivalence);
+   }
 }
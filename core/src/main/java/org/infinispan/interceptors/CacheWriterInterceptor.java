@@ -27,6 +27,7 @@
 import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.jmx.annotations.MeasurementType;
 import org.infinispan.persistence.manager.PersistenceManager;
+import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.metadata.EmbeddedMetadata;
 import org.infinispan.metadata.Metadata;
@@ -38,8 +39,14 @@
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
@@ -188,11 +195,13 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       if (!isStoreEnabled(command) || ctx.isInTxScope()) return returnValue;
 
       Map<Object, Object> map = command.getMap();
+      List<Object> keys = new ArrayList<Object>(map.size());
       for (Object key : map.keySet()) {
          if (isProperWriter(ctx, command, key)) {
-            storeEntry(ctx, key, command);
+            keys.add(key);
          }
       }
+      storeEntries(ctx, keys, command);
       if (getStatisticsEnabled()) cacheStores.getAndAdd(map.size());
       return returnValue;
    }
@@ -212,6 +221,7 @@ protected final void store(TxInvocationContext ctx) throws Throwable {
             cacheCommand.acceptVisitor(ctx, modsBuilder);
          }
       }
+      modsBuilder.writeToStores();
       if (getStatisticsEnabled() && modsBuilder.putCount > 0) {
          cacheStores.getAndAdd(modsBuilder.putCount);
       }
@@ -236,15 +246,57 @@ protected boolean isProperWriter(InvocationContext ctx, FlagAffectedCommand comm
       return true;
    }
 
+   /**
+    * Collects the modifications of a transaction, coalesced by key, and writes them to the stores in batches when
+    * {@link #writeToStores()} is invoked.
+    */
    public class Updater extends AbstractVisitor {
 
       protected final boolean generateStatistics;
       int putCount;
+      private final Set<Object> removes = new LinkedHashSet<Object>();
+      private final Map<Object, MarshalledEntry> writes = new LinkedHashMap<Object, MarshalledEntry>();
+      // keys written at least once without the SKIP_SHARED_CACHE_STORE flag
+      private final Set<Object> sharedWrites = new HashSet<Object>();
 
       public Updater(boolean generateStatistics) {
          this.generateStatistics = generateStatistics;
       }
 
+      /**
+       * Removes the keys and then writes the entries collected so far. As the entries are read from the context, a
+       * key written after being removed is written with its final value.
+       */
+      public void writeToStores() {
+         if (!removes.isEmpty()) {
+            persistenceManager.deleteBatchFromAllStores(new ArrayList<Object>(removes), false);
+            removes.clear();
+         }
+         if (!writes.isEmpty()) {
+            List<MarshalledEntry> toAllStores = new ArrayList<MarshalledEntry>(writes.size());
+            List<MarshalledEntry> toNonSharedStores = new ArrayList<MarshalledEntry>();
+            for (Map.Entry<Object, MarshalledEntry> e : writes.entrySet()) {
+               if (sharedWrites.contains(e.getKey()))
+                  toAllStores.add(e.getValue());
+               else
+                  toNonSharedStores.add(e.getValue());
+            }
+            if (!toAllStores.isEmpty())
+               persistenceManager.writeBatchToAllStores(toAllStores, false);
+            if (!toNonSharedStores.isEmpty())
+               persistenceManager.writeBatchToAllStores(toNonSharedStores, true);
+            writes.clear();
+            sharedWrites.clear();
+         }
+      }
+
+      private void write(MarshalledEntry marshalledEntry, boolean skipSharedStores) {
+         Object key = marshalledEntry.getKey();
+         writes.put(key, marshalledEntry);
+         if (!skipSharedStores)
+            sharedWrites.add(key);
+      }
+
       @Override
       public Object visitPutKeyValueCommand(InvocationContext ctx, PutKeyValueCommand command) throws Throwable {
          return visitSingleStore(ctx, command, command.getKey());
@@ -265,7 +317,7 @@ public Object visitApplyDeltaCommand(InvocationContext ctx, ApplyDeltaCommand co
                ice = entryFactory.create(entry);
             }
             MarshalledEntryImpl marshalledEntry = new MarshalledEntryImpl(ice.getKey(), ice.getValue(), internalMetadata(ice), marshaller);
-            persistenceManager.writeToAllStores(marshalledEntry, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
+            write(marshalledEntry, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
          }
          return null;
       }
@@ -287,13 +339,17 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       public Object visitRemoveCommand(InvocationContext ctx, RemoveCommand command) throws Throwable {
          Object key = command.getKey();
          if (isProperWriter(ctx, command, key)) {
-            persistenceManager.deleteFromAllStores(key, false);
+            writes.remove(key);
+            sharedWrites.remove(key);
+            removes.add(key);
          }
          return null;
       }
 
       @Override
       public Object visitClearCommand(InvocationContext ctx, ClearCommand command) throws Throwable {
+         // the modifications which precede the clear must not be applied after it
+         writeToStores();
          persistenceManager.clearAllStores(ctx.isOriginLocal());
          return null;
       }
@@ -303,7 +359,7 @@ protected Object visitSingleStore(InvocationContext ctx, FlagAffectedCommand com
             if (generateStatistics) putCount++;
             InternalCacheValue sv = getStoredValue(key, ctx);
             MarshalledEntryImpl me = new MarshalledEntryImpl(key, sv.getValue(), internalMetadata(sv), marshaller);
-            persistenceManager.writeToAllStores(me, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
+            write(me, command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE));
          }
          return null;
       }
@@ -334,6 +390,27 @@ void storeEntry(InvocationContext ctx, Object key, FlagAffectedCommand command)
       if (getLog().isTraceEnabled()) getLog().tracef("Stored entry %s under key %s", sv, key);
    }
 
+   /**
+    * Writes the entries of the given keys to the stores in batches.
+    */
+   void storeEntries(InvocationContext ctx, Collection<Object> keys, FlagAffectedCommand command) {
+      List<MarshalledEntry> toAllStores = new ArrayList<MarshalledEntry>(keys.size());
+      List<MarshalledEntry> toNonSharedStores = new ArrayList<MarshalledEntry>();
+      for (Object key : keys) {
+         InternalCacheValue sv = getStoredValue(key, ctx);
+         MarshalledEntry marshalledEntry = new MarshalledEntryImpl(key, sv.getValue(), internalMetadata(sv), marshaller);
+         if (skipSharedStores(ctx, key, command))
+            toNonSharedStores.add(marshalledEntry);
+         else
+            toAllStores.add(marshalledEntry);
+      }
+      if (!toAllStores.isEmpty())
+         persistenceManager.writeBatchToAllStores(toAllStores, false);
+      if (!toNonSharedStores.isEmpty())
+         persistenceManager.writeBatchToAllStores(toNonSharedStores, true);
+      if (getLog().isTraceEnabled()) getLog().tracef("Stored entries under keys %s", keys);
+   }
+
    protected boolean skipSharedStores(InvocationContext ctx, Object key, FlagAffectedCommand command) {
       return !ctx.isOriginLocal() || command.hasFlag(Flag.SKIP_SHARED_CACHE_STORE);
    }
@@ -34,6 +34,10 @@
 import org.infinispan.container.entries.metadata.MetadataTransientCacheValue;
 import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheEntry;
 import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheValue;
+import org.infinispan.container.entries.versioned.VersionedImmortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedMortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientMortalCacheEntry;
 import org.infinispan.container.versioning.NumericVersion;
 import org.infinispan.container.versioning.SimpleClusteredVersion;
 import org.infinispan.context.Flag;
@@ -257,6 +261,10 @@ private void loadInternalMarshallables() {
       addInternalExternalizer(new MetadataMortalCacheValue.Externalizer());
       addInternalExternalizer(new MetadataTransientCacheValue.Externalizer());
       addInternalExternalizer(new MetadataTransientMortalCacheValue.Externalizer());
+      addInternalExternalizer(new VersionedImmortalCacheEntry.Externalizer());
+      addInternalExternalizer(new VersionedMortalCacheEntry.Externalizer());
+      addInternalExternalizer(new VersionedTransientCacheEntry.Externalizer());
+      addInternalExternalizer(new VersionedTransientMortalCacheEntry.Externalizer());
 
       addInternalExternalizer(new DeltaCompositeKey.DeltaCompositeKeyExternalizer());
       addInternalExternalizer(new AtomicHashMap.Externalizer());
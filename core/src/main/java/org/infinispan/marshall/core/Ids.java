@@ -114,4 +114,9 @@ public interface Ids extends org.infinispan.commons.marshall.Ids {
 
    /* 106 -120 reserved in org.infinispan.commons.marshall.Ids */
 
+   int VERSIONED_IMMORTAL_ENTRY = 121;
+   int VERSIONED_MORTAL_ENTRY = 122;
+   int VERSIONED_TRANSIENT_ENTRY = 123;
+   int VERSIONED_TRANSIENT_MORTAL_ENTRY = 124;
+
 }
@@ -4,6 +4,8 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
+import org.infinispan.persistence.spi.BatchCacheWriter;
+import org.infinispan.persistence.spi.CacheWriter;
 import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.metadata.InternalMetadata;
 import org.infinispan.metadata.InternalMetadataImpl;
@@ -30,6 +32,34 @@ public static AdvancedCacheLoader.KeyFilter notNull(AdvancedCacheLoader.KeyFilte
       return filter == null ? AdvancedCacheLoader.KeyFilter.LOAD_ALL_FILTER : filter;
    }
 
+   /**
+    * Writes the given entries to the writer in a single batch if it is a {@link BatchCacheWriter}, one by one
+    * otherwise.
+    */
+   @SuppressWarnings("unchecked")
+   public static void writeBatch(CacheWriter writer, Iterable<? extends MarshalledEntry> entries) {
+      if (writer instanceof BatchCacheWriter) {
+         ((BatchCacheWriter) writer).writeBatch(entries);
+      } else {
+         for (MarshalledEntry entry : entries)
+            writer.write(entry);
+      }
+   }
+
+   /**
+    * Deletes the given keys from the writer in a single batch if it is a {@link BatchCacheWriter}, one by one
+    * otherwise.
+    */
+   @SuppressWarnings("unchecked")
+   public static void deleteBatch(CacheWriter writer, Iterable<?> keys) {
+      if (writer instanceof BatchCacheWriter) {
+         ((BatchCacheWriter) writer).deleteBatch(keys);
+      } else {
+         for (Object key : keys)
+            writer.delete(key);
+      }
+   }
+
    public static int count(AdvancedCacheLoader acl, AdvancedCacheLoader.KeyFilter filter) {
       final AtomicInteger result = new AtomicInteger(0);
       acl.process(filter, new AdvancedCacheLoader.CacheLoaderTask() {
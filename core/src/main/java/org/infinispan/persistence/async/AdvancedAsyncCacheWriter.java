@@ -22,12 +22,17 @@ public void purge(Executor threadPool, PurgeListener task) {
 
    @Override
    public void clear() {
-      stateLock.writeLock(1);
+      // exclusively, so that no writer adds to the discarded state
+      stateLock.lock();
+      int discarded = 0;
       try {
-         state.set(newState(true, state.get().next));
+         State s = state.get();
+         discarded = s.modifications.size();
+         state.set(newState(true, s.next));
       } finally {
+         stateLock.release(discarded);
          stateLock.reset(1);
-         stateLock.writeUnlock();
+         stateLock.unlock();
       }
    }
 
@@ -10,10 +10,12 @@
 import org.infinispan.persistence.modifications.Remove;
 import org.infinispan.persistence.modifications.Store;
 import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.CacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.persistence.support.DelegatingCacheWriter;
+import org.infinispan.util.TimeService;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -28,6 +30,7 @@
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -48,6 +51,10 @@
  * <p/>
  * Write operations affecting same key are now coalesced so that only the final state is actually stored.
  * <p/>
+ * The number of modifications waiting to be stored is bounded by the modification queue size: once it is reached,
+ * writers block until the queue drains to the configured low watermark. Coalesced modifications do not take any room
+ * in the queue.
+ * <p/>
  *
  * @author Manik Surtani
  * @author Galder Zamarreño
@@ -66,6 +73,12 @@ public class AsyncCacheWriter extends DelegatingCacheWriter {
    private int concurrencyLevel;
    private long shutdownTimeout;
    private String cacheName;
+   private TimeService timeService;
+
+   private final AtomicLong queuedModifications = new AtomicLong();
+   private final AtomicLong coalescedModifications = new AtomicLong();
+   private final AtomicLong flushes = new AtomicLong();
+   private final AtomicLong flushTime = new AtomicLong();
 
    protected BufferLock stateLock;
    @GuardedBy("stateLock")
@@ -88,6 +101,7 @@ public void init(InitializationContext ctx) {
       long cacheStopTimeout = cacheCfg != null ? cacheCfg.transaction().cacheStopTimeout() : 30000;
       Long configuredAsyncStopTimeout = this.asyncConfiguration.shutdownTimeout();
       cacheName = cache != null ? cache.getName() : null;
+      timeService = ctx.getTimeService();
 
       // Async store shutdown timeout cannot be bigger than
       // the overall cache stop timeout, so limit it accordingly.
@@ -103,7 +117,8 @@ public void init(InitializationContext ctx) {
    public void start() {
       log.debugf("Async cache loader starting %s", this);
       state.set(newState(false, null));
-      stateLock = new BufferLock(asyncConfiguration.modificationQueueSize());
+      stateLock = new BufferLock(asyncConfiguration.modificationQueueSize(),
+                                 asyncConfiguration.modificationQueueLowWatermark());
 
       int poolSize = asyncConfiguration.threadPoolSize();
       executor = new ThreadPoolExecutor(0, poolSize, 120L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
@@ -125,6 +140,7 @@ public void stop() {
       if (trace) log.tracef("Stop async store %s", this);
       stateLock.writeLock(1);
       state.get().stopped = true;
+      stateLock.release(1);
       stateLock.writeUnlock();
       try {
          coordinator.join(shutdownTimeout);
@@ -148,6 +164,29 @@ public boolean delete(Object key) {
    }
 
    protected void applyModificationsSync(List<Modification> mods) throws CacheLoaderException {
+      if (actual instanceof BatchCacheWriter) {
+         // modifications are coalesced by key, so the order of stores and removes does not matter
+         List<MarshalledEntry> entries = new ArrayList<MarshalledEntry>(mods.size());
+         List<Object> keys = new ArrayList<Object>();
+         for (Modification m : mods) {
+            switch (m.getType()) {
+               case STORE:
+                  entries.add(((Store) m).getStoredValue());
+                  break;
+               case REMOVE:
+                  keys.add(((Remove) m).getKey());
+                  break;
+               default:
+                  throw new IllegalArgumentException("Unknown modification type " + m.getType());
+            }
+         }
+         BatchCacheWriter writer = (BatchCacheWriter) actual;
+         if (!keys.isEmpty())
+            writer.deleteBatch(keys);
+         if (!entries.isEmpty())
+            writer.writeBatch(entries);
+         return;
+      }
       for (Modification m : mods) {
          switch (m.getType()) {
             case STORE:
@@ -174,7 +213,12 @@ private void put(Modification mod, int count) {
          if (log.isTraceEnabled())
             log.tracef("Queue modification: %s", mod);
 
-         state.get().put(mod);
+         int coalesced = state.get().put(mod);
+         queuedModifications.addAndGet(count);
+         if (coalesced > 0) {
+            coalescedModifications.addAndGet(coalesced);
+            stateLock.release(coalesced);
+         }
       } finally {
          stateLock.writeUnlock();
       }
@@ -184,6 +228,42 @@ public AtomicReference<State> getState() {
       return state;
    }
 
+   /**
+    * Returns the number of modifications queued or being applied to the underlying store.
+    */
+   public int getQueueDepth() {
+      return stateLock.size();
+   }
+
+   /**
+    * Returns the number of modifications queued since the store was created.
+    */
+   public long getQueuedModifications() {
+      return queuedModifications.get();
+   }
+
+   /**
+    * Returns the number of queued modifications which replaced a pending modification of the same key, and so were
+    * never applied on their own.
+    */
+   public long getCoalescedModifications() {
+      return coalescedModifications.get();
+   }
+
+   /**
+    * Returns the number of batches of modifications applied to the underlying store.
+    */
+   public long getFlushes() {
+      return flushes.get();
+   }
+
+   /**
+    * Returns the total time spent applying batches of modifications to the underlying store, in milliseconds.
+    */
+   public long getFlushTime() {
+      return TimeUnit.NANOSECONDS.toMillis(flushTime.get());
+   }
+
    private class AsyncStoreCoordinator implements Runnable {
 
       @Override
@@ -220,14 +300,22 @@ public void run() {
                   if (tail != null) {
                      // if there's work in progress, push-back keys that are still in use to the head state
                      mods = new ArrayList<Modification>();
-                     for (Map.Entry<Object, Modification> e : s.modifications.entrySet()) {
-                        if (!tail.modifications.containsKey(e.getKey()))
-                           mods.add(e.getValue());
-                        else {
-                           if (!head.clear && head.modifications.putIfAbsent(e.getKey(), e.getValue()) == null)
-                              stateLock.add(1);
-                           s.modifications.remove(e.getKey());
+                     // exclusively, so that a concurrent clear() cannot discard the head state in the meantime
+                     stateLock.lock();
+                     try {
+                        for (Map.Entry<Object, Modification> e : s.modifications.entrySet()) {
+                           if (!tail.modifications.containsKey(e.getKey()))
+                              mods.add(e.getValue());
+                           else {
+                              if (state.get() == head && head.modifications.putIfAbsent(e.getKey(), e.getValue()) == null)
+                                 stateLock.reset(1);
+                              else
+                                 stateLock.release(1);
+                              s.modifications.remove(e.getKey());
+                           }
                         }
+                     } finally {
+                        stateLock.unlock();
                      }
                   } else {
                      mods = new ArrayList<Modification>(s.modifications.values());
@@ -310,7 +398,11 @@ private class AsyncStoreProcessor implements Runnable {
       @Override
       public void run() {
          // try 3 times to store the modifications
+         long start = timeService.time();
          retryWork(3);
+         flushTime.addAndGet(timeService.timeDuration(start, TimeUnit.NANOSECONDS));
+         flushes.incrementAndGet();
+         stateLock.release(modifications.size());
 
          // decrement active worker threads and disconnect myState if this was the last one
          myState.workerThreads.countDown();
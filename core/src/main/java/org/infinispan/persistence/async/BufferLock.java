@@ -10,7 +10,9 @@
  * data off to the back-end store.
  * <p/>
  * Additionally, {@link #writeLock(int)} blocks if the buffer is full, and {@link #readLock()}
- * blocks if no data is available.
+ * blocks if no data is available. The buffer counts the modifications which were queued but not
+ * yet applied to the back-end store, so it also bounds the modifications the worker threads are
+ * busy with. Once it is full, writers stay blocked until it drains to the low watermark.
  * <p/>
  * This lock implementation is <em>not</em> reentrant!
  *
@@ -18,40 +20,46 @@
  */
 class BufferLock {
    /**
-    * AQS state is the number of 'items' in the buffer. AcquireShared blocks if the buffer is
-    * full (>= size).
+    * AQS state is the number of 'items' in the buffer, plus the FULL flag once the buffer reached
+    * its size. AcquireShared blocks while the flag is set, and the flag is only cleared when the
+    * number of items drops to the low watermark.
     */
    private static class Counter extends AbstractQueuedSynchronizer {
       private static final long serialVersionUID = 1688655561670368887L;
+      private static final int FULL = 1 << 30;
       private final int size;
+      private final int lowWatermark;
 
-      Counter(int size) {
+      Counter(int size, int lowWatermark) {
          this.size = size;
+         this.lowWatermark = lowWatermark;
       }
 
-      int add(int count) {
-         for (;;) {
-            int state = getState();
-            if (compareAndSetState(state, state + count))
-               return state + count;
-         }
+      int count() {
+         return getState() & ~FULL;
       }
 
       @Override
       protected int tryAcquireShared(int count) {
          for (;;) {
             int state = getState();
-            if (state >= size)
+            if ((state & FULL) != 0)
                return -1;
-            if (compareAndSetState(state, state + count))
-               return state + count >= size ? 0 : 1;
+            int newCount = state + count;
+            if (compareAndSetState(state, newCount >= size ? newCount | FULL : newCount))
+               return newCount >= size ? 0 : 1;
          }
       }
 
       @Override
-      protected boolean tryReleaseShared(int state) {
-         setState(state);
-         return state < size;
+      protected boolean tryReleaseShared(int count) {
+         for (;;) {
+            int state = getState();
+            int newCount = (state & ~FULL) - count;
+            boolean full = (state & FULL) != 0 && newCount > lowWatermark;
+            if (compareAndSetState(state, full ? newCount | FULL : newCount))
+               return !full;
+         }
       }
    }
 
@@ -125,11 +133,16 @@ protected boolean tryReleaseShared(int unused) {
     * Create a new BufferLock with the specified buffer size.
     *
     * @param size
-    *           the buffer size
+    *           the buffer size, or 0 for an unbounded buffer
+    * @param lowWatermark
+    *           the number of items the buffer has to drain to, once full, before writers are
+    *           unblocked, or a negative value to unblock them as soon as there is room
     */
-   BufferLock(int size) {
+   BufferLock(int size, int lowWatermark) {
       sync = new Sync();
-      counter = size > 0 ? new Counter(size) : null;
+      if (size <= 0)
+         size = Integer.MAX_VALUE;
+      counter = new Counter(size, lowWatermark < 0 ? size - 1 : Math.min(lowWatermark, size - 1));
       available = new Available();
    }
 
@@ -141,8 +154,7 @@ protected boolean tryReleaseShared(int unused) {
     *           number of items the caller intends to write
     */
    void writeLock(int count) {
-      if (counter != null)
-         counter.acquireShared(count);
+      counter.acquireShared(count);
       sync.acquireShared(1);
    }
 
@@ -171,26 +183,44 @@ void readUnlock() {
    }
 
    /**
-    * Resets the buffer counter to the specified number.
+    * Acquires the lock exclusively, like {@link #readLock()}, but without waiting for data.
+    */
+   void lock() {
+      sync.acquire(1);
+   }
+
+   /**
+    * Releases the exclusive lock.
+    */
+   void unlock() {
+      sync.release(1);
+   }
+
+   /**
+    * Resets the number of items available to the reader.
     *
     * @param count
     *           number of available items in the buffer
     */
    void reset(int count) {
-      if (counter != null)
-         counter.releaseShared(count);
       available.releaseShared(count);
    }
 
    /**
-    * Modifies the buffer counter by the specified value.
+    * Frees buffer space, once items were applied to the back-end store or are no longer needed.
     *
     * @param count
-    *           number of items to add to the buffer counter
+    *           number of items to remove from the buffer counter
     */
-   void add(int count) {
-      if (counter != null)
-         count = counter.add(count);
-      available.releaseShared(count);
+   void release(int count) {
+      if (count > 0)
+         counter.releaseShared(count);
+   }
+
+   /**
+    * Returns the number of items in the buffer.
+    */
+   int size() {
+      return counter.count();
    }
 }
@@ -79,21 +79,21 @@ else if (state.clear)
     *
     * @param mod
     *           the Modification to add, supports modification types STORE, REMOVE and LIST
+    * @return the number of modifications which replaced the pending modification of the same key
     */
-   void put(Modification mod) {
+   int put(Modification mod) {
       if (stopped)
          throw new CacheException("AsyncCacheWriter stopped; no longer accepting more entries.");
       switch (mod.getType()) {
          case STORE:
-            modifications.put(((Store) mod).getKey(), mod);
-            break;
+            return modifications.put(((Store) mod).getKey(), mod) != null ? 1 : 0;
          case REMOVE:
-            modifications.put(((Remove) mod).getKey(), mod);
-            break;
+            return modifications.put(((Remove) mod).getKey(), mod) != null ? 1 : 0;
          case LIST:
+            int coalesced = 0;
             for (Modification m : ((ModificationsList) mod).getList())
-               put(m);
-            break;
+               coalesced += put(m);
+            return coalesced;
          default:
             throw new IllegalArgumentException("Unknown modification type " + mod.getType());
       }
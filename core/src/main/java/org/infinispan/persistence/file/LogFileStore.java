@@ -0,0 +1,881 @@
+package org.infinispan.persistence.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.io.ByteBufferFactory;
+import org.infinispan.commons.util.CollectionFactory;
+import org.infinispan.configuration.cache.LogFileStoreConfiguration;
+import org.infinispan.factories.KnownComponentNames;
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.persistence.CacheLoaderException;
+import org.infinispan.persistence.PersistenceUtil;
+import org.infinispan.persistence.TaskContextImpl;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.BatchCacheWriter;
+import org.infinispan.persistence.spi.InitializationContext;
+import org.infinispan.util.TimeService;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+/**
+ * A log-structured, append-only file store. Writes and deletes are appended as records to the newest of a sequence
+ * of log files in <tt>&lt;location&gt;/&lt;cache name&gt;</tt>, so that writers never seek and never contend on
+ * anything but the append itself. The position of the latest record of each key is kept in an in-memory index.
+ * <p/>
+ * Once the newest log file reaches {@link LogFileStoreConfiguration#maxFileSize()} a new one is started. A background
+ * compactor rewrites the older log files in which overwritten, deleted and expired records take more than
+ * {@link LogFileStoreConfiguration#compactionThreshold()} of the space: the records still referenced by the index are
+ * copied to the newest log file, and the file is deleted.
+ * <p/>
+ * Every record carries a checksum. On startup the index is rebuilt by replaying the log files in order; replay stops
+ * at the first incomplete or corrupt record of a file, and the newest file is truncated there, so that a crash in the
+ * middle of a write never leaves the store unreadable.
+ * <p/>
+ * Like {@link SingleFileStore}, this store keeps all keys in memory.
+ *
+ * @since 6.0
+ */
+public class LogFileStore implements AdvancedLoadWriteStore, BatchCacheWriter {
+
+   private static final Log log = LogFactory.getLog(LogFileStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final String LOG_FILE_SUFFIX = ".log";
+   private static final int CHECKSUM_LEN = 4;
+   private static final int HEADER_LEN = CHECKSUM_LEN + 4 + 4 + 4 + 8;
+   private static final int TOMBSTONE = -1;
+
+   private LogFileStoreConfiguration configuration;
+
+   protected InitializationContext ctx;
+
+   private File directory;
+   private ConcurrentMap<Object, IndexEntry> index;
+   private final ConcurrentSkipListMap<Integer, LogFile> logFiles = new ConcurrentSkipListMap<Integer, LogFile>();
+
+   /**
+    * Guards appends to the newest log file and the index updates which must follow the order of the appends.
+    */
+   private final ReentrantLock appendLock = new ReentrantLock();
+
+   /**
+    * Serializes compaction with {@link #clear()}.
+    */
+   private final ReentrantLock compactionLock = new ReentrantLock();
+
+   private volatile LogFile current;
+   private volatile boolean running;
+   private ExecutorService persistenceExecutor;
+   private TimeService timeService;
+   private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+   /** {@inheritDoc} */
+   @Override
+   public void init(InitializationContext ctx) {
+      this.ctx = ctx;
+      this.configuration = ctx.getConfiguration();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void start() {
+      try {
+         String location = configuration.location();
+         if (location == null || location.trim().length() == 0)
+            location = "Infinispan-LogFileStore";
+         directory = new File(location, ctx.getCache().getName());
+         if (!directory.exists() && !directory.mkdirs())
+            throw log.directoryCannotBeCreated(directory.getAbsolutePath());
+
+         timeService = ctx.getTimeService();
+         // compactions run on the persistence executor shared by all the stores
+         persistenceExecutor = ctx.getCache().getAdvancedCache().getComponentRegistry()
+               .getComponent(ExecutorService.class, KnownComponentNames.PERSISTENCE_EXECUTOR);
+         Equivalence<Object> keyEq = ctx.getCache().getCacheConfiguration().dataContainer().keyEquivalence();
+         index = CollectionFactory.makeConcurrentMap(keyEq, AnyEquivalence.<IndexEntry>getInstance());
+         rebuildIndex();
+         running = true;
+         scheduleCompaction();
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * Waits for a compaction or an append in progress to complete before closing the log files. Operations invoked
+    * afterwards find an empty index, and writes fail.
+    */
+   @Override
+   public void stop() {
+      running = false;
+      // let a compaction in progress complete, interrupting it would close the channels it uses
+      compactionLock.lock();
+      appendLock.lock();
+      try {
+         for (LogFile logFile : logFiles.values())
+            logFile.close();
+         logFiles.clear();
+         if (index != null)
+            index.clear();
+         current = null;
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      } finally {
+         appendLock.unlock();
+         compactionLock.unlock();
+      }
+   }
+
+   /**
+    * Rebuilds the in-memory index by replaying the log files in the order in which they were written.
+    */
+   private void rebuildIndex() throws Exception {
+      String[] names = directory.list(new FilenameFilter() {
+         @Override
+         public boolean accept(File dir, String name) {
+            return name.endsWith(LOG_FILE_SUFFIX);
+         }
+      });
+      List<Integer> ids = new ArrayList<Integer>();
+      if (names != null) {
+         for (String name : names) {
+            try {
+               ids.add(Integer.valueOf(name.substring(0, name.length() - LOG_FILE_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+               // not one of ours
+            }
+         }
+      }
+      Collections.sort(ids);
+
+      long now = timeService.wallClockTime();
+      for (int i = 0; i < ids.size(); i++) {
+         LogFile logFile = openLogFile(ids.get(i));
+         replay(logFile, i == ids.size() - 1, now);
+      }
+      current = logFiles.isEmpty() ? openLogFile(0) : logFiles.lastEntry().getValue();
+   }
+
+   private void replay(LogFile logFile, boolean newest, long now) throws Exception {
+      long end = logFile.channel.size();
+      RecordReader reader = new RecordReader(logFile.channel, end);
+      while (reader.next()) {
+         Object key = ctx.getMarshaller().objectFromByteBuffer(reader.record, HEADER_LEN, reader.keyLen);
+         IndexEntry previous;
+         if (reader.dataLen == TOMBSTONE || isExpired(reader.expiryTime, now)) {
+            // expired records are as good as deletions, even if a preceding log file holds an older value
+            previous = index.remove(key);
+            logFile.garbage.addAndGet(reader.record.length);
+         } else {
+            previous = index.put(key, new IndexEntry(logFile, reader.offset, reader.record.length, reader.keyLen,
+                                                     reader.dataLen, reader.metadataLen, reader.expiryTime));
+         }
+         discard(previous);
+      }
+      if (reader.position < end) {
+         log.corruptLogFileRecord(logFile.file.getPath(), reader.position);
+         if (newest) {
+            logFile.channel.truncate(reader.position);
+            end = reader.position;
+         } else {
+            logFile.garbage.addAndGet(end - reader.position);
+         }
+      }
+      logFile.size = end;
+   }
+
+   private LogFile openLogFile(int id) throws IOException {
+      File file = new File(directory, String.format("%010d%s", id, LOG_FILE_SUFFIX));
+      LogFile logFile = new LogFile(id, file, new RandomAccessFile(file, "rw").getChannel());
+      logFiles.put(id, logFile);
+      return logFile;
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * All keys are kept in memory, so no need to read the log files.
+    */
+   @Override
+   public boolean contains(Object key) {
+      IndexEntry entry = index.get(key);
+      return entry != null && !isExpired(entry.expiryTime, timeService.wallClockTime());
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void write(MarshalledEntry marshalledEntry) {
+      try {
+         org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
+         org.infinispan.commons.io.ByteBuffer data = marshalledEntry.getValueBytes();
+         org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+         long expiryTime = metadata != null ? marshalledEntry.getMetadata().expiryTime() : -1;
+         int dataLen = data == null ? 0 : data.getLength();
+         int metadataLen = metadata == null ? 0 : metadata.getLength();
+         ByteBuffer record = encode(key, data, dataLen, metadata, metadataLen, expiryTime);
+
+         IndexEntry previous;
+         appendLock.lock();
+         try {
+            long offset = append(record);
+            previous = index.put(marshalledEntry.getKey(), new IndexEntry(current, offset, record.limit(),
+                                                                          key.getLength(), dataLen, metadataLen, expiryTime));
+         } finally {
+            appendLock.unlock();
+         }
+         discard(previous);
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean delete(Object key) {
+      if (!index.containsKey(key))
+         return false;
+      try {
+         ByteBuffer tombstone = encodeTombstone(ctx.getMarshaller().objectToBuffer(key));
+         IndexEntry previous;
+         appendLock.lock();
+         try {
+            previous = index.remove(key);
+            if (previous != null)
+               appendTombstone(tombstone);
+         } finally {
+            appendLock.unlock();
+         }
+         discard(previous);
+         return previous != null;
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException(e);
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * The records of all the entries are appended under a single acquisition of the append lock, and forced to the
+    * disk once at the end of the batch when writes are synchronous.
+    */
+   @Override
+   public void writeBatch(Iterable entries) {
+      List<MarshalledEntry> batch = new ArrayList<MarshalledEntry>();
+      for (Object entry : entries)
+         batch.add((MarshalledEntry) entry);
+      int size = batch.size();
+      ByteBuffer[] records = new ByteBuffer[size];
+      int[] keyLens = new int[size];
+      int[] dataLens = new int[size];
+      int[] metadataLens = new int[size];
+      long[] expiryTimes = new long[size];
+      IndexEntry[] previous = new IndexEntry[size];
+      try {
+         for (int i = 0; i < size; i++) {
+            MarshalledEntry marshalledEntry = batch.get(i);
+            org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
+            org.infinispan.commons.io.ByteBuffer data = marshalledEntry.getValueBytes();
+            org.infinispan.commons.io.ByteBuffer metadata = marshalledEntry.getMetadataBytes();
+            keyLens[i] = key.getLength();
+            dataLens[i] = data == null ? 0 : data.getLength();
+            metadataLens[i] = metadata == null ? 0 : metadata.getLength();
+            expiryTimes[i] = metadata != null ? marshalledEntry.getMetadata().expiryTime() : -1;
+            records[i] = encode(key, data, dataLens[i], metadata, metadataLens[i], expiryTimes[i]);
+         }
+
+         appendLock.lock();
+         try {
+            for (int i = 0; i < size; i++) {
+               long offset = append(records[i], false);
+               previous[i] = index.put(batch.get(i).getKey(), new IndexEntry(current, offset, records[i].limit(),
+                                                                            keyLens[i], dataLens[i], metadataLens[i],
+                                                                            expiryTimes[i]));
+            }
+            // log files filled up by the batch have already been forced when the next one was started
+            if (configuration.syncWrites() && size > 0)
+               current.channel.force(false);
+         } finally {
+            appendLock.unlock();
+         }
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      } finally {
+         for (IndexEntry entry : previous)
+            discard(entry);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * The tombstones of all the keys are appended under a single acquisition of the append lock, and forced to the
+    * disk once at the end of the batch when writes are synchronous.
+    */
+   @Override
+   public void deleteBatch(Iterable keys) {
+      List<Object> batch = new ArrayList<Object>();
+      List<ByteBuffer> tombstones = new ArrayList<ByteBuffer>();
+      List<IndexEntry> previous = new ArrayList<IndexEntry>();
+      try {
+         for (Object key : keys) {
+            if (index.containsKey(key)) {
+               batch.add(key);
+               tombstones.add(encodeTombstone(ctx.getMarshaller().objectToBuffer(key)));
+            }
+         }
+
+         appendLock.lock();
+         try {
+            boolean appended = false;
+            for (int i = 0; i < batch.size(); i++) {
+               IndexEntry entry = index.remove(batch.get(i));
+               if (entry != null) {
+                  previous.add(entry);
+                  appendTombstone(tombstones.get(i), false);
+                  appended = true;
+               }
+            }
+            if (configuration.syncWrites() && appended)
+               current.channel.force(false);
+         } finally {
+            appendLock.unlock();
+         }
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException(e);
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      } finally {
+         for (IndexEntry entry : previous)
+            discard(entry);
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void clear() {
+      compactionLock.lock();
+      try {
+         appendLock.lock();
+         try {
+            index.clear();
+            int nextId = current.id + 1;
+            for (LogFile logFile : logFiles.values()) {
+               logFile.close();
+               if (!logFile.file.delete())
+                  throw new CacheLoaderException("Unable to delete " + logFile.file);
+            }
+            logFiles.clear();
+            current = openLogFile(nextId);
+         } finally {
+            appendLock.unlock();
+         }
+      } catch (CacheLoaderException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new CacheLoaderException(e);
+      } finally {
+         compactionLock.unlock();
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public MarshalledEntry load(Object key) {
+      return load(key, true, true);
+   }
+
+   private MarshalledEntry load(Object key, boolean loadValue, boolean loadMetadata) {
+      for (;;) {
+         IndexEntry entry = index.get(key);
+         if (entry == null)
+            return null;
+         if (isExpired(entry.expiryTime, timeService.wallClockTime())) {
+            if (index.remove(key, entry))
+               discard(entry);
+            return null;
+         }
+         byte[] data = read(entry, loadValue, loadMetadata);
+         if (data == null) {
+            // the log file has been compacted in the meantime, the index points to the copied record
+            continue;
+         }
+         ByteBufferFactory factory = ctx.getByteBufferFactory();
+         org.infinispan.commons.io.ByteBuffer keyBb = factory.newByteBuffer(data, 0, entry.keyLen);
+         org.infinispan.commons.io.ByteBuffer valueBb = null;
+         org.infinispan.commons.io.ByteBuffer metadataBb = null;
+         if (loadValue) {
+            valueBb = factory.newByteBuffer(data, entry.keyLen, entry.dataLen);
+            if (loadMetadata && entry.metadataLen > 0)
+               metadataBb = factory.newByteBuffer(data, entry.keyLen + entry.dataLen, entry.metadataLen);
+         }
+         return ctx.getMarshalledEntryFactory().newMarshalledEntry(keyBb, valueBb, metadataBb);
+      }
+   }
+
+   /**
+    * @return the serialized key, followed by the value and metadata if requested, or null if the log file holding
+    *         the record has been deleted
+    */
+   private byte[] read(IndexEntry entry, boolean loadValue, boolean loadMetadata) {
+      LogFile logFile = entry.logFile;
+      logFile.lock.readLock().lock();
+      try {
+         if (logFile.closed)
+            return null;
+         byte[] data = new byte[entry.keyLen + (loadValue ? entry.dataLen : 0) + (loadValue && loadMetadata ? entry.metadataLen : 0)];
+         readFully(logFile.channel, ByteBuffer.wrap(data), entry.offset + HEADER_LEN);
+         return data;
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      } finally {
+         logFile.lock.readLock().unlock();
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void process(KeyFilter filter, final CacheLoaderTask task, Executor executor, final boolean fetchValue, final boolean fetchMetadata) {
+      filter = PersistenceUtil.notNull(filter);
+      Set<Object> keysToLoad = new HashSet<Object>(index.size());
+      for (Object k : index.keySet()) {
+         if (filter.shouldLoadKey(k))
+            keysToLoad.add(k);
+      }
+
+      ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<Void>(executor);
+
+      final TaskContextImpl taskContext = new TaskContextImpl();
+      int taskCount = 0;
+      for (Object k : keysToLoad) {
+         if (taskContext.isStopped())
+            break;
+
+         taskCount++;
+         final Object key = k;
+         ecs.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+               final MarshalledEntry marshalledEntry = load(key, fetchValue, fetchMetadata);
+               if (marshalledEntry != null)
+                  task.processEntry(marshalledEntry, taskContext);
+               return null;
+            }
+         });
+      }
+      PersistenceUtil.waitForAllTasksToComplete(ecs, taskCount);
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * Expired entries are only dropped from the index: their records are recognized as expired when the log files are
+    * replayed, and their space is reclaimed by the compactor.
+    */
+   @Override
+   public void purge(Executor threadPool, final PurgeListener task) {
+      threadPool.execute(new Runnable() {
+         @Override
+         public void run() {
+            long now = timeService.wallClockTime();
+            for (Map.Entry<Object, IndexEntry> e : index.entrySet()) {
+               IndexEntry entry = e.getValue();
+               if (isExpired(entry.expiryTime, now) && index.remove(e.getKey(), entry)) {
+                  discard(entry);
+                  if (task != null) task.entryPurged(e.getKey());
+               }
+            }
+            scheduleCompaction();
+         }
+      });
+   }
+
+   @Override
+   public int size() {
+      return index.size();
+   }
+
+   public LogFileStoreConfiguration getConfiguration() {
+      return configuration;
+   }
+
+   /**
+    * @return the number of log files, for testing purposes
+    */
+   int getLogFileCount() {
+      return logFiles.size();
+   }
+
+   /**
+    * Appends a record to the newest log file, starting a new one if it is full. The caller must hold the append lock.
+    *
+    * @return the offset of the record in the {@link #current} log file
+    */
+   private long append(ByteBuffer record) throws IOException {
+      return append(record, configuration.syncWrites());
+   }
+
+   private long append(ByteBuffer record, boolean sync) throws IOException {
+      if (!running)
+         throw new CacheLoaderException("Cannot write to the stopped store in " + directory);
+      LogFile logFile = current;
+      if (logFile.size > 0 && logFile.size + record.limit() > configuration.maxFileSize()) {
+         // make sure the compactor never deletes a log file before the records it copied have reached the disk
+         logFile.channel.force(false);
+         logFile = openLogFile(logFile.id + 1);
+         current = logFile;
+         scheduleCompaction();
+      }
+      long offset = logFile.size;
+      while (record.hasRemaining())
+         logFile.channel.write(record, offset + record.position());
+      logFile.size = offset + record.limit();
+      if (sync)
+         logFile.channel.force(false);
+      return offset;
+   }
+
+   private void appendTombstone(ByteBuffer tombstone) throws IOException {
+      appendTombstone(tombstone, configuration.syncWrites());
+   }
+
+   private void appendTombstone(ByteBuffer tombstone, boolean sync) throws IOException {
+      append(tombstone, sync);
+      // only needed until the log files holding older values of the key are compacted, or the tombstone is copied
+      current.garbage.addAndGet(tombstone.limit());
+   }
+
+   /**
+    * Accounts for the space of a record which is no longer referenced by the index.
+    */
+   private void discard(IndexEntry entry) {
+      if (entry != null) {
+         LogFile logFile = entry.logFile;
+         long garbage = logFile.garbage.addAndGet(entry.size);
+         if (logFile != current && garbage >= logFile.size * configuration.compactionThreshold())
+            scheduleCompaction();
+      }
+   }
+
+   private void scheduleCompaction() {
+      if (running && compactionScheduled.compareAndSet(false, true)) {
+         try {
+            persistenceExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  compactionScheduled.set(false);
+                  // the persistence executor runs the tasks it cannot hand over in the caller, which must not compact
+                  // while appending or compacting itself; the next discarded record schedules the compaction again
+                  if (!appendLock.isHeldByCurrentThread() && !compactionLock.isHeldByCurrentThread())
+                     compact();
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            // the cache manager is stopping
+            compactionScheduled.set(false);
+         }
+      }
+   }
+
+   /**
+    * Compacts the log files, oldest first, in which the space taken by records no longer referenced by the index
+    * exceeds the compaction threshold. The newest log file is never compacted.
+    */
+   private void compact() {
+      compactionLock.lock();
+      try {
+         if (!running)
+            return;
+         // the log files started while compacting are left for the next run
+         for (LogFile logFile : new ArrayList<LogFile>(logFiles.values())) {
+            if (logFile == current || logFile.closed)
+               continue;
+            if (logFile.garbage.get() >= logFile.size * configuration.compactionThreshold()) {
+               try {
+                  compact(logFile);
+               } catch (Exception e) {
+                  log.errorCompactingLogFile(logFile.file.getPath(), e);
+                  return;
+               }
+            }
+         }
+      } finally {
+         compactionLock.unlock();
+      }
+   }
+
+   private void compact(LogFile logFile) throws Exception {
+      if (trace) log.tracef("Compacting %s, %d of its %d bytes are garbage", logFile.file, logFile.garbage.get(), logFile.size);
+      // deletions have to be kept as long as older log files may hold values of their keys
+      boolean oldest = logFiles.firstKey() == logFile.id;
+      long now = timeService.wallClockTime();
+      RecordReader reader = new RecordReader(logFile.channel, logFile.size);
+      while (reader.next()) {
+         Object key = ctx.getMarshaller().objectFromByteBuffer(reader.record, HEADER_LEN, reader.keyLen);
+         IndexEntry entry = index.get(key);
+         if (entry != null && entry.logFile == logFile && entry.offset == reader.offset) {
+            // a live record, copied as is
+            ByteBuffer record = ByteBuffer.wrap(reader.record);
+            appendLock.lock();
+            try {
+               if (index.get(key) == entry) {
+                  long offset = append(record);
+                  index.put(key, new IndexEntry(current, offset, entry.size, entry.keyLen, entry.dataLen,
+                                                entry.metadataLen, entry.expiryTime));
+               }
+            } finally {
+               appendLock.unlock();
+            }
+         } else if (entry == null && !oldest && (reader.dataLen == TOMBSTONE || isExpired(reader.expiryTime, now))) {
+            // not accounted as garbage, so that it is only copied again when the log file is compacted for other reasons
+            ByteBuffer tombstone = encodeTombstone(ByteBuffer.wrap(reader.record, HEADER_LEN, reader.keyLen).slice());
+            appendLock.lock();
+            try {
+               if (!index.containsKey(key))
+                  append(tombstone);
+            } finally {
+               appendLock.unlock();
+            }
+         }
+      }
+      appendLock.lock();
+      try {
+         current.channel.force(false);
+      } finally {
+         appendLock.unlock();
+      }
+      logFile.close();
+      logFiles.remove(logFile.id);
+      if (!logFile.file.delete())
+         throw new IOException("Unable to delete " + logFile.file);
+   }
+
+   private static ByteBuffer encode(org.infinispan.commons.io.ByteBuffer key, org.infinispan.commons.io.ByteBuffer data,
+                                    int dataLen, org.infinispan.commons.io.ByteBuffer metadata, int metadataLen,
+                                    long expiryTime) {
+      ByteBuffer buf = ByteBuffer.allocate(HEADER_LEN + key.getLength() + dataLen + metadataLen);
+      buf.putInt(0);
+      buf.putInt(key.getLength());
+      buf.putInt(dataLen);
+      buf.putInt(metadataLen);
+      buf.putLong(expiryTime);
+      buf.put(key.getBuf(), key.getOffset(), key.getLength());
+      if (data != null)
+         buf.put(data.getBuf(), data.getOffset(), data.getLength());
+      if (metadata != null)
+         buf.put(metadata.getBuf(), metadata.getOffset(), metadata.getLength());
+      return seal(buf);
+   }
+
+   private static ByteBuffer encodeTombstone(org.infinispan.commons.io.ByteBuffer key) {
+      return encodeTombstone(ByteBuffer.wrap(key.getBuf(), key.getOffset(), key.getLength()).slice());
+   }
+
+   private static ByteBuffer encodeTombstone(ByteBuffer key) {
+      ByteBuffer buf = ByteBuffer.allocate(HEADER_LEN + key.remaining());
+      buf.putInt(0);
+      buf.putInt(key.remaining());
+      buf.putInt(TOMBSTONE);
+      buf.putInt(0);
+      buf.putLong(-1);
+      buf.put(key);
+      return seal(buf);
+   }
+
+   private static ByteBuffer seal(ByteBuffer buf) {
+      buf.putInt(0, checksum(buf.array()));
+      buf.flip();
+      return buf;
+   }
+
+   private static int checksum(byte[] record) {
+      CRC32 crc = new CRC32();
+      crc.update(record, CHECKSUM_LEN, record.length - CHECKSUM_LEN);
+      return (int) crc.getValue();
+   }
+
+   private static boolean isExpired(long expiryTime, long now) {
+      return expiryTime > 0 && expiryTime < now;
+   }
+
+   private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+      long start = position - buf.position();
+      while (buf.hasRemaining()) {
+         if (channel.read(buf, start + buf.position()) < 0)
+            throw new EOFException();
+      }
+   }
+
+   /**
+    * Reads the records of a log file one after the other, stopping at the end of the file or at the first incomplete
+    * or corrupt record.
+    * <p/>
+    * The format of a record is as follows:
+    * <ul>
+    * <li>4 bytes: CRC32 checksum of the rest of the record</li>
+    * <li>4 bytes: key length</li>
+    * <li>4 bytes: data length, {@link #TOMBSTONE} if the record deletes the key</li>
+    * <li>4 bytes: metadata length</li>
+    * <li>8 bytes: expiry time</li>
+    * <li>serialized key, data and metadata</li>
+    * </ul>
+    */
+   private static final class RecordReader {
+      private final FileChannel channel;
+      private final long end;
+      private final ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+
+      /**
+       * Offset of the next record to read.
+       */
+      long position;
+
+      long offset;
+      byte[] record;
+      int keyLen;
+      int dataLen;
+      int metadataLen;
+      long expiryTime;
+
+      RecordReader(FileChannel channel, long end) {
+         this.channel = channel;
+         this.end = end;
+      }
+
+      boolean next() throws IOException {
+         if (end - position < HEADER_LEN)
+            return false;
+         header.clear();
+         readFully(channel, header, position);
+         header.flip();
+         int checksum = header.getInt();
+         int keyLen = header.getInt();
+         int dataLen = header.getInt();
+         int metadataLen = header.getInt();
+         long expiryTime = header.getLong();
+         if (keyLen <= 0 || dataLen < TOMBSTONE || metadataLen < 0)
+            return false;
+         long len = (long) HEADER_LEN + keyLen + Math.max(dataLen, 0) + metadataLen;
+         if (len > end - position)
+            return false;
+         byte[] record = new byte[(int) len];
+         readFully(channel, ByteBuffer.wrap(record), position);
+         if (checksum(record) != checksum)
+            return false;
+
+         this.offset = position;
+         this.record = record;
+         this.keyLen = keyLen;
+         this.dataLen = dataLen;
+         this.metadataLen = metadataLen;
+         this.expiryTime = expiryTime;
+         position += len;
+         return true;
+      }
+   }
+
+   /**
+    * One of the log files of the store.
+    */
+   private static final class LogFile {
+      final int id;
+      final File file;
+      final FileChannel channel;
+
+      /**
+       * Number of bytes appended, only updated while holding the append lock.
+       */
+      volatile long size;
+
+      /**
+       * Number of bytes taken by records no longer referenced by the index.
+       */
+      final AtomicLong garbage = new AtomicLong();
+
+      /**
+       * Prevents the channel from being closed while it is read.
+       */
+      final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+      volatile boolean closed;
+
+      LogFile(int id, File file, FileChannel channel) {
+         this.id = id;
+         this.file = file;
+         this.channel = channel;
+      }
+
+      void close() throws IOException {
+         lock.writeLock().lock();
+         try {
+            closed = true;
+            channel.close();
+         } finally {
+            lock.writeLock().unlock();
+         }
+      }
+   }
+
+   /**
+    * Position of the latest record of a key.
+    */
+   private static final class IndexEntry {
+      final LogFile logFile;
+      final long offset;
+      final int size;
+      final int keyLen;
+      final int dataLen;
+      final int metadataLen;
+      final long expiryTime;
+
+      IndexEntry(LogFile logFile, long offset, int size, int keyLen, int dataLen, int metadataLen, long expiryTime) {
+         this.logFile = logFile;
+         this.offset = offset;
+         this.size = size;
+         this.keyLen = keyLen;
+         this.dataLen = dataLen;
+         this.metadataLen = metadataLen;
+         this.expiryTime = expiryTime;
+      }
+   }
+}
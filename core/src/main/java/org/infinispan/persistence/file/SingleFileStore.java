@@ -1,14 +1,20 @@
 package org.infinispan.persistence.file;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -16,6 +22,15 @@
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import org.infinispan.commons.equivalence.AnyEquivalence;
 import org.infinispan.commons.equivalence.Equivalence;
@@ -23,6 +38,8 @@
 import org.infinispan.commons.io.ByteBufferFactory;
 import org.infinispan.commons.util.CollectionFactory;
 import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
+import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.factories.KnownComponentNames;
 import org.infinispan.persistence.CacheLoaderException;
 import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
@@ -56,6 +73,14 @@
  * <p/>
  * This class is fully thread safe, yet allows for concurrent load / store
  * of individual cache entries.
+ * <p/>
+ * When the store is stopped, the in-memory index is saved to an index file
+ * <tt>&lt;location&gt;/&lt;cache name&gt;.idx</tt>, which the next start maps
+ * and loads in bulk instead of reading the header and key of every entry in
+ * the data file. The index file is deleted as soon as the store is modified,
+ * so a restart after a crash reads the whole data file again, unless the
+ * index has been {@link SingleFileStoreConfiguration#indexSnapshotInterval()
+ * saved periodically} and the store has not been modified since.
  *
  * @author Karsten Blees
  * @author Mircea Markus
@@ -70,6 +95,12 @@ public class SingleFileStore implements AdvancedLoadWriteStore {
    private static final byte[] ZERO_INT = { 0, 0, 0, 0 };
    private static final int KEYLEN_POS = 4;
    private static final int KEY_POS = 4 + 4 + 4 + 4 + 8;
+   private static final byte[] INDEX_MAGIC = new byte[] { 'F', 'C', 'S', 'I' };
+   private static final int INDEX_HEADER_LEN = 4 + 8 + 4 + 4;
+   private static final int INDEX_ENTRY_LEN = 8 + 4 + 4 + 4 + 4 + 8;
+   private static final int INDEX_FREE_ENTRY_LEN = 8 + 4;
+   private static final int INDEX_CHECKSUM_LEN = 4;
+   private static final int MAX_MAPPED_SIZE = 1024 * 1024 * 1024;
 
    private SingleFileStoreConfiguration configuration;
 
@@ -80,6 +111,26 @@ public class SingleFileStore implements AdvancedLoadWriteStore {
    private SortedSet<FileEntry> freeList;
    private long filePos = MAGIC.length;
 
+   /**
+    * Read-only mapping of the beginning of the data file, if mapped reads are enabled. The mappings replaced are only
+    * released by the garbage collector, so the file is only mapped again once it has at least doubled in size, and
+    * never beyond {@link #MAX_MAPPED_SIZE}. The entries past the end of the mapping are read from the channel.
+    */
+   private volatile MappedByteBuffer mappedRegion;
+   private final Object mappedRegionLock = new Object();
+
+   private File indexFile;
+   private final Object indexFileLock = new Object();
+   private volatile boolean indexFileValid;
+   private final AtomicLong modifications = new AtomicLong();
+   private final AtomicInteger modificationsInProgress = new AtomicInteger();
+   private ScheduledFuture<?> indexSnapshotTask;
+   private final Object indexSaveLock = new Object();
+
+   private volatile long indexLoadTime = -1;
+   private volatile boolean indexLoadedFromFile;
+   private volatile long indexSaveTime = -1;
+
    /** {@inheritDoc} */
    @Override
    public void init(InitializationContext ctx) {
@@ -96,7 +147,9 @@ public void start()   {
          if (location == null || location.trim().length() == 0)
             location = "Infinispan-SingleFileStore";
 
-         File f = new File(location + File.separator + ctx.getCache().getName() + ".dat");
+         final String cacheName = ctx.getCache().getName();
+         File f = new File(location + File.separator + cacheName + ".dat");
+         indexFile = new File(location + File.separator + cacheName + ".idx");
          if (!f.exists()) {
              File dir = f.getParentFile();
              if (!dir.exists() && !dir.mkdirs()) {
@@ -104,6 +157,8 @@ public void start()   {
              }
          }
          file = new RandomAccessFile(f, "rw").getChannel();
+         if (configuration.mappedReads())
+            mappedRegion = mapRegion();
 
          // initialize data structures
          entries = newEntryMap();
@@ -111,10 +166,45 @@ public void start()   {
 
          // check file format and read persistent state if enabled for the cache
          byte[] header = new byte[MAGIC.length];
-         if (file.read(ByteBuffer.wrap(header), 0) == MAGIC.length && Arrays.equals(MAGIC, header))
-            rebuildIndex();
-         else
+         if (file.read(ByteBuffer.wrap(header), 0) == MAGIC.length && Arrays.equals(MAGIC, header)) {
+            long start = ctx.getTimeService().time();
+            indexLoadedFromFile = loadIndex();
+            if (!indexLoadedFromFile) {
+               // missing or stale
+               invalidateIndexFile();
+               rebuildIndex();
+            }
+            indexLoadTime = ctx.getTimeService().timeDuration(start, TimeUnit.MILLISECONDS);
+            log.debugf("Loaded the index of %s in %d milliseconds (from index file: %s)", f, indexLoadTime, indexLoadedFromFile);
+         } else {
             clear(); // otherwise (unknown file format or no preload) just reset the file
+         }
+
+         long interval = configuration.indexSnapshotInterval();
+         if (interval > 0) {
+            // the snapshots are timed by the global scheduled executor and written by the persistence executor
+            ComponentRegistry registry = ctx.getCache().getAdvancedCache().getComponentRegistry();
+            ScheduledExecutorService scheduler = registry.getComponent(ScheduledExecutorService.class,
+                                                                       KnownComponentNames.EVICTION_SCHEDULED_EXECUTOR);
+            final ExecutorService persistenceExecutor = registry.getComponent(ExecutorService.class,
+                                                                              KnownComponentNames.PERSISTENCE_EXECUTOR);
+            final Runnable snapshot = new Runnable() {
+               @Override
+               public void run() {
+                  saveIndexQuietly();
+               }
+            };
+            indexSnapshotTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     persistenceExecutor.execute(snapshot);
+                  } catch (RejectedExecutionException e) {
+                     // the cache manager is stopping
+                  }
+               }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+         }
       } catch (Exception e) {
          throw new CacheLoaderException(e);
       }
@@ -139,18 +229,237 @@ private Map<Object, FileEntry> newEntryMap() {
    public void stop()   {
       try {
          if (file != null) {
-            // reset state
-            file.close();
-            file = null;
-            entries = null;
-            freeList = null;
-            filePos = MAGIC.length;
+            if (indexSnapshotTask != null) {
+               indexSnapshotTask.cancel(false);
+               indexSnapshotTask = null;
+            }
+            // waits for a snapshot in progress, and keeps the snapshots still queued from running on a closed store
+            synchronized (indexSaveLock) {
+               saveIndexQuietly();
+
+               // reset state
+               mappedRegion = null;
+               file.close();
+               file = null;
+               entries = null;
+               freeList = null;
+               filePos = MAGIC.length;
+            }
          }
       } catch (Exception e) {
          throw new CacheLoaderException(e);
       }
    }
 
+   /**
+    * Marks the beginning of a change to the data file, which makes the index file stale.
+    */
+   private void beginModification() {
+      countModification();
+      if (indexFileValid)
+         invalidateIndexFile();
+   }
+
+   /**
+    * Marks the beginning of a change to the data file without deleting the index file, for callers holding a monitor
+    * which must not be held during file I/O. The caller must invalidate the index file before changing the data file.
+    */
+   private void countModification() {
+      modificationsInProgress.incrementAndGet();
+      modifications.incrementAndGet();
+   }
+
+   private void endModification() {
+      modificationsInProgress.decrementAndGet();
+   }
+
+   private void invalidateIndexFile() {
+      synchronized (indexFileLock) {
+         indexFileValid = false;
+         if (indexFile.exists() && !indexFile.delete())
+            throw new CacheLoaderException("Unable to delete " + indexFile);
+      }
+   }
+
+   /**
+    * Loads the in-memory index from the index file.
+    *
+    * @return false if there is no index file, or if it does not match the data file
+    */
+   private boolean loadIndex() throws Exception {
+      if (!indexFile.exists())
+         return false;
+      RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+      try {
+         FileChannel channel = raf.getChannel();
+         long size = channel.size();
+         if (size < INDEX_HEADER_LEN + INDEX_CHECKSUM_LEN || size > Integer.MAX_VALUE)
+            return false;
+         MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+         // verify the checksum before trusting any offset
+         CRC32 crc = new CRC32();
+         byte[] chunk = new byte[8192];
+         int remaining = (int) size - INDEX_CHECKSUM_LEN;
+         while (remaining > 0) {
+            int len = Math.min(remaining, chunk.length);
+            buf.get(chunk, 0, len);
+            crc.update(chunk, 0, len);
+            remaining -= len;
+         }
+         if (buf.getInt() != (int) crc.getValue())
+            return false;
+
+         buf.rewind();
+         byte[] header = new byte[INDEX_MAGIC.length];
+         buf.get(header);
+         long dataFileLength = buf.getLong();
+         if (!Arrays.equals(INDEX_MAGIC, header) || dataFileLength != file.size())
+            return false;
+         int entryCount = buf.getInt();
+         int freeCount = buf.getInt();
+
+         byte[] key = new byte[64];
+         for (int i = 0; i < entryCount; i++) {
+            FileEntry fe = new FileEntry(buf.getLong(), buf.getInt());
+            fe.keyLen = buf.getInt();
+            fe.dataLen = buf.getInt();
+            fe.metadataLen = buf.getInt();
+            fe.expiryTime = buf.getLong();
+            if (key.length < fe.keyLen)
+               key = new byte[fe.keyLen];
+            buf.get(key, 0, fe.keyLen);
+            entries.put(ctx.getMarshaller().objectFromByteBuffer(key, 0, fe.keyLen), fe);
+         }
+         for (int i = 0; i < freeCount; i++) {
+            freeList.add(new FileEntry(buf.getLong(), buf.getInt()));
+         }
+         filePos = dataFileLength;
+         return true;
+      } catch (Exception e) {
+         log.errorLoadingIndex(indexFile.getPath(), e);
+         entries.clear();
+         freeList.clear();
+         filePos = MAGIC.length;
+         return false;
+      } finally {
+         raf.close();
+      }
+   }
+
+   private void saveIndexQuietly() {
+      try {
+         saveIndex();
+      } catch (Exception e) {
+         log.errorSavingIndex(indexFile.getPath(), e);
+      }
+   }
+
+   /**
+    * Saves the in-memory index to the index file, unless the index file is up to date, the store is being modified or
+    * it has been stopped.
+    */
+   private void saveIndex() throws Exception {
+      synchronized (indexSaveLock) {
+         if (file != null)
+            doSaveIndex();
+      }
+   }
+
+   private void doSaveIndex() throws Exception {
+      long modificationCount = modifications.get();
+      if (indexFileValid || modificationsInProgress.get() > 0)
+         return;
+
+      long start = ctx.getTimeService().time();
+      // copy the index, so that loads are not blocked while it is written
+      List<Object> keys = new ArrayList<Object>(entries.size());
+      List<FileEntry> fileEntries = new ArrayList<FileEntry>(entries.size());
+      synchronized (entries) {
+         for (Map.Entry<Object, FileEntry> e : entries.entrySet()) {
+            keys.add(e.getKey());
+            fileEntries.add(e.getValue());
+         }
+      }
+      List<FileEntry> free;
+      long dataFileLength;
+      synchronized (freeList) {
+         free = new ArrayList<FileEntry>(freeList);
+         dataFileLength = filePos;
+      }
+      if (modifications.get() != modificationCount)
+         return;
+      // the index must never describe writes which have not reached the data file yet
+      file.force(true);
+
+      File tmpFile = new File(indexFile.getPath() + ".tmp");
+      FileOutputStream fos = new FileOutputStream(tmpFile);
+      try {
+         CRC32 crc = new CRC32();
+         DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fos), crc));
+         out.write(INDEX_MAGIC);
+         out.writeLong(dataFileLength);
+         out.writeInt(fileEntries.size());
+         out.writeInt(free.size());
+         for (int i = 0; i < fileEntries.size(); i++) {
+            FileEntry fe = fileEntries.get(i);
+            byte[] key = ctx.getMarshaller().objectToByteBuffer(keys.get(i));
+            out.writeLong(fe.offset);
+            out.writeInt(fe.size);
+            out.writeInt(key.length);
+            out.writeInt(fe.dataLen);
+            out.writeInt(fe.metadataLen);
+            out.writeLong(fe.expiryTime);
+            out.write(key);
+         }
+         for (FileEntry fe : free) {
+            out.writeLong(fe.offset);
+            out.writeInt(fe.size);
+         }
+         out.flush();
+         // the checksum itself is not checksummed
+         new DataOutputStream(fos).writeInt((int) crc.getValue());
+         fos.getFD().sync();
+      } finally {
+         fos.close();
+      }
+
+      synchronized (indexFileLock) {
+         if (modifications.get() != modificationCount || (indexFile.exists() && !indexFile.delete())
+               || !tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            return;
+         }
+         indexFileValid = true;
+      }
+      // a modification may have started without noticing the new index file
+      if (modifications.get() != modificationCount)
+         invalidateIndexFile();
+      else
+         indexSaveTime = ctx.getTimeService().timeDuration(start, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * @return the number of milliseconds taken to load the index of keys and file positions when the store was started
+    */
+   public long getIndexLoadTime() {
+      return indexLoadTime;
+   }
+
+   /**
+    * @return whether the index was loaded from the index file, rather than rebuilt from the data file
+    */
+   public boolean isIndexLoadedFromFile() {
+      return indexLoadedFromFile;
+   }
+
+   /**
+    * @return the number of milliseconds taken by the last save of the index to the index file
+    */
+   public long getIndexSaveTime() {
+      return indexSaveTime;
+   }
+
    /**
     * Rebuilds the in-memory index from file.
     */
@@ -255,6 +564,7 @@ private void free(FileEntry fe) throws IOException {
    @Override
    /** {@inheritDoc} */
    public void write(MarshalledEntry marshalledEntry) {
+      beginModification();
       try {
          // serialize cache value
          org.infinispan.commons.io.ByteBuffer key = marshalledEntry.getKeyBytes();
@@ -296,6 +606,8 @@ public void write(MarshalledEntry marshalledEntry) {
          }
       } catch (Exception e) {
          throw new CacheLoaderException(e);
+      } finally {
+         endModification();
       }
    }
 
@@ -321,6 +633,7 @@ private FileEntry evict() {
    /** {@inheritDoc} */
    @Override
    public void clear()   {
+      beginModification();
       try {
          synchronized (entries) {
             synchronized (freeList) {
@@ -334,26 +647,36 @@ public void clear()   {
                entries.clear();
                freeList.clear();
 
-               // reset file
+               // reset file, and the mapping which would refer to truncated regions
                file.truncate(0);
                file.write(ByteBuffer.wrap(MAGIC), 0);
+               if (mappedRegion != null) {
+                  synchronized (mappedRegionLock) {
+                     mappedRegion = mapRegion();
+                  }
+               }
                filePos = MAGIC.length;
             }
          }
       } catch (Exception e) {
          throw new CacheLoaderException(e);
+      } finally {
+         endModification();
       }
    }
 
    /** {@inheritDoc} */
    @Override
    public boolean delete(Object key)   {
+      beginModification();
       try {
          FileEntry fe = entries.remove(key);
          free(fe);
          return fe != null;
       } catch (Exception e) {
          throw new CacheLoaderException(e);
+      } finally {
+         endModification();
       }
    }
 
@@ -374,8 +697,10 @@ private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadat
 
          // if expired, remove the entry (within entries monitor)
          expired = fe.isExpired(System.currentTimeMillis());
-         if (expired)
+         if (expired) {
+            countModification();
             entries.remove(key);
+         }
 
          // lock entry for reading before releasing entries monitor
          fe.lock();
@@ -385,13 +710,20 @@ private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadat
       try {
          // if expired, free the file entry (after releasing entries monitor)
          if (expired) {
-            free(fe);
+            try {
+               if (indexFileValid)
+                  invalidateIndexFile();
+               free(fe);
+            } finally {
+               endModification();
+            }
             return null;
          }
 
          // load serialized data from disk
          data = new byte[fe.keyLen + (loadValue ? fe.dataLen : 0) + (loadMetadata ? fe.metadataLen : 0)];
-         file.read(ByteBuffer.wrap(data), fe.offset + KEY_POS);
+         if (mappedRegion == null || !readMapped(data, fe.offset + KEY_POS))
+            file.read(ByteBuffer.wrap(data), fe.offset + KEY_POS);
       } catch (Exception e) {
          throw new CacheLoaderException(e);
       } finally {
@@ -411,6 +743,48 @@ private MarshalledEntry _load(Object key, boolean loadValue, boolean loadMetadat
       return ctx.getMarshalledEntryFactory().newMarshalledEntry(keyBb, valueBb, metadataBb);
    }
 
+   /**
+    * Copies data from the mapped region of the data file.
+    *
+    * @return false if the data is beyond the mapped region, in which case it has to be read from the file
+    */
+   private boolean readMapped(byte[] data, long pos) throws IOException {
+      long end = pos + data.length;
+      if (end > MAX_MAPPED_SIZE)
+         return false;
+      MappedByteBuffer region = mappedRegion;
+      if (region.capacity() < end) {
+         region = growMappedRegion(end);
+         if (region.capacity() < end)
+            return false;
+      }
+      // duplicate, as the position of the shared buffer must not change
+      ByteBuffer view = region.duplicate();
+      view.position((int) pos);
+      view.get(data);
+      return true;
+   }
+
+   private MappedByteBuffer growMappedRegion(long minSize) throws IOException {
+      synchronized (mappedRegionLock) {
+         MappedByteBuffer region = mappedRegion;
+         if (region.capacity() >= minSize)
+            return region;
+         long size = Math.min(MAX_MAPPED_SIZE, file.size());
+         // the mapping grows geometrically, until then the entries beyond it are read from the file
+         if (size < minSize || size < Math.min(MAX_MAPPED_SIZE, 2L * region.capacity()))
+            return region;
+         region = mapRegion();
+         mappedRegion = region;
+         return region;
+      }
+   }
+
+   private MappedByteBuffer mapRegion() throws IOException {
+      // only map up to the end of the file, mapping beyond it would extend the file
+      return file.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(MAX_MAPPED_SIZE, file.size()));
+   }
+
    @Override
    /** {@inheritDoc} */
    public void process(KeyFilter filter, final CacheLoaderTask task, Executor executor, final boolean fetchValue, final boolean fetchMetadata) {
@@ -453,20 +827,25 @@ public void purge(Executor threadPool, final PurgeListener task) {
          @Override
          public void run() {
             long now = System.currentTimeMillis();
-            synchronized (entries) {
-               for (Iterator<Map.Entry<Object, FileEntry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
-                  Map.Entry<Object, FileEntry> next = it.next();
-                  FileEntry fe = next.getValue();
-                  if (fe.isExpired(now)) {
-                     it.remove();
-                     try {
-                        free(fe);
-                     } catch (Exception e) {
-                        throw new CacheLoaderException(e);
+            beginModification();
+            try {
+               synchronized (entries) {
+                  for (Iterator<Map.Entry<Object, FileEntry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                     Map.Entry<Object, FileEntry> next = it.next();
+                     FileEntry fe = next.getValue();
+                     if (fe.isExpired(now)) {
+                        it.remove();
+                        try {
+                           free(fe);
+                        } catch (Exception e) {
+                           throw new CacheLoaderException(e);
+                        }
+                        if (task != null) task.entryPurged(next.getKey());
                      }
-                     if (task != null) task.entryPurged(next.getKey());
                   }
                }
+            } finally {
+               endModification();
             }
          }
       });
@@ -0,0 +1,94 @@
+package org.infinispan.persistence.manager;
+
+import org.infinispan.commons.equivalence.Equivalence;
+import org.infinispan.commons.hash.Hash;
+import org.infinispan.commons.hash.MurmurHash3;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of the keys written to the cache stores. {@link #mightContain(Object)} never returns
+ * false for a key which was {@link #add(Object) added}, but may return true for a key which was not. Keys cannot be
+ * removed, so the filter has to be rebuilt to forget them.
+ *
+ * @since 6.0
+ */
+final class BloomFilter {
+
+   private static final Hash HASH = new MurmurHash3();
+
+   private final AtomicLongArray bits;
+   private final long numBits;
+   private final int numHashes;
+   private final AtomicLong bitsSet = new AtomicLong();
+   private final Equivalence<Object> keyEquivalence;
+
+   /**
+    * @param keyEquivalence the equivalence of the keys of the cache, so that the keys it considers equal set the same
+    *                       bits
+    */
+   BloomFilter(int expectedEntries, double falsePositiveRate, Equivalence<Object> keyEquivalence) {
+      this.keyEquivalence = keyEquivalence;
+      long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (m + 63) / 64));
+      bits = new AtomicLongArray(words);
+      numBits = words * 64L;
+      numHashes = Math.max(1, (int) Math.round((double) numBits / expectedEntries * Math.log(2)));
+   }
+
+   void add(Object key) {
+      int h1 = HASH.hash(keyHash(key));
+      int h2 = HASH.hash(h1);
+      for (int i = 0; i < numHashes; i++) {
+         long index = bitIndex(h1, h2, i);
+         int word = (int) (index >>> 6);
+         long mask = 1L << index;
+         for (;;) {
+            long current = bits.get(word);
+            if ((current & mask) != 0)
+               break;
+            if (bits.compareAndSet(word, current, current | mask)) {
+               bitsSet.incrementAndGet();
+               break;
+            }
+         }
+      }
+   }
+
+   boolean mightContain(Object key) {
+      int h1 = HASH.hash(keyHash(key));
+      int h2 = HASH.hash(h1);
+      for (int i = 0; i < numHashes; i++) {
+         long index = bitIndex(h1, h2, i);
+         if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * The probability of a false positive given the bits set so far.
+    */
+   double expectedFalsePositiveRate() {
+      return Math.pow((double) bitsSet.get() / numBits, numHashes);
+   }
+
+   /**
+    * The memory taken by the bits of the filter, in bytes.
+    */
+   long sizeInBytes() {
+      return numBits / 8;
+   }
+
+   private int keyHash(Object key) {
+      // not MurmurHash3.hash(Object), which hashes strings by content but not the values wrapping them
+      return keyEquivalence.hashCode(key);
+   }
+
+   private long bitIndex(int h1, int h2, int i) {
+      // double hashing, see Kirsch and Mitzenmacher, "Less Hashing, Same Performance"
+      long combined = h1 + (long) i * h2;
+      return (combined & Long.MAX_VALUE) % numBits;
+   }
+}
@@ -51,6 +51,18 @@ public interface PersistenceManager extends Lifecycle {
 
    void writeToAllStores(MarshalledEntry marshalledEntry, boolean skipSharedStores);
 
+   /**
+    * Writes the given entries, which must have distinct keys, to all the stores using
+    * {@link org.infinispan.persistence.spi.BatchCacheWriter#writeBatch(Iterable)} where supported.
+    */
+   void writeBatchToAllStores(Iterable<MarshalledEntry> marshalledEntries, boolean skipSharedStores);
+
+   /**
+    * Removes the given keys from all the stores using
+    * {@link org.infinispan.persistence.spi.BatchCacheWriter#deleteBatch(Iterable)} where supported.
+    */
+   void deleteBatchFromAllStores(Iterable<Object> keys, boolean skipSharedStores);
+
    /**
     * Returns the store one configured with fetch persistent state, or null if none exist.
     */
@@ -8,10 +8,12 @@
 import org.infinispan.commons.util.Util;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.StoreConfiguration;
+import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.ImmortalCacheEntry;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContextContainer;
+import org.infinispan.eviction.PassivationManager;
 import org.infinispan.factories.ComponentRegistry;
 import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
@@ -19,6 +21,11 @@
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.interceptors.CacheLoaderInterceptor;
 import org.infinispan.interceptors.CacheWriterInterceptor;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.jmx.annotations.MeasurementType;
+import org.infinispan.jmx.annotations.Units;
 import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledEntryFactory;
 import org.infinispan.metadata.InternalMetadataImpl;
@@ -33,6 +40,7 @@
 import org.infinispan.persistence.async.State;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
 import org.infinispan.persistence.spi.AdvancedCacheWriter;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.CacheLoader;
 import org.infinispan.persistence.spi.CacheWriter;
 import org.infinispan.persistence.support.AdvancedSingletonCacheWriter;
@@ -51,6 +59,7 @@
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -60,6 +69,7 @@
 import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 import static org.infinispan.factories.KnownComponentNames.PERSISTENCE_EXECUTOR;
 
+@MBean(objectName = "PersistenceManager", description = "Component that manages the cache stores")
 public class PersistenceManagerImpl implements PersistenceManager {
 
    private static final Log log = LogFactory.getLog(PersistenceManagerImpl.class);
@@ -85,6 +95,23 @@ public class PersistenceManagerImpl implements PersistenceManager {
    private Executor persistenceExecutor;
    private ByteBufferFactory byteBufferFactory;
    private MarshalledEntryFactory marshalledEntryFactory;
+   private PassivationManager passivationManager;
+   private DataContainer dataContainer;
+
+   private final AtomicLong preloadedEntries = new AtomicLong();
+   private volatile boolean preloading;
+   private volatile long preloadTime = -1;
+
+   /**
+    * Keys written to the stores since the filter was built, or null if no filter is used. Keys are added while
+    * holding the read lock of {@link #storesMutex}, so the filter can be swapped with a rebuilt one under the write
+    * lock without missing any key.
+    */
+   private volatile BloomFilter keyFilter;
+   private volatile BloomFilter pendingKeyFilter;
+   private volatile boolean keyFilterEnabled;
+   private final AtomicLong keyFilterSkippedLoads = new AtomicLong();
+   private final AtomicLong keyFilterFalsePositives = new AtomicLong();
 
    @Inject
    public void inject(AdvancedCache<Object, Object> cache, @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller,
@@ -102,6 +129,16 @@ public void inject(AdvancedCache<Object, Object> cache, @ComponentName(CACHE_MAR
       this.marshalledEntryFactory = marshalledEntryFactory;
    }
 
+   @Inject
+   public void injectPassivationManager(PassivationManager passivationManager) {
+      this.passivationManager = passivationManager;
+   }
+
+   @Inject
+   public void injectDataContainer(DataContainer dataContainer) {
+      this.dataContainer = dataContainer;
+   }
+
    @Override
    @Start(priority = 10)
    public void start() {
@@ -145,6 +182,7 @@ public void start() {
                   }
                }
             }
+            keyFilterEnabled = configuration.persistence().bloomFilterExpectedEntries() > 0 && isKeyFilterSupported();
          } finally {
             if (xaTx != null) {
                transactionManager.resume(xaTx);
@@ -158,6 +196,7 @@ public void start() {
    @Override
    @Stop
    public void stop() {
+      keyFilter = null;
 
       Set undelegated = new HashSet();
       for (CacheWriter w : writers) {
@@ -206,23 +245,220 @@ public void preload() {
 
       long start = timeService.time();
 
-
       final int maxEntries = getMaxEntries();
-      final AtomicInteger loadedEntries = new AtomicInteger(0);
-      final AdvancedCache<Object, Object> flaggedCache = getCacheForStateInsertion();
-      preloadCl.process(null, new AdvancedCacheLoader.CacheLoaderTask() {
-         @Override
-         public void processEntry(MarshalledEntry me, AdvancedCacheLoader.TaskContext taskContext) throws InterruptedException {
-            if (loadedEntries.get() >= maxEntries) {
-               taskContext.stop();
-               return;
+      final boolean parallel = configuration.persistence().parallelPreload();
+      final boolean direct = parallel && canPreloadDirectly();
+      final AdvancedCache<Object, Object> flaggedCache = direct ? null : getCacheForStateInsertion();
+      // if the preloaded store is the only one, the keys it holds are all the keys the filter needs
+      final BloomFilter preloadedKeys = keyFilterEnabled && loaders.size() == 1 ? newKeyFilter() : null;
+      // the threads processing the entries reserve a slot before inserting one, so no more than maxEntries get in
+      final AtomicInteger reservedEntries = new AtomicInteger();
+      preloadedEntries.set(0);
+      preloading = true;
+      try {
+         preloadCl.process(null, new AdvancedCacheLoader.CacheLoaderTask() {
+            @Override
+            public void processEntry(MarshalledEntry me, AdvancedCacheLoader.TaskContext taskContext) throws InterruptedException {
+               if (reservedEntries.incrementAndGet() > maxEntries) {
+                  taskContext.stop();
+                  return;
+               }
+               Metadata metadata = me.getMetadata() != null ? ((InternalMetadataImpl)me.getMetadata()).getActual() : null; //the downcast will go away with ISPN-3460
+               if (direct)
+                  dataContainer.put(me.getKey(), me.getValue(), metadata);
+               else
+                  flaggedCache.put(me.getKey(), me.getValue(), metadata);
+               if (preloadedKeys != null)
+                  preloadedKeys.add(me.getKey());
+               preloadedEntries.incrementAndGet();
+            }
+         }, parallel ? persistenceExecutor : new WithinThreadExecutor(), true, true);
+      } finally {
+         preloading = false;
+         preloadTime = timeService.timeDuration(start, MILLISECONDS);
+      }
+
+      log.debugf("Preloaded %s keys in %s", preloadedEntries, Util.prettyPrintTime(preloadTime));
+      // the filter is only complete if no entry was left in the store
+      if (preloadedKeys != null && reservedEntries.get() <= maxEntries)
+         keyFilter = preloadedKeys;
+   }
+
+   /**
+    * The entries must be written through the interceptor chain if their values have to be wrapped or converted, or if
+    * they have to be indexed, versioned, enlisted in a transaction or notified to listeners. The owners of the keys of
+    * a distributed cache are not known yet while preloading, so inserting them directly would leave every node holding
+    * the whole store until the first rebalance.
+    */
+   private boolean canPreloadDirectly() {
+      return !configuration.clustering().cacheMode().isDistributed()
+            && !configuration.storeAsBinary().enabled()
+            && !configuration.compatibility().enabled()
+            && !configuration.indexing().enabled()
+            && !configuration.transaction().transactionMode().isTransactional()
+            && !configuration.versioning().enabled()
+            && cache.getComponentRegistry().getComponent(CacheNotifier.class).getListeners().isEmpty();
+   }
+
+   @Start(priority = 57)
+   public void buildKeyFilter() {
+      if (keyFilterEnabled && keyFilter == null)
+         rebuildKeyFilter();
+   }
+
+   @ManagedOperation(
+         description = "Rebuilds the Bloom filter from the keys held by the cache stores, forgetting the removed keys",
+         displayName = "Rebuild Bloom filter"
+   )
+   public synchronized void rebuildKeyFilter() {
+      if (!keyFilterEnabled)
+         return;
+      final BloomFilter filter = newKeyFilter();
+      storesMutex.writeLock().lock();
+      try {
+         // from now on the keys written are added to both filters
+         pendingKeyFilter = filter;
+      } finally {
+         storesMutex.writeLock().unlock();
+      }
+      boolean rebuilt = false;
+      try {
+         processOnAllStores(null, new AdvancedCacheLoader.CacheLoaderTask() {
+            @Override
+            public void processEntry(MarshalledEntry marshalledEntry, AdvancedCacheLoader.TaskContext taskContext) {
+               filter.add(marshalledEntry.getKey());
             }
-            Metadata metadata = me.getMetadata() != null ? ((InternalMetadataImpl)me.getMetadata()).getActual() : null; //the downcast will go away with ISPN-3460
-            flaggedCache.put(me.getKey(), me.getValue(), metadata);
+         }, false, false);
+         rebuilt = true;
+      } finally {
+         storesMutex.writeLock().lock();
+         try {
+            if (rebuilt)
+               keyFilter = filter;
+            pendingKeyFilter = null;
+         } finally {
+            storesMutex.writeLock().unlock();
+         }
+      }
+   }
+
+   @ManagedAttribute(
+         description = "Number of loads of keys unknown to the Bloom filter, which did not read from the cache stores",
+         displayName = "Number of loads skipped by the Bloom filter",
+         measurementType = MeasurementType.TRENDSUP
+   )
+   public long getBloomFilterSkippedLoads() {
+      return keyFilterSkippedLoads.get();
+   }
+
+   @ManagedAttribute(
+         description = "Number of loads of keys known to the Bloom filter which were not found in the cache stores",
+         displayName = "Number of Bloom filter false positives",
+         measurementType = MeasurementType.TRENDSUP
+   )
+   public long getBloomFilterFalsePositives() {
+      return keyFilterFalsePositives.get();
+   }
+
+   @ManagedAttribute(
+         description = "Fraction of the loads of missing keys which the Bloom filter did not skip",
+         displayName = "Bloom filter false positive rate",
+         units = Units.PERCENTAGE
+   )
+   public double getBloomFilterFalsePositiveRate() {
+      long falsePositives = keyFilterFalsePositives.get();
+      long misses = falsePositives + keyFilterSkippedLoads.get();
+      return misses == 0 ? 0 : (double) falsePositives / misses;
+   }
+
+   @ManagedAttribute(
+         description = "Probability of a false positive given the keys added to the Bloom filter so far",
+         displayName = "Bloom filter expected false positive rate",
+         units = Units.PERCENTAGE
+   )
+   public double getBloomFilterExpectedFalsePositiveRate() {
+      BloomFilter filter = keyFilter;
+      return filter == null ? 0 : filter.expectedFalsePositiveRate();
+   }
+
+   @ManagedAttribute(
+         description = "Memory taken by the Bloom filter, in bytes",
+         displayName = "Bloom filter size"
+   )
+   public long getBloomFilterSize() {
+      BloomFilter filter = keyFilter;
+      return filter == null ? 0 : filter.sizeInBytes();
+   }
+
+   @ManagedAttribute(
+         description = "Number of entries loaded from the cache store so far by the last or current preload",
+         displayName = "Number of preloaded entries",
+         measurementType = MeasurementType.TRENDSUP
+   )
+   public long getPreloadedEntries() {
+      return preloadedEntries.get();
+   }
+
+   @ManagedAttribute(
+         description = "Whether the entries of the cache store are being preloaded",
+         displayName = "Preloading"
+   )
+   public boolean isPreloading() {
+      return preloading;
+   }
+
+   @ManagedAttribute(
+         description = "Number of milliseconds taken by the last preload, or -1 if the cache store was never preloaded",
+         displayName = "Preload time",
+         units = Units.MILLISECONDS
+   )
+   public long getPreloadTime() {
+      return preloadTime;
+   }
+
+   @ManagedAttribute(
+         description = "Number of modifications queued or being applied by the asynchronous cache stores",
+         displayName = "Async store queue depth"
+   )
+   public int getAsyncStoreQueueDepth() {
+      int depth = 0;
+      for (CacheWriter w : writers) {
+         if (w instanceof AsyncCacheWriter)
+            depth += ((AsyncCacheWriter) w).getQueueDepth();
+      }
+      return depth;
+   }
+
+   @ManagedAttribute(
+         description = "Fraction of the modifications queued by the asynchronous cache stores which replaced a pending modification of the same key",
+         displayName = "Async store coalescing ratio",
+         units = Units.PERCENTAGE
+   )
+   public double getAsyncStoreCoalescingRatio() {
+      long queued = 0, coalesced = 0;
+      for (CacheWriter w : writers) {
+         if (w instanceof AsyncCacheWriter) {
+            queued += ((AsyncCacheWriter) w).getQueuedModifications();
+            coalesced += ((AsyncCacheWriter) w).getCoalescedModifications();
          }
-      }, new WithinThreadExecutor(), true, true);
+      }
+      return queued == 0 ? 0 : (double) coalesced / queued;
+   }
 
-      log.debugf("Preloaded %s keys in %s", loadedEntries, Util.prettyPrintTime(timeService.timeDuration(start, MILLISECONDS)));
+   @ManagedAttribute(
+         description = "Average number of milliseconds taken by the asynchronous cache stores to apply a batch of modifications",
+         displayName = "Async store average flush time",
+         units = Units.MILLISECONDS
+   )
+   public long getAsyncStoreAverageFlushTime() {
+      long flushes = 0, flushTime = 0;
+      for (CacheWriter w : writers) {
+         if (w instanceof AsyncCacheWriter) {
+            flushes += ((AsyncCacheWriter) w).getFlushes();
+            flushTime += ((AsyncCacheWriter) w).getFlushTime();
+         }
+      }
+      return flushes == 0 ? 0 : flushTime / flushes;
    }
 
    @Override
@@ -341,6 +577,7 @@ public boolean activate(Object key) {
          return false;
       }
       log.tracef("Try to activate key=%s. removing it from all writers", key);
+      if (passivationManager != null) passivationManager.cancelPendingPassivation(key);
 
       storesMutex.readLock().lock();
       try {
@@ -360,6 +597,39 @@ public boolean activate(Object key) {
 
    @Override
    public void clearAllStores(boolean skipSharedStores) {
+      if (passivationManager != null) passivationManager.cancelPendingPassivations();
+      if (!keyFilterEnabled || (skipSharedStores && hasSharedWriter())) {
+         // the keys of the shared stores left alone are still in the filter
+         clearStores(skipSharedStores);
+         return;
+      }
+      synchronized (this) {
+         // the emptied stores only hold the keys written while clearing, which are added to the new filter as well
+         final BloomFilter filter = newKeyFilter();
+         storesMutex.writeLock().lock();
+         try {
+            pendingKeyFilter = filter;
+         } finally {
+            storesMutex.writeLock().unlock();
+         }
+         boolean cleared = false;
+         try {
+            clearStores(skipSharedStores);
+            cleared = true;
+         } finally {
+            storesMutex.writeLock().lock();
+            try {
+               if (cleared)
+                  keyFilter = filter;
+               pendingKeyFilter = null;
+            } finally {
+               storesMutex.writeLock().unlock();
+            }
+         }
+      }
+   }
+
+   private void clearStores(boolean skipSharedStores) {
       storesMutex.readLock().lock();
       try {
          for (CacheWriter w : writers) {
@@ -374,8 +644,17 @@ public void clearAllStores(boolean skipSharedStores) {
       }
    }
 
+   private boolean hasSharedWriter() {
+      for (CacheWriter w : writers) {
+         if (w instanceof AdvancedCacheWriter && configMap.get(w).shared())
+            return true;
+      }
+      return false;
+   }
+
    @Override
    public boolean deleteFromAllStores(Object key, boolean skipSharedStore) {
+      if (passivationManager != null) passivationManager.cancelPendingPassivation(key);
       storesMutex.readLock().lock();
       try {
          boolean removed = false;
@@ -407,6 +686,17 @@ public void processOnAllStores(AdvancedCacheLoader.KeyFilter keyFilter, Advanced
 
    @Override
    public MarshalledEntry loadFromAllStores(Object key) {
+      if (passivationManager != null) {
+         // evicted but not written to the stores yet
+         MarshalledEntry pending = passivationManager.getPendingPassivation(key);
+         if (pending != null)
+            return pending;
+      }
+      BloomFilter filter = keyFilter;
+      if (filter != null && !filter.mightContain(key)) {
+         keyFilterSkippedLoads.incrementAndGet();
+         return null;
+      }
       storesMutex.readLock().lock();
       try {
          for (CacheLoader l : loaders) {
@@ -414,6 +704,8 @@ public MarshalledEntry loadFromAllStores(Object key) {
             if (load != null)
                return load;
          }
+         if (filter != null)
+            keyFilterFalsePositives.incrementAndGet();
          return null;
       } finally {
          storesMutex.readLock().unlock();
@@ -424,6 +716,7 @@ public MarshalledEntry loadFromAllStores(Object key) {
    public void writeToAllStores(MarshalledEntry marshalledEntry, boolean skipSharedStores) {
       storesMutex.readLock().lock();
       try {
+         addToKeyFilter(marshalledEntry.getKey());
          for (CacheWriter w : writers) {
             if (skipSharedStores && configMap.get(w).shared())
                continue;
@@ -434,6 +727,50 @@ public void writeToAllStores(MarshalledEntry marshalledEntry, boolean skipShared
       }
    }
 
+   @Override
+   public void writeBatchToAllStores(Iterable<MarshalledEntry> marshalledEntries, boolean skipSharedStores) {
+      storesMutex.readLock().lock();
+      try {
+         for (MarshalledEntry marshalledEntry : marshalledEntries)
+            addToKeyFilter(marshalledEntry.getKey());
+         for (CacheWriter w : writers) {
+            if (skipSharedStores && configMap.get(w).shared())
+               continue;
+            if (w instanceof BatchCacheWriter) {
+               ((BatchCacheWriter) w).writeBatch(marshalledEntries);
+            } else {
+               for (MarshalledEntry marshalledEntry : marshalledEntries)
+                  w.write(marshalledEntry);
+            }
+         }
+      } finally {
+         storesMutex.readLock().unlock();
+      }
+   }
+
+   @Override
+   public void deleteBatchFromAllStores(Iterable<Object> keys, boolean skipSharedStores) {
+      if (passivationManager != null) {
+         for (Object key : keys)
+            passivationManager.cancelPendingPassivation(key);
+      }
+      storesMutex.readLock().lock();
+      try {
+         for (CacheWriter w : writers) {
+            if (skipSharedStores && configMap.get(w).shared())
+               continue;
+            if (w instanceof BatchCacheWriter) {
+               ((BatchCacheWriter) w).deleteBatch(keys);
+            } else {
+               for (Object key : keys)
+                  w.delete(key);
+            }
+         }
+      } finally {
+         storesMutex.readLock().unlock();
+      }
+   }
+
    @Override
    public AdvancedCacheLoader getStateTransferProvider() {
       storesMutex.readLock().lock();
@@ -538,6 +875,40 @@ private CacheWriter undelegate(CacheWriter w) {
 
    }
 
+   /**
+    * The filter can only be trusted if every key in the stores was written through this component.
+    */
+   private boolean isKeyFilterSupported() {
+      for (CacheLoader l : loaders) {
+         if (!(l instanceof AdvancedCacheLoader) || configMap.get(l).shared()) {
+            log.bloomFilterNotSupported(undelegate(l).getClass().getName());
+            return false;
+         }
+      }
+      for (CacheWriter w : writers) {
+         if (configMap.get(w).shared()) {
+            log.bloomFilterNotSupported(undelegate(w).getClass().getName());
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private BloomFilter newKeyFilter() {
+      return new BloomFilter(configuration.persistence().bloomFilterExpectedEntries(),
+                             configuration.persistence().bloomFilterFalsePositiveRate(),
+                             configuration.dataContainer().keyEquivalence());
+   }
+
+   private void addToKeyFilter(Object key) {
+      BloomFilter filter = keyFilter;
+      if (filter != null)
+         filter.add(key);
+      filter = pendingKeyFilter;
+      if (filter != null)
+         filter.add(key);
+   }
+
    private AdvancedCache<Object, Object> getCacheForStateInsertion() {
       List<Flag> flags = new ArrayList<Flag>(Arrays.asList(
             CACHE_MODE_LOCAL, SKIP_OWNERSHIP_CHECK, IGNORE_RETURN_VALUES, SKIP_CACHE_STORE, SKIP_LOCKING));
@@ -0,0 +1,27 @@
+package org.infinispan.persistence.spi;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.marshall.core.MarshalledEntry;
+
+/**
+ * Optional extension of {@link CacheWriter} implemented by stores which can write or delete several entries at a
+ * lower cost than one at a time, e.g. by amortizing round trips or disk syncs over a batch. Stores which do not
+ * implement it are handed the entries one by one, see
+ * {@link org.infinispan.persistence.PersistenceUtil#writeBatch(CacheWriter, Iterable)}.
+ *
+ * @since 6.0
+ */
+@ThreadSafe
+public interface BatchCacheWriter<K, V> extends CacheWriter<K, V> {
+
+   /**
+    * Persists all the given entries, as if {@link #write(MarshalledEntry)} was invoked for each of them. The entries
+    * have distinct keys.
+    */
+   void writeBatch(Iterable<MarshalledEntry<K, V>> entries);
+
+   /**
+    * Removes all the given keys from the storage, as if {@link #delete(Object)} was invoked for each of them.
+    */
+   void deleteBatch(Iterable<Object> keys);
+}
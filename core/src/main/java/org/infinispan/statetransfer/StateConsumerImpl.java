@@ -8,6 +8,7 @@
 import org.infinispan.commons.util.InfinispanCollections;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.DataContainer;
+import org.infinispan.container.SegmentedDataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
@@ -823,13 +824,33 @@ private void invalidateSegments(final Set<Integer> newSegments, final Set<Intege
       final Set<Object> keysToRemove = new HashSet<Object>();
 
       // gather all keys from data container that belong to the segments that are being removed/moved to L1
-      for (InternalCacheEntry ice : dataContainer) {
-         Object key = ice.getKey();
-         int keySegment = getSegment(key);
-         if (segmentsToL1.contains(keySegment)) {
-            keysToL1.add(key);
-         } else if (!newSegments.contains(keySegment)) {
-            keysToRemove.add(key);
+      ConsistentHash readCh = cacheTopology.getReadConsistentHash();
+      if (dataContainer instanceof SegmentedDataContainer
+            && ((SegmentedDataContainer) dataContainer).isPartitionedBy(readCh)) {
+         // only visit the segments that are no longer owned
+         SegmentedDataContainer segmentedDataContainer = (SegmentedDataContainer) dataContainer;
+         for (int segment = 0; segment < readCh.getNumSegments(); segment++) {
+            Set<Object> keys;
+            if (segmentsToL1.contains(segment)) {
+               keys = keysToL1;
+            } else if (!newSegments.contains(segment)) {
+               keys = keysToRemove;
+            } else {
+               continue;
+            }
+            for (Iterator<InternalCacheEntry> it = segmentedDataContainer.iterator(segment); it.hasNext(); ) {
+               keys.add(it.next().getKey());
+            }
+         }
+      } else {
+         for (InternalCacheEntry ice : dataContainer) {
+            Object key = ice.getKey();
+            int keySegment = getSegment(key);
+            if (segmentsToL1.contains(keySegment)) {
+               keysToL1.add(key);
+            } else if (!newSegments.contains(keySegment)) {
+               keysToRemove.add(key);
+            }
          }
       }
 
@@ -172,6 +172,17 @@
    private transient final EvictionListener<K, V> evictionListener;
    private final int evictCap;
 
+   /**
+    * Computes the estimated size of entries when the map is bounded by memory rather than by number of entries,
+    * null otherwise.
+    */
+   private transient final EntrySizeCalculator<? super K, ? super V> entrySizeCalculator;
+
+   /**
+    * Memory limit of each segment, in bytes, when the map is bounded by memory.
+    */
+   private final long maxSegmentMemory;
+
    /* ---------------- Small Utilities -------------- */
 
    /**
@@ -269,6 +280,9 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
       LRU {
          @Override
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            if (s.map.entrySizeCalculator != null) {
+               return new MemoryLRU<K, V>(s, lf, s.map.maxSegmentMemory, EvictionPolicy.MAX_BATCH_SIZE, lf);
+            }
             boolean isIBMJavaVendor = Util.isIBMJavaVendor();
             if (isIBMJavaVendor) {
                return new IBMLRU<K, V>(s,capacity,lf,capacity*10,lf);
@@ -282,6 +296,12 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
             return new LIRS<K,V>(s,capacity,capacity*10,lf);
          }
+      },
+      TINY_LFU {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            return new TinyLFU<K,V>(s,capacity,capacity*10,lf);
+         }
       };
 
       abstract <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf);
@@ -298,6 +318,17 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
       void onEntryRemoved(Object key);
    }
 
+   /**
+    * Estimates the memory retained by a key/value pair, used when the map is bounded by memory.
+    */
+   public interface EntrySizeCalculator<K, V> {
+
+      /**
+       * @return the estimated number of bytes retained by the key, the value and any per-entry bookkeeping
+       */
+      long calculateSize(K key, V value);
+   }
+
    static final class NullEvictionListener<K, V> implements EvictionListener<K, V> {
       @Override
       public void onEntryEviction(Map<K, V> evicted) {
@@ -357,6 +388,17 @@ public void onEntryRemoved(Object key) {
        */
       boolean onEntryHit(HashEntry<K, V> e);
 
+      /**
+       * Invoked to notify EvictionPolicy implementation that the value of an existing entry has been
+       * replaced. Always invoked while holding a lock on Segment.
+       *
+       * @param e
+       *            updated entry in Segment
+       *
+       * @return non null set of evicted entries.
+       */
+      Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e);
+
       /**
        * Invoked to notify EvictionPolicy implementation that an entry e has been removed from
        * Segment.
@@ -412,6 +454,11 @@ public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          return InfinispanCollections.emptySet();
       }
 
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         return InfinispanCollections.emptySet();
+      }
+
       @Override
       public void onEntryRemove(HashEntry<K, V> e) {
          // Do nothing.
@@ -482,6 +529,11 @@ public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          }
       }
 
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         return InfinispanCollections.emptySet();
+      }
+
       /*
        * Invoked without holding a lock on Segment
        */
@@ -542,6 +594,155 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
    }
 
+   /**
+    * LRU eviction strategy for maps bounded by memory rather than by number of entries. The size of each entry is
+    * computed once, when it is written, and kept as the value of the recency ordered map so that the segment's memory
+    * usage can be adjusted when the entry is updated or removed. Eldest entries are evicted until the segment is back
+    * under its memory limit.
+    * <p>
+    * Removing an entry makes the segment re-create the entries preceding it in its bucket. While evicting, those
+    * entries keep their place and size instead of being treated as new, otherwise they would overtake the entry
+    * which triggered the eviction and could cause it to be evicted too.
+    */
+   static final class MemoryLRU<K, V> extends LinkedHashMap<HashEntry<K,V>, Long> implements EvictionPolicy<K, V> {
+
+      /** The serialVersionUID */
+      private static final long serialVersionUID = -2217418463584364374L;
+
+      private final ConcurrentLinkedQueue<HashEntry<K, V>> accessQueue;
+      private final Segment<K,V> segment;
+      private final long maxMemory;
+      private final int maxBatchQueueSize;
+      private final float batchQueueSizeThreshold;
+      private final Set<HashEntry<K, V>> evicted;
+      private final AtomicInteger accessQueueSize = new AtomicInteger(0);
+      private long memory;
+      private HashEntry<K, V> victim;
+
+      public MemoryLRU(Segment<K,V> s, float lf, long maxMemory, int maxBatchSize, float batchThresholdFactor) {
+         super(16, lf, false);
+         this.segment = s;
+         this.maxMemory = maxMemory;
+         this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
+         this.batchQueueSizeThreshold = batchThresholdFactor * this.maxBatchQueueSize;
+         this.accessQueue = new ConcurrentLinkedQueue<HashEntry<K, V>>();
+         this.evicted = new HashSet<HashEntry<K, V>>();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         for (HashEntry<K, V> e : accessQueue) {
+            // moves the entry to the tail, unless it has been removed in the meantime
+            Long size = remove(e);
+            if (size != null) {
+               put(e, size);
+            }
+         }
+         accessQueue.clear();
+         accessQueueSize.set(0);
+         return evictAndDrain();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
+         account(e);
+         return evictAndDrain();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         account(e);
+         return evictAndDrain();
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         accessQueue.add(e);
+         int sz = accessQueueSize.incrementAndGet();
+         return sz >= batchQueueSizeThreshold;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return accessQueueSize.get() >= maxBatchQueueSize;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         if (victim != null && !victim.equals(e)) {
+            // re-created by the segment while evicting the victim, keep its place
+            return;
+         }
+         Long size = remove(e);
+         if (size != null) {
+            memory -= size;
+         }
+         // we could have multiple instances of e in accessQueue; remove them all
+         while (accessQueue.remove(e)) {
+            accessQueueSize.decrementAndGet();
+         }
+      }
+
+      @Override
+      public void clear() {
+         super.clear();
+         memory = 0;
+         accessQueue.clear();
+         accessQueueSize.set(0);
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.LRU;
+      }
+
+      @Override
+      public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         return new HashEntry<K, V>(key, hash, next, value);
+      }
+
+      @SuppressWarnings("unchecked")
+      private void account(HashEntry<K, V> e) {
+         long size = ((EntrySizeCalculator<K, V>) segment.map.entrySizeCalculator).calculateSize(e.key, e.value);
+         Long previous = put(e, size);
+         memory += previous == null ? size : size - previous;
+      }
+
+      private Set<HashEntry<K, V>> evictAndDrain() {
+         // Removing an entry from the segment re-notifies the entries sharing its bucket, so guard against re-entry
+         if (victim != null) {
+            return InfinispanCollections.emptySet();
+         }
+         while (memory > maxMemory && !isEmpty()) {
+            HashEntry<K, V> eldest = keySet().iterator().next();
+            victim = eldest;
+            try {
+               segment.remove(eldest.key, eldest.hash, null, true);
+            } finally {
+               victim = null;
+            }
+            if (containsKey(eldest)) {
+               // no longer in the segment's table, just forget about it
+               onEntryRemove(eldest);
+            } else {
+               evicted.add(eldest);
+            }
+         }
+         if (evicted.isEmpty()) {
+            return InfinispanCollections.emptySet();
+         }
+         Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>(evicted);
+         evicted.clear();
+         return evictedCopy;
+      }
+   }
+
    /**
     * A special version of LRU eviction strategy dedicated for use with IBM JDK. This class extends
     * HashMap instead of LinkedHashMap whose implementation on IBM JDK contains a bug resulting in
@@ -612,6 +813,11 @@ public void addAndRemoveEldest(HashEntry<K, V> entry) {
          }
       }
 
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         return InfinispanCollections.emptySet();
+      }
+
       /*
        * Invoked without holding a lock on Segment
        */
@@ -1236,6 +1442,11 @@ private void removeFromSegment(Set<HashEntry<K, V>> evicted) {
          }
       }
 
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         return InfinispanCollections.emptySet();
+      }
+
       /*
        * Invoked without holding a lock on Segment
        */
@@ -1306,6 +1517,334 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
    }
 
+   /**
+    * Eviction regions of the TinyLFU policy.
+    */
+   private enum Region {
+      WINDOW, PROBATION, PROTECTED
+   }
+
+   private static final class TinyLFUHashEntry<K, V> extends HashEntry<K, V> {
+
+      /*
+       * The region holding this entry, or null once it has been removed, and its neighbours in the region's queue.
+       * Only accessed while holding the segment lock.
+       */
+      Region region;
+      TinyLFUHashEntry<K, V> previousInRegion;
+      TinyLFUHashEntry<K, V> nextInRegion;
+
+      TinyLFUHashEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         super(key, hash, next, value);
+      }
+   }
+
+   /**
+    * Recency ordered queue of the entries of a TinyLFU region, eldest first.
+    */
+   private static final class RegionQueue<K, V> {
+
+      private final Region region;
+      private final TinyLFUHashEntry<K, V> header = new TinyLFUHashEntry<K, V>(null, 0, null, null);
+      private int size;
+
+      RegionQueue(Region region) {
+         this.region = region;
+         header.previousInRegion = header;
+         header.nextInRegion = header;
+      }
+
+      int size() {
+         return size;
+      }
+
+      TinyLFUHashEntry<K, V> eldest() {
+         return eldestOtherThan(null);
+      }
+
+      TinyLFUHashEntry<K, V> eldestOtherThan(TinyLFUHashEntry<K, V> excluded) {
+         TinyLFUHashEntry<K, V> e = header.nextInRegion;
+         if (e == excluded) {
+            e = e.nextInRegion;
+         }
+         return e == header ? null : e;
+      }
+
+      void addLast(TinyLFUHashEntry<K, V> e) {
+         e.region = region;
+         e.nextInRegion = header;
+         e.previousInRegion = header.previousInRegion;
+         header.previousInRegion.nextInRegion = e;
+         header.previousInRegion = e;
+         size++;
+      }
+
+      void remove(TinyLFUHashEntry<K, V> e) {
+         e.previousInRegion.nextInRegion = e.nextInRegion;
+         e.nextInRegion.previousInRegion = e.previousInRegion;
+         e.previousInRegion = null;
+         e.nextInRegion = null;
+         e.region = null;
+         size--;
+      }
+
+      void moveToLast(TinyLFUHashEntry<K, V> e) {
+         remove(e);
+         addLast(e);
+      }
+
+      /**
+       * Puts e in the place of replaced, which leaves the queue.
+       */
+      void replace(TinyLFUHashEntry<K, V> replaced, TinyLFUHashEntry<K, V> e) {
+         e.region = region;
+         e.previousInRegion = replaced.previousInRegion;
+         e.nextInRegion = replaced.nextInRegion;
+         e.previousInRegion.nextInRegion = e;
+         e.nextInRegion.previousInRegion = e;
+         replaced.previousInRegion = null;
+         replaced.nextInRegion = null;
+         replaced.region = null;
+      }
+
+      void clear() {
+         while (header.nextInRegion != header) {
+            remove(header.nextInRegion);
+         }
+      }
+   }
+
+   /**
+    * Window TinyLFU eviction policy.
+    * <p>
+    * New entries are admitted into a small LRU window. Entries leaving the window compete with the least recently used
+    * entry of the main region for a place in it, and the one which has been accessed less often, according to a
+    * {@link FrequencySketch}, is evicted. The main region is a segmented LRU: entries enter it on probation and are
+    * promoted to the protected part when accessed again. This keeps frequently used entries resident through scans
+    * and one-hit wonders, while the window still gives recently added entries a chance to build up frequency.
+    * <p>
+    * As with LRU, accesses are queued without locking the segment and are applied, and recorded in the sketch, in
+    * batches.
+    */
+   static final class TinyLFU<K, V> implements EvictionPolicy<K, V> {
+
+      /**
+       * Share of the segment capacity dedicated to the admission window.
+       */
+      private static final float WINDOW_RATIO = 0.01f;
+
+      /**
+       * Share of the main region dedicated to protected entries.
+       */
+      private static final float PROTECTED_RATIO = 0.8f;
+
+      private final Segment<K,V> segment;
+      private final ConcurrentLinkedQueue<HashEntry<K, V>> accessQueue;
+      private final AtomicInteger accessQueueSize = new AtomicInteger(0);
+      private final int maxBatchQueueSize;
+      private final float batchQueueSizeThreshold;
+      private final int maximumSize;
+      private final int maxWindowSize;
+      private final int maxProtectedSize;
+      private final RegionQueue<K, V> window = new RegionQueue<K, V>(Region.WINDOW);
+      private final RegionQueue<K, V> probation = new RegionQueue<K, V>(Region.PROBATION);
+      private final RegionQueue<K, V> protectedEntries = new RegionQueue<K, V>(Region.PROTECTED);
+      private final FrequencySketch sketch;
+      private final Set<HashEntry<K, V>> evicted;
+
+      /*
+       * While the segment removes the victim, the entries preceding it in its bucket are re-created: the removal of
+       * such an entry is deferred until its replacement arrives, which then takes its place.
+       */
+      private TinyLFUHashEntry<K, V> victim;
+      private TinyLFUHashEntry<K, V> recreated;
+
+      public TinyLFU(Segment<K,V> s, int capacity, int maxBatchSize, float batchThresholdFactor) {
+         this.segment = s;
+         this.maximumSize = Math.max(1, capacity);
+         this.maxWindowSize = Math.max(1, (int) (maximumSize * WINDOW_RATIO));
+         this.maxProtectedSize = (int) ((maximumSize - maxWindowSize) * PROTECTED_RATIO);
+         this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
+         this.batchQueueSizeThreshold = batchThresholdFactor * this.maxBatchQueueSize;
+         this.accessQueue = new ConcurrentLinkedQueue<HashEntry<K, V>>();
+         this.sketch = new FrequencySketch(maximumSize);
+         this.evicted = new HashSet<HashEntry<K, V>>();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         for (HashEntry<K, V> e : accessQueue) {
+            onAccess((TinyLFUHashEntry<K, V>) e);
+         }
+         accessQueue.clear();
+         accessQueueSize.set(0);
+         // callers may add to the returned set
+         Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>(evicted);
+         evicted.clear();
+         return evictedCopy;
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
+         TinyLFUHashEntry<K, V> entry = (TinyLFUHashEntry<K, V>) e;
+         if (victim != null) {
+            if (recreated != null) {
+               regionOf(recreated).replace(recreated, entry);
+               recreated = null;
+            } else {
+               window.addLast(entry);
+            }
+            return InfinispanCollections.emptySet();
+         }
+         sketch.increment(entry.hash);
+         window.addLast(entry);
+         if (window.size() > maxWindowSize) {
+            TinyLFUHashEntry<K, V> candidate = window.eldest();
+            window.remove(candidate);
+            probation.addLast(candidate);
+            while (residentSize() > maximumSize) {
+               evict(chooseVictim(candidate));
+            }
+         }
+         if (evicted.isEmpty()) {
+            return InfinispanCollections.emptySet();
+         }
+         Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>(evicted);
+         evicted.clear();
+         return evictedCopy;
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         return InfinispanCollections.emptySet();
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         accessQueue.add(e);
+         int sz = accessQueueSize.incrementAndGet();
+         return sz >= batchQueueSizeThreshold;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return accessQueueSize.get() >= maxBatchQueueSize;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> e) {
+         // queued accesses to e are skipped once it no longer belongs to a region
+         TinyLFUHashEntry<K, V> entry = (TinyLFUHashEntry<K, V>) e;
+         if (entry.region == null) {
+            return;
+         }
+         if (victim != null && entry != victim) {
+            recreated = entry;
+            return;
+         }
+         regionOf(entry).remove(entry);
+      }
+
+      @Override
+      public void clear() {
+         window.clear();
+         probation.clear();
+         protectedEntries.clear();
+         accessQueue.clear();
+         accessQueueSize.set(0);
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.TINY_LFU;
+      }
+
+      @Override
+      public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         return new TinyLFUHashEntry<K, V>(key, hash, next, value);
+      }
+
+      private void onAccess(TinyLFUHashEntry<K, V> entry) {
+         if (entry.region == null) {
+            // removed or evicted since it was accessed
+            return;
+         }
+         sketch.increment(entry.hash);
+         switch (entry.region) {
+            case WINDOW:
+               window.moveToLast(entry);
+               break;
+            case PROBATION:
+               probation.remove(entry);
+               protectedEntries.addLast(entry);
+               if (protectedEntries.size() > maxProtectedSize) {
+                  TinyLFUHashEntry<K, V> demoted = protectedEntries.eldest();
+                  protectedEntries.remove(demoted);
+                  probation.addLast(demoted);
+               }
+               break;
+            case PROTECTED:
+               protectedEntries.moveToLast(entry);
+               break;
+         }
+      }
+
+      /**
+       * The candidate that just left the window is evicted unless it has been accessed more often than the least
+       * recently used entry of the main region.
+       */
+      private TinyLFUHashEntry<K, V> chooseVictim(TinyLFUHashEntry<K, V> candidate) {
+         TinyLFUHashEntry<K, V> eldest = probation.eldestOtherThan(candidate);
+         if (eldest == null) {
+            eldest = protectedEntries.eldest();
+         }
+         if (eldest == null) {
+            return candidate.region != null ? candidate : window.eldest();
+         }
+         if (candidate.region == null) {
+            return eldest;
+         }
+         return sketch.frequency(candidate.hash) > sketch.frequency(eldest.hash) ? eldest : candidate;
+      }
+
+      private void evict(TinyLFUHashEntry<K, V> entry) {
+         victim = entry;
+         try {
+            segment.remove(entry.key, entry.hash, null, true);
+         } finally {
+            victim = null;
+            recreated = null;
+         }
+         if (entry.region != null) {
+            // not found in the segment
+            regionOf(entry).remove(entry);
+         } else {
+            evicted.add(entry);
+         }
+      }
+
+      private int residentSize() {
+         return window.size() + probation.size() + protectedEntries.size();
+      }
+
+      private RegionQueue<K, V> regionOf(TinyLFUHashEntry<K, V> entry) {
+         switch (entry.region) {
+            case WINDOW:
+               return window;
+            case PROBATION:
+               return probation;
+            default:
+               return protectedEntries;
+         }
+      }
+   }
+
    /**
     * Segments are specialized versions of hash tables.  This
     * subclasses from ReentrantLock opportunistically, just to
@@ -1516,8 +2055,9 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
             if (e != null && map.valueEquivalence.equals(oldValue, e.value)) {
                replaced = true;
                e.value = newValue;
+               evicted = onEntryUpdate(e);
                if (eviction.onEntryHit(e)) {
-                  evicted = attemptEviction(true);
+                  evicted = merge(evicted, attemptEviction(true));
                }
             }
             return replaced;
@@ -1540,8 +2080,9 @@ V replace(K key, int hash, V newValue) {
             if (e != null) {
                oldValue = e.value;
                e.value = newValue;
+               evicted = onEntryUpdate(e);
                if (eviction.onEntryHit(e)) {
-                  evicted = attemptEviction(true);
+                  evicted = merge(evicted, attemptEviction(true));
                }
             }
             return oldValue;
@@ -1556,7 +2097,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
          Set<HashEntry<K, V>> evicted = null;
          try {
             int c = count;
-            if (c++ > threshold && eviction.strategy() == Eviction.NONE) {
+            if (c++ > threshold && (eviction.strategy() == Eviction.NONE || map.entrySizeCalculator != null)) {
                rehash();
             }
             HashEntry<K, V>[] tab = table;
@@ -1573,6 +2114,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                if (!onlyIfAbsent) {
                   e.value = value;
                   eviction.onEntryHit(e);
+                  evicted = onEntryUpdate(e);
                }
             } else {
                oldValue = null;
@@ -1757,6 +2299,21 @@ void clear() {
          }
       }
 
+      private Set<HashEntry<K, V>> onEntryUpdate(HashEntry<K, V> e) {
+         Set<HashEntry<K, V>> evicted = eviction.onEntryUpdate(e);
+         return evicted.isEmpty() ? null : evicted;
+      }
+
+      private static <K, V> Set<HashEntry<K, V>> merge(Set<HashEntry<K, V>> evicted, Set<HashEntry<K, V>> newlyEvicted) {
+         if (evicted == null) {
+            return newlyEvicted;
+         }
+         if (newlyEvicted != null) {
+            evicted.addAll(newlyEvicted);
+         }
+         return evicted;
+      }
+
       private Set<HashEntry<K, V>> attemptEviction(boolean lockedAlready) {
          boolean shouldAttemptEvict = lockedAlready || tryLock();
 
@@ -1834,6 +2391,8 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
          Equivalence<K> keyEquivalence, Equivalence<V> valueEquivalence) {
       this.keyEquivalence = keyEquivalence;
       this.valueEquivalence = valueEquivalence;
+      this.entrySizeCalculator = null;
+      this.maxSegmentMemory = -1;
 
       if (capacity < 0 || concurrencyLevel <= 0) {
          throw new IllegalArgumentException();
@@ -1884,6 +2443,75 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
       }
    }
 
+   /**
+    * Creates a new, empty map bounded by the estimated memory retained by its entries rather than
+    * by their number. Only LRU eviction is supported for memory bounded maps.
+    *
+    * @param maxMemory
+    *            is the upper bound, in bytes, of the memory retained by the elements of this map
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param entrySizeCalculator
+    *            computes the estimated size of an element when it is written
+    *
+    * @throws IllegalArgumentException
+    *             if the maximum memory is not positive, the concurrencyLevel is nonpositive or the
+    *             eviction strategy is not LRU.
+    */
+   public BoundedConcurrentHashMap(long maxMemory, int concurrencyLevel,
+         Eviction evictionStrategy, EvictionListener<K, V> evictionListener,
+         EntrySizeCalculator<? super K, ? super V> entrySizeCalculator,
+         Equivalence<K> keyEquivalence, Equivalence<V> valueEquivalence) {
+      this.keyEquivalence = keyEquivalence;
+      this.valueEquivalence = valueEquivalence;
+
+      if (maxMemory <= 0 || concurrencyLevel <= 0) {
+         throw new IllegalArgumentException();
+      }
+
+      if (evictionStrategy != Eviction.LRU) {
+         throw new IllegalArgumentException("Only LRU eviction can be used to bound a map by memory");
+      }
+
+      if (evictionListener == null || entrySizeCalculator == null) {
+         throw new IllegalArgumentException();
+      }
+
+      this.evictionListener = evictionListener;
+      this.entrySizeCalculator = entrySizeCalculator;
+
+      if (concurrencyLevel > MAX_SEGMENTS) {
+         concurrencyLevel = MAX_SEGMENTS;
+      }
+
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      this.segments = Segment.newArray(ssize);
+
+      // the number of entries is not bounded, segment tables grow as needed
+      this.evictCap = Integer.MAX_VALUE;
+      this.maxSegmentMemory = Math.max(1, maxMemory / ssize);
+
+      for (int i = 0; i < this.segments.length; ++i) {
+         this.segments[i] = new Segment<K, V>(16, DEFAULT_LOAD_FACTOR, evictionStrategy, this);
+      }
+   }
+
    /**
     * Creates a new, empty map with the specified maximum capacity, load factor, concurrency
     * level and LRU eviction policy.
@@ -0,0 +1,738 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.commons.equivalence.ByteArrayEquivalence;
+import org.infinispan.commons.equivalence.Equivalence;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent map for <tt>byte[]</tt> keys compared by content, as with {@link ByteArrayEquivalence}, which stores
+ * its mappings in open addressing tables rather than in one node per entry.
+ * <p/>
+ * Like {@link BoundedConcurrentHashMap}, the map is divided in segments, each guarded by a lock for updates and read
+ * without locking. Each segment keeps the hash codes of its keys in an <tt>int[]</tt> and the keys and values in
+ * parallel arrays, probed linearly, so that a mapping costs two references and an int instead of a node, and the
+ * hash code of a key is never computed again once the key is in the map. Removed mappings leave a marker behind,
+ * which is reused by later insertions and dropped when the table is rehashed.
+ * <p/>
+ * All the keys must be byte arrays, which must not be modified while they are in the map. Neither keys nor values can
+ * be null. Iterators are weakly consistent, like those of {@link java.util.concurrent.ConcurrentHashMap}.
+ *
+ * @since 6.0
+ */
+public class ByteArrayKeyConcurrentHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+   static final int DEFAULT_INITIAL_CAPACITY = 16;
+   static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+   static final int MAXIMUM_CAPACITY = 1 << 30;
+   static final int MAX_SEGMENTS = 1 << 16;
+   static final int MIN_TABLE_CAPACITY = 4;
+
+   /**
+    * Marks the slot of a removed mapping, so that the keys stored after it in the same probe sequence can still be
+    * found.
+    */
+   static final Object REMOVED = new Object();
+
+   final Segment<V>[] segments;
+   final int segmentShift;
+   final int segmentMask;
+   final Equivalence<V> valueEquivalence;
+
+   private transient Set<K> keySet;
+   private transient Collection<V> values;
+   private transient Set<Map.Entry<K, V>> entrySet;
+
+   @SuppressWarnings("unchecked")
+   public ByteArrayKeyConcurrentHashMap(int initialCapacity, int concurrencyLevel, Equivalence<V> valueEquivalence) {
+      if (initialCapacity < 0 || concurrencyLevel <= 0)
+         throw new IllegalArgumentException();
+      if (concurrencyLevel > MAX_SEGMENTS)
+         concurrencyLevel = MAX_SEGMENTS;
+      if (initialCapacity > MAXIMUM_CAPACITY)
+         initialCapacity = MAXIMUM_CAPACITY;
+
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      this.valueEquivalence = valueEquivalence;
+      segments = new Segment[ssize];
+
+      int perSegment = initialCapacity / ssize;
+      if (perSegment * ssize < initialCapacity)
+         ++perSegment;
+      for (int i = 0; i < ssize; i++)
+         segments[i] = new Segment<V>(tableCapacityFor(perSegment), valueEquivalence);
+   }
+
+   public ByteArrayKeyConcurrentHashMap(Equivalence<V> valueEquivalence) {
+      this(DEFAULT_INITIAL_CAPACITY, DEFAULT_CONCURRENCY_LEVEL, valueEquivalence);
+   }
+
+   /**
+    * @return the smallest power of two table capacity which holds the given number of mappings below the load factor
+    */
+   static int tableCapacityFor(int mappings) {
+      int capacity = MIN_TABLE_CAPACITY;
+      while (capacity < MAXIMUM_CAPACITY && capacity - (capacity >>> 2) <= mappings)
+         capacity <<= 1;
+      return capacity;
+   }
+
+   static int hash(Object key) {
+      int h = Arrays.hashCode((byte[]) key);
+      // spread the bits, as the segment is chosen by the high bits and the slot by the low bits
+      h += (h << 15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h << 3);
+      h ^= (h >>> 6);
+      h += (h << 2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   final Segment<V> segmentFor(int hash) {
+      return segments[(hash >>> segmentShift) & segmentMask];
+   }
+
+   private static Object checkKey(Object key) {
+      if (key == null)
+         throw new NullPointerException();
+      return key;
+   }
+
+   /**
+    * The open addressing table of a segment. The arrays are only written while holding the segment lock, and a table
+    * is never written again once it has been replaced by a larger one.
+    */
+   static final class Table {
+      final int[] hashes;
+      final Object[] keys;
+      final Object[] values;
+      final int mask;
+
+      Table(int capacity) {
+         hashes = new int[capacity];
+         keys = new Object[capacity];
+         values = new Object[capacity];
+         mask = capacity - 1;
+      }
+   }
+
+   /**
+    * Segments are specialized versions of hash tables, which use the same locking and publication scheme as the
+    * segments of {@link BoundedConcurrentHashMap}: updates hold the lock and write the volatile <tt>count</tt> last,
+    * reads start by reading <tt>count</tt> and only lock when they observe a mapping being inserted.
+    */
+   static final class Segment<V> extends ReentrantLock {
+
+      private static final long serialVersionUID = 5207829234977119743L;
+
+      /**
+       * The number of mappings in this segment.
+       */
+      transient volatile int count;
+
+      /**
+       * The number of slots which are either in use or hold a removal marker.
+       */
+      transient int used;
+
+      transient volatile Table table;
+
+      final Equivalence<V> valueEquivalence;
+
+      Segment(int capacity, Equivalence<V> valueEquivalence) {
+         this.valueEquivalence = valueEquivalence;
+         table = new Table(capacity);
+      }
+
+      /**
+       * @return the slot of the key in the table, or -1
+       */
+      static int indexOf(Table t, Object key, int hash) {
+         byte[] k = (byte[]) key;
+         int i = hash & t.mask;
+         for (;;) {
+            Object stored = t.keys[i];
+            if (stored == null)
+               return -1;
+            if (t.hashes[i] == hash && stored != REMOVED && (stored == k || Arrays.equals((byte[]) stored, k)))
+               return i;
+            i = (i + 1) & t.mask;
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      V get(Object key, int hash) {
+         if (count != 0) { // read-volatile
+            Table t = table;
+            int i = indexOf(t, key, hash);
+            if (i >= 0) {
+               Object v = t.values[i];
+               if (v != null)
+                  return (V) v;
+               return readValueUnderLock(key, hash); // recheck
+            }
+         }
+         return null;
+      }
+
+      boolean containsKey(Object key, int hash) {
+         return get(key, hash) != null;
+      }
+
+      boolean containsValue(Object value) {
+         if (count != 0) { // read-volatile
+            Object[] vs = table.values;
+            for (Object v : vs) {
+               if (v != null && valueEquivalence.equals(castValue(v), value))
+                  return true;
+            }
+         }
+         return false;
+      }
+
+      /**
+       * Reads the value of a mapping under lock, when a concurrent insertion has published its key but not yet its
+       * value to this thread.
+       */
+      @SuppressWarnings("unchecked")
+      V readValueUnderLock(Object key, int hash) {
+         lock();
+         try {
+            Table t = table;
+            int i = indexOf(t, key, hash);
+            return i < 0 ? null : (V) t.values[i];
+         } finally {
+            unlock();
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      V put(Object key, int hash, V value, boolean onlyIfAbsent) {
+         lock();
+         try {
+            Table t = table;
+            int c = count;
+            int i = hash & t.mask;
+            int free = -1;
+            for (;;) {
+               Object stored = t.keys[i];
+               if (stored == null)
+                  break;
+               if (stored == REMOVED) {
+                  if (free < 0)
+                     free = i;
+               } else if (t.hashes[i] == hash && Arrays.equals((byte[]) stored, (byte[]) key)) {
+                  V oldValue = (V) t.values[i];
+                  if (!onlyIfAbsent) {
+                     t.values[i] = value;
+                     count = c; // write-volatile
+                  }
+                  return oldValue;
+               }
+               i = (i + 1) & t.mask;
+            }
+            if (free < 0) {
+               if (used + 1 > t.keys.length - (t.keys.length >>> 2)) {
+                  t = rehash(c + 1);
+                  free = freeSlot(t, hash);
+               } else {
+                  free = i;
+                  used++;
+               }
+            }
+            // the key is stored after the hash and the value before the count, so that readers which see the key
+            // either see the value or recheck under the lock
+            t.hashes[free] = hash;
+            t.values[free] = value;
+            t.keys[free] = key;
+            count = c + 1; // write-volatile
+            return null;
+         } finally {
+            unlock();
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      V replace(Object key, int hash, V newValue) {
+         lock();
+         try {
+            Table t = table;
+            int i = indexOf(t, key, hash);
+            if (i < 0)
+               return null;
+            V oldValue = (V) t.values[i];
+            t.values[i] = newValue;
+            count = count; // write-volatile
+            return oldValue;
+         } finally {
+            unlock();
+         }
+      }
+
+      boolean replace(Object key, int hash, V oldValue, V newValue) {
+         lock();
+         try {
+            Table t = table;
+            int i = indexOf(t, key, hash);
+            if (i < 0 || !valueEquivalence.equals(castValue(t.values[i]), oldValue))
+               return false;
+            t.values[i] = newValue;
+            count = count; // write-volatile
+            return true;
+         } finally {
+            unlock();
+         }
+      }
+
+      /**
+       * Removes the mapping of a key, only if it is mapped to the given value when the value is not null.
+       */
+      @SuppressWarnings("unchecked")
+      V remove(Object key, int hash, Object value) {
+         lock();
+         try {
+            Table t = table;
+            int i = indexOf(t, key, hash);
+            if (i < 0)
+               return null;
+            V oldValue = (V) t.values[i];
+            if (value != null && !valueEquivalence.equals(oldValue, value))
+               return null;
+            t.keys[i] = REMOVED;
+            t.values[i] = null;
+            count = count - 1; // write-volatile
+            return oldValue;
+         } finally {
+            unlock();
+         }
+      }
+
+      void clear() {
+         if (count != 0) {
+            lock();
+            try {
+               table = new Table(MIN_TABLE_CAPACITY);
+               used = 0;
+               count = 0; // write-volatile
+            } finally {
+               unlock();
+            }
+         }
+      }
+
+      /**
+       * Copies the mappings to a new table sized for the given number of mappings, dropping the removal markers.
+       * Readers keep probing the old table, which is left untouched.
+       */
+      private Table rehash(int mappings) {
+         Table old = table;
+         Table t = new Table(tableCapacityFor(mappings));
+         for (int i = 0; i < old.keys.length; i++) {
+            Object k = old.keys[i];
+            if (k != null && k != REMOVED) {
+               int j = freeSlot(t, old.hashes[i]);
+               t.hashes[j] = old.hashes[i];
+               t.values[j] = old.values[i];
+               t.keys[j] = k;
+            }
+         }
+         used = mappings - 1;
+         table = t;
+         return t;
+      }
+
+      private int freeSlot(Table t, int hash) {
+         int i = hash & t.mask;
+         while (t.keys[i] != null)
+            i = (i + 1) & t.mask;
+         if (t == table)
+            used++;
+         return i;
+      }
+
+      @SuppressWarnings("unchecked")
+      private V castValue(Object v) {
+         return (V) v;
+      }
+   }
+
+   @Override
+   public V get(Object key) {
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).get(key, hash);
+   }
+
+   @Override
+   public boolean containsKey(Object key) {
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).containsKey(key, hash);
+   }
+
+   @Override
+   public boolean containsValue(Object value) {
+      if (value == null)
+         throw new NullPointerException();
+      for (Segment<V> segment : segments) {
+         if (segment.containsValue(value))
+            return true;
+      }
+      return false;
+   }
+
+   @Override
+   public V put(K key, V value) {
+      if (value == null)
+         throw new NullPointerException();
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).put(key, hash, value, false);
+   }
+
+   @Override
+   public V putIfAbsent(K key, V value) {
+      if (value == null)
+         throw new NullPointerException();
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).put(key, hash, value, true);
+   }
+
+   @Override
+   public V remove(Object key) {
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).remove(key, hash, null);
+   }
+
+   @Override
+   public boolean remove(Object key, Object value) {
+      int hash = hash(checkKey(key));
+      return value != null && segmentFor(hash).remove(key, hash, value) != null;
+   }
+
+   @Override
+   public boolean replace(K key, V oldValue, V newValue) {
+      if (oldValue == null || newValue == null)
+         throw new NullPointerException();
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).replace(key, hash, oldValue, newValue);
+   }
+
+   @Override
+   public V replace(K key, V value) {
+      if (value == null)
+         throw new NullPointerException();
+      int hash = hash(checkKey(key));
+      return segmentFor(hash).replace(key, hash, value);
+   }
+
+   @Override
+   public int size() {
+      long sum = 0;
+      for (Segment<V> segment : segments)
+         sum += segment.count;
+      return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+   }
+
+   @Override
+   public boolean isEmpty() {
+      for (Segment<V> segment : segments) {
+         if (segment.count != 0)
+            return false;
+      }
+      return true;
+   }
+
+   @Override
+   public void clear() {
+      for (Segment<V> segment : segments)
+         segment.clear();
+   }
+
+   @Override
+   public Set<K> keySet() {
+      Set<K> ks = keySet;
+      return ks != null ? ks : (keySet = new KeySet());
+   }
+
+   @Override
+   public Collection<V> values() {
+      Collection<V> vs = values;
+      return vs != null ? vs : (values = new Values());
+   }
+
+   @Override
+   public Set<Map.Entry<K, V>> entrySet() {
+      Set<Map.Entry<K, V>> es = entrySet;
+      return es != null ? es : (entrySet = new EntrySet());
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (o == this)
+         return true;
+      if (!(o instanceof Map))
+         return false;
+      Map<?, ?> m = (Map<?, ?>) o;
+      if (m.size() != size())
+         return false;
+      for (Map.Entry<K, V> e : entrySet()) {
+         Object other = m.get(e.getKey());
+         if (other == null || !valueEquivalence.equals(e.getValue(), other))
+            return false;
+      }
+      return true;
+   }
+
+   @Override
+   public int hashCode() {
+      int h = 0;
+      for (Map.Entry<K, V> e : entrySet())
+         h += e.hashCode();
+      return h;
+   }
+
+   /**
+    * Iterates over the tables of the segments in turn, skipping empty slots and removal markers.
+    */
+   abstract class HashIterator {
+      int nextSegment;
+      Table currentTable;
+      int nextSlot;
+      K nextKey;
+      V nextValue;
+      K lastReturned;
+
+      HashIterator() {
+         advance();
+      }
+
+      @SuppressWarnings("unchecked")
+      final void advance() {
+         nextKey = null;
+         for (;;) {
+            if (currentTable != null) {
+               Object[] keys = currentTable.keys;
+               while (nextSlot < keys.length) {
+                  int i = nextSlot++;
+                  Object k = keys[i];
+                  if (k != null && k != REMOVED) {
+                     Object v = currentTable.values[i];
+                     if (v != null) {
+                        nextKey = (K) k;
+                        nextValue = (V) v;
+                        return;
+                     }
+                  }
+               }
+            }
+            if (nextSegment == segments.length)
+               return;
+            currentTable = segments[nextSegment++].table;
+            nextSlot = 0;
+         }
+      }
+
+      public boolean hasNext() {
+         return nextKey != null;
+      }
+
+      final Map.Entry<K, V> nextEntry() {
+         if (nextKey == null)
+            throw new NoSuchElementException();
+         Map.Entry<K, V> e = new WriteThroughEntry(nextKey, nextValue);
+         lastReturned = nextKey;
+         advance();
+         return e;
+      }
+
+      public void remove() {
+         if (lastReturned == null)
+            throw new IllegalStateException();
+         ByteArrayKeyConcurrentHashMap.this.remove(lastReturned);
+         lastReturned = null;
+      }
+   }
+
+   final class KeyIterator extends HashIterator implements Iterator<K> {
+      @Override
+      public K next() {
+         return nextEntry().getKey();
+      }
+   }
+
+   final class ValueIterator extends HashIterator implements Iterator<V> {
+      @Override
+      public V next() {
+         return nextEntry().getValue();
+      }
+   }
+
+   final class EntryIterator extends HashIterator implements Iterator<Map.Entry<K, V>> {
+      @Override
+      public Map.Entry<K, V> next() {
+         return nextEntry();
+      }
+   }
+
+   /**
+    * An entry which writes its value through to the map, comparing keys by content and values with the value
+    * equivalence.
+    */
+   final class WriteThroughEntry implements Map.Entry<K, V> {
+      private final K key;
+      private V value;
+
+      WriteThroughEntry(K key, V value) {
+         this.key = key;
+         this.value = value;
+      }
+
+      @Override
+      public K getKey() {
+         return key;
+      }
+
+      @Override
+      public V getValue() {
+         return value;
+      }
+
+      @Override
+      public V setValue(V value) {
+         if (value == null)
+            throw new NullPointerException();
+         V v = this.value;
+         this.value = value;
+         put(key, value);
+         return v;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Map.Entry))
+            return false;
+         Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+         return ByteArrayEquivalence.INSTANCE.equals((byte[]) key, e.getKey())
+               && valueEquivalence.equals(value, e.getValue());
+      }
+
+      @Override
+      public int hashCode() {
+         return ByteArrayEquivalence.INSTANCE.hashCode(key) ^ valueEquivalence.hashCode(value);
+      }
+
+      @Override
+      public String toString() {
+         return ByteArrayEquivalence.INSTANCE.toString(key) + "=" + valueEquivalence.toString(value);
+      }
+   }
+
+   final class KeySet extends AbstractSet<K> {
+      @Override
+      public Iterator<K> iterator() {
+         return new KeyIterator();
+      }
+
+      @Override
+      public int size() {
+         return ByteArrayKeyConcurrentHashMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return containsKey(o);
+      }
+
+      @Override
+      public boolean remove(Object o) {
+         return ByteArrayKeyConcurrentHashMap.this.remove(o) != null;
+      }
+
+      @Override
+      public void clear() {
+         ByteArrayKeyConcurrentHashMap.this.clear();
+      }
+   }
+
+   final class Values extends AbstractCollection<V> {
+      @Override
+      public Iterator<V> iterator() {
+         return new ValueIterator();
+      }
+
+      @Override
+      public int size() {
+         return ByteArrayKeyConcurrentHashMap.this.size();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         return containsValue(o);
+      }
+
+      @Override
+      public boolean remove(Object o) {
+         for (Iterator<Map.Entry<K, V>> it = new EntryIterator(); it.hasNext(); ) {
+            Map.Entry<K, V> e = it.next();
+            if (valueEquivalence.equals(e.getValue(), o)
+                  && ByteArrayKeyConcurrentHashMap.this.remove(e.getKey(), e.getValue()))
+               return true;
+         }
+         return false;
+      }
+
+      @Override
+      public void clear() {
+         ByteArrayKeyConcurrentHashMap.this.clear();
+      }
+   }
+
+   final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+         return new EntryIterator();
+      }
+
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry))
+            return false;
+         Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+         V v = get(e.getKey());
+         return v != null && valueEquivalence.equals(v, e.getValue());
+      }
+
+      @Override
+      public boolean remove(Object o) {
+         if (!(o instanceof Map.Entry))
+            return false;
+         Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+         return ByteArrayKeyConcurrentHashMap.this.remove(e.getKey(), e.getValue());
+      }
+
+      @Override
+      public int size() {
+         return ByteArrayKeyConcurrentHashMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+         ByteArrayKeyConcurrentHashMap.this.clear();
+      }
+   }
+}
@@ -0,0 +1,96 @@
+package org.infinispan.util.concurrent;
+
+/**
+ * A probabilistic estimate of how often each key has been accessed, used by the TinyLFU eviction policy of
+ * {@link BoundedConcurrentHashMap} to decide whether a new entry should be admitted at the expense of an existing one.
+ * <p/>
+ * This is a count-min sketch with four 4-bit counters per key, packed sixteen to a <tt>long</tt>. Once the number of
+ * recorded accesses reaches ten times the capacity all counters are halved, so that the popularity of keys decays
+ * over time and recently popular keys can displace historically popular ones.
+ * <p/>
+ * Instances are not thread safe; the eviction policy only uses them while holding the segment lock.
+ *
+ * @since 6.0
+ */
+final class FrequencySketch {
+
+   private static final long[] SEEDS = {
+         0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+   private static final long RESET_MASK = 0x7777777777777777L;
+   private static final int MAX_COUNT = 15;
+
+   private final long[] table;
+   private final int tableMask;
+   private final int sampleSize;
+   private int size;
+
+   FrequencySketch(int capacity) {
+      int maximum = Math.max(1, Math.min(capacity, 1 << 30));
+      int length = 1;
+      while (length < maximum) {
+         length <<= 1;
+      }
+      table = new long[length];
+      tableMask = length - 1;
+      sampleSize = maximum <= Integer.MAX_VALUE / 10 ? 10 * maximum : Integer.MAX_VALUE;
+   }
+
+   /**
+    * @return the estimated number of accesses to the key with the given hash, between 0 and 15
+    */
+   int frequency(int hash) {
+      int h = spread(hash);
+      int start = (h & 3) << 2;
+      int frequency = MAX_COUNT;
+      for (int i = 0; i < 4; i++) {
+         int index = indexOf(h, i);
+         int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+         frequency = Math.min(frequency, count);
+      }
+      return frequency;
+   }
+
+   /**
+    * Records an access to the key with the given hash, ageing all counters if the sample period has elapsed.
+    */
+   void increment(int hash) {
+      int h = spread(hash);
+      int start = (h & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+         added |= incrementAt(indexOf(h, i), start + i);
+      }
+      if (added && ++size >= sampleSize) {
+         reset();
+      }
+   }
+
+   private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+         table[index] += 1L << offset;
+         return true;
+      }
+      return false;
+   }
+
+   private void reset() {
+      for (int i = 0; i < table.length; i++) {
+         table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size >>>= 1;
+   }
+
+   private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+   }
+
+   private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+   }
+}
@@ -934,5 +934,25 @@ void asyncStoreShutdownTimeoutTooHigh(long configuredAsyncStopTimeout,
 
    @Message(value = "Invalid Cache Loader class: %s", id = 253)
    CacheConfigurationException invalidCacheLoaderClass(String name);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Log file %s contains an incomplete or corrupt record at offset %d, the records following it are discarded", id = 254)
+   void corruptLogFileRecord(String file, long offset);
+
+   @LogMessage(level = ERROR)
+   @Message(value = "Error compacting log file %s", id = 255)
+   void errorCompactingLogFile(String file, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to load the index file %s, the index is rebuilt from the data file", id = 256)
+   void errorLoadingIndex(String file, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to save the index file %s", id = 257)
+   void errorSavingIndex(String file, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "The Bloom filter is disabled because store %s is shared or cannot iterate over its keys", id = 258)
+   void bloomFilterNotSupported(String storeType);
 }
 
@@ -0,0 +1,27 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the data container tests against a subclass which only provides its own map, and relies on the inherited
+ * expiration handling.
+ *
+ * @since 6.0
+ */
+@Test(groups = "unit", testName = "container.CustomMapDataContainerTest")
+public class CustomMapDataContainerTest extends SimpleDataContainerTest {
+
+   @Override
+   protected DataContainer createContainer() {
+      DefaultDataContainer dc = new DefaultDataContainer(new ConcurrentHashMap<Object, InternalCacheEntry>(), 16,
+                                                         AnyEquivalence.getInstance()) {};
+      InternalEntryFactoryImpl internalEntryFactory = new InternalEntryFactoryImpl();
+      internalEntryFactory.injectTimeService(TIME_SERVICE);
+      dc.initialize(null, null, internalEntryFactory, null, null, TIME_SERVICE);
+      return dc;
+   }
+}
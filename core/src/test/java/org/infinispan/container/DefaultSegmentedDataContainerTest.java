@@ -0,0 +1,122 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.commons.hash.MurmurHash3;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.distribution.TestAddress;
+import org.infinispan.distribution.ch.DefaultConsistentHash;
+import org.infinispan.distribution.ch.DefaultConsistentHashFactory;
+import org.infinispan.distribution.ch.ReplicatedConsistentHash;
+import org.infinispan.distribution.ch.ReplicatedConsistentHashFactory;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.DefaultSegmentedDataContainerTest")
+public class DefaultSegmentedDataContainerTest extends AbstractInfinispanTest {
+
+   private static final int NUM_SEGMENTS = 16;
+   private static final int NUM_KEYS = 1000;
+
+   private DefaultSegmentedDataContainer dc;
+   private DefaultConsistentHash ch;
+
+   @BeforeMethod
+   public void setUp() {
+      dc = new DefaultSegmentedDataContainer(16, new MurmurHash3(), NUM_SEGMENTS,
+            AnyEquivalence.getInstance(), AnyEquivalence.getInstance());
+      InternalEntryFactoryImpl entryFactory = new InternalEntryFactoryImpl();
+      entryFactory.injectTimeService(TIME_SERVICE);
+      dc.initialize(null, null, entryFactory, null, null, TIME_SERVICE);
+      List<Address> members = Arrays.<Address>asList(new TestAddress(0), new TestAddress(1));
+      ch = new DefaultConsistentHashFactory().create(new MurmurHash3(), 1, NUM_SEGMENTS, members, null);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         dc.put("k" + i, "v" + i, new EmbeddedMetadata.Builder().build());
+      }
+   }
+
+   public void testEntriesFiledBySegment() {
+      assertTrue(dc.isPartitionedBy(ch));
+      int total = 0;
+      for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+         int count = 0;
+         for (Iterator<InternalCacheEntry> it = dc.iterator(segment); it.hasNext(); ) {
+            assertEquals(segment, ch.getSegment(it.next().getKey()));
+            count++;
+         }
+         assertEquals(count, dc.size(segment));
+         total += count;
+      }
+      assertEquals(NUM_KEYS, total);
+   }
+
+   public void testWholeContainerView() {
+      assertEquals(NUM_KEYS, dc.size());
+      Set<Object> keys = new HashSet<Object>();
+      for (InternalCacheEntry ice : dc) {
+         keys.add(ice.getKey());
+      }
+      assertEquals(NUM_KEYS, keys.size());
+      assertEquals(keys, new HashSet<Object>(dc.keySet()));
+      assertEquals(NUM_KEYS, dc.values().size());
+      assertEquals("v7", dc.get("k7").getValue());
+      assertEquals("v7", dc.remove("k7").getValue());
+      assertNull(dc.get("k7"));
+      assertEquals(NUM_KEYS - 1, dc.size());
+   }
+
+   public void testClear() {
+      dc.clear();
+      assertEquals(0, dc.size());
+      for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+         assertEquals(0, dc.size(segment));
+         assertFalse(dc.iterator(segment).hasNext());
+      }
+      assertNull(dc.get("k0"));
+   }
+
+   public void testPurgeExpiredBySegment() throws InterruptedException {
+      int segment = ch.getSegment("k0");
+      for (int i = 0; i < NUM_KEYS; i++) {
+         dc.put("mortal" + i, "v" + i, new EmbeddedMetadata.Builder().lifespan(1).build());
+      }
+      Thread.sleep(100);
+      int mortalInSegment = dc.size(segment) - countImmortal(segment);
+      assertEquals(mortalInSegment, dc.purgeExpired(segment));
+      assertEquals(countImmortal(segment), dc.size(segment));
+      assertEquals(0, dc.purgeExpired(segment));
+      dc.purgeExpired();
+      assertEquals(NUM_KEYS, dc.size());
+   }
+
+   public void testOtherConsistentHashesRejected() {
+      List<Address> members = Arrays.<Address>asList(new TestAddress(0), new TestAddress(1));
+      DefaultConsistentHash otherSegments = new DefaultConsistentHashFactory().create(
+            new MurmurHash3(), 1, NUM_SEGMENTS * 2, members, null);
+      assertFalse(dc.isPartitionedBy(otherSegments));
+      ReplicatedConsistentHash replicated = new ReplicatedConsistentHashFactory().create(
+            new MurmurHash3(), 1, NUM_SEGMENTS, members, null);
+      assertFalse(dc.isPartitionedBy(replicated));
+   }
+
+   private int countImmortal(int segment) {
+      int count = 0;
+      for (Iterator<InternalCacheEntry> it = dc.iterator(segment); it.hasNext(); ) {
+         if (!it.next().canExpire()) count++;
+      }
+      return count;
+   }
+}
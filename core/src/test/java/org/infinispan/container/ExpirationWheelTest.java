@@ -0,0 +1,143 @@
+package org.infinispan.container;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.ExpirationWheelTest")
+public class ExpirationWheelTest extends AbstractInfinispanTest {
+
+   private static final long START = 1000000000L;
+
+   private ExpirationWheel wheel;
+   private RecordingHandler handler;
+
+   @BeforeMethod
+   public void setUp() {
+      wheel = new ExpirationWheel(16, AnyEquivalence.getInstance());
+      handler = new RecordingHandler();
+      wheel.expire(START, handler);
+   }
+
+   public void testDeadlinesReachedInOrder() {
+      long[] delays = {1, 100, 5000, 300000, 7200000, 864000000L};
+      for (int i = 0; i < delays.length; i++) {
+         handler.expiryTimes.put(i, START + delays[i]);
+         wheel.schedule(i, START + delays[i]);
+      }
+      for (int i = 0; i < delays.length; i++) {
+         wheel.expire(START + delays[i] - 1, handler);
+         assertEquals(i, handler.reached.size());
+         wheel.expire(START + delays[i], handler);
+         assertEquals(i + 1, handler.reached.size());
+         assertEquals(i, handler.reached.get(i));
+      }
+      assertEquals(0, wheel.size());
+   }
+
+   public void testDeadlinesReachedWhenAdvancingInSmallSteps() {
+      int keys = 2000;
+      for (int i = 0; i < keys; i++) {
+         long expiryTime = START + 37 * i;
+         handler.expiryTimes.put(i, expiryTime);
+         wheel.schedule(i, expiryTime);
+      }
+      for (long now = START; now <= START + 37 * keys; now += 50) {
+         wheel.expire(now, handler);
+         for (Object key : handler.reached) {
+            assertTrue(handler.expiryTimes.get(key) <= now);
+         }
+         assertEquals(Math.min(keys, (now - START) / 37 + 1), handler.reached.size());
+      }
+      wheel.expire(START + 37 * keys, handler);
+      assertEquals(keys, handler.reached.size());
+   }
+
+   public void testOnlyEarliestDeadlineKept() {
+      handler.expiryTimes.put("k", START + 1000);
+      wheel.schedule("k", START + 5000);
+      wheel.schedule("k", START + 1000);
+      wheel.schedule("k", START + 3000);
+      assertEquals(1, wheel.size());
+      wheel.expire(START + 10000, handler);
+      assertEquals(1, handler.reached.size());
+   }
+
+   public void testRescheduledWhenNotExpired() {
+      // the entry has been touched: its expiration time moved on
+      handler.expiryTimes.put("k", START + 10000);
+      wheel.schedule("k", START + 1000);
+      wheel.expire(START + 2000, handler);
+      assertEquals(0, handler.reached.size());
+      assertEquals(1, wheel.size());
+      wheel.expire(START + 10000, handler);
+      assertEquals(1, handler.reached.size());
+      assertEquals(0, wheel.size());
+   }
+
+   public void testUnscheduled() {
+      handler.expiryTimes.put("k", START + 1000);
+      wheel.schedule("k", START + 1000);
+      wheel.unschedule("k");
+      wheel.expire(START + 2000, handler);
+      assertEquals(0, handler.reached.size());
+   }
+
+   public void testClockJump() {
+      handler.expiryTimes.put("k", START + 1000);
+      wheel.schedule("k", START + 1000);
+      wheel.expire(START + 100L * 365 * 24 * 3600 * 1000, handler);
+      assertEquals(1, handler.reached.size());
+   }
+
+   public void testClear() {
+      handler.expiryTimes.put("k", START + 1000);
+      wheel.schedule("k", START + 1000);
+      wheel.expire(START, handler);
+      wheel.clear();
+      wheel.expire(START + 2000, handler);
+      assertEquals(0, handler.reached.size());
+      assertEquals(0, wheel.size());
+   }
+
+   public void testContainerUnschedulesRemovedKeys() {
+      DefaultDataContainer dc = new DefaultDataContainer(16);
+      InternalEntryFactoryImpl internalEntryFactory = new InternalEntryFactoryImpl();
+      internalEntryFactory.injectTimeService(TIME_SERVICE);
+      dc.initialize(null, null, internalEntryFactory, null, null, TIME_SERVICE);
+      for (int i = 0; i < 100; i++) {
+         dc.put(i, "v", new EmbeddedMetadata.Builder().lifespan(1, TimeUnit.HOURS).build());
+      }
+      assertEquals(100, dc.expirationWheel.size());
+      for (int i = 0; i < 100; i++) {
+         dc.remove(i);
+      }
+      assertEquals(0, dc.expirationWheel.size());
+   }
+
+   private static class RecordingHandler implements ExpirationWheel.ExpirationHandler {
+      final Map<Object, Long> expiryTimes = new HashMap<Object, Long>();
+      final List<Object> reached = new ArrayList<Object>();
+
+      @Override
+      public long deadlineReached(Object key, long now) {
+         long expiryTime = expiryTimes.get(key);
+         if (expiryTime <= now) {
+            reached.add(key);
+            return -1;
+         }
+         return expiryTime;
+      }
+   }
+}
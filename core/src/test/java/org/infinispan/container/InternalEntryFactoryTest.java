@@ -0,0 +1,132 @@
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.MortalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataMortalCacheEntry;
+import org.infinispan.container.entries.versioned.Versioned;
+import org.infinispan.container.entries.versioned.VersionedImmortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedMortalCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientCacheEntry;
+import org.infinispan.container.entries.versioned.VersionedTransientMortalCacheEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.container.versioning.NumericVersion;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.InternalEntryFactoryTest")
+public class InternalEntryFactoryTest extends AbstractInfinispanTest {
+
+   private static final EntryVersion VERSION = new NumericVersion(7);
+
+   private InternalEntryFactoryImpl factory;
+
+   @BeforeMethod
+   public void setUp() {
+      factory = new InternalEntryFactoryImpl();
+      factory.injectTimeService(TIME_SERVICE);
+   }
+
+   public void testVersionedEmbeddedMetadataFlattened() {
+      assertTrue(factory.create("k", "v", metadata(-1, -1)) instanceof VersionedImmortalCacheEntry);
+      assertTrue(factory.create("k", "v", metadata(1000, -1)) instanceof VersionedMortalCacheEntry);
+      assertTrue(factory.create("k", "v", metadata(-1, 1000)) instanceof VersionedTransientCacheEntry);
+      assertTrue(factory.create("k", "v", metadata(1000, 500)) instanceof VersionedTransientMortalCacheEntry);
+   }
+
+   public void testMetadataRebuilt() {
+      Metadata metadata = metadata(1000, 500);
+      InternalCacheEntry ice = factory.create("k", "v", metadata);
+      assertEquals(metadata, ice.getMetadata());
+      assertEquals(1000, ice.getLifespan());
+      assertEquals(500, ice.getMaxIdle());
+      assertEquals(VERSION, ((Versioned) ice).getVersion());
+   }
+
+   public void testMetadataBuiltOnce() {
+      InternalCacheEntry ice = factory.create("k", "v", metadata(1000, -1));
+      Metadata metadata = ice.getMetadata();
+      assertSame(metadata, ice.getMetadata());
+      NumericVersion newVersion = new NumericVersion(8);
+      ((Versioned) ice).setVersion(newVersion);
+      assertEquals(newVersion, ice.getMetadata().version());
+      assertSame(ice.getMetadata(), ice.getMetadata());
+   }
+
+   public void testTimestampsKept() {
+      InternalCacheEntry ice = factory.create("k", "v", VERSION, 100, 1000, 200, 500);
+      assertEquals(100, ice.getCreated());
+      assertEquals(200, ice.getLastUsed());
+      assertEquals(700, ice.getExpiryTime());
+      assertTrue(ice.isExpired(701));
+      assertTrue(!ice.isExpired(700));
+   }
+
+   public void testUpdateWithSameShapeInPlace() {
+      InternalCacheEntry ice = factory.create("k", "v", metadata(1000, -1));
+      Metadata updated = new EmbeddedMetadata.Builder().lifespan(2000).version(new NumericVersion(8)).build();
+      assertSame(ice, factory.update(ice, updated));
+      assertEquals(updated, ice.getMetadata());
+   }
+
+   public void testUpdateWithDifferentShapeRecreates() {
+      InternalCacheEntry ice = factory.create("k", "v", metadata(1000, -1));
+      InternalCacheEntry updated = factory.update(ice, metadata(1000, 500));
+      assertTrue(updated instanceof VersionedTransientMortalCacheEntry);
+      assertEquals("v", updated.getValue());
+   }
+
+   public void testInternalCacheValueConversion() {
+      InternalCacheEntry ice = factory.create("k", "v", metadata(1000, -1));
+      InternalCacheEntry copy = ice.toInternalCacheValue().toInternalCacheEntry("k");
+      assertEquals(ice.getMetadata(), copy.getMetadata());
+      assertEquals(ice.getCreated(), copy.getCreated());
+   }
+
+   public void testUnversionedAndCustomMetadataNotFlattened() {
+      assertTrue(factory.create("k", "v", new EmbeddedMetadata.Builder().lifespan(1000).build())
+            instanceof MortalCacheEntry);
+      Metadata custom = new CustomMetadata(metadata(1000, -1));
+      InternalCacheEntry ice = factory.create("k", "v", custom);
+      assertTrue(ice instanceof MetadataMortalCacheEntry);
+      assertSame(custom, ice.getMetadata());
+   }
+
+   private static Metadata metadata(long lifespan, long maxIdle) {
+      return new EmbeddedMetadata.Builder().lifespan(lifespan).maxIdle(maxIdle).version(VERSION).build();
+   }
+
+   private static class CustomMetadata implements Metadata {
+      final Metadata delegate;
+
+      CustomMetadata(Metadata delegate) {
+         this.delegate = delegate;
+      }
+
+      @Override
+      public long lifespan() {
+         return delegate.lifespan();
+      }
+
+      @Override
+      public long maxIdle() {
+         return delegate.maxIdle();
+      }
+
+      @Override
+      public EntryVersion version() {
+         return delegate.version();
+      }
+
+      @Override
+      public Builder builder() {
+         return delegate.builder();
+      }
+   }
+}
@@ -0,0 +1,108 @@
+package org.infinispan.container.offheap;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.InternalEntryFactoryImpl;
+import org.infinispan.container.SimpleDataContainerTest;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.versioning.NumericVersion;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "container.offheap.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+
+   private OffHeapDataContainer container;
+
+   @Override
+   protected DataContainer createContainer() {
+      container = new OffHeapDataContainer(16);
+      InternalEntryFactoryImpl internalEntryFactory = new InternalEntryFactoryImpl();
+      internalEntryFactory.injectTimeService(TIME_SERVICE);
+      container.initialize(new TestObjectStreamMarshaller(), internalEntryFactory, TIME_SERVICE);
+      return container;
+   }
+
+   private OffHeapDataContainer dc() {
+      return container;
+   }
+
+   /**
+    * Entries returned by an off-heap container are copies, so the last used timestamp is verified by reading the entry
+    * again rather than by observing a previously returned instance.
+    */
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      long idle = 600000;
+      dc().put("k", "v", new EmbeddedMetadata.Builder().maxIdle(idle, TimeUnit.MILLISECONDS).build());
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      InternalCacheEntry ice = dc().get("k");
+      assertEquals(transienttype(), ice.getClass());
+      assertEquals(idle, ice.getMaxIdle());
+      assertTrue(ice.getLastUsed() > oldTime);
+
+      oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      assertNotNull(dc().get("k"));
+      assertTrue(dc().peek("k").getLastUsed() > oldTime);
+   }
+
+   public void testVersionedMetadataRoundTrip() {
+      dc().put("k", "v", new EmbeddedMetadata.Builder().version(new NumericVersion(7)).build());
+      InternalCacheEntry ice = dc().get("k");
+      assertEquals("v", ice.getValue());
+      assertEquals(new NumericVersion(7), ice.getMetadata().version());
+   }
+
+   public void testOverwriteAndRemove() {
+      for (int i = 0; i < 1000; i++)
+         dc().put(i, "v" + i, new EmbeddedMetadata.Builder().build());
+      for (int i = 0; i < 1000; i++)
+         dc().put(i, "w" + i, new EmbeddedMetadata.Builder().build());
+      assertEquals(1000, dc().size());
+      for (int i = 0; i < 1000; i += 2)
+         assertEquals("w" + i, dc().remove(i).getValue());
+      assertEquals(500, dc().size());
+      assertNull(dc().get(0));
+      assertEquals("w1", dc().get(1).getValue());
+   }
+
+   public void testNativeMemoryReleasedOnClear() {
+      for (int i = 0; i < 100; i++)
+         dc().put(i, "v" + i, new EmbeddedMetadata.Builder().lifespan(100, TimeUnit.MINUTES).build());
+      assertTrue(dc().getAllocatedMemory() > 0);
+      dc().clear();
+      assertEquals(0, dc().size());
+      assertEquals(0, dc().getAllocatedMemory());
+   }
+
+   public void testNativeMemoryReleasedOnCacheStop() {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder.dataContainer().offHeap(true);
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(builder);
+      try {
+         Cache<Object, Object> cache = cm.getCache();
+         for (int i = 0; i < 100; i++)
+            cache.put(i, "v" + i);
+         OffHeapDataContainer offHeap = (OffHeapDataContainer) cache.getAdvancedCache().getDataContainer();
+         assertTrue(offHeap.getAllocatedMemory() > 0);
+         cache.stop();
+         assertEquals(0, offHeap.getAllocatedMemory());
+      } finally {
+         TestingUtil.killCacheManagers(cm);
+      }
+   }
+}
@@ -0,0 +1,68 @@
+package org.infinispan.eviction;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.persistence.dummy.DummyInMemoryStore;
+import org.infinispan.persistence.dummy.DummyInMemoryStoreConfigurationBuilder;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "functional", testName = "eviction.AsyncPassivationTest")
+public class AsyncPassivationTest extends SingleCacheManagerTest {
+
+   private static final int MAX_ENTRIES = 10;
+   private static final int NUM_KEYS = 500;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = getDefaultStandaloneCacheConfig(false);
+      builder
+         .persistence().passivation(true).passivationQueueSize(64).passivationBatchSize(8)
+            .addStore(DummyInMemoryStoreConfigurationBuilder.class)
+         .eviction().strategy(EvictionStrategy.LRU).maxEntries(MAX_ENTRIES);
+      return TestCacheManagerFactory.createCacheManager(builder);
+   }
+
+   public void testEvictedEntriesReadable() {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache.put("k" + i, "v" + i);
+      }
+      // each entry is either in memory, waiting to be passivated or in the store
+      for (int i = 0; i < NUM_KEYS; i++) {
+         assertEquals("v" + i, cache.get("k" + i));
+      }
+   }
+
+   public void testRemovedEntriesNotPassivatedAgain() {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache.put("r" + i, "v" + i);
+      }
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache.remove("r" + i);
+      }
+      for (int i = 0; i < NUM_KEYS; i++) {
+         assertNull(cache.get("r" + i));
+      }
+   }
+
+   public void testQueuedEntriesWrittenOnStop() {
+      Cache<String, String> stopping = cacheManager.getCache("stopping");
+      DummyInMemoryStore store = (DummyInMemoryStore) TestingUtil.getFirstLoader(stopping);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         stopping.put("s" + i, "v" + i);
+      }
+      stopping.stop();
+      // the entries left in memory are passivated on stop too
+      assertEquals(NUM_KEYS, store.size());
+      for (int i = 0; i < NUM_KEYS; i++) {
+         assertTrue(store.contains("s" + i));
+      }
+   }
+}
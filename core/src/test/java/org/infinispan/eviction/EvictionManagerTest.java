@@ -1,17 +1,25 @@
 package org.infinispan.eviction;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.PurgeCountingDataContainer;
+import org.infinispan.container.SegmentedDataContainer;
+import org.infinispan.persistence.manager.PersistenceManager;
 import org.infinispan.test.AbstractInfinispanTest;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -30,7 +38,7 @@ public void testNoEvictionThread() {
       Configuration cfg = getCfg().expiration().wakeUpInterval(0L).build();
 
       ScheduledExecutorService mockService = mock(ScheduledExecutorService.class);
-      em.initialize(mockService, "", cfg, null, null, null, null);
+      em.initialize(mockService, "", cfg, null, null, null, null, null);
       em.start();
 
       assert em.evictionTask == null : "Eviction task is not null!  Should not have scheduled anything!";
@@ -41,7 +49,7 @@ public void testWakeupInterval() {
       Configuration cfg = getCfg().expiration().wakeUpInterval(789L).build();
 
       ScheduledExecutorService mockService = mock(ScheduledExecutorService.class);
-      em.initialize(mockService, "", cfg, null, null, null, null);
+      em.initialize(mockService, "", cfg, null, null, null, null, null);
 
       ScheduledFuture mockFuture = mock(ScheduledFuture.class);
       when(mockService.scheduleWithFixedDelay(isA(EvictionManagerImpl.ScheduledTask.class), eq(789l),
@@ -52,4 +60,57 @@ public void testWakeupInterval() {
       assert em.evictionTask == mockFuture;
       verify(mockService).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class)); // expect that the executor was never used!!
    }
+
+   public void testParallelPurge() {
+      EvictionManagerImpl em = new EvictionManagerImpl();
+      ConfigurationBuilder builder = getCfg();
+      builder.expiration().wakeUpInterval(789L).purgeParallelism(4).jmxStatistics().enable();
+      Configuration cfg = builder.build();
+
+      ScheduledExecutorService mockService = mock(ScheduledExecutorService.class);
+      SegmentedDataContainer mockContainer = mock(SegmentedDataContainer.class);
+      when(mockContainer.getNumSegments()).thenReturn(8);
+      when(mockContainer.purgeExpired(anyInt())).thenReturn(3);
+      PersistenceManager mockPersistenceManager = mock(PersistenceManager.class);
+      ExecutorService purgeExecutor = Executors.newFixedThreadPool(2);
+      em.initialize(mockService, "", cfg, mockContainer, mockPersistenceManager, null, TIME_SERVICE, purgeExecutor);
+      em.start();
+      try {
+         em.processEviction();
+
+         for (int i = 0; i < 8; i++) {
+            verify(mockContainer).purgeExpired(i);
+         }
+         verify(mockContainer, times(0)).purgeExpired();
+         verify(mockPersistenceManager).purgeExpired();
+         assertEquals(1, em.getPurges());
+         assertEquals(24, em.getEntriesPurged());
+      } finally {
+         em.stop();
+         purgeExecutor.shutdownNow();
+      }
+   }
+
+   public void testPurgedEntriesCounted() {
+      EvictionManagerImpl em = new EvictionManagerImpl();
+      ConfigurationBuilder builder = getCfg();
+      builder.expiration().wakeUpInterval(789L).jmxStatistics().enable();
+      Configuration cfg = builder.build();
+
+      ScheduledExecutorService mockService = mock(ScheduledExecutorService.class);
+      PurgeCountingDataContainer mockContainer = mock(PurgeCountingDataContainer.class);
+      when(mockContainer.purgeExpiredEntries()).thenReturn(5);
+      PersistenceManager mockPersistenceManager = mock(PersistenceManager.class);
+      em.initialize(mockService, "", cfg, mockContainer, mockPersistenceManager, null, TIME_SERVICE, null);
+      em.start();
+      try {
+         em.processEviction();
+
+         verify(mockContainer).purgeExpiredEntries();
+         verify(mockPersistenceManager).purgeExpired();
+         assertEquals(5, em.getEntriesPurged());
+      } finally {
+         em.stop();
+      }
+   }
 }
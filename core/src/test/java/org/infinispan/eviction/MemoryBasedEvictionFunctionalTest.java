@@ -0,0 +1,79 @@
+package org.infinispan.eviction;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.InternalCacheEntrySizeCalculator;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "functional", testName = "eviction.MemoryBasedEvictionFunctionalTest")
+public class MemoryBasedEvictionFunctionalTest extends SingleCacheManagerTest {
+
+   private static final long MAX_MEMORY = 64 * 1024;
+
+   public MemoryBasedEvictionFunctionalTest() {
+      cleanup = CleanupPhase.AFTER_METHOD;
+   }
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(false);
+      builder.eviction().type(EvictionType.MEMORY).maxMemory(MAX_MEMORY).strategy(EvictionStrategy.LRU)
+            .locking().concurrencyLevel(1);
+      return TestCacheManagerFactory.createCacheManager(builder);
+   }
+
+   public void testMemoryBoundRespected() {
+      for (int i = 0; i < 1000; i++)
+         cache.put(i, new byte[512]);
+      assertTrue("Memory exceeded: " + containerMemory(), containerMemory() <= MAX_MEMORY);
+      assertTrue(cache.getAdvancedCache().getDataContainer().size() < 1000);
+   }
+
+   public void testLargerValuesEvictMoreEntries() {
+      for (int i = 0; i < 1000; i++)
+         cache.put(i, new byte[64]);
+      int smallEntries = cache.getAdvancedCache().getDataContainer().size();
+      cache.clear();
+      for (int i = 0; i < 1000; i++)
+         cache.put(i, new byte[2048]);
+      int largeEntries = cache.getAdvancedCache().getDataContainer().size();
+      assertTrue(containerMemory() <= MAX_MEMORY);
+      assertTrue(smallEntries + " vs " + largeEntries, smallEntries > largeEntries);
+   }
+
+   public void testGrowingValueEvictsOthers() {
+      for (int i = 0; i < 10; i++)
+         cache.put(i, new byte[1024]);
+      assertEquals(10, cache.getAdvancedCache().getDataContainer().size());
+      cache.put(9, new byte[(int) MAX_MEMORY / 2]);
+      assertTrue(containerMemory() <= MAX_MEMORY);
+      assertTrue(cache.containsKey(9));
+   }
+
+   public void testLeastRecentlyUsedEvictedFirst() {
+      // roughly 15 of these fit in the container
+      for (int i = 0; i < 10; i++)
+         cache.put(i, new byte[4096]);
+      cache.get(0);
+      for (int i = 10; i < 16; i++)
+         cache.put(i, new byte[4096]);
+      assertTrue(cache.containsKey(0));
+      assertTrue(!cache.containsKey(1));
+   }
+
+   private long containerMemory() {
+      InternalCacheEntrySizeCalculator calculator = new InternalCacheEntrySizeCalculator();
+      DataContainer dc = cache.getAdvancedCache().getDataContainer();
+      long memory = 0;
+      for (InternalCacheEntry ice : dc)
+         memory += calculator.calculateSize(ice.getKey(), ice);
+      return memory;
+   }
+}
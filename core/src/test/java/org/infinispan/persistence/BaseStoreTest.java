@@ -10,6 +10,7 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.entries.InternalCacheValue;
 import org.infinispan.factories.ComponentRegistry;
+import org.infinispan.factories.KnownComponentNames;
 import org.infinispan.lifecycle.ComponentStatus;
 import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
@@ -26,9 +27,12 @@
 import org.testng.annotations.Test;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static java.util.Collections.emptySet;
 import static org.infinispan.persistence.PersistenceUtil.internalMetadata;
@@ -296,6 +300,24 @@ public void testStoreAndRemove() throws CacheLoaderException {
       assert expected.isEmpty();
    }
 
+   public void testWriteAndDeleteBatch() throws CacheLoaderException {
+      List<MarshalledEntry> entries = new ArrayList<MarshalledEntry>();
+      for (int i = 0; i < 10; i++)
+         entries.add(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      PersistenceUtil.writeBatch(cl, entries);
+      for (int i = 0; i < 10; i++)
+         assertEquals("v" + i, cl.load("k" + i).getValue());
+
+      List<Object> keys = new ArrayList<Object>();
+      for (int i = 0; i < 10; i += 2)
+         keys.add("k" + i);
+      keys.add("missing");
+      PersistenceUtil.deleteBatch(cl, keys);
+      for (int i = 0; i < 10; i++)
+         assertEquals(i % 2 != 0, cl.contains("k" + i));
+      assertEquals(5, TestingUtil.allEntries(cl).size());
+   }
+
    public void testPurgeExpired() throws Exception {
       // Increased lifespan and idle timeouts to accommodate slower cache stores
       long lifespan = 6000;
@@ -454,6 +476,8 @@ public static Cache mockCache(String name) {
       when(cache.getAdvancedCache()).thenReturn(cache);
       when(cache.getComponentRegistry()).thenReturn(registry);
       when(registry.getTimeService()).thenReturn(TIME_SERVICE);
+      when(registry.getComponent(ExecutorService.class, KnownComponentNames.PERSISTENCE_EXECUTOR))
+            .thenReturn(new WithinThreadExecutor());
       when(cache.getStatus()).thenReturn(ComponentStatus.RUNNING);
       when(cache.getCacheConfiguration()).thenReturn(config);
       return cache;
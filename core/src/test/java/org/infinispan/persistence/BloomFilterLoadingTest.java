@@ -0,0 +1,87 @@
+package org.infinispan.persistence;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.dummy.DummyInMemoryStore;
+import org.infinispan.persistence.dummy.DummyInMemoryStoreConfigurationBuilder;
+import org.infinispan.persistence.manager.PersistenceManager;
+import org.infinispan.persistence.manager.PersistenceManagerImpl;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.infinispan.test.TestingUtil.marshaller;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that the Bloom filter of the persistence manager skips the loads of keys which are not in the stores.
+ *
+ * @since 6.0
+ */
+@Test(testName = "persistence.BloomFilterLoadingTest", groups = "functional")
+@CleanupAfterMethod
+public class BloomFilterLoadingTest extends SingleCacheManagerTest {
+
+   private PersistenceManagerImpl persistenceManager;
+   private DummyInMemoryStore store;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder cfg = getDefaultStandaloneCacheConfig(false);
+      cfg.persistence()
+            .passivation(true)
+            .bloomFilterExpectedEntries(1000)
+            .addStore(DummyInMemoryStoreConfigurationBuilder.class);
+      return TestCacheManagerFactory.createCacheManager(cfg);
+   }
+
+   @Override
+   protected void setup() throws Exception {
+      super.setup();
+      persistenceManager = (PersistenceManagerImpl) TestingUtil.extractComponent(cache, PersistenceManager.class);
+      store = (DummyInMemoryStore) TestingUtil.getFirstLoader(cache);
+   }
+
+   public void testMissesSkipStore() {
+      for (int i = 0; i < 10; i++) {
+         cache.put("k" + i, "v" + i);
+         cache.evict("k" + i);
+      }
+      store.clearStats();
+
+      for (int i = 0; i < 100; i++)
+         assertNull(cache.get("missing" + i));
+      long falsePositives = persistenceManager.getBloomFilterFalsePositives();
+      assertEquals(100, persistenceManager.getBloomFilterSkippedLoads() + falsePositives);
+      assertEquals(falsePositives, (long) store.stats().get("load"));
+      assertTrue(falsePositives < 10);
+
+      for (int i = 0; i < 10; i++)
+         assertEquals("v" + i, cache.get("k" + i));
+      assertEquals(falsePositives + 10, (long) store.stats().get("load"));
+   }
+
+   public void testRebuildFindsKeysWrittenToStore() {
+      store.write(new MarshalledEntryImpl("k1", "v1", null, marshaller(cache)));
+      persistenceManager.rebuildKeyFilter();
+      assertEquals("v1", cache.get("k1"));
+   }
+
+   public void testClearEmptiesFilter() {
+      for (int i = 0; i < 10; i++) {
+         cache.put("k" + i, "v" + i);
+         cache.evict("k" + i);
+      }
+      assertTrue(persistenceManager.getBloomFilterExpectedFalsePositiveRate() > 0);
+      assertTrue(persistenceManager.getBloomFilterSize() > 0);
+
+      cache.clear();
+      assertEquals(0.0, persistenceManager.getBloomFilterExpectedFalsePositiveRate());
+      assertNull(cache.get("k1"));
+   }
+}
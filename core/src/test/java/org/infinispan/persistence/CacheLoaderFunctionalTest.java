@@ -6,8 +6,11 @@
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.persistence.dummy.DummyInMemoryStoreConfigurationBuilder;
+import org.infinispan.persistence.manager.PersistenceManager;
+import org.infinispan.persistence.manager.PersistenceManagerImpl;
 import org.infinispan.persistence.spi.AdvancedCacheLoader;
 import org.infinispan.persistence.spi.AdvancedCacheWriter;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
@@ -37,6 +40,7 @@
 import static org.infinispan.test.TestingUtil.k;
 import static org.infinispan.test.TestingUtil.v;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 
 /**
  * Tests the interceptor chain and surrounding logic
@@ -276,6 +280,58 @@ public void testLoading() throws CacheLoaderException {
       assertNoLocks(cache);
    }
 
+   public void testParallelPreloading() throws CacheLoaderException {
+      ConfigurationBuilder preloadingCfg = new ConfigurationBuilder();
+      preloadingCfg.read(cfg.build());
+      // transactional caches are preloaded through the interceptor chain
+      preloadingCfg.transaction().transactionMode(TransactionMode.NON_TRANSACTIONAL)
+            .persistence().parallelPreload(true)
+            .clearStores().addStore(DummyInMemoryStoreConfigurationBuilder.class).preload(true).storeName("parallelPreloadingCache");
+      cm.defineConfiguration("parallelPreloadingCache", preloadingCfg.build());
+      Cache<String, String> preloadingCache = cm.getCache("parallelPreloadingCache");
+
+      for (int i = 0; i < 1000; i++) {
+         if (i % 2 == 0)
+            preloadingCache.put("k" + i, "v" + i);
+         else
+            preloadingCache.put("k" + i, "v" + i, lifespan, MILLISECONDS);
+      }
+      preloadingCache.stop();
+      preloadingCache.start();
+
+      DataContainer c = preloadingCache.getAdvancedCache().getDataContainer();
+      assertEquals(1000, c.size());
+      AdvancedCacheLoader preloadingCacheLoader = (AdvancedCacheLoader) TestingUtil.getCacheLoader(preloadingCache);
+      for (int i = 0; i < 1000; i++) {
+         if (i % 2 == 0)
+            assertInCacheAndStore(preloadingCache, preloadingCacheLoader, "k" + i, "v" + i);
+         else
+            assertInCacheAndStore(preloadingCache, preloadingCacheLoader, "k" + i, "v" + i, lifespan);
+      }
+      PersistenceManagerImpl pm = (PersistenceManagerImpl) TestingUtil.extractComponent(preloadingCache, PersistenceManager.class);
+      assertEquals(1000, pm.getPreloadedEntries());
+      assertFalse(pm.isPreloading());
+   }
+
+   public void testParallelPreloadingStopsAtMaxEntries() throws CacheLoaderException {
+      ConfigurationBuilder preloadingCfg = new ConfigurationBuilder();
+      preloadingCfg.read(cfg.build());
+      preloadingCfg.transaction().transactionMode(TransactionMode.NON_TRANSACTIONAL)
+            .eviction().strategy(EvictionStrategy.LRU).maxEntries(100)
+            .persistence().parallelPreload(true)
+            .clearStores().addStore(DummyInMemoryStoreConfigurationBuilder.class).preload(true).storeName("boundedParallelPreloadingCache");
+      cm.defineConfiguration("boundedParallelPreloadingCache", preloadingCfg.build());
+      Cache<String, String> preloadingCache = cm.getCache("boundedParallelPreloadingCache");
+
+      for (int i = 0; i < 1000; i++)
+         preloadingCache.put("k" + i, "v" + i);
+      preloadingCache.stop();
+      preloadingCache.start();
+
+      PersistenceManagerImpl pm = (PersistenceManagerImpl) TestingUtil.extractComponent(preloadingCache, PersistenceManager.class);
+      assertEquals(100, pm.getPreloadedEntries());
+   }
+
    public void testPreloading() throws CacheLoaderException {
       ConfigurationBuilder preloadingCfg = new ConfigurationBuilder();
       preloadingCfg.read(cfg.build());
@@ -0,0 +1,137 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.configuration.cache.LogFileStoreConfiguration;
+import org.infinispan.configuration.cache.LogFileStoreConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.BaseStoreTest;
+import org.infinispan.persistence.DummyInitializationContext;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.infinispan.test.TestingUtil.recursiveFileRemove;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Low level log-structured file cache store tests.
+ *
+ * @since 6.0
+ */
+@Test(groups = "unit", testName = "persistence.file.LogFileStoreTest")
+public class LogFileStoreTest extends BaseStoreTest {
+
+   private static final long MAX_FILE_SIZE = 4096;
+
+   LogFileStore store;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this);
+   }
+
+   @AfterClass
+   protected void clearTempDir() {
+      recursiveFileRemove(tmpDirectory);
+   }
+
+   @Override
+   protected AdvancedLoadWriteStore createStore() throws Exception {
+      clearTempDir();
+      store = new LogFileStore();
+      LogFileStoreConfiguration fileStoreConfiguration = TestCacheManagerFactory
+            .getDefaultCacheConfiguration(false)
+            .persistence()
+               .addStore(LogFileStoreConfigurationBuilder.class)
+                  .location(this.tmpDirectory)
+                  .maxFileSize(MAX_FILE_SIZE)
+                  .create();
+      store.init(new DummyInitializationContext(fileStoreConfiguration, getCache(), getMarshaller(), new ByteBufferFactoryImpl(),
+                                                new MarshalledEntryFactoryImpl(getMarshaller())));
+      store.start();
+      return store;
+   }
+
+   public void testRecoveryAfterRestart() {
+      for (int i = 0; i < 1000; i++)
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      for (int i = 0; i < 1000; i += 2)
+         store.write(new MarshalledEntryImpl("k" + i, "w" + i, null, getMarshaller()));
+      for (int i = 0; i < 1000; i += 3)
+         assertTrue(store.delete("k" + i));
+      assertTrue(store.getLogFileCount() > 1);
+
+      store.stop();
+      store.start();
+
+      for (int i = 0; i < 1000; i++) {
+         Object expected = i % 3 == 0 ? null : i % 2 == 0 ? "w" + i : "v" + i;
+         if (expected == null)
+            assertFalse(store.contains("k" + i));
+         else
+            assertEquals(expected, store.load("k" + i).getValue());
+      }
+      assertEquals(1000 - 334, store.size());
+   }
+
+   public void testIncompleteRecordDiscarded() throws Exception {
+      for (int i = 0; i < 10; i++)
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      store.stop();
+
+      // simulate a crash in the middle of the last write
+      File[] logFiles = new File(tmpDirectory, getCache().getName()).listFiles();
+      assertEquals(1, logFiles.length);
+      RandomAccessFile file = new RandomAccessFile(logFiles[0], "rw");
+      try {
+         file.setLength(file.length() - 3);
+      } finally {
+         file.close();
+      }
+
+      store.start();
+      assertEquals(9, store.size());
+      assertNull(store.load("k9"));
+      assertEquals("v8", store.load("k8").getValue());
+
+      // the store keeps appending after the last complete record
+      store.write(new MarshalledEntryImpl("k9", "v9", null, getMarshaller()));
+      store.stop();
+      store.start();
+      assertEquals(10, store.size());
+      assertEquals("v9", store.load("k9").getValue());
+   }
+
+   public void testCompaction() throws Exception {
+      for (int round = 0; round < 20; round++) {
+         for (int i = 0; i < 50; i++)
+            store.write(new MarshalledEntryImpl("k" + i, "v" + round, null, getMarshaller()));
+      }
+      // only the newest records are live, so all but the most recent log files get compacted away
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return store.getLogFileCount() <= 3;
+         }
+      });
+      for (int i = 0; i < 50; i++)
+         assertEquals("v19", store.load("k" + i).getValue());
+
+      store.stop();
+      store.start();
+      assertEquals(50, store.size());
+      for (int i = 0; i < 50; i++)
+         assertEquals("v19", store.load("k" + i).getValue());
+   }
+}
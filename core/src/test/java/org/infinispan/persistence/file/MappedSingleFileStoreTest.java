@@ -0,0 +1,64 @@
+package org.infinispan.persistence.file;
+
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
+import org.infinispan.configuration.cache.SingleFileStoreConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
+import org.infinispan.persistence.DummyInitializationContext;
+import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ * Single-file cache store tests, with the entries read from memory-mapped regions of the data file.
+ *
+ * @since 6.0
+ */
+@Test(groups = "unit", testName = "persistence.file.MappedSingleFileStoreTest")
+public class MappedSingleFileStoreTest extends SingleFileStoreTest {
+
+   @Override
+   protected AdvancedLoadWriteStore createStore() throws Exception {
+      clearTempDir();
+      store = new SingleFileStore();
+      SingleFileStoreConfiguration fileStoreConfiguration = TestCacheManagerFactory
+            .getDefaultCacheConfiguration(false)
+            .persistence()
+               .addStore(SingleFileStoreConfigurationBuilder.class)
+                  .location(this.tmpDirectory)
+                  .mappedReads(true)
+                  .create();
+      store.init(new DummyInitializationContext(fileStoreConfiguration, getCache(), getMarshaller(), new ByteBufferFactoryImpl(),
+                                                new MarshalledEntryFactoryImpl(getMarshaller())));
+      store.start();
+      return store;
+   }
+
+   public void testReadsWhileFileGrows() {
+      for (int i = 0; i < 100; i++) {
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+         // the entry written last is beyond the region mapped by the previous read
+         assertEquals("v" + i, store.load("k" + i).getValue());
+         assertEquals("v0", store.load("k0").getValue());
+      }
+      for (int i = 0; i < 100; i += 2)
+         store.write(new MarshalledEntryImpl("k" + i, "w" + i, null, getMarshaller()));
+      for (int i = 0; i < 100; i++)
+         assertEquals(i % 2 == 0 ? "w" + i : "v" + i, store.load("k" + i).getValue());
+   }
+
+   public void testReadsAfterClear() {
+      for (int i = 0; i < 10; i++)
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      assertEquals("v9", store.load("k9").getValue());
+
+      store.clear();
+      assertNull(store.load("k9"));
+      store.write(new MarshalledEntryImpl("k1", "w1", null, getMarshaller()));
+      assertEquals("w1", store.load("k1").getValue());
+   }
+}
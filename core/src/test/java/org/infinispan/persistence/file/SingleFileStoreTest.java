@@ -4,6 +4,7 @@
 import org.infinispan.configuration.cache.SingleFileStoreConfiguration;
 import org.infinispan.configuration.cache.SingleFileStoreConfigurationBuilder;
 import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.persistence.BaseStoreTest;
 import org.infinispan.persistence.DummyInitializationContext;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
@@ -13,7 +14,13 @@
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.io.RandomAccessFile;
+
 import static org.infinispan.test.TestingUtil.recursiveFileRemove;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
 /**
  * Low level single-file cache store tests.
@@ -52,4 +59,62 @@ protected AdvancedLoadWriteStore createStore() throws Exception {
       store.start();
       return store;
    }
+
+   public void testIndexFileUsedOnRestart() {
+      for (int i = 0; i < 100; i++)
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      for (int i = 0; i < 100; i += 2)
+         store.delete("k" + i);
+      store.stop();
+      assertTrue(indexFile().exists());
+
+      store.start();
+      assertTrue(store.isIndexLoadedFromFile());
+      assertEquals(50, store.size());
+      for (int i = 1; i < 100; i += 2)
+         assertEquals("v" + i, store.load("k" + i).getValue());
+
+      // freed space is still reused
+      long freeEntries = store.getFreeList().size();
+      store.write(new MarshalledEntryImpl("k0", "v0", null, getMarshaller()));
+      assertEquals(freeEntries - 1, store.getFreeList().size());
+   }
+
+   public void testIndexFileDeletedOnModification() {
+      store.write(new MarshalledEntryImpl("k1", "v1", null, getMarshaller()));
+      store.stop();
+      store.start();
+      assertTrue(store.isIndexLoadedFromFile());
+      assertTrue(indexFile().exists());
+
+      // a crash from now on must not leave a stale index file behind
+      store.write(new MarshalledEntryImpl("k2", "v2", null, getMarshaller()));
+      assertFalse(indexFile().exists());
+   }
+
+   public void testCorruptIndexFileIgnored() throws Exception {
+      for (int i = 0; i < 10; i++)
+         store.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      store.stop();
+
+      RandomAccessFile file = new RandomAccessFile(indexFile(), "rw");
+      try {
+         file.seek(file.length() / 2);
+         int b = file.read();
+         file.seek(file.length() / 2);
+         file.write(b ^ 0xFF);
+      } finally {
+         file.close();
+      }
+
+      store.start();
+      assertFalse(store.isIndexLoadedFromFile());
+      assertEquals(10, store.size());
+      for (int i = 0; i < 10; i++)
+         assertEquals("v" + i, store.load("k" + i).getValue());
+   }
+
+   private File indexFile() {
+      return new File(tmpDirectory, getCache().getName() + ".idx");
+   }
 }
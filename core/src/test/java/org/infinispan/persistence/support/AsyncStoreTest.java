@@ -418,6 +418,97 @@ public void run() {
       }
    }
 
+   public void testCoalescedWritesDoNotFillQueue(final Method m) throws Exception {
+      LockableStore underlying = new LockableStore();
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(false);
+
+      LockableStoreConfigurationBuilder lcscsBuilder = new LockableStoreConfigurationBuilder(builder.persistence());
+      lcscsBuilder.async()
+            .modificationQueueSize(10);
+
+      writer = new AdvancedAsyncCacheWriter(underlying);
+      writer.init(new DummyInitializationContext(lcscsBuilder.create(), getCache(), null, new ByteBufferFactoryImpl(),
+                                                 new MarshalledEntryFactoryImpl(null)));
+      writer.start();
+      try {
+         underlying.lock.lock();
+         try {
+            for (int i = 0; i < 100; i++)
+               writer.write(new MarshalledEntryImpl(k(m), v(m, i), null, marshaller()));
+            // at most one modification being applied and one waiting
+            assert writer.getQueueDepth() <= 2 : "Queue depth is " + writer.getQueueDepth();
+            assert writer.getCoalescedModifications() >= 98 : "Coalesced " + writer.getCoalescedModifications();
+            assert writer.getQueuedModifications() == 100;
+         } finally {
+            underlying.lock.unlock();
+         }
+         eventually(new Condition() {
+            @Override
+            public boolean isSatisfied() throws Exception {
+               return writer.getQueueDepth() == 0;
+            }
+         });
+      } finally {
+         writer.stop();
+      }
+   }
+
+   public void testQueueDrainsToLowWatermark(final Method m) throws Exception {
+      LockableStore underlying = new LockableStore();
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(false);
+
+      LockableStoreConfigurationBuilder lcscsBuilder = new LockableStoreConfigurationBuilder(builder.persistence());
+      lcscsBuilder.async()
+            .modificationQueueSize(10)
+            .modificationQueueLowWatermark(2);
+
+      writer = new AdvancedAsyncCacheWriter(underlying);
+      writer.init(new DummyInitializationContext(lcscsBuilder.create(), getCache(), null, new ByteBufferFactoryImpl(),
+                                                 new MarshalledEntryFactoryImpl(null)));
+      writer.start();
+      try {
+         final CountDownLatch done = new CountDownLatch(1);
+
+         underlying.lock.lock();
+         try {
+            Thread t = new Thread() {
+               @Override
+               public void run() {
+                  try {
+                     for (int i = 0; i < 100; i++)
+                        writer.write(new MarshalledEntryImpl(k(m, i), v(m, i), null, marshaller()));
+                  } catch (Exception e) {
+                     log.error("Error storing entry", e);
+                  }
+                  done.countDown();
+               }
+            };
+            t.start();
+
+            eventually(new Condition() {
+               @Override
+               public boolean isSatisfied() throws Exception {
+                  return writer.getQueueDepth() == 10;
+               }
+            });
+            assert !done.await(1, TimeUnit.SECONDS) : "Background thread should have blocked after adding 10 entries";
+            assert writer.getQueueDepth() == 10;
+         } finally {
+            underlying.lock.unlock();
+         }
+         assert done.await(10, TimeUnit.SECONDS) : "Background thread should have been unblocked";
+         eventually(new Condition() {
+            @Override
+            public boolean isSatisfied() throws Exception {
+               return writer.getQueueDepth() == 0;
+            }
+         });
+         assert writer.getFlushes() > 0;
+      } finally {
+         writer.stop();
+      }
+   }
+
    private static abstract class OneEntryCacheManagerCallable extends CacheManagerCallable {
       protected final Cache<String, String> cache;
       protected final LockableStore store;
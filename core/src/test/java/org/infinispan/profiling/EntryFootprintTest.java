@@ -0,0 +1,89 @@
+package org.infinispan.profiling;
+
+import org.infinispan.container.InternalEntryFactoryImpl;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataImmortalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataMortalCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataTransientCacheEntry;
+import org.infinispan.container.entries.metadata.MetadataTransientMortalCacheEntry;
+import org.infinispan.container.versioning.NumericVersion;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.metadata.Metadata;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+/**
+ * Measures the heap retained by versioned internal cache entries, comparing entries keeping a separate
+ * {@link EmbeddedMetadata} object with the flattened entries created by {@link InternalEntryFactoryImpl}.
+ * <p/>
+ * Keys, values and versions are shared by all entries so that only the footprint of the entries themselves is
+ * measured. Run with a fixed heap size, e.g. <tt>-Xms1g -Xmx1g</tt>, for stable figures.
+ */
+@Test(groups = "profiling", testName = "profiling.EntryFootprintTest")
+public class EntryFootprintTest extends AbstractInfinispanTest {
+
+   private static final int ENTRIES = 1000000;
+   private static final Object KEY = "key";
+   private static final Object VALUE = "value";
+   private static final NumericVersion VERSION = new NumericVersion(1);
+
+   private enum Layout {
+      METADATA_OBJECT, FLATTENED
+   }
+
+   public void testImmortalFootprint() {
+      report("immortal", -1, -1);
+   }
+
+   public void testMortalFootprint() {
+      report("mortal", 60000, -1);
+   }
+
+   public void testTransientFootprint() {
+      report("transient", -1, 60000);
+   }
+
+   public void testTransientMortalFootprint() {
+      report("transient mortal", 60000, 30000);
+   }
+
+   private void report(String shape, long lifespan, long maxIdle) {
+      double withMetadata = bytesPerEntry(Layout.METADATA_OBJECT, lifespan, maxIdle);
+      double flattened = bytesPerEntry(Layout.FLATTENED, lifespan, maxIdle);
+      log.infof("Versioned %s entries: %.1f bytes with a metadata object, %.1f bytes flattened (%.0f%% less)",
+            shape, withMetadata, flattened, 100 * (withMetadata - flattened) / withMetadata);
+   }
+
+   private double bytesPerEntry(Layout layout, long lifespan, long maxIdle) {
+      InternalEntryFactoryImpl factory = new InternalEntryFactoryImpl();
+      factory.injectTimeService(TIME_SERVICE);
+      long now = TIME_SERVICE.wallClockTime();
+      InternalCacheEntry[] entries = new InternalCacheEntry[ENTRIES];
+      long before = usedMemory();
+      for (int i = 0; i < ENTRIES; i++) {
+         Metadata metadata = new EmbeddedMetadata.Builder().lifespan(lifespan).maxIdle(maxIdle).version(VERSION).build();
+         entries[i] = layout == Layout.FLATTENED ? factory.create(KEY, VALUE, metadata) :
+               withMetadataObject(metadata, now);
+      }
+      long after = usedMemory();
+      if (entries[ENTRIES - 1] == null) throw new IllegalStateException();
+      return (double) (after - before) / ENTRIES;
+   }
+
+   private InternalCacheEntry withMetadataObject(Metadata metadata, long now) {
+      if (metadata.lifespan() < 0 && metadata.maxIdle() < 0) return new MetadataImmortalCacheEntry(KEY, VALUE, metadata);
+      if (metadata.maxIdle() < 0) return new MetadataMortalCacheEntry(KEY, VALUE, metadata, now);
+      if (metadata.lifespan() < 0) return new MetadataTransientCacheEntry(KEY, VALUE, metadata, now);
+      return new MetadataTransientMortalCacheEntry(KEY, VALUE, metadata, now);
+   }
+
+   private static long usedMemory() {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++) {
+         System.gc();
+         TestingUtil.sleepThread(100);
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+}
@@ -0,0 +1,123 @@
+package org.infinispan.profiling;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the hit ratio of the eviction policies of {@link BoundedConcurrentHashMap} by replaying access traces
+ * against maps of the same capacity.
+ * <p/>
+ * Recorded traces can be replayed by pointing the <tt>infinispan.eviction.trace</tt> system property to a file
+ * containing one key per line; otherwise synthetic Zipfian, scan-polluted and looping traces are used.
+ */
+@Test(groups = "profiling", testName = "profiling.EvictionHitRatioTest")
+public class EvictionHitRatioTest extends AbstractInfinispanTest {
+
+   private static final int CAPACITY = 4096;
+   private static final int CONCURRENCY_LEVEL = 16;
+   private static final int TRACE_LENGTH = 1000000;
+   private static final Eviction[] POLICIES = {Eviction.LRU, Eviction.LIRS, Eviction.TINY_LFU};
+
+   private final Random random = new Random(17);
+
+   public void testRecordedTrace() throws IOException {
+      String file = System.getProperty("infinispan.eviction.trace");
+      if (file == null) {
+         log.info("No recorded trace configured, skipping");
+         return;
+      }
+      List<String> keys = new ArrayList<String>();
+      BufferedReader reader = new BufferedReader(new FileReader(file));
+      try {
+         String line;
+         while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.length() > 0) keys.add(line);
+         }
+      } finally {
+         reader.close();
+      }
+      report("recorded " + file, keys);
+   }
+
+   public void testZipfianTrace() {
+      report("zipfian", zipfian(TRACE_LENGTH, CAPACITY * 16, 0.9));
+   }
+
+   public void testScanPollutedTrace() {
+      List<Object> trace = new ArrayList<Object>(TRACE_LENGTH);
+      List<Object> hot = zipfian(TRACE_LENGTH / 2, CAPACITY * 4, 0.9);
+      long scanKey = Long.MAX_VALUE;
+      for (Object key : hot) {
+         trace.add(key);
+         // a one-off key read by a scan for each hot access
+         trace.add(scanKey--);
+      }
+      report("scan polluted", trace);
+   }
+
+   public void testLoopingTrace() {
+      List<Object> trace = new ArrayList<Object>(TRACE_LENGTH);
+      int loop = CAPACITY + CAPACITY / 4;
+      for (int i = 0; i < TRACE_LENGTH; i++) {
+         trace.add(i % loop);
+      }
+      report("looping", trace);
+   }
+
+   private void report(String traceName, List<?> trace) {
+      log.infof("Trace %s, %d accesses, capacity %d", traceName, trace.size(), CAPACITY);
+      for (Eviction eviction : POLICIES) {
+         long start = System.nanoTime();
+         double hitRatio = hitRatio(eviction, trace);
+         long millis = (System.nanoTime() - start) / 1000000;
+         log.infof("   %-10s hit ratio %6.2f%% in %d ms", eviction, hitRatio * 100, millis);
+      }
+   }
+
+   private double hitRatio(Eviction eviction, List<?> trace) {
+      BoundedConcurrentHashMap<Object, Object> map = new BoundedConcurrentHashMap<Object, Object>(
+            CAPACITY, CONCURRENCY_LEVEL, eviction,
+            AnyEquivalence.getInstance(), AnyEquivalence.getInstance());
+      long hits = 0;
+      for (Object key : trace) {
+         if (map.get(key) != null) {
+            hits++;
+         } else {
+            map.put(key, key);
+         }
+      }
+      return (double) hits / trace.size();
+   }
+
+   private List<Object> zipfian(int length, int items, double skew) {
+      double[] cumulative = new double[items];
+      double sum = 0;
+      for (int i = 0; i < items; i++) {
+         sum += 1 / Math.pow(i + 1, skew);
+         cumulative[i] = sum;
+      }
+      List<Object> trace = new ArrayList<Object>(length);
+      for (int i = 0; i < length; i++) {
+         double r = random.nextDouble() * sum;
+         int low = 0, high = items - 1;
+         while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < r) low = mid + 1; else high = mid;
+         }
+         // scramble the rank so that popular keys are not clustered by hash
+         trace.add((long) low * 0x9E3779B97F4A7C15L);
+      }
+      return trace;
+   }
+}
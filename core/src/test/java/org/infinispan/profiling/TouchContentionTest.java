@@ -0,0 +1,84 @@
+package org.infinispan.profiling;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.InternalEntryFactoryImpl;
+import org.infinispan.metadata.EmbeddedMetadata;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how reads of a few hot entries with a maximum idle time scale with the number of reading threads, with
+ * every read recording the access time and with a coarse touch granularity.
+ * <p/>
+ * The number of threads doubles up to the number of available processors, and at least up to 32.
+ */
+@Test(groups = "profiling", testName = "profiling.TouchContentionTest")
+public class TouchContentionTest extends AbstractInfinispanTest {
+
+   private static final int HOT_KEYS = 4;
+   private static final long DURATION_MILLIS = 2000;
+
+   public void testHotKeyReads() throws Exception {
+      int maxThreads = Math.max(32, Runtime.getRuntime().availableProcessors());
+      for (long granularity : new long[]{0, 1000}) {
+         DefaultDataContainer dc = createDataContainer(granularity);
+         System.out.printf("Touch granularity %d ms%n", granularity);
+         for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long reads = run(dc, threads);
+            System.out.printf("   %3d threads: %,12d reads/s, %,10d reads/s per thread%n",
+                  threads, reads * 1000 / DURATION_MILLIS, reads * 1000 / DURATION_MILLIS / threads);
+         }
+      }
+   }
+
+   private DefaultDataContainer createDataContainer(long granularity) {
+      DefaultDataContainer dc = (DefaultDataContainer) DefaultDataContainer.unBoundedDataContainer(
+            32, AnyEquivalence.getInstance(), AnyEquivalence.getInstance());
+      InternalEntryFactoryImpl entryFactory = new InternalEntryFactoryImpl();
+      entryFactory.injectTimeService(TIME_SERVICE);
+      dc.initialize(null, null, entryFactory, null, null, TIME_SERVICE);
+      dc.injectConfiguration(new ConfigurationBuilder().expiration().touchGranularity(granularity).build());
+      for (int i = 0; i < HOT_KEYS; i++) {
+         dc.put("key" + i, "value" + i, new EmbeddedMetadata.Builder().maxIdle(1, TimeUnit.HOURS).build());
+      }
+      return dc;
+   }
+
+   private long run(final DefaultDataContainer dc, int threads) throws InterruptedException {
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicLong reads = new AtomicLong();
+      Thread[] readers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+         final String key = "key" + (t % HOT_KEYS);
+         readers[t] = new Thread() {
+            @Override
+            public void run() {
+               try {
+                  start.await();
+               } catch (InterruptedException e) {
+                  return;
+               }
+               long end = System.currentTimeMillis() + DURATION_MILLIS;
+               long count = 0;
+               while ((count & 0xfff) != 0 || System.currentTimeMillis() < end) {
+                  if (dc.get(key) == null) throw new IllegalStateException("Entry expired");
+                  count++;
+               }
+               reads.addAndGet(count);
+            }
+         };
+         readers[t].start();
+      }
+      start.countDown();
+      for (Thread reader : readers) {
+         reader.join();
+      }
+      return reads.get();
+   }
+}
@@ -0,0 +1,132 @@
+package org.infinispan.util.concurrent;
+
+import org.infinispan.commons.equivalence.AnyEquivalence;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the open addressing byte array key map against the expectations of the other equivalence aware maps, and
+ * its behaviour across rehashes and removals.
+ */
+@Test(groups = "functional", testName = "util.concurrent.ByteArrayKeyConcurrentHashMapTest")
+public class ByteArrayKeyConcurrentHashMapTest extends BoundedConcurrentHashMapTest {
+
+   @Override
+   protected ConcurrentMap<byte[], byte[]> createComparingConcurrentMap() {
+      return new ByteArrayKeyConcurrentHashMap<byte[], byte[]>(EQUIVALENCE);
+   }
+
+   public void testGrowAndShrink() {
+      ConcurrentMap<byte[], Integer> map = createIntegerMap();
+      int keys = 10000;
+      for (int i = 0; i < keys; i++)
+         assertNull(map.put(key(i), i));
+      assertEquals(keys, map.size());
+      for (int i = 0; i < keys; i++)
+         assertEquals(Integer.valueOf(i), map.get(key(i)));
+      for (int i = 0; i < keys; i += 2)
+         assertEquals(Integer.valueOf(i), map.remove(key(i)));
+      assertEquals(keys / 2, map.size());
+      for (int i = 0; i < keys; i++)
+         assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(key(i)));
+      map.clear();
+      assertTrue(map.isEmpty());
+      assertNull(map.get(key(1)));
+   }
+
+   public void testRemovedSlotsReused() {
+      ConcurrentMap<byte[], Integer> map = new ByteArrayKeyConcurrentHashMap<byte[], Integer>(
+            16, 1, AnyEquivalence.<Integer>getInstance());
+      // keep churning through distinct keys, leaving removal markers behind
+      for (int i = 0; i < 100000; i++) {
+         map.put(key(i), i);
+         if (i > 0)
+            assertEquals(Integer.valueOf(i - 1), map.remove(key(i - 1)));
+         assertEquals(1, map.size());
+      }
+      assertEquals(Integer.valueOf(99999), map.get(key(99999)));
+   }
+
+   public void testIteration() {
+      ConcurrentMap<byte[], Integer> map = createIntegerMap();
+      Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+      for (int i = 0; i < 1000; i++) {
+         map.put(key(i), i);
+         expected.put(i, i);
+      }
+      for (Map.Entry<byte[], Integer> e : map.entrySet())
+         assertEquals(expected.remove(e.getValue()), e.getValue());
+      assertTrue(expected.isEmpty());
+
+      for (Iterator<byte[]> it = map.keySet().iterator(); it.hasNext(); ) {
+         it.next();
+         it.remove();
+      }
+      assertTrue(map.isEmpty());
+   }
+
+   public void testConcurrentUpdates() throws Exception {
+      final ConcurrentMap<byte[], Integer> map = createIntegerMap();
+      final int threads = 4;
+      final int keys = 2000;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            futures.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() {
+                  Random random = new Random(seed);
+                  for (int i = 0; i < 100000; i++) {
+                     int k = random.nextInt(keys);
+                     switch (random.nextInt(3)) {
+                        case 0:
+                           map.put(key(k), k);
+                           break;
+                        case 1:
+                           map.remove(key(k));
+                           break;
+                        default:
+                           Integer v = map.get(key(k));
+                           assertTrue(v == null || v == k);
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Void> f : futures)
+            f.get();
+      } finally {
+         executor.shutdownNow();
+      }
+      int size = 0;
+      for (int k = 0; k < keys; k++) {
+         if (map.get(key(k)) != null)
+            size++;
+      }
+      assertEquals(size, map.size());
+   }
+
+   private ConcurrentMap<byte[], Integer> createIntegerMap() {
+      return new ByteArrayKeyConcurrentHashMap<byte[], Integer>(AnyEquivalence.<Integer>getInstance());
+   }
+
+   private static byte[] key(int i) {
+      return new byte[]{(byte) (i >>> 24), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i};
+   }
+}
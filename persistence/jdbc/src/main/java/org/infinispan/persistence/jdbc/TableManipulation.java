@@ -40,6 +40,8 @@ public class TableManipulation implements Cloneable {
    /* Cache the sql for managing data */
    private String insertRowSql;
    private String updateRowSql;
+   private String upsertRowSql;
+   private boolean upsertRowSqlInitialized;
    private String selectRowSql;
    private String selectIdRowSql;
    private String deleteRowSql;
@@ -49,6 +51,8 @@ public class TableManipulation implements Cloneable {
    private String deleteAllRows;
    private String selectExpiredRowsSql;
    private String deleteExpiredRowsSql;
+   private String selectExpiredIdsSql;
+   private String deleteExpiredRowSql;
    private String loadSomeRowsSql;
    public DatabaseType databaseType;
    private String loadAllKeysBinarySql;
@@ -72,15 +76,7 @@ public boolean tableExists(Connection connection, TableName tableName) throws Ca
          // we need to make sure, that (even if the user has extended permissions) only the tables in current schema are checked
          // explicit set of the schema to the current user one to make sure only tables of the current users are requested
          DatabaseMetaData metaData = connection.getMetaData();
-         String schemaPattern = tableName.getSchema();
-         if(schemaPattern == null){
-            switch (getDatabaseType()) {
-               case ORACLE:
-                  schemaPattern = metaData.getUserName();
-                  break;
-               default:
-            }
-         }
+         String schemaPattern = getSchemaPattern(metaData, tableName);
          rs = metaData.getTables(null, schemaPattern, tableName.getName(), new String[] {"TABLE"});
          return rs.next();
       } catch (SQLException e) {
@@ -92,6 +88,66 @@ public boolean tableExists(Connection connection, TableName tableName) throws Ca
       }
    }
 
+   private String getSchemaPattern(DatabaseMetaData metaData, TableName tableName) throws SQLException {
+      String schemaPattern = tableName.getSchema();
+      if(schemaPattern == null){
+         switch (getDatabaseType()) {
+            case ORACLE:
+               schemaPattern = metaData.getUserName();
+               break;
+            default:
+         }
+      }
+      return schemaPattern;
+   }
+
+   /**
+    * Checks whether the table has an index whose first column is the timestamp column, which the queries selecting
+    * the expired rows can use.
+    */
+   public boolean timestampIndexExists(Connection connection) {
+      TableName tableName = getTableName();
+      ResultSet rs = null;
+      try {
+         DatabaseMetaData metaData = connection.getMetaData();
+         rs = metaData.getIndexInfo(null, getSchemaPattern(metaData, tableName), tableName.getName(), false, true);
+         while (rs.next()) {
+            if (rs.getShort("ORDINAL_POSITION") == 1 && config.timestampColumnName().equalsIgnoreCase(rs.getString("COLUMN_NAME")))
+               return true;
+         }
+         return false;
+      } catch (SQLException e) {
+         if (log.isTraceEnabled())
+            log.tracef(e, "SQLException occurs while checking the indexes of table %s", tableName);
+         return false;
+      } finally {
+         JdbcUtil.safeClose(rs);
+      }
+   }
+
+   /**
+    * Creates an index on the timestamp column, so that purging the expired rows does not have to scan the whole
+    * table. It is only created along with the table, and failing to create it is not fatal, as the index is only
+    * needed for performance.
+    */
+   public void createTimestampIndex(Connection conn) {
+      String quote = getIdentifierQuoteString();
+      String createIndexDdl = "CREATE INDEX " + quote + getTableName().getName() + "_timestamp_index" + quote + " ON "
+            + getTableName() + " (" + config.timestampColumnName() + ")";
+      if (log.isTraceEnabled()) {
+         log.tracef("Creating timestamp index with following DDL: '%s'.", createIndexDdl);
+      }
+      Statement statement = null;
+      try {
+         statement = conn.createStatement();
+         statement.executeUpdate(createIndexDdl);
+      } catch (SQLException e) {
+         log.unableToCreateTimestampIndex(createIndexDdl, e);
+      } finally {
+         JdbcUtil.safeClose(statement);
+      }
+   }
+
    public void createTable(Connection conn) throws CacheLoaderException {
       // removed CONSTRAINT clause as this causes problems with some databases, like Informix.
       assertMandatoryElementsPresent();
@@ -146,6 +202,7 @@ public void start(ConnectionFactory connectionFactory) throws CacheLoaderExcepti
             conn = this.connectionFactory.getConnection();
             if (!tableExists(conn, getTableName())) {
                createTable(conn);
+               createTimestampIndex(conn);
             }
          } finally {
             this.connectionFactory.releaseConnection(conn);
@@ -189,6 +246,57 @@ public String getUpdateRowSql() {
       return updateRowSql;
    }
 
+   /**
+    * Returns a statement which inserts a row, or updates the row with the same id if there is one, taking the same
+    * parameters as {@link #getInsertRowSql()}. Returns null if the database does not support such a statement, in
+    * which case the existence of the row must be checked before choosing between {@link #getInsertRowSql()} and
+    * {@link #getUpdateRowSql()}.
+    */
+   public String getUpsertRowSql() {
+      if (!upsertRowSqlInitialized) {
+         String columns = " (" + config.dataColumnName() + ", " + config.timestampColumnName() + ", " + config.idColumnName() + ")";
+         switch (getDatabaseType()) {
+            case MYSQL:
+               upsertRowSql = "INSERT INTO " + getTableName() + columns + " VALUES(?,?,?) ON DUPLICATE KEY UPDATE "
+                     + config.dataColumnName() + " = VALUES(" + config.dataColumnName() + "), "
+                     + config.timestampColumnName() + " = VALUES(" + config.timestampColumnName() + ")";
+               break;
+            case POSTGRES:
+               // INSERT ... ON CONFLICT is only available since PostgreSQL 9.5
+               if (isDatabaseVersionAtLeast(9, 5)) {
+                  upsertRowSql = "INSERT INTO " + getTableName() + columns + " VALUES(?,?,?) ON CONFLICT ("
+                        + config.idColumnName() + ") DO UPDATE SET "
+                        + config.dataColumnName() + " = EXCLUDED." + config.dataColumnName() + ", "
+                        + config.timestampColumnName() + " = EXCLUDED." + config.timestampColumnName();
+               }
+               break;
+            case H2:
+               upsertRowSql = "MERGE INTO " + getTableName() + columns + " KEY(" + config.idColumnName() + ") VALUES(?,?,?)";
+               break;
+            default:
+               upsertRowSql = null;
+               break;
+         }
+         upsertRowSqlInitialized = true;
+      }
+      return upsertRowSql;
+   }
+
+   private boolean isDatabaseVersionAtLeast(int major, int minor) {
+      Connection connection = null;
+      try {
+         connection = connectionFactory.getConnection();
+         DatabaseMetaData metaData = connection.getMetaData();
+         int databaseMajor = metaData.getDatabaseMajorVersion();
+         return databaseMajor > major || databaseMajor == major && metaData.getDatabaseMinorVersion() >= minor;
+      } catch (Exception e) {
+         log.debug("Unable to read the database version from JDBC metadata.", e);
+         return false;
+      } finally {
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
    public String getSelectRowSql() {
       if (selectRowSql == null) {
          switch(getDatabaseType()) {
@@ -283,6 +391,24 @@ public String getDeleteExpiredRowsSql() {
       return deleteExpiredRowsSql;
    }
 
+   public String getSelectExpiredIdsSql() {
+      if (selectExpiredIdsSql == null) {
+         selectExpiredIdsSql = "SELECT " + config.idColumnName() + " FROM " + getTableName() + " WHERE " + config.timestampColumnName() + "< ? AND " + config.timestampColumnName() + "> 0";
+      }
+      return selectExpiredIdsSql;
+   }
+
+   /**
+    * Deletes a single row, as long as it is still expired: the row may have been updated since it was selected by
+    * {@link #getSelectExpiredIdsSql()}. The parameters are the id and the current time.
+    */
+   public String getDeleteExpiredRowSql() {
+      if (deleteExpiredRowSql == null) {
+         deleteExpiredRowSql = getDeleteRowSql() + " AND " + config.timestampColumnName() + "< ? AND " + config.timestampColumnName() + "> 0";
+      }
+      return deleteExpiredRowSql;
+   }
+
    @Override
    public TableManipulation clone() {
       try {
@@ -34,6 +34,7 @@ public BinaryTableManipulationConfigurationBuilder table() {
    @Override
    public void validate() {
       super.validate();
+      table.validateBatchSize();
    }
 
    public JdbcBinaryStoreConfigurationBuilder lockAcquisitionTimeout(long lockAcquisitionTimeout) {
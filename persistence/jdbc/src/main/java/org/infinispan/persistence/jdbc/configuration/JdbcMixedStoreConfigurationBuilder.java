@@ -1,9 +1,11 @@
 package org.infinispan.persistence.jdbc.configuration;
 
 import org.infinispan.commons.CacheConfigurationException;
+import org.infinispan.commons.logging.LogFactory;
 import org.infinispan.configuration.cache.PersistenceConfigurationBuilder;
 import org.infinispan.persistence.jdbc.DatabaseType;
 import org.infinispan.persistence.jdbc.TableManipulation;
+import org.infinispan.persistence.jdbc.logging.Log;
 import org.infinispan.persistence.keymappers.DefaultTwoWayKey2StringMapper;
 import org.infinispan.persistence.keymappers.Key2StringMapper;
 
@@ -16,6 +18,7 @@
  */
 public class JdbcMixedStoreConfigurationBuilder extends AbstractJdbcStoreConfigurationBuilder<JdbcMixedStoreConfiguration, JdbcMixedStoreConfigurationBuilder>
       implements JdbcMixedStoreConfigurationChildBuilder<JdbcMixedStoreConfigurationBuilder> {
+   private static final Log log = LogFactory.getLog(JdbcMixedStoreConfigurationBuilder.class, Log.class);
    private final MixedTableManipulationConfigurationBuilder binaryTable;
    private final MixedTableManipulationConfigurationBuilder stringTable;
    private String key2StringMapper = DefaultTwoWayKey2StringMapper.class.getName();
@@ -110,6 +113,10 @@ public void validate() {
       if (binaryTable.tableNamePrefix.equals(stringTable.tableNamePrefix))
          throw new CacheConfigurationException("There cannot be the same tableNamePrefix on both the binary and " +
                "String tables.");
+      if (batchSize <= 0)
+         throw log.invalidBatchSize(batchSize);
+      binaryTable.validateBatchSize();
+      stringTable.validateBatchSize();
 
    }
 
@@ -407,6 +407,9 @@ public static void parseAsyncStore(final XMLExtendedStreamReader reader, final S
             case MODIFICATION_QUEUE_SIZE:
                storeBuilder.async().modificationQueueSize(Integer.parseInt(value));
                break;
+            case MODIFICATION_QUEUE_LOW_WATERMARK:
+               storeBuilder.async().modificationQueueLowWatermark(Integer.parseInt(value));
+               break;
             case SHUTDOWN_TIMEOUT:
                storeBuilder.async().shutdownTimeout(Long.parseLong(value));
                break;
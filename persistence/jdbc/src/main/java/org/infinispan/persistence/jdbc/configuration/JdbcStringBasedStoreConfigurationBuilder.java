@@ -53,6 +53,7 @@ public StringTableManipulationConfigurationBuilder table() {
 
    @Override
    public void validate() {
+      table.validateBatchSize();
    }
 
    @Override
@@ -145,6 +145,14 @@ public void validate() {
       validateIfSet("timestampColumnName", timestampColumnName);
       validateIfSet("timestampColumnType", timestampColumnType);
       validateIfSet("tableNamePrefix", tableNamePrefix);
+      validateBatchSize();
+   }
+
+   // Needs package access for validate() in the store configuration builders
+   void validateBatchSize() {
+      if (batchSize <= 0) {
+         throw log.invalidBatchSize(batchSize);
+      }
    }
 
    private void validateIfSet(String name, String value) {
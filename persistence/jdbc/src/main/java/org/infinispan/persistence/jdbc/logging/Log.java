@@ -144,4 +144,12 @@ public interface Log extends org.infinispan.util.logging.Log {
 
    @Message(value = "Cannot specify a ConnectionFactory and manageConnectionFactory at the same time", id = 8030)
    CacheConfigurationException unmanagedConnectionFactory();
+
+   @LogMessage(level = WARN)
+   @Message(value = "Unable to create an index on the timestamp column with the following DDL: '%s'. " +
+         "Purging expired entries will scan the whole table", id = 8031)
+   void unableToCreateTimestampIndex(String sql, @Cause SQLException e);
+
+   @Message(value = "The batch size must be greater than zero, but was %d", id = 8032)
+   CacheConfigurationException invalidBatchSize(int batchSize);
 }
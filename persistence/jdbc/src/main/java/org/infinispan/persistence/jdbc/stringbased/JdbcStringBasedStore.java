@@ -15,6 +15,7 @@
 import org.infinispan.persistence.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.persistence.keymappers.UnsupportedKeyTypeException;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
+import org.infinispan.persistence.spi.BatchCacheWriter;
 import org.infinispan.persistence.spi.InitializationContext;
 import org.infinispan.util.KeyValuePair;
 import org.infinispan.util.logging.LogFactory;
@@ -24,6 +25,9 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
@@ -64,10 +68,15 @@
  * @see org.infinispan.persistence.keymappers.Key2StringMapper
  * @see org.infinispan.persistence.keymappers.DefaultTwoWayKey2StringMapper
  */
-public class JdbcStringBasedStore implements AdvancedLoadWriteStore {
+public class JdbcStringBasedStore implements AdvancedLoadWriteStore, BatchCacheWriter {
 
    private static final Log log = LogFactory.getLog(JdbcStringBasedStore.class, Log.class);
 
+   /**
+    * The number of batches of expired rows a purge submits to the executor before waiting for one to be deleted.
+    */
+   private static final int MAX_PENDING_PURGE_BATCHES = 4;
+
    private JdbcStringBasedStoreConfiguration configuration;
 
    private Key2StringMapper key2StringMapper;
@@ -142,7 +151,17 @@ public void write(MarshalledEntry entry) {
       String keyStr = key2Str(entry.getKey());
       try {
          connection = connectionFactory.getConnection();
-         String sql = tableManipulation.getSelectIdRowSql();
+         String sql = tableManipulation.getUpsertRowSql();
+         if (sql != null) {
+            if (log.isTraceEnabled()) {
+               log.tracef("Running sql '%s'. Key string is '%s'", sql, keyStr);
+            }
+            ps = connection.prepareStatement(sql);
+            updateStatement(entry, keyStr, ps);
+            ps.executeUpdate();
+            return;
+         }
+         sql = tableManipulation.getSelectIdRowSql();
          if (log.isTraceEnabled()) {
             log.tracef("Running sql '%s'. Key string is '%s'", sql, keyStr);
          }
@@ -234,6 +253,128 @@ public boolean delete(Object key) {
       }
    }
 
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * The rows are written with JDBC batches of up to {@link TableManipulation#getBatchSize()} statements, using a
+    * single connection. Where the database supports it, each row is inserted or updated by a single statement,
+    * otherwise the existing rows are looked up first.
+    */
+   @Override
+   public void writeBatch(Iterable entries) {
+      Connection connection = null;
+      PreparedStatement upsertPs = null;
+      PreparedStatement selectPs = null;
+      PreparedStatement insertPs = null;
+      PreparedStatement updatePs = null;
+      String keyStr = null;
+      try {
+         connection = connectionFactory.getConnection();
+         int batchSize = tableManipulation.getBatchSize();
+         String upsertSql = tableManipulation.getUpsertRowSql();
+         if (upsertSql != null) {
+            if (log.isTraceEnabled()) {
+               log.tracef("Running sql '%s' in batches of %d", upsertSql, batchSize);
+            }
+            upsertPs = connection.prepareStatement(upsertSql);
+            int count = 0;
+            for (Object o : entries) {
+               MarshalledEntry entry = (MarshalledEntry) o;
+               keyStr = key2Str(entry.getKey());
+               updateStatement(entry, keyStr, upsertPs);
+               upsertPs.addBatch();
+               if (++count % batchSize == 0)
+                  upsertPs.executeBatch();
+            }
+            if (count % batchSize != 0)
+               upsertPs.executeBatch();
+         } else {
+            selectPs = connection.prepareStatement(tableManipulation.getSelectIdRowSql());
+            insertPs = connection.prepareStatement(tableManipulation.getInsertRowSql());
+            updatePs = connection.prepareStatement(tableManipulation.getUpdateRowSql());
+            int inserts = 0;
+            int updates = 0;
+            for (Object o : entries) {
+               MarshalledEntry entry = (MarshalledEntry) o;
+               keyStr = key2Str(entry.getKey());
+               selectPs.setString(1, keyStr);
+               ResultSet rs = selectPs.executeQuery();
+               boolean exists;
+               try {
+                  exists = rs.next();
+               } finally {
+                  JdbcUtil.safeClose(rs);
+               }
+               if (exists) {
+                  updateStatement(entry, keyStr, updatePs);
+                  updatePs.addBatch();
+                  if (++updates % batchSize == 0)
+                     updatePs.executeBatch();
+               } else {
+                  updateStatement(entry, keyStr, insertPs);
+                  insertPs.addBatch();
+                  if (++inserts % batchSize == 0)
+                     insertPs.executeBatch();
+               }
+            }
+            if (inserts % batchSize != 0)
+               insertPs.executeBatch();
+            if (updates % batchSize != 0)
+               updatePs.executeBatch();
+         }
+      } catch (SQLException ex) {
+         log.sqlFailureStoringKey(keyStr, ex);
+         throw new CacheLoaderException(String.format("Error while storing a batch of string keys to database; key: '%s'", keyStr), ex);
+      } catch (InterruptedException e) {
+         if (log.isTraceEnabled()) {
+            log.trace("Interrupted while marshalling to store");
+         }
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(upsertPs);
+         JdbcUtil.safeClose(selectPs);
+         JdbcUtil.safeClose(insertPs);
+         JdbcUtil.safeClose(updatePs);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p/>
+    * The rows are deleted with JDBC batches of up to {@link TableManipulation#getBatchSize()} statements, using a
+    * single connection.
+    */
+   @Override
+   public void deleteBatch(Iterable keys) {
+      Connection connection = null;
+      PreparedStatement ps = null;
+      try {
+         String sql = tableManipulation.getDeleteRowSql();
+         int batchSize = tableManipulation.getBatchSize();
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql '%s' in batches of %d", sql, batchSize);
+         }
+         connection = connectionFactory.getConnection();
+         ps = connection.prepareStatement(sql);
+         int count = 0;
+         for (Object key : keys) {
+            ps.setString(1, key2Str(key));
+            ps.addBatch();
+            if (++count % batchSize == 0)
+               ps.executeBatch();
+         }
+         if (count % batchSize != 0)
+            ps.executeBatch();
+      } catch (SQLException ex) {
+         log.sqlFailureRemovingKeys(ex);
+         throw new CacheLoaderException("Error while removing string keys from database", ex);
+      } finally {
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
    @Override
    public void clear() throws CacheLoaderException {
       Connection conn = null;
@@ -256,34 +397,96 @@ public void clear() throws CacheLoaderException {
    }
 
    @Override
-   public void purge(Executor executor, PurgeListener task) {
-      //todo we should make the notification to the purge listener here
+   public void purge(Executor executor, final PurgeListener task) {
+      final long now = ctx.getTimeService().wallClockTime();
+      // the ids of the expired rows are streamed from the result set and deleted by key in batches, each on its own
+      // connection, rather than by a single statement locking the whole table for the duration of the purge. Only a
+      // few batches are pending at a time, so the ids of all the expired rows are never held in memory together.
       ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<Void>(executor);
+      int batchSize = tableManipulation.getBatchSize();
+      int tasks = 0;
+      Connection conn = null;
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         String sql = tableManipulation.getSelectExpiredIdsSql();
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql %s", sql);
+         }
+         conn = connectionFactory.getConnection();
+         ps = conn.prepareStatement(sql);
+         ps.setLong(1, now);
+         rs = ps.executeQuery();
+         rs.setFetchSize(tableManipulation.getFetchSize());
+         List<String> batch = new ArrayList<String>(batchSize);
+         while (rs.next()) {
+            batch.add(rs.getString(1));
+            if (batch.size() == batchSize) {
+               if (tasks == MAX_PENDING_PURGE_BATCHES) {
+                  PersistenceUtil.waitForAllTasksToComplete(ecs, 1);
+                  tasks--;
+               }
+               submitDeleteExpired(ecs, batch, now, task);
+               tasks++;
+               batch = new ArrayList<String>(batchSize);
+            }
+         }
+         if (!batch.isEmpty()) {
+            submitDeleteExpired(ecs, batch, now, task);
+            tasks++;
+         }
+      } catch (SQLException ex) {
+         log.failedClearingJdbcCacheStore(ex);
+         throw new CacheLoaderException("Failed selecting expired rows of string based JDBC store", ex);
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(conn);
+      }
+      PersistenceUtil.waitForAllTasksToComplete(ecs, tasks);
+   }
+
+   private void submitDeleteExpired(ExecutorCompletionService<Void> ecs, final List<String> ids, final long now,
+                                    final PurgeListener task) {
       ecs.submit(new Callable<Void>() {
          @Override
          public Void call() throws Exception {
-            Connection conn = null;
-            PreparedStatement ps = null;
-            try {
-               String sql = tableManipulation.getDeleteExpiredRowsSql();
-               conn = connectionFactory.getConnection();
-               ps = conn.prepareStatement(sql);
-               ps.setLong(1, ctx.getTimeService().wallClockTime());
-               int result = ps.executeUpdate();
-               if (log.isTraceEnabled()) {
-                  log.tracef("Successfully purged %d rows.", result);
-               }
-            } catch (SQLException ex) {
-               log.failedClearingJdbcCacheStore(ex);
-               throw new CacheLoaderException("Failed clearing string based JDBC store", ex);
-            } finally {
-               JdbcUtil.safeClose(ps);
-               connectionFactory.releaseConnection(conn);
-            }
+            deleteExpired(ids, now, task);
             return null;
          }
       });
-      PersistenceUtil.waitForAllTasksToComplete(ecs, 1);
+   }
+
+   private void deleteExpired(List<String> ids, long now, PurgeListener task) {
+      Connection conn = null;
+      PreparedStatement ps = null;
+      try {
+         String sql = tableManipulation.getDeleteExpiredRowSql();
+         conn = connectionFactory.getConnection();
+         ps = conn.prepareStatement(sql);
+         for (String id : ids) {
+            ps.setString(1, id);
+            ps.setLong(2, now);
+            ps.addBatch();
+         }
+         int[] results = ps.executeBatch();
+         if (log.isTraceEnabled()) {
+            log.tracef("Successfully purged a batch of %d rows.", ids.size());
+         }
+         if (task != null && key2StringMapper instanceof TwoWayKey2StringMapper) {
+            for (int i = 0; i < results.length; i++) {
+               // rows updated in the meantime are no longer expired, and are not deleted
+               if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO)
+                  task.entryPurged(((TwoWayKey2StringMapper) key2StringMapper).getKeyMapping(ids.get(i)));
+            }
+         }
+      } catch (SQLException ex) {
+         log.failedClearingJdbcCacheStore(ex);
+         throw new CacheLoaderException("Failed purging string based JDBC store", ex);
+      } finally {
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(conn);
+      }
    }
 
    @Override
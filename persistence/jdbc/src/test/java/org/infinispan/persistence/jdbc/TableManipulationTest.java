@@ -114,6 +114,16 @@ public void testExistsWithSchema() throws CacheLoaderException {
      // todo
    }
 
+   public void testCreateTimestampIndex() throws Exception {
+      TableManipulation other = tableManipulation.clone();
+      other.setCacheName("TimestampIndex");
+      other.createTable(connection);
+      assert !other.timestampIndexExists(connection);
+      other.createTimestampIndex(connection);
+      assert other.timestampIndexExists(connection);
+      other.dropTable(connection);
+   }
+
    @Test(dependsOnMethods = "testExists")
    public void testDrop() throws Exception {
       assert tableManipulation.tableExists(connection);
@@ -1,6 +1,7 @@
 package org.infinispan.persistence.jdbc.configuration;
 
 import org.h2.Driver;
+import org.infinispan.commons.CacheConfigurationException;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.persistence.jdbc.DatabaseType;
@@ -29,6 +30,15 @@ public void testImplicitManagedConnectionFactory() {
       assert store.connectionFactory() instanceof ManagedConnectionFactoryConfiguration;
    }
 
+   @Test(expectedExceptions = CacheConfigurationException.class)
+   public void testZeroBatchSize() {
+      ConfigurationBuilder b = new ConfigurationBuilder();
+      JdbcStringBasedStoreConfigurationBuilder store = b.persistence().addStore(JdbcStringBasedStoreConfigurationBuilder.class);
+      store.connectionPool().connectionUrl(JDBC_URL);
+      store.table().batchSize(0);
+      b.build();
+   }
+
    public void testJdbcBinaryCacheStoreConfigurationAdaptor() {
       ConfigurationBuilder b = new ConfigurationBuilder();
       b.persistence().addStore(JdbcBinaryStoreConfigurationBuilder.class)
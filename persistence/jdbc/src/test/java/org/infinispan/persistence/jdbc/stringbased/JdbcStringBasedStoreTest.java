@@ -1,22 +1,36 @@
 package org.infinispan.persistence.jdbc.stringbased;
 
 import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.persistence.BaseStoreTest;
 import org.infinispan.persistence.CacheLoaderException;
 import org.infinispan.persistence.InitializationContextImpl;
+import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.jdbc.TableManipulation;
 import org.infinispan.persistence.jdbc.configuration.JdbcStringBasedStoreConfigurationBuilder;
 import org.infinispan.persistence.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.persistence.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.persistence.spi.AdvancedCacheWriter;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.infinispan.test.fwk.UnitTestDatabaseManager;
 import org.infinispan.util.DefaultTimeService;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.infinispan.test.TestingUtil.internalMetadata;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.testng.AssertJUnit.assertEquals;
 
 /**
  * Tester class  for {@link JdbcStringBasedStore}.
@@ -74,6 +88,48 @@ public void testNotCreateConnectionFactory() throws Exception {
       stringBasedCacheStore.stop();
    }
 
+   public void testWriteBatchUpdatesExistingRows() throws Exception {
+      List<MarshalledEntry> entries = new ArrayList<MarshalledEntry>();
+      for (int i = 0; i < 300; i++)
+         entries.add(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+      PersistenceUtil.writeBatch(cl, entries);
+
+      entries.clear();
+      for (int i = 0; i < 300; i += 2)
+         entries.add(new MarshalledEntryImpl("k" + i, "w" + i, null, getMarshaller()));
+      PersistenceUtil.writeBatch(cl, entries);
+      cl.write(new MarshalledEntryImpl("k1", "w1", null, getMarshaller()));
+
+      assertEquals(300, cl.size());
+      for (int i = 0; i < 300; i++)
+         assertEquals(i % 2 == 0 || i == 1 ? "w" + i : "v" + i, cl.load("k" + i).getValue());
+   }
+
+   public void testPurgeNotifiesListenerInParallel() throws Exception {
+      for (int i = 0; i < 300; i++)
+         cl.write(new MarshalledEntryImpl("k" + i, "v" + i, i % 3 == 0 ? null : internalMetadata(1l, null), getMarshaller()));
+      Thread.sleep(100);
+
+      final Set<Object> purged = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         cl.purge(executor, new AdvancedCacheWriter.PurgeListener() {
+            @Override
+            public void entryPurged(Object key) {
+               purged.add(key);
+            }
+         });
+      } finally {
+         executor.shutdownNow();
+      }
+      assertEquals(200, purged.size());
+      assertEquals(100, cl.size());
+      for (int i = 0; i < 300; i++) {
+         assertEquals(i % 3 != 0, purged.contains("k" + i));
+         assertEquals(i % 3 == 0, cl.contains("k" + i));
+      }
+   }
+
    @Override
    @Test(expectedExceptions = UnsupportedKeyTypeException.class)
    public void testLoadAndStoreMarshalledValues() throws CacheLoaderException {
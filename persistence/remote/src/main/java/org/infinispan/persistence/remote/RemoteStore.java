@@ -1,6 +1,7 @@
 package org.infinispan.persistence.remote;
 
 import net.jcip.annotations.ThreadSafe;
+import org.infinispan.client.hotrod.CloseableIterator;
 import org.infinispan.client.hotrod.Flag;
 import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
@@ -14,6 +15,7 @@
 import org.infinispan.container.InternalEntryFactory;
 import org.infinispan.container.versioning.NumericVersion;
 import org.infinispan.persistence.CacheLoaderException;
+import org.infinispan.persistence.PersistenceUtil;
 import org.infinispan.persistence.TaskContextImpl;
 import org.infinispan.persistence.remote.configuration.ConnectionPoolConfiguration;
 import org.infinispan.persistence.remote.configuration.RemoteStoreConfiguration;
@@ -29,7 +31,13 @@
 import org.infinispan.metadata.Metadata;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,6 +68,7 @@ public class RemoteStore implements AdvancedLoadWriteStore {
    private InternalEntryFactory iceFactory;
    private static final String LIFESPAN = "lifespan";
    private static final String MAXIDLE = "maxidle";
+   private static final int PROCESS_BATCH_SIZE = 100;
    protected InitializationContext ctx;
 
    @Override
@@ -124,20 +133,109 @@ public boolean contains(Object key) throws CacheLoaderException {
    }
 
    @Override
-   public void process(KeyFilter filter, CacheLoaderTask task, Executor executor, boolean fetchValue, boolean fetchMetadata) {
-      TaskContextImpl taskContext = new TaskContextImpl();
-      for (Object key : remoteCache.keySet()) {
-         if (taskContext.isStopped())
-            break;
-         if (filter == null || filter.shouldLoadKey(key)) {
-            try {
-               task.processEntry(load(key), taskContext);
-            } catch (InterruptedException e) {
-               Thread.currentThread().interrupt();
-               return;
+   public void process(KeyFilter filter, final CacheLoaderTask task, Executor executor, final boolean fetchValue, boolean fetchMetadata) {
+      final TaskContext taskContext = new TaskContextImpl();
+      ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<Void>(executor);
+      int tasks = 0;
+      List<Object> batch = new ArrayList<Object>(PROCESS_BATCH_SIZE);
+      // the keys are paged through, and the entries are fetched a batch at a time by the threads of the executor, with
+      // the metadata the iteration does not return
+      CloseableIterator<Object> keys = keys();
+      try {
+         while (keys.hasNext()) {
+            if (taskContext.isStopped())
+               break;
+            Object key = keys.next();
+            if (filter == null || filter.shouldLoadKey(key)) {
+               batch.add(key);
+               if (batch.size() == PROCESS_BATCH_SIZE) {
+                  submitProcessTask(task, ecs, taskContext, batch, fetchValue);
+                  tasks++;
+                  batch = new ArrayList<Object>(PROCESS_BATCH_SIZE);
+               }
             }
          }
+      } finally {
+         keys.close();
       }
+      if (!batch.isEmpty() && !taskContext.isStopped()) {
+         submitProcessTask(task, ecs, taskContext, batch, fetchValue);
+         tasks++;
+      }
+      PersistenceUtil.waitForAllTasksToComplete(ecs, tasks);
+   }
+
+   /**
+    * Pages through the keys of the remote cache if the protocol version supports it, and lists them in one go
+    * otherwise.
+    */
+   private CloseableIterator<Object> keys() {
+      final CloseableIterator<Map.Entry<Object, Object>> entries;
+      try {
+         entries = remoteCache.retrieveEntries(PROCESS_BATCH_SIZE);
+      } catch (UnsupportedOperationException e) {
+         final Iterator<Object> keys = remoteCache.keySet().iterator();
+         return new CloseableIterator<Object>() {
+            @Override
+            public boolean hasNext() {
+               return keys.hasNext();
+            }
+
+            @Override
+            public Object next() {
+               return keys.next();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+         };
+      }
+      return new CloseableIterator<Object>() {
+         @Override
+         public boolean hasNext() {
+            return entries.hasNext();
+         }
+
+         @Override
+         public Object next() {
+            return entries.next().getKey();
+         }
+
+         @Override
+         public void remove() {
+            throw new UnsupportedOperationException();
+         }
+
+         @Override
+         public void close() {
+            entries.close();
+         }
+      };
+   }
+
+   private void submitProcessTask(final CacheLoaderTask task, ExecutorCompletionService<Void> ecs,
+                                  final TaskContext taskContext, final List<Object> batch, final boolean fetchValue) {
+      ecs.submit(new Callable<Void>() {
+         @Override
+         public Void call() throws Exception {
+            for (Object key : batch) {
+               if (taskContext.isStopped())
+                  break;
+               MarshalledEntry entry = fetchValue ? load(key) :
+                     ctx.getMarshalledEntryFactory().newMarshalledEntry(key, (Object) null, null);
+               // the entry may have been removed since the keys were listed
+               if (entry != null)
+                  task.processEntry(entry, taskContext);
+            }
+            return null;
+         }
+      });
    }
 
    @Override
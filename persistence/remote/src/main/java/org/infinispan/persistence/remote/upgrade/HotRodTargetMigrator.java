@@ -1,5 +1,6 @@
 package org.infinispan.persistence.remote.upgrade;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -39,7 +40,7 @@ public long synchronizeData(final Cache<Object, Object> cache) throws CacheExcep
       ComponentRegistry cr = cache.getAdvancedCache().getComponentRegistry();
       PersistenceManager loaderManager = cr.getComponent(PersistenceManager.class);
       Set<RemoteStore> stores = loaderManager.getStores(RemoteStore.class);
-      Marshaller marshaller = new GenericJBossMarshaller();
+      final Marshaller marshaller = new GenericJBossMarshaller();
       byte[] knownKeys;
       try {
          knownKeys = marshaller.objectToByteBuffer(MIGRATION_MANAGER_HOT_ROD_KNOWN_KEYS);
@@ -56,31 +57,47 @@ public long synchronizeData(final Cache<Object, Object> cache) throws CacheExcep
             }
 
 
-            Set<byte[]> keys;
-            try {
-               keys = (Set<byte[]>) marshaller.objectFromByteBuffer((byte[])storeCache.get(knownKeys));
-            } catch (Exception e) {
-               throw new CacheException(e);
-            }
+            Object knownKeysValue = unmarshall(marshaller, storeCache.get(knownKeys));
 
             ExecutorService es = Executors.newFixedThreadPool(threads);
             final AtomicInteger count = new AtomicInteger(0);
-            for (final byte[] key : keys) {
-               es.submit(new Runnable() {
-
-                  @Override
-                  public void run() {
-                     try {
-                        cache.get(key);
-                        int i = count.getAndIncrement();
-                        if (log.isDebugEnabled() && i % 100 == 0)
-                           log.debugf(">>    Moved %s keys\n", i);
-                     } catch (Exception e) {
-                        log.keyMigrationFailed(Util.toStr(key), e);
-                     }
+            if (knownKeysValue instanceof List) {
+               // the keys were recorded in chunks: each thread fetches and migrates a whole chunk, so that only as
+               // many chunks as there are threads are held in memory at once, and then removes it from the source
+               for (String chunk : (List<String>) knownKeysValue) {
+                  final byte[] chunkKey;
+                  try {
+                     chunkKey = marshaller.objectToByteBuffer(chunk);
+                  } catch (Exception e) {
+                     throw new CacheException(e);
                   }
-               });
-
+                  es.submit(new Runnable() {
+                     @Override
+                     public void run() {
+                        try {
+                           Object chunkValue = storeCache.get(chunkKey);
+                           if (chunkValue == null)
+                              return;
+                           Set<byte[]> keys = (Set<byte[]>) unmarshall(marshaller, chunkValue);
+                           for (byte[] key : keys)
+                              migrateKey(cache, key, count);
+                           storeCache.remove(chunkKey);
+                        } catch (Exception e) {
+                           log.keyMigrationFailed(Util.toStr(chunkKey), e);
+                        }
+                     }
+                  });
+               }
+            } else {
+               // a single key set, recorded by an older source cluster
+               for (final byte[] key : (Set<byte[]>) knownKeysValue) {
+                  es.submit(new Runnable() {
+                     @Override
+                     public void run() {
+                        migrateKey(cache, key, count);
+                     }
+                  });
+               }
             }
             es.shutdown();
             try {
@@ -88,12 +105,33 @@ public void run() {
             } catch (InterruptedException e) {
                throw new CacheException(e);
             }
+            // the source records the keys again if the migration has to be run again
+            storeCache.remove(knownKeys);
             return count.longValue();
          }
       }
       throw log.missingMigrationData(cache.getName());
    }
 
+   private static void migrateKey(Cache<Object, Object> cache, byte[] key, AtomicInteger count) {
+      try {
+         cache.get(key);
+         int i = count.getAndIncrement();
+         if (log.isDebugEnabled() && i % 100 == 0)
+            log.debugf(">>    Moved %s keys\n", i);
+      } catch (Exception e) {
+         log.keyMigrationFailed(Util.toStr(key), e);
+      }
+   }
+
+   private static Object unmarshall(Marshaller marshaller, Object bytes) {
+      try {
+         return marshaller.objectFromByteBuffer((byte[]) bytes);
+      } catch (Exception e) {
+         throw new CacheException(e);
+      }
+   }
+
    @Override
    public void disconnectSource(Cache<Object, Object> cache) throws CacheException {
       ComponentRegistry cr = cache.getAdvancedCache().getComponentRegistry();
@@ -11,8 +11,11 @@
 import org.infinispan.persistence.BaseStoreTest;
 import org.infinispan.persistence.CacheLoaderException;
 import org.infinispan.persistence.InitializationContextImpl;
+import org.infinispan.persistence.PersistenceUtil;
+import org.infinispan.marshall.core.MarshalledEntry;
 import org.infinispan.marshall.core.MarshalledEntryImpl;
 import org.infinispan.persistence.remote.configuration.RemoteStoreConfigurationBuilder;
+import org.infinispan.persistence.spi.AdvancedCacheLoader;
 import org.infinispan.persistence.spi.AdvancedLoadWriteStore;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.server.hotrod.HotRodServer;
@@ -23,7 +26,14 @@
 import org.testng.annotations.Test;
 
 import static org.infinispan.server.hotrod.test.HotRodTestingUtil.hotRodCacheConfiguration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.infinispan.test.TestingUtil.internalMetadata;
+import static org.testng.AssertJUnit.assertEquals;
 
 /**
  * @author Mircea.Markus@jboss.com
@@ -111,6 +121,30 @@ public void testReplaceExpiredEntry() throws Exception {
       assert cl.load("k1").getValue().equals("v2") || TestingUtil.moreThanDurationElapsed(start, 100);
    }
 
+   public void testProcessInParallel() throws Exception {
+      for (int i = 0; i < 50; i++)
+         cl.write(new MarshalledEntryImpl("k" + i, "v" + i, null, getMarshaller()));
+
+      final ConcurrentMap<Object, Object> entries = new ConcurrentHashMap<Object, Object>();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+         cl.process(null, new AdvancedCacheLoader.CacheLoaderTask() {
+            @Override
+            public void processEntry(MarshalledEntry marshalledEntry, AdvancedCacheLoader.TaskContext taskContext) {
+               entries.put(marshalledEntry.getKey(), marshalledEntry.getValue());
+            }
+         }, executor, true, false);
+      } finally {
+         executor.shutdownNow();
+      }
+      assertEquals(50, entries.size());
+      for (int i = 0; i < 50; i++)
+         assertEquals("v" + i, entries.get("k" + i));
+
+      Set<Object> keys = PersistenceUtil.toKeySet(cl, null);
+      assertEquals(entries.keySet(), keys);
+   }
+
    @Override
    public void testStoreAndRemove() throws CacheLoaderException {
       super.testStoreAndRemove();    // TODO: Customise this generated block
@@ -74,8 +74,9 @@ public void testSynchronization() throws Exception {
       sourceUpgradeManager.recordKnownGlobalKeyset();
       RollingUpgradeManager targetUpgradeManager = targetServerCache.getAdvancedCache().getComponentRegistry().getComponent(RollingUpgradeManager.class);
       targetUpgradeManager.synchronizeData("hotrod");
-      // The server contains one extra key: MIGRATION_MANAGER_HOT_ROD_KNOWN_KEYS
-      assertEquals(sourceServerCache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_STORE).size() - 1, targetServerCache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_STORE).size());
+      // The known keys and their chunks are removed from the source once migrated
+      assertEquals(26, sourceServerCache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_STORE).size());
+      assertEquals(26, targetServerCache.getAdvancedCache().withFlags(Flag.SKIP_CACHE_STORE).size());
 
       targetUpgradeManager.disconnectSource("hotrod");
    }
@@ -121,6 +121,26 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
             if (g.status == Success) writeRangedBytes(g.data.get, buf)
          case q: QueryResponse =>
             writeRangedBytes(q.result, buf)
+         case g: GetAllResponse => {
+            writeUnsignedInt(g.entries.size, buf)
+            for ((key, value) <- g.entries) {
+               writeRangedBytes(key, buf)
+               writeRangedBytes(value, buf)
+            }
+         }
+         case i: IterationStartResponse => writeString(i.iterationId, buf)
+         case i: IterationNextResponse => {
+            writeUnsignedInt(i.entries.size, buf)
+            for ((key, value) <- i.entries) {
+               writeRangedBytes(key, buf)
+               writeRangedBytes(value, buf)
+            }
+         }
+         case e: KeyInvalidationEvent => writeRangedBytes(e.key, buf)
+         case e: ClientEvent => {
+            buf.writeByte(e.eventType)
+            writeRangedBytes(e.key, buf)
+         }
          case e: ErrorResponse => writeString(e.msg, buf)
          case _ => if (buf == null)
             throw new IllegalArgumentException("Response received is unknown: " + r)
@@ -30,6 +30,16 @@ abstract class AbstractVersionedDecoder {
     */
    def readParameters(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Boolean)
 
+   /**
+    * Read the parameters shared by the entries of a put all request, and the entries themselves.
+    */
+   def readPutAllRequest(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Seq[(Array[Byte], Array[Byte])])
+
+   /**
+    * Read the keys of a get all request.
+    */
+   def readGetAllRequest(header: HotRodHeader, buffer: ChannelBuffer): Seq[Array[Byte]]
+
    /**
     * Create a successful response.
     */
@@ -0,0 +1,37 @@
+package org.infinispan.server.hotrod
+
+import org.infinispan.notifications.Listener
+import org.infinispan.notifications.cachelistener.annotation.{CacheEntryModified, CacheEntryRemoved}
+import org.infinispan.notifications.cachelistener.event.{CacheEntryModifiedEvent, CacheEntryRemovedEvent}
+import org.jboss.netty.channel.Channel
+
+/**
+ * Listener which pushes an event to a Hot Rod client for every entry created, modified or removed in the cache. Only
+ * the primary owner of a key notifies, so a client registered on all the servers of the cluster receives each event
+ * once. The events are written to the channel on which the client registered, with the message id of the
+ * registration request.
+ *
+ * @since 6.0
+ */
+@Listener(primaryOnly = true)
+class ClientEventListener(ch: Channel, version: Byte, messageId: Long, cacheName: String) {
+
+   @CacheEntryModified
+   def entryModified(e: CacheEntryModifiedEvent[_, _]) {
+      if (!e.isPre) send(if (e.isCreated) ClientEvent.Created else ClientEvent.Modified, e.getKey)
+   }
+
+   @CacheEntryRemoved
+   def entryRemoved(e: CacheEntryRemovedEvent[_, _]) {
+      // Clear only notifies before the entries are removed, so it is not reported
+      if (!e.isPre) send(ClientEvent.Removed, e.getKey)
+   }
+
+   private def send(eventType: Byte, key: Any) {
+      key match {
+         case k: Array[Byte] => if (ch.isOpen) ch.write(new ClientEvent(version, messageId, cacheName, eventType, k))
+         case _ => // Not stored through Hot Rod, so no client can know the key
+      }
+   }
+
+}
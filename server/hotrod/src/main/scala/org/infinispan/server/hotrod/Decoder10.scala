@@ -49,9 +49,20 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          case 0x1B => (GetWithMetadataRequest, false)
          case 0x1D => (BulkGetKeysRequest, false)
          case 0x1F => (QueryRequest, false)
+         case 0x21 => (GetAllRequest, false)
+         case 0x23 => (PutAllRequest, false)
+         case 0x25 => (AddInvalidationListenerRequest, true)
+         case 0x27 => (AddClientListenerRequest, false)
+         case 0x29 => (IterationStartRequest, false)
+         case 0x2B => (IterationNextRequest, false)
+         case 0x2D => (IterationEndRequest, false)
          case _ => throw new HotRodUnknownOperationException(
                "Unknown operation: " + streamOp, version, messageId)
       }
+      // operations added in 1.3 are unknown to older clients, which must not be able to reach them by accident
+      if (streamOp >= 0x21 && version < Constants.VERSION_13)
+         throw new HotRodUnknownOperationException(
+               "Unknown operation for version " + version + ": " + streamOp, version, messageId)
       if (isTrace) trace("Operation code: %d has been matched to %s", streamOp, op)
 
       val cacheName = readString(buffer)
@@ -103,6 +114,19 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
       }
    }
 
+   override def readPutAllRequest(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Seq[(Array[Byte], Array[Byte])]) = {
+      val lifespan = readLifespanOrMaxIdle(buffer, hasFlag(header, ProtocolFlag.DefaultLifespan))
+      val maxIdle = readLifespanOrMaxIdle(buffer, hasFlag(header, ProtocolFlag.DefaultMaxIdle))
+      val count = readUnsignedInt(buffer)
+      val entries = for (i <- 0 until count) yield (readKey(buffer), readRangedBytes(buffer))
+      (new RequestParameters(-1, lifespan, maxIdle, -1), entries)
+   }
+
+   override def readGetAllRequest(header: HotRodHeader, buffer: ChannelBuffer): Seq[Array[Byte]] = {
+      val count = readUnsignedInt(buffer)
+      for (i <- 0 until count) yield readKey(buffer)
+   }
+
    private def hasFlag(h: HotRodHeader, f: ProtocolFlag): Boolean = {
       (h.flag & f.id) == f.id
    }
@@ -305,6 +329,13 @@ object Decoder10 extends AbstractVersionedDecoder with ServerConstants with Log
          case BulkGetRequest => BulkGetResponse
          case GetWithMetadataRequest => GetWithMetadataResponse
          case BulkGetKeysRequest => BulkGetKeysResponse
+         case GetAllRequest => GetAllResponse
+         case PutAllRequest => PutAllResponse
+         case AddInvalidationListenerRequest => AddInvalidationListenerResponse
+         case AddClientListenerRequest => AddClientListenerResponse
+         case IterationStartRequest => IterationStartResponse
+         case IterationNextRequest => IterationNextResponse
+         case IterationEndRequest => IterationEndResponse
       }
    }
 
@@ -328,6 +359,15 @@ object OperationResponse extends Enumeration {
    val GetWithMetadataResponse = Value(0x1C)
    val BulkGetKeysResponse = Value(0x1E)
    val QueryResponse = Value(0x20)
+   val GetAllResponse = Value(0x22)
+   val PutAllResponse = Value(0x24)
+   val AddInvalidationListenerResponse = Value(0x26)
+   val AddClientListenerResponse = Value(0x28)
+   val IterationStartResponse = Value(0x2A)
+   val IterationNextResponse = Value(0x2C)
+   val IterationEndResponse = Value(0x2E)
+   val KeyInvalidationEvent = Value(0x60)
+   val ClientEvent = Value(0x61)
    val ErrorResponse = Value(0x50)
 }
 
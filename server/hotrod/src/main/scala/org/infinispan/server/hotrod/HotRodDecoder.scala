@@ -9,10 +9,15 @@ import java.nio.channels.ClosedChannelException
 import org.infinispan.{AdvancedCache, Cache}
 import java.io.{IOException, StreamCorruptedException}
 import org.jboss.netty.buffer.ChannelBuffer
-import org.jboss.netty.channel.Channel
+import org.jboss.netty.channel.{ChannelFuture, ChannelFutureListener, Channel}
 import java.lang.StringBuilder
 import org.infinispan.container.entries.CacheEntry
 import org.infinispan.server.hotrod.configuration.HotRodServerConfiguration
+import org.infinispan.commons.equivalence.{ByteArrayEquivalence, EquivalentHashSet}
+import org.infinispan.notifications.KeyFilter
+import org.infinispan.commons.util.concurrent.FutureListener
+import java.util.concurrent.{ExecutionException, Future}
+import java.util.concurrent.atomic.{AtomicInteger, AtomicReference, AtomicReferenceArray}
 
 /**
  * Top level Hot Rod decoder that after figuring out the version, delegates the rest of the reading to the
@@ -131,11 +136,184 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
    override def createMultiGetResponse(pairs: Map[Array[Byte], CacheEntry]): AnyRef =
       null // Unsupported
 
-   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+   override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.AddInvalidationListenerRequest => addInvalidationListener(ch)
+         case _ => writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
+      }
+   }
+
+   private def addInvalidationListener(ch: Channel): AnyRef = {
+      val h = header
+      val listener = new KeyInvalidationListener(ch, h.version, h.messageId, h.cacheName)
+      // The response must reach the client before the first event
+      writeResponse(ch, new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                     OperationResponse.AddInvalidationListenerResponse, Success, h.topologyId))
+      c.addListener(listener)
+      ch.getCloseFuture.addListener(new ChannelFutureListener {
+         override def operationComplete(future: ChannelFuture) {
+            c.removeListener(listener)
+         }
+      })
+      null
+   }
+
+   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         case HotRodOperation.GetAllRequest => writeResponse(ch, getAll(ch, buffer))
+         case HotRodOperation.PutAllRequest => writeResponse(ch, putAll(ch, buffer))
+         case HotRodOperation.AddClientListenerRequest => addClientListener(ch, buffer)
+         case HotRodOperation.IterationStartRequest => writeResponse(ch, startIteration(ch, buffer))
+         case HotRodOperation.IterationNextRequest => writeResponse(ch, nextIterationBatch(buffer))
+         case HotRodOperation.IterationEndRequest => writeResponse(ch, endIteration(buffer))
+         case _ => writeResponse(ch, header.decoder.customReadKey(header, buffer, cache, server.getQueryFacades))
+      }
+   }
+
+   private def addClientListener(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      // read all the keys before registering, as the request is read again if it is not complete yet
+      val count = readUnsignedInt(buffer)
+      val keys = for (i <- 0 until count) yield readRangedBytes(buffer)
+      val h = header
+      val listener = new ClientEventListener(ch, h.version, h.messageId, h.cacheName)
+      // The response must reach the client before the first event
+      writeResponse(ch, new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                     OperationResponse.AddClientListenerResponse, Success, h.topologyId))
+      if (keys.isEmpty) {
+         c.addListener(listener)
+      } else {
+         val keySet = new EquivalentHashSet[Array[Byte]](keys.size, ByteArrayEquivalence.INSTANCE)
+         keys.foreach(keySet.add(_))
+         c.addListener(listener, new KeyFilter {
+            override def accept(key: Any): Boolean = key match {
+               case k: Array[Byte] => keySet.contains(k)
+               case _ => false
+            }
+         })
+      }
+      ch.getCloseFuture.addListener(new ChannelFutureListener {
+         override def operationComplete(future: ChannelFuture) {
+            c.removeListener(listener)
+         }
+      })
+      null
+   }
+
+   private def startIteration(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      // [segment count][segment]...[batch size]
+      val segmentCount = readUnsignedInt(buffer)
+      val segments = (for (i <- 0 until segmentCount) yield readUnsignedInt(buffer)).toSet
+      val batchSize = readUnsignedInt(buffer)
+      val iterations = server.getIterationManager
+      iterations.start(ch, cache, segments, batchSize) match {
+         case Some(id) =>
+            // iterations abandoned by the client must not pin the cache iterator forever
+            ch.getCloseFuture.addListener(new ChannelFutureListener {
+               override def operationComplete(future: ChannelFuture) {
+                  iterations.end(id)
+               }
+            })
+            new IterationStartResponse(header.version, header.messageId, header.cacheName, header.clientIntel,
+                                       header.topologyId, id)
+         case None =>
+            new ErrorResponse(header.version, header.messageId, header.cacheName, header.clientIntel, ServerError,
+                              header.topologyId, "Too many open iterations on this connection, at most %d are allowed"
+                                    .format(IterationManager.MaxIterationsPerConnection))
+      }
+   }
 
-   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache, server.getQueryFacades))
+   private def nextIterationBatch(buffer: ChannelBuffer): AnyRef = {
+      val id = readString(buffer)
+      server.getIterationManager.next(id) match {
+         case Some(entries) =>
+            new IterationNextResponse(header.version, header.messageId, header.cacheName, header.clientIntel,
+                                      header.topologyId, entries)
+         case None => createNotExistResponse
+      }
+   }
+
+   private def endIteration(buffer: ChannelBuffer): AnyRef = {
+      val id = readString(buffer)
+      if (server.getIterationManager.end(id))
+         new Response(header.version, header.messageId, header.cacheName, header.clientIntel,
+                      OperationResponse.IterationEndResponse, Success, header.topologyId)
+      else
+         createNotExistResponse
+   }
+
+   private def getAll(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      // read all the keys before touching the cache, as the request is read again if it is not complete yet
+      val keys = header.decoder.readGetAllRequest(header, buffer)
+      val h = header
+      if (isTrace) trace("About to create get all response, count = %d", keys.size)
+      if (keys.isEmpty)
+         return new GetAllResponse(h.version, h.messageId, h.cacheName, h.clientIntel, h.topologyId, Seq.empty)
+
+      // the keys are read in parallel, as they may be owned by different nodes or loaded from a store, and the
+      // response is written once the last of them completes so that the I/O thread never waits for the reads
+      val values = new AtomicReferenceArray[Array[Byte]](keys.size)
+      val pending = new AtomicInteger(keys.size)
+      val failure = new AtomicReference[Throwable]
+      for ((k, i) <- keys.zipWithIndex) {
+         cache.getAsync(k).attachListener(new FutureListener[Array[Byte]] {
+            override def futureDone(future: Future[Array[Byte]]) {
+               try {
+                  values.set(i, future.get)
+               } catch {
+                  case e: ExecutionException => failure.compareAndSet(null, e.getCause)
+                  case t: Throwable => failure.compareAndSet(null, t)
+               }
+               if (pending.decrementAndGet() == 0) {
+                  val t = failure.get
+                  if (t == null) {
+                     val entries = for (j <- 0 until keys.size; v = values.get(j); if v != null) yield (keys(j), v)
+                     ch.write(new GetAllResponse(h.version, h.messageId, h.cacheName, h.clientIntel, h.topologyId, entries))
+                  } else {
+                     ch.write(new ErrorResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                                ServerError, h.topologyId, t.toString))
+                  }
+               }
+            }
+         })
+      }
+      null
+   }
+
+   private def putAll(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      val (parameters, entries) = header.decoder.readPutAllRequest(header, buffer)
+      params = parameters
+      val h = header
+      if (entries.isEmpty)
+         return new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+                             OperationResponse.PutAllResponse, Success, h.topologyId)
+
+      // the entries are written in parallel, as they may be owned by different nodes, and the response is written
+      // once the last of them completes so that the I/O thread never waits for the writes
+      val c = getOptimizedCache(cache)
+      val pending = new AtomicInteger(entries.size)
+      val failure = new AtomicReference[Throwable]
+      val listener = new FutureListener[Array[Byte]] {
+         override def futureDone(future: Future[Array[Byte]]) {
+            try {
+               future.get
+            } catch {
+               case e: ExecutionException => failure.compareAndSet(null, e.getCause)
+               case t: Throwable => failure.compareAndSet(null, t)
+            }
+            if (pending.decrementAndGet() == 0) {
+               val t = failure.get
+               if (t == null)
+                  ch.write(new Response(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                        OperationResponse.PutAllResponse, Success, h.topologyId))
+               else
+                  ch.write(new ErrorResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                             ServerError, h.topologyId, t.toString))
+            }
+         }
+      }
+      for ((k, v) <- entries) c.putAsync(k, v, buildMetadata()).attachListener(listener)
+      null
+   }
 
    override protected def customDecodeValue(ch: Channel, buffer: ChannelBuffer): AnyRef =
       writeResponse(ch, header.decoder.customReadValue(header, buffer, cache))
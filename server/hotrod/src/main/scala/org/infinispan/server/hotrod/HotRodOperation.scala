@@ -18,4 +18,11 @@ object HotRodOperation extends Enumeration(20) {
    val GetWithMetadataRequest = Value
    val BulkGetKeysRequest = Value
    val QueryRequest = Value
+   val GetAllRequest = Value
+   val PutAllRequest = Value
+   val AddInvalidationListenerRequest = Value
+   val AddClientListenerRequest = Value
+   val IterationStartRequest = Value
+   val IterationNextRequest = Value
+   val IterationEndRequest = Value
 }
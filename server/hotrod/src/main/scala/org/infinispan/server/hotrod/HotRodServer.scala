@@ -37,9 +37,12 @@ class HotRodServer extends AbstractProtocolServer("HotRod") with Log {
    private val knownCaches : java.util.Map[String, Cache[Array[Byte], Array[Byte]]] =
          CollectionFactory.makeConcurrentMap(4, 0.9f, 16)
    private var queryFacades: Seq[QueryFacade] = _
+   private val iterationManager = new IterationManager
 
    def getAddress: ServerAddress = address
 
+   def getIterationManager: IterationManager = iterationManager
+
    def getQueryFacades: Seq[QueryFacade] = queryFacades
 
    override def getEncoder = new HotRodEncoder(getCacheManager, this)
@@ -10,15 +10,17 @@ package org.infinispan.server.hotrod
 import org.infinispan.Cache
 import org.infinispan.distexec.{DistributedCallable, DefaultExecutorService}
 import org.infinispan.commons.marshall.jboss.GenericJBossMarshaller
+import org.infinispan.interceptors.locking.ClusteringDependentLogic
 import org.infinispan.upgrade.SourceMigrator
-import org.infinispan.tasks.GlobalKeySetTask
 import org.infinispan.metadata.EmbeddedMetadata
 import EmbeddedMetadata.Builder
 import org.infinispan.container.versioning.NumericVersion
+import scala.collection.JavaConversions._
 
 class HotRodSourceMigrator(cache: Cache[Array[Byte], Array[Byte]]) extends SourceMigrator {
    val KNOWN_KEY = "___MigrationManager_HotRod_KnownKeys___"
    val MARSHALLER = new GenericJBossMarshaller // TODO: Hard coded!  Yuck!  Assumes the Synchronizer service will use the same marshaller.  Doesn't matter what actual clients use to store/retrieve data.
+   val KEYS_PER_CHUNK = 10000
 
    @Override
    def getCacheName = cache.getName
@@ -30,18 +32,83 @@ class HotRodSourceMigrator(cache: Cache[Array[Byte], Array[Byte]]) extends Sourc
    }
 
    def recordKnownGlobalKeyset(keyToRecordKnownKeySet: String) {
-      // TODO: the bulk of ths code is reusable across different implementations of Migrator
       val bak = MARSHALLER.objectToByteBuffer(keyToRecordKnownKeySet)
 
-      val cm = cache.getCacheConfiguration().clustering().cacheMode()
-      val keys = GlobalKeySetTask.getGlobalKeySet(cache)
+      // the chunks of a previous run which was never migrated
+      removeChunks(bak)
 
-      // Remove KNOWN_KEY from the key set - just in case it is there from a previous run.
-      keys remove KNOWN_KEY
+      // The keys are recorded in chunks of bounded size, each under its own key, so that neither the nodes recording
+      // them nor the target cluster migrating them ever hold the whole key set.  Each node records the keys of its own
+      // data container, and the known key itself holds the names of the chunks.
+      val task = new RecordKnownKeysTask(keyToRecordKnownKeySet, KEYS_PER_CHUNK)
+      val chunks = new java.util.ArrayList[String]()
+      if (cache.getCacheConfiguration.clustering.cacheMode.isDistributed) {
+         val des = new DefaultExecutorService(cache)
+         for (f <- des.submitEverywhere(task)) chunks.addAll(f.get)
+      } else {
+         task.setEnvironment(cache, null)
+         chunks.addAll(task.call())
+      }
 
-      // we cannot store the Set as it is; it will break if attempting to be read via Hot Rod.  This should be wrapped
+      // we cannot store the List as it is; it will break if attempting to be read via Hot Rod.  This should be wrapped
       // in a CacheValue.
       val metadata = new Builder().version(new NumericVersion(1)).build()
-      cache.getAdvancedCache.put(bak, MARSHALLER.objectToByteBuffer(keys), metadata)
+      cache.getAdvancedCache.put(bak, MARSHALLER.objectToByteBuffer(chunks), metadata)
+   }
+
+   private def removeChunks(bak: Array[Byte]) {
+      val previous = cache.get(bak)
+      if (previous != null) {
+         MARSHALLER.objectFromByteBuffer(previous) match {
+            case chunks: java.util.List[_] =>
+               for (chunk <- chunks) cache.remove(MARSHALLER.objectToByteBuffer(chunk))
+            case _ =>
+         }
+         cache.remove(bak)
+      }
+   }
+}
+
+/**
+ * Records the keys held by the data container of a node in chunks, and returns the names of the chunks.  In a
+ * distributed cache each node only records the keys it is the primary owner of, so that every key is recorded once.
+ */
+private class RecordKnownKeysTask(prefix: String, keysPerChunk: Int)
+      extends DistributedCallable[Array[Byte], Array[Byte], java.util.List[String]] with Serializable {
+
+   @transient private var cache: Cache[Array[Byte], Array[Byte]] = _
+
+   override def setEnvironment(cache: Cache[Array[Byte], Array[Byte]], inputKeys: java.util.Set[Array[Byte]]) {
+      this.cache = cache
+   }
+
+   override def call(): java.util.List[String] = {
+      val marshaller = new GenericJBossMarshaller
+      val metadata = new Builder().version(new NumericVersion(1)).build()
+      val distributed = cache.getCacheConfiguration.clustering.cacheMode.isDistributed
+      val clusteringLogic = cache.getAdvancedCache.getComponentRegistry.getComponent(classOf[ClusteringDependentLogic])
+      val rpcManager = cache.getAdvancedCache.getRpcManager
+      val node = if (rpcManager == null) "local" else rpcManager.getAddress.toString
+      // the chunks written by the nodes may show up in the data containers being iterated over
+      val marker = prefix.getBytes("UTF-8")
+
+      val chunkNames = new java.util.ArrayList[String]()
+      var chunk = new java.util.HashSet[Object](keysPerChunk)
+      def writeChunk() {
+         val name = prefix + "_" + node + "_" + chunkNames.size
+         cache.getAdvancedCache.put(marshaller.objectToByteBuffer(name), marshaller.objectToByteBuffer(chunk), metadata)
+         chunkNames.add(name)
+         chunk = new java.util.HashSet[Object](keysPerChunk)
+      }
+
+      for (key <- cache.getAdvancedCache.getDataContainer.keySet) {
+         val k = key.asInstanceOf[Array[Byte]]
+         if (!k.containsSlice(marker) && (!distributed || clusteringLogic.localNodeIsPrimaryOwner(k))) {
+            chunk.add(k)
+            if (chunk.size == keysPerChunk) writeChunk()
+         }
+      }
+      if (!chunk.isEmpty) writeChunk()
+      chunkNames
    }
 }
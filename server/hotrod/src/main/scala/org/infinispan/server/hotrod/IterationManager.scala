@@ -0,0 +1,163 @@
+package org.infinispan.server.hotrod
+
+import java.util.{Collections, UUID}
+import java.util.concurrent.atomic.AtomicInteger
+import org.infinispan.AdvancedCache
+import org.infinispan.commons.equivalence.{ByteArrayEquivalence, EquivalentHashSet}
+import org.infinispan.commons.util.CollectionFactory
+import org.infinispan.container.entries.InternalCacheEntry
+import org.infinispan.interceptors.locking.ClusteringDependentLogic
+import org.infinispan.marshall.core.MarshalledEntry
+import org.infinispan.persistence.manager.PersistenceManager
+import org.infinispan.persistence.spi.AdvancedCacheLoader.{CacheLoaderTask, KeyFilter, TaskContext}
+import org.infinispan.util.TimeService
+import scala.collection.JavaConversions._
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Keeps track of the remote iterations open against this server. Each iteration walks the in-memory data container
+ * of a cache lazily and hands its entries over in batches, so that neither the server nor the client ever hold more
+ * than one batch at a time. Once the data container is exhausted, the iteration goes on with the entries which are
+ * only in the cache stores: their keys are collected in one pass over the stores, and their values are loaded one
+ * batch at a time. An iteration only returns the entries for which this node is the primary owner, so that iterating
+ * over every server of a cluster returns each entry exactly once.
+ * <p/>
+ * Every iteration belongs to the connection which started it, and a connection can have at most
+ * {@link IterationManager#MaxIterationsPerConnection} iterations open at a time, so that a client which never closes
+ * its iterations cannot pin an unbounded number of them.
+ *
+ * @since 6.0
+ */
+class IterationManager {
+   import IterationManager._
+
+   private val iterations: java.util.Map[String, IterationState] = CollectionFactory.makeConcurrentMap[String, IterationState]()
+   private val openPerConnection: java.util.concurrent.ConcurrentMap[AnyRef, AtomicInteger] =
+      CollectionFactory.makeConcurrentMap[AnyRef, AtomicInteger]()
+
+   /**
+    * Starts an iteration on behalf of the given connection, or returns None if the connection already has the
+    * maximum number of iterations open.
+    */
+   def start(connection: AnyRef, cache: AdvancedCache[Array[Byte], Array[Byte]], segments: Set[Int],
+             batchSize: Int): Option[String] = {
+      if (!reserve(connection)) {
+         None
+      } else {
+         val id = UUID.randomUUID.toString
+         iterations.put(id, new IterationState(connection, cache, segments, batchSize))
+         Some(id)
+      }
+   }
+
+   /**
+    * Returns the next batch of the given iteration, or None if the iteration does not exist. An empty batch means
+    * that the iteration is finished.
+    */
+   def next(id: String): Option[Seq[(Array[Byte], Array[Byte])]] = {
+      iterations.get(id) match {
+         case null => None
+         case state => Some(state.next())
+      }
+   }
+
+   def end(id: String): Boolean = {
+      iterations.remove(id) match {
+         case null => false
+         case state =>
+            release(state.connection)
+            true
+      }
+   }
+
+   def activeIterations: Int = iterations.size
+
+   private def reserve(connection: AnyRef): Boolean = {
+      while (true) {
+         val open = openPerConnection.get(connection)
+         if (open == null) {
+            if (openPerConnection.putIfAbsent(connection, new AtomicInteger(1)) == null) return true
+         } else {
+            val count = open.get
+            if (count >= MaxIterationsPerConnection) return false
+            // a counter which dropped to zero is about to be removed, so it is removed here and a new one is created
+            if (count == 0) openPerConnection.remove(connection, open)
+            else if (open.compareAndSet(count, count + 1)) return true
+         }
+      }
+      false
+   }
+
+   private def release(connection: AnyRef) {
+      val open = openPerConnection.get(connection)
+      if (open != null && open.decrementAndGet() == 0) openPerConnection.remove(connection, open)
+   }
+
+}
+
+object IterationManager {
+   val MaxIterationsPerConnection = 16
+}
+
+private class IterationState(val connection: AnyRef, cache: AdvancedCache[Array[Byte], Array[Byte]],
+                             segments: Set[Int], batchSize: Int) {
+
+   private val registry = cache.getComponentRegistry
+   private val clusteringLogic = registry.getComponent(classOf[ClusteringDependentLogic])
+   private val timeService = registry.getComponent(classOf[TimeService])
+   private val stateTransferManager = registry.getStateTransferManager
+   // replicated and distributed caches share the entries, so each node only returns those it is the primary owner of
+   private val isShared = {
+      val mode = cache.getCacheConfiguration.clustering.cacheMode
+      mode.isReplicated || mode.isDistributed
+   }
+   private val usesStores = cache.getCacheConfiguration.persistence.usingStores
+   private val persistenceManager = registry.getComponent(classOf[PersistenceManager])
+   private val dataContainer = cache.getDataContainer
+   private val entries: Iterator[InternalCacheEntry] = dataContainer.iterator
+   // the keys which are only in the stores, collected once the data container is exhausted
+   private var storedKeys: Iterator[Array[Byte]] = null
+
+   def next(): Seq[(Array[Byte], Array[Byte])] = synchronized {
+      val batch = new ArrayBuffer[(Array[Byte], Array[Byte])](batchSize)
+      val now = timeService.wallClockTime()
+      while (batch.size < batchSize && entries.hasNext) {
+         val entry = entries.next()
+         if (!entry.isExpired(now) && isIncluded(entry.getKey))
+            batch += ((entry.getKey.asInstanceOf[Array[Byte]], entry.getValue.asInstanceOf[Array[Byte]]))
+      }
+      if (usesStores && batch.size < batchSize) {
+         if (storedKeys == null) storedKeys = collectStoredKeys()
+         while (batch.size < batchSize && storedKeys.hasNext) {
+            val key = storedKeys.next()
+            // the entry may have been removed, or loaded back into memory, since its key was collected
+            val stored = persistenceManager.loadFromAllStores(key)
+            if (stored != null && (stored.getMetadata == null || !stored.getMetadata.isExpired(now)))
+               batch += ((key, stored.getValue.asInstanceOf[Array[Byte]]))
+         }
+      }
+      batch
+   }
+
+   private def collectStoredKeys(): Iterator[Array[Byte]] = {
+      // the stores may process their keys in parallel, and several stores may hold the same key
+      val keys = Collections.synchronizedSet(new EquivalentHashSet[Array[Byte]](ByteArrayEquivalence.INSTANCE))
+      persistenceManager.processOnAllStores(new KeyFilter[Array[Byte]] {
+         // the entries in memory have been returned already
+         override def shouldLoadKey(key: Array[Byte]): Boolean = !dataContainer.containsKey(key) && isIncluded(key)
+      }, new CacheLoaderTask[Array[Byte], Array[Byte]] {
+         override def processEntry(entry: MarshalledEntry[Array[Byte], Array[Byte]], context: TaskContext) {
+            keys.add(entry.getKey)
+         }
+      }, false, false)
+      keys.iterator
+   }
+
+   private def isIncluded(key: Any): Boolean = {
+      if (!isShared) true
+      else if (!clusteringLogic.localNodeIsPrimaryOwner(key)) false
+      else if (segments.isEmpty) true
+      else segments.contains(stateTransferManager.getCacheTopology.getReadConsistentHash.getSegment(key))
+   }
+
+}
@@ -0,0 +1,38 @@
+package org.infinispan.server.hotrod
+
+import org.infinispan.notifications.Listener
+import org.infinispan.notifications.cachelistener.annotation.{CacheEntryInvalidated, CacheEntryModified, CacheEntryRemoved}
+import org.infinispan.notifications.cachelistener.event.{CacheEntryEvent, CacheEntryModifiedEvent}
+import org.jboss.netty.channel.Channel
+
+/**
+ * Listener which pushes a key invalidation event to a Hot Rod client for every key modified or removed in the cache,
+ * so that the client can drop the key from its near cache. The events are written to the channel on which the
+ * client registered, with the message id of the registration request.
+ *
+ * @since 6.0
+ */
+@Listener
+class KeyInvalidationListener(ch: Channel, version: Byte, messageId: Long, cacheName: String) {
+
+   @CacheEntryModified
+   def entryModified(e: CacheEntryModifiedEvent[_, _]) {
+      // Once notified, the client must not be able to read the previous value again
+      if (!e.isPre) invalidate(e.getKey)
+   }
+
+   @CacheEntryRemoved
+   @CacheEntryInvalidated
+   def entryRemoved(e: CacheEntryEvent[_, _]) {
+      // Clear only notifies before the entries are removed, so both notifications are sent
+      invalidate(e.getKey)
+   }
+
+   private def invalidate(key: Any) {
+      key match {
+         case k: Array[Byte] => if (ch.isOpen) ch.write(new KeyInvalidationEvent(version, messageId, cacheName, k))
+         case _ => // Not stored through Hot Rod, so it cannot be in any near cache
+      }
+   }
+
+}
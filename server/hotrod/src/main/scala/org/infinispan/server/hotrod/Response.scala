@@ -168,6 +168,42 @@ class QueryResponse(override val version: Byte, override val messageId: Long, ov
    }
 }
 
+class GetAllResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+        override val clientIntel: Short, override val topologyId: Int, val entries: Seq[(Array[Byte], Array[Byte])])
+      extends Response(version, messageId, cacheName, clientIntel, GetAllResponse, Success, topologyId) {
+   override def toString: String = {
+      new StringBuilder().append("GetAllResponse").append("{")
+              .append("version=").append(version)
+              .append(", messageId=").append(messageId)
+              .append(", entries=").append(entries.size)
+              .append("}").toString
+   }
+}
+
+class IterationStartResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+        override val clientIntel: Short, override val topologyId: Int, val iterationId: String)
+      extends Response(version, messageId, cacheName, clientIntel, IterationStartResponse, Success, topologyId) {
+   override def toString: String = {
+      new StringBuilder().append("IterationStartResponse").append("{")
+              .append("version=").append(version)
+              .append(", messageId=").append(messageId)
+              .append(", iterationId=").append(iterationId)
+              .append("}").toString
+   }
+}
+
+class IterationNextResponse(override val version: Byte, override val messageId: Long, override val cacheName: String,
+        override val clientIntel: Short, override val topologyId: Int, val entries: Seq[(Array[Byte], Array[Byte])])
+      extends Response(version, messageId, cacheName, clientIntel, IterationNextResponse, Success, topologyId) {
+   override def toString: String = {
+      new StringBuilder().append("IterationNextResponse").append("{")
+              .append("version=").append(version)
+              .append(", messageId=").append(messageId)
+              .append(", entries=").append(entries.size)
+              .append("}").toString
+   }
+}
+
 abstract class AbstractTopologyResponse(val topologyId: Int, val serverEndpointsMap : Map[Address, ServerAddress])
 
 abstract class AbstractHashDistAwareResponse(override val topologyId: Int,
@@ -190,3 +226,43 @@ case class HashDistAware11Response(override val topologyId: Int,
                                    override val numOwners: Int, override val hashFunction: Byte,
                                    override val hashSpace: Int, numVNodes: Int)
         extends AbstractHashDistAwareResponse(topologyId, serverEndpointsMap, numOwners, hashFunction, hashSpace)
+
+/**
+ * Event pushed by a KeyInvalidationListener to the client which registered it. Events never carry topology
+ * updates, as the client reads them outside of its request path.
+ */
+class KeyInvalidationEvent(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                           val key: Array[Byte])
+      extends Response(version, messageId, cacheName, Constants.INTELLIGENCE_BASIC, OperationResponse.KeyInvalidationEvent,
+                       Success, 0) {
+   override def toString = {
+      new StringBuilder().append("KeyInvalidationEvent").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", key=").append(Util.printArray(key, true))
+         .append("}").toString
+   }
+}
+
+/**
+ * Event pushed by a ClientEventListener to the client which registered it.
+ */
+class ClientEvent(override val version: Byte, override val messageId: Long, override val cacheName: String,
+                  val eventType: Byte, val key: Array[Byte])
+      extends Response(version, messageId, cacheName, Constants.INTELLIGENCE_BASIC, OperationResponse.ClientEvent,
+                       Success, 0) {
+   override def toString = {
+      new StringBuilder().append("ClientEvent").append("{")
+         .append("version=").append(version)
+         .append(", messageId=").append(messageId)
+         .append(", eventType=").append(eventType)
+         .append(", key=").append(Util.printArray(key, true))
+         .append("}").toString
+   }
+}
+
+object ClientEvent {
+   val Created: Byte = 0x01
+   val Modified: Byte = 0x02
+   val Removed: Byte = 0x03
+}
@@ -30,6 +30,18 @@ class HotRodFunctionalTest extends HotRodSingleNodeTest {
          "Status should have been 'UnknownOperation' but instead was: " + status)
    }
 
+   def testGetAllWithVersion12(m: Method) {
+      val client12 = new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 12)
+      try {
+         val status = client12.execute(0xA0, 0x21, cacheName, k(m) , 0, 0, v(m), 0, 1, 0).status
+         assertEquals(status, UnknownOperation,
+            "Status should have been 'UnknownOperation' but instead was: " + status)
+         client12.assertPut(m) // Do a put to make sure decoder gets back to reading properly
+      } finally {
+         client12.stop
+      }
+   }
+
    def testUnknownMagic(m: Method) {
       client.assertPut(m) // Do a put to make sure decoder gets back to reading properly
       val status = client.executeExpectBadMagic(0x66, 0x01, cacheName, k(m) , 0, 0, v(m), 0).status
@@ -2,6 +2,7 @@
 
 import java.net.SocketAddress;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -47,6 +48,21 @@ public Transport getTransport(final byte[] key) {
       return null;
    }
 
+   @Override
+   public Transport getTransport(final SocketAddress server) {
+      return null;
+   }
+
+   @Override
+   public SocketAddress getServer(final byte[] key) {
+      return null;
+   }
+
+   @Override
+   public Collection<SocketAddress> getServers() {
+      return Collections.emptyList();
+   }
+
    @Override
    public boolean isTcpNoDelay() {
       return false;